@@ -3,17 +3,26 @@ package controller;
 import model.Usuario;
 import util.NetworkClient;
 
+import java.util.function.Consumer;
+
 /**
  * Controller para operações de autenticação
  */
 public class AuthController {
     private NetworkClient networkClient;
-    private Usuario usuarioLogado;
+    private volatile Usuario usuarioLogado;
+    
+    /** Token da sessão no servidor (último campo da resposta do LOGIN), usado no RESUME */
+    private volatile String tokenSessao;
+    
+    /** Avisado do resultado do RESUME após cada reconexão automática */
+    private volatile Consumer<LoginResult> ouvinteReconexao;
     
     // Constantes do protocolo
     private static final String CMD_LOGIN = "LOGIN";
     private static final String CMD_REGISTER = "REGISTER";
     private static final String CMD_LOGOUT = "LOGOUT";
+    private static final String CMD_RESUME = "RESUME";
     private static final String CMD_LIST_USERS = "LIST_USERS";
     private static final String CMD_UPDATE_USER = "UPDATE_USER";
     private static final String CMD_UPDATE_USER_PASSWORD = "UPDATE_USER_PASSWORD";
@@ -29,6 +38,7 @@ public class AuthController {
     
     public AuthController() {
         this.networkClient = new NetworkClient();
+        this.networkClient.setReconnectListener(this::retomarAposReconexao);
     }
     
     /**
@@ -66,6 +76,8 @@ public class AuthController {
                                 dadosUsuario[2],
                                 dadosUsuario[3]
                             );
+                            // Servidores sem sessões não enviam o token
+                            tokenSessao = dadosUsuario.length >= 5 ? dadosUsuario[4] : null;
                             return new LoginResult(true, "Login realizado com sucesso", usuarioLogado);
                         } else if (dadosUsuario.length >= 3) {
                             // Compatibilidade com versões antigas que não retornam tipo
@@ -127,6 +139,7 @@ public class AuthController {
                                 dadosUsuario[1],
                                 dadosUsuario[2]
                             );
+                            tokenSessao = dadosUsuario.length >= 5 ? dadosUsuario[4] : null;
                             return new LoginResult(true, "Usuário cadastrado com sucesso", usuarioLogado);
                         }
                     }
@@ -156,6 +169,84 @@ public class AuthController {
             networkClient.sendCommand(CMD_LOGOUT);
         }
         usuarioLogado = null;
+        tokenSessao = null;
+    }
+    
+    /**
+     * Reconecta e retoma a sessão pelo token, sem refazer o login
+     * 
+     * Usado quando a conexão cai: o servidor devolve o usuário da sessão
+     * sem consultar o banco. Se a sessão tiver expirado (ou o servidor
+     * tiver reiniciado), retorna falha e é preciso fazer login de novo.
+     */
+    public LoginResult retomarSessao() {
+        if (tokenSessao == null) {
+            return new LoginResult(false, "Nenhuma sessão para retomar", null);
+        }
+        if (!networkClient.isConnected() && !networkClient.connect()) {
+            return new LoginResult(false, "Não conectado ao servidor", null);
+        }
+        
+        String resposta = networkClient.sendCommand(CMD_RESUME + SEPARATOR + tokenSessao + SEPARATOR + "admin");
+        return processarRespostaResume(resposta);
+    }
+    
+    /**
+     * Define quem é avisado quando a conexão cai, volta sozinha e a sessão
+     * é retomada (ou não pôde ser: sessão expirada, novo login necessário)
+     * 
+     * @param ouvinte chamado fora da thread do Swing; null remove
+     */
+    public void setOuvinteReconexao(Consumer<LoginResult> ouvinte) {
+        this.ouvinteReconexao = ouvinte;
+    }
+    
+    /**
+     * Retoma a sessão na conexão refeita pelo NetworkClient, sem bloquear
+     * a thread dele
+     */
+    private void retomarAposReconexao() {
+        String token = tokenSessao;
+        if (token == null) {
+            return;
+        }
+        networkClient.sendCommandAsync(CMD_RESUME + SEPARATOR + token + SEPARATOR + "admin")
+            .whenComplete((resposta, erro) -> {
+                LoginResult resultado = erro == null
+                        ? processarRespostaResume(resposta)
+                        : new LoginResult(false, "Erro de comunicação: " + erro.getMessage(), null);
+                Consumer<LoginResult> ouvinte = ouvinteReconexao;
+                if (ouvinte != null) {
+                    ouvinte.accept(resultado);
+                }
+            });
+    }
+    
+    /**
+     * Interpreta "OK|id;nome;email;tipo" do RESUME; qualquer outra resposta
+     * descarta o token
+     */
+    private LoginResult processarRespostaResume(String resposta) {
+        String[] partes = resposta.split("\\" + SEPARATOR);
+        
+        if (partes.length >= 2 && STATUS_OK.equals(partes[0])) {
+            String[] dadosUsuario = partes[1].split(FIELD_SEPARATOR);
+            if (dadosUsuario.length >= 4) {
+                usuarioLogado = new Usuario(
+                    Integer.parseInt(dadosUsuario[0]),
+                    dadosUsuario[1],
+                    dadosUsuario[2],
+                    dadosUsuario[3]
+                );
+                return new LoginResult(true, "Sessão retomada", usuarioLogado);
+            }
+            return new LoginResult(false, "Erro ao processar dados do usuário", null);
+        }
+        
+        // Sessão expirada ou inválida: só um novo login resolve
+        tokenSessao = null;
+        String erro = partes.length >= 2 ? partes[1] : "Sessão expirada";
+        return new LoginResult(false, erro, null);
     }
     
     /**
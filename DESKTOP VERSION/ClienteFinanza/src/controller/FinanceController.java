@@ -46,6 +46,9 @@ public class FinanceController {
     private static final String CMD_ADD_MOVIMENTACAO = "ADD_MOVIMENTACAO";
     private static final String CMD_UPDATE_MOVIMENTACAO = "UPDATE_MOVIMENTACAO";
     private static final String CMD_DELETE_MOVIMENTACAO = "DELETE_MOVIMENTACAO";
+    private static final String CMD_LIST_MOVIMENTACOES_PAGE = "LIST_MOVIMENTACOES_PAGE";
+    private static final String CMD_LIST_MOVIMENTACOES_PERIODO_PAGE = "LIST_MOVIMENTACOES_PERIODO_PAGE";
+    private static final String CMD_LIST_MOVIMENTACOES_CONTA_PAGE = "LIST_MOVIMENTACOES_CONTA_PAGE";
     
     // Comandos de Perfil
     private static final String CMD_GET_PERFIL = "GET_PERFIL";
@@ -373,54 +376,115 @@ public class FinanceController {
         String[] partes = resposta.split("\\" + SEPARATOR);
         
         if (partes.length >= 1 && STATUS_OK.equals(partes[0])) {
-            List<Movimentacao> movimentacoes = new ArrayList<>();
+            List<Movimentacao> movimentacoes = parseMovimentacoes(partes.length >= 2 ? partes[1] : "");
             
-            if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
-                String[] movimentacoesData = partes[1].split(FIELD_SEPARATOR);
+            // Carregar nomes das categorias para exibição
+            carregarNomesCategorias(movimentacoes);
+            
+            return new OperationResult<>(true, "Movimentações carregadas", movimentacoes);
+        }
+        
+        String erro = partes.length >= 2 ? partes[1] : "Erro desconhecido";
+        return new OperationResult<>(false, erro, null);
+    }
+    
+    /**
+     * Converte os registros de movimentação do protocolo em objetos
+     * Formato: id,valor_inteiro,valor_decimal,data,descricao,tipo,idConta,idCategoria;...
+     */
+    private List<Movimentacao> parseMovimentacoes(String dados) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        if (dados == null || dados.trim().isEmpty()) {
+            return movimentacoes;
+        }
+        
+        String[] movimentacoesData = dados.split(FIELD_SEPARATOR);
+        
+        for (String movStr : movimentacoesData) {
+            try {
+                // Parse movimentacao data to handle Brazilian decimal format
+                // Expected format: id,valor_inteiro,valor_decimal,data,descricao,tipo,idConta,idCategoria
+                // Example: 3,10,00,2025-09-06,aa,receita,1,11
                 
-                for (String movStr : movimentacoesData) {
-                    try {
-                        // Parse movimentacao data to handle Brazilian decimal format
-                        // Expected format: id,valor_inteiro,valor_decimal,data,descricao,tipo,idConta,idCategoria
-                        // Example: 3,10,00,2025-09-06,aa,receita,1,11
-                        
-                        String[] campos = movStr.split(",");
-                        if (campos.length >= 8) {
-                            // Parse fields according to the expected format
-                            int id = Integer.parseInt(campos[0]);
-                            
-                            // Reconstruct valor from Brazilian decimal format: valor_inteiro,valor_decimal
-                            String valorStr = campos[1] + "," + campos[2]; // Reconstruct Brazilian decimal
-                            double valor = parsePortugueseDouble(valorStr);
-                            
-                            Date data = Date.valueOf(campos[3]);
-                            String descricao = campos[4];
-                            Movimentacao.TipoMovimentacao tipo = Movimentacao.TipoMovimentacao.fromString(campos[5]);
-                            
-                            // Skip this record if tipo is null (invalid type)
-                            if (tipo == null) {
-                                System.err.println("Tipo de movimentação inválido, ignorando registro: " + movStr);
-                                continue;
-                            }
-                            
-                            int idConta = Integer.parseInt(campos[6]);
-                            int idCategoria = Integer.parseInt(campos[7]);
-                            
-                            Movimentacao movimentacao = new Movimentacao(id, valor, data, descricao, tipo, idConta, idCategoria);
-                            movimentacoes.add(movimentacao);
-                        }
-                    } catch (Exception e) {
-                        // Log the error for debugging but continue processing other records
-                        System.err.println("Erro ao processar movimentação: " + movStr + " - " + e.getMessage());
-                        e.printStackTrace(); // Add stack trace for better debugging
+                String[] campos = movStr.split(",");
+                if (campos.length >= 8) {
+                    // Parse fields according to the expected format
+                    int id = Integer.parseInt(campos[0]);
+                    
+                    // Reconstruct valor from Brazilian decimal format: valor_inteiro,valor_decimal
+                    String valorStr = campos[1] + "," + campos[2]; // Reconstruct Brazilian decimal
+                    double valor = parsePortugueseDouble(valorStr);
+                    
+                    Date data = Date.valueOf(campos[3]);
+                    String descricao = campos[4];
+                    Movimentacao.TipoMovimentacao tipo = Movimentacao.TipoMovimentacao.fromString(campos[5]);
+                    
+                    // Skip this record if tipo is null (invalid type)
+                    if (tipo == null) {
+                        System.err.println("Tipo de movimentação inválido, ignorando registro: " + movStr);
+                        continue;
                     }
+                    
+                    int idConta = Integer.parseInt(campos[6]);
+                    int idCategoria = Integer.parseInt(campos[7]);
+                    
+                    Movimentacao movimentacao = new Movimentacao(id, valor, data, descricao, tipo, idConta, idCategoria);
+                    movimentacoes.add(movimentacao);
                 }
+            } catch (Exception e) {
+                // Log the error for debugging but continue processing other records
+                System.err.println("Erro ao processar movimentação: " + movStr + " - " + e.getMessage());
+                e.printStackTrace(); // Add stack trace for better debugging
             }
-            
-            // Carregar nomes das categorias para exibição
+        }
+        return movimentacoes;
+    }
+    
+    /**
+     * Lista a primeira página (cursor null) ou a página seguinte ao cursor
+     * @param limite número de movimentações por página (1 a 500)
+     * @param cursor proximoCursor da página anterior ou null
+     */
+    public OperationResult<PaginaMovimentacoes> listarMovimentacoesPagina(int limite, String cursor) {
+        return carregarPaginaMovimentacoes(CMD_LIST_MOVIMENTACOES_PAGE + SEPARATOR + limite + SEPARATOR +
+                (cursor != null ? cursor : ""));
+    }
+    
+    /**
+     * Lista uma página das movimentações de um período
+     */
+    public OperationResult<PaginaMovimentacoes> listarMovimentacoesPeriodoPagina(Date dataInicio, Date dataFim,
+                                                                               int limite, String cursor) {
+        return carregarPaginaMovimentacoes(CMD_LIST_MOVIMENTACOES_PERIODO_PAGE + SEPARATOR +
+                dataInicio.toString() + SEPARATOR + dataFim.toString() + SEPARATOR + limite + SEPARATOR +
+                (cursor != null ? cursor : ""));
+    }
+    
+    /**
+     * Lista uma página das movimentações de uma conta
+     */
+    public OperationResult<PaginaMovimentacoes> listarMovimentacoesContaPagina(int idConta, int limite, String cursor) {
+        return carregarPaginaMovimentacoes(CMD_LIST_MOVIMENTACOES_CONTA_PAGE + SEPARATOR + idConta + SEPARATOR +
+                limite + SEPARATOR + (cursor != null ? cursor : ""));
+    }
+    
+    /**
+     * Envia um comando paginado e interpreta a resposta OK|proximoCursor|registros
+     */
+    private OperationResult<PaginaMovimentacoes> carregarPaginaMovimentacoes(String comando) {
+        if (!networkClient.isConnected()) {
+            return new OperationResult<>(false, "Não conectado ao servidor", null);
+        }
+        
+        String resposta = networkClient.sendCommand(comando);
+        String[] partes = resposta.split("\\" + SEPARATOR, 3);
+        
+        if (partes.length >= 1 && STATUS_OK.equals(partes[0])) {
+            String proximoCursor = partes.length >= 2 && !partes[1].trim().isEmpty() ? partes[1].trim() : null;
+            List<Movimentacao> movimentacoes = parseMovimentacoes(partes.length >= 3 ? partes[2] : "");
             carregarNomesCategorias(movimentacoes);
-            
-            return new OperationResult<>(true, "Movimentações carregadas", movimentacoes);
+            return new OperationResult<>(true, "Movimentações carregadas",
+                    new PaginaMovimentacoes(movimentacoes, proximoCursor));
         }
         
         String erro = partes.length >= 2 ? partes[1] : "Erro desconhecido";
@@ -602,6 +666,21 @@ public class FinanceController {
         public T getDados() { return dados; }
     }
     
+    public static class PaginaMovimentacoes {
+        private final List<Movimentacao> movimentacoes;
+        private final String proximoCursor;
+        
+        public PaginaMovimentacoes(List<Movimentacao> movimentacoes, String proximoCursor) {
+            this.movimentacoes = movimentacoes;
+            this.proximoCursor = proximoCursor;
+        }
+        
+        public List<Movimentacao> getMovimentacoes() { return movimentacoes; }
+        /** Cursor para pedir a próxima página, ou null se esta for a última */
+        public String getProximoCursor() { return proximoCursor; }
+        public boolean temProximaPagina() { return proximoCursor != null; }
+    }
+    
     public static class DashboardData {
         private final boolean sucesso;
         private final String mensagem;
@@ -0,0 +1,281 @@
+package util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Codificação do formato binário do protocolo (lado do cliente)
+ *
+ * Espelha server.BinaryProtocol: frames com tamanho varint, requisição
+ * (id, comando, argumentos) e resposta (id, status, tipo de corpo, corpo).
+ * Os corpos tipados são convertidos de volta para o texto de LIST_*, para
+ * que quem usa sendCommand() continue recebendo "STATUS|dados".
+ */
+public final class BinaryCodec {
+
+    public static final String FORMATO_BINARIO = "binary";
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private static final int CORPO_TEXTO = 0;
+    private static final int CORPO_MOVIMENTACOES = 1;
+    private static final int CORPO_CONTAS = 2;
+    private static final int CORPO_CATEGORIAS = 3;
+    private static final int CORPO_COMPRIMIDO = 4;
+
+    private BinaryCodec() {}
+
+    /**
+     * Resposta decodificada: ID da requisição e resposta no formato de texto
+     */
+    public static final class Resposta {
+        public final long idRequisicao;
+        public final String texto;
+
+        Resposta(long idRequisicao, String texto) {
+            this.idRequisicao = idRequisicao;
+            this.texto = texto;
+        }
+    }
+
+    /**
+     * Codifica uma requisição como frame completo (tamanho + payload)
+     */
+    public static byte[] codificarRequisicao(long idRequisicao, String comando, String... args) {
+        Escritor payload = new Escritor();
+        payload.varlong(idRequisicao);
+        payload.string(comando);
+        payload.varlong(args.length);
+        for (String arg : args) {
+            payload.string(arg != null ? arg : "");
+        }
+        Escritor frame = new Escritor();
+        frame.varlong(payload.tamanho);
+        frame.bytes(payload.buffer, payload.tamanho);
+        return frame.toByteArray();
+    }
+
+    /**
+     * Lê o payload de um frame
+     * @return payload ou null se o stream terminar entre frames
+     */
+    public static byte[] lerFrame(InputStream in) throws IOException {
+        int tamanho = 0;
+        for (int deslocamento = 0; ; deslocamento += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (deslocamento == 0) {
+                    return null;
+                }
+                throw new EOFException("Conexão encerrada no meio do frame");
+            }
+            if (deslocamento > 28) {
+                throw new IOException("Tamanho de frame inválido");
+            }
+            tamanho |= (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (tamanho < 0 || tamanho > MAX_FRAME_BYTES) {
+            throw new IOException("Frame acima de " + MAX_FRAME_BYTES + " bytes");
+        }
+        byte[] payload = new byte[tamanho];
+        int lidos = 0;
+        while (lidos < tamanho) {
+            int n = in.read(payload, lidos, tamanho - lidos);
+            if (n < 0) {
+                throw new EOFException("Conexão encerrada no meio do frame");
+            }
+            lidos += n;
+        }
+        return payload;
+    }
+
+    /**
+     * Escreve bytes já codificados e envia
+     */
+    public static void enviar(OutputStream out, byte[] frame) throws IOException {
+        out.write(frame);
+        out.flush();
+    }
+
+    /**
+     * Decodifica o payload de uma resposta
+     * @param descompressor Inflater da conexão, para os corpos comprimidos
+     * @throws IOException se o payload estiver malformado
+     */
+    public static Resposta decodificarResposta(byte[] payload, ResponseDecompressor descompressor) throws IOException {
+        try {
+            Leitor leitor = new Leitor(payload);
+            long id = leitor.varlong();
+            String status = leitor.string();
+            int tipoCorpo = leitor.byte_();
+            if (tipoCorpo == CORPO_COMPRIMIDO) {
+                // tipoOriginal + tamanhoOriginal + corpo deflate
+                tipoCorpo = leitor.byte_();
+                int tamanhoOriginal = leitor.varint();
+                leitor = new Leitor(descompressor.descomprimir(payload, leitor.posicao,
+                        payload.length - leitor.posicao, tamanhoOriginal));
+            }
+            StringBuilder dados = new StringBuilder();
+            switch (tipoCorpo) {
+                case CORPO_TEXTO:
+                    dados.append(leitor.string());
+                    break;
+                case CORPO_MOVIMENTACOES:
+                    lerMovimentacoes(leitor, dados);
+                    break;
+                case CORPO_CONTAS:
+                    lerContas(leitor, dados);
+                    break;
+                case CORPO_CATEGORIAS:
+                    lerCategorias(leitor, dados);
+                    break;
+                default:
+                    throw new IOException("Tipo de corpo desconhecido: " + tipoCorpo);
+            }
+            return new Resposta(id, status + "|" + dados);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Resposta binária inválida: " + e.getMessage(), e);
+        }
+    }
+
+    /** id,valorInteiro,valorDecimal,data,descricao,tipo,idConta,idCategoria */
+    private static void lerMovimentacoes(Leitor leitor, StringBuilder dados) {
+        int n = leitor.varint();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                dados.append(';');
+            }
+            int id = leitor.varint();
+            String valor = BigDecimal.valueOf(leitor.zigzag(), 2).toPlainString();
+            LocalDate data = LocalDate.ofEpochDay(leitor.zigzag());
+            int ponto = valor.indexOf('.');
+            dados.append(id).append(',')
+                 .append(valor, 0, ponto).append(',')
+                 .append(valor, ponto + 1, valor.length()).append(',')
+                 .append(data).append(',')
+                 .append(leitor.string()).append(',')
+                 .append(leitor.string()).append(',')
+                 .append(leitor.varint()).append(',')
+                 .append(leitor.varint());
+        }
+    }
+
+    /** id,nome,tipo,saldoInicial,saldoAtual (decimais com vírgula) */
+    private static void lerContas(Leitor leitor, StringBuilder dados) {
+        int n = leitor.varint();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                dados.append(';');
+            }
+            dados.append(leitor.varint()).append(',')
+                 .append(leitor.string()).append(',')
+                 .append(leitor.string()).append(',')
+                 .append(BigDecimal.valueOf(leitor.zigzag(), 2).toPlainString().replace('.', ',')).append(',')
+                 .append(BigDecimal.valueOf(leitor.zigzag(), 2).toPlainString().replace('.', ','));
+        }
+    }
+
+    /** id,nome,tipo */
+    private static void lerCategorias(Leitor leitor, StringBuilder dados) {
+        int n = leitor.varint();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                dados.append(';');
+            }
+            dados.append(leitor.varint()).append(',')
+                 .append(leitor.string()).append(',')
+                 .append(leitor.string());
+        }
+    }
+
+    private static final class Escritor {
+        private byte[] buffer = new byte[64];
+        private int tamanho;
+
+        void varlong(long valor) {
+            garantir(10);
+            while ((valor & ~0x7FL) != 0) {
+                buffer[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            buffer[tamanho++] = (byte) valor;
+        }
+
+        void string(String valor) {
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            varlong(utf8.length);
+            bytes(utf8, utf8.length);
+        }
+
+        void bytes(byte[] origem, int n) {
+            garantir(n);
+            System.arraycopy(origem, 0, buffer, tamanho, n);
+            tamanho += n;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, tamanho);
+        }
+
+        private void garantir(int extra) {
+            if (tamanho + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, tamanho + extra));
+            }
+        }
+    }
+
+    private static final class Leitor {
+        private final byte[] buffer;
+        private int posicao;
+
+        Leitor(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int byte_() {
+            if (posicao >= buffer.length) {
+                throw new IllegalArgumentException("Payload truncado");
+            }
+            return buffer[posicao++] & 0xFF;
+        }
+
+        int varint() {
+            return (int) varlong();
+        }
+
+        long varlong() {
+            long valor = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                int b = byte_();
+                valor |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IllegalArgumentException("Varint malformado");
+        }
+
+        long zigzag() {
+            long valor = varlong();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        String string() {
+            int n = varint();
+            if (n < 0 || n > buffer.length - posicao) {
+                throw new IllegalArgumentException("Payload truncado");
+            }
+            String valor = new String(buffer, posicao, n, StandardCharsets.UTF_8);
+            posicao += n;
+            return valor;
+        }
+    }
+}
@@ -1,33 +1,184 @@
 package util;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Classe para gerenciar comunicação com o servidor
+ *
+ * Cada comando é enviado com um ID de requisição ("#id|COMANDO|...") e o
+ * servidor devolve a resposta com o mesmo ID, possivelmente fora de ordem.
+ * Uma thread leitora entrega cada resposta ao CompletableFuture do comando,
+ * então vários comandos podem ficar em voo na mesma conexão.
+ *
+ * Com useBinaryFormat() a conexão passa ao formato binário (frames com
+ * campos tipados, ver BinaryCodec) e com useCompression() as respostas
+ * grandes chegam comprimidas (ver ResponseDecompressor); a API continua a mesma.
+ *
+ * Depois de subscribe() o servidor também envia, a qualquer momento,
+ * notificações de alterações com o ID reservado 0 ("#0|NOTIFY|..."), que a
+ * thread leitora entrega ao ouvinte de setNotificationListener().
+ *
+ * Uso concorrente (telas com várias abas carregando ao mesmo tempo):
+ * - Os métodos *Async podem ser chamados de qualquer thread, inclusive a
+ *   do Swing, e não bloqueiam; sendCommand() bloqueia e não deve ser
+ *   chamado na thread de eventos
+ * - Toda requisição tem prazo (DEFAULT_REQUEST_TIMEOUT_MS ou o informado):
+ *   sem resposta no prazo, o future falha com TimeoutException e a resposta
+ *   que chegar depois é descartada
+ * - Se a conexão cair sem disconnect(), as requisições em voo falham com
+ *   IOException e o cliente reconecta sozinho, com espera crescente entre
+ *   as tentativas; depois de reconectar refaz o formato binário e a
+ *   compressão pedidos antes e chama o ouvinte de setReconnectListener()
+ *   (que retoma a sessão e refaz a inscrição nas notificações)
  */
 public class NetworkClient {
     private static final String SERVER_HOST = "localhost";
     private static final int SERVER_PORT = 8080;
     
+    /** Prefixo do ID de requisição no protocolo */
+    private static final String REQUEST_ID_PREFIX = "#";
+    
+    /** ID reservado das notificações do servidor (os comandos começam em 1) */
+    private static final String NOTIFY_REQUEST_ID = "0";
+    private static final String NOTIFY_PREFIX = "NOTIFY|";
+    
+    /** Tempo máximo de espera pela resposta da negociação de formato */
+    private static final long NEGOTIATION_TIMEOUT_MS = 5000;
+    
+    /** Limiar padrão (bytes) para o servidor comprimir uma resposta */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 4096;
+    
+    /** Prazo padrão de cada requisição (-Dfinanza.client.timeoutMs; 0 desativa) */
+    public static final long DEFAULT_REQUEST_TIMEOUT_MS = Long.getLong("finanza.client.timeoutMs", 30000L);
+    
+    /** Tempo máximo para abrir a conexão TCP */
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    
+    /** Espera antes da primeira tentativa de reconexão (dobra a cada falha) */
+    private static final long RECONNECT_MIN_DELAY_MS = 1000;
+    
+    /** Espera máxima entre tentativas de reconexão */
+    private static final long RECONNECT_MAX_DELAY_MS = 30000;
+    
+    private static final AtomicInteger INSTANCIAS = new AtomicInteger();
+    
+    /** Guarda a troca de socket (connect, queda, reconexão e disconnect) */
+    private final Object conexao = new Object();
+    
     private Socket socket;
-    private BufferedReader input;
+    private InputStream input;
+    private OutputStream rawOutput;
     private PrintWriter output;
-    private boolean connected = false;
+    private volatile boolean connected = false;
+    
+    /** Conexão no formato binário (alterado pela thread leitora ao receber OK|binary) */
+    private volatile boolean binario = false;
+    
+    /** Resposta (sem ID) aguardada da negociação SET_FORMAT */
+    private volatile CompletableFuture<String> negociacao;
+    
+    /** Gerador dos IDs de requisição desta conexão */
+    private final AtomicLong proximoId = new AtomicLong();
+    
+    /** Requisições aguardando resposta, por ID */
+    private final Map<String, CompletableFuture<String>> pendentes = new ConcurrentHashMap<>();
+    
+    /** Recebe as notificações "NOTIFY|entidade|operacao|id|versao|idUsuario" (na thread leitora) */
+    private volatile Consumer<String> ouvinteNotificacoes;
+    
+    /** Chamado depois de cada reconexão automática */
+    private volatile Runnable ouvinteReconexao;
+    
+    /** disconnect() chamado: a queda da conexão não deve reconectar */
+    private volatile boolean encerrado = true;
+    
+    /** Reconecta sozinho quando a conexão cai */
+    private volatile boolean reconexaoAutomatica = true;
+    
+    /** Reconexão aberta, refazendo formato e compressão: só esses comandos passam */
+    private volatile boolean restaurando = false;
+    
+    /** Pedidos feitos nesta conexão, refeitos após reconectar */
+    private volatile boolean querBinario = false;
+    private volatile int limiarCompressao = -1;
+    
+    /** Próxima tentativa de reconexão agendada (guardado por conexao) */
+    private ScheduledFuture<?> reconexaoAgendada;
+    
+    /** Prazos das requisições e tentativas de reconexão */
+    private final ScheduledThreadPoolExecutor agendador;
+    
+    public NetworkClient() {
+        int instancia = INSTANCIAS.incrementAndGet();
+        AtomicInteger contador = new AtomicInteger();
+        // Duas threads: uma reconexão refazendo a negociação não atrasa os prazos
+        agendador = new ScheduledThreadPoolExecutor(2, r -> {
+            Thread t = new Thread(r, "finanza-network-" + instancia + "-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.setRemoveOnCancelPolicy(true);
+    }
     
     /**
      * Conecta ao servidor
      */
     public boolean connect() {
+        synchronized (conexao) {
+            encerrado = false;
+            cancelarReconexao();
+            if (connected) {
+                return true;
+            }
+            return abrirConexao();
+        }
+    }
+    
+    /**
+     * Abre o socket e inicia a thread leitora dele (com o lock conexao)
+     */
+    private boolean abrirConexao() {
+        Socket novo = new Socket();
         try {
-            socket = new Socket(SERVER_HOST, SERVER_PORT);
-            input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            output = new PrintWriter(socket.getOutputStream(), true);
+            novo.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), CONNECT_TIMEOUT_MS);
+            InputStream entrada = new BufferedInputStream(novo.getInputStream());
+            ResponseDecompressor inflater = new ResponseDecompressor();
+            
+            socket = novo;
+            input = entrada;
+            rawOutput = new BufferedOutputStream(novo.getOutputStream());
+            output = new PrintWriter(new OutputStreamWriter(rawOutput, StandardCharsets.UTF_8), true);
+            binario = false;
             connected = true;
+            
+            Thread leitor = new Thread(() -> lerRespostas(novo, entrada, inflater), "finanza-network-reader");
+            leitor.setDaemon(true);
+            leitor.start();
+            
             System.out.println("Conectado ao servidor: " + SERVER_HOST + ":" + SERVER_PORT);
             return true;
         } catch (IOException e) {
             System.err.println("Erro ao conectar ao servidor: " + e.getMessage());
+            try {
+                novo.close();
+            } catch (IOException ignorada) {
+                // O socket nem chegou a ser usado
+            }
             connected = false;
             return false;
         }
@@ -35,6 +186,9 @@ public class NetworkClient {
     
     /**
      * Envia comando para o servidor e retorna resposta
+     * 
+     * Bloqueia até a resposta ou o prazo padrão; na thread do Swing use
+     * sendCommandAsync().
      */
     public String sendCommand(String command) {
         if (!connected) {
@@ -42,37 +196,526 @@ public class NetworkClient {
         }
         
         try {
-            output.println(command);
-            String response = input.readLine();
+            String response = sendCommandAsync(command).get();
             System.out.println("Comando enviado: " + command);
-            System.out.println("Resposta recebida (length=" + (response != null ? response.length() : 0) + "): " + response);
+            System.out.println("Resposta recebida (length=" + response.length() + "): " + response);
             return response;
-        } catch (IOException e) {
-            System.err.println("Erro na comunicação: " + e.getMessage());
-            disconnect();
+        } catch (ExecutionException e) {
+            System.err.println("Erro na comunicação: " + e.getCause().getMessage());
+            if (e.getCause() instanceof TimeoutException) {
+                return "ERROR|Servidor não respondeu a tempo";
+            }
+            return "ERROR|Erro de comunicação";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return "ERROR|Erro de comunicação";
         }
     }
     
     /**
-     * Desconecta do servidor
+     * Envia comando sem aguardar a resposta, com o prazo padrão
+     * 
+     * @see #sendCommandAsync(String, long)
      */
-    public void disconnect() {
+    public CompletableFuture<String> sendCommandAsync(String command) {
+        return sendCommandAsync(command, DEFAULT_REQUEST_TIMEOUT_MS);
+    }
+    
+    /**
+     * Envia comando sem aguardar a resposta
+     *
+     * Pode ser chamado de várias threads; os comandos seguem em paralelo
+     * na mesma conexão e cada future é completado quando a resposta com o
+     * seu ID chegar (em qualquer ordem).
+     *
+     * @param command comando no formato "COMANDO|param|..."
+     * @param timeoutMs prazo da resposta (0 espera indefinidamente)
+     * @return future com a resposta "STATUS|dados"; falha com IOException
+     *         se não houver conexão ou ela cair antes da resposta, e com
+     *         TimeoutException se o prazo acabar
+     */
+    public CompletableFuture<String> sendCommandAsync(String command, long timeoutMs) {
+        if (restaurando) {
+            return falha(new IOException("Reconectando ao servidor"));
+        }
+        return enviarComando(command, timeoutMs);
+    }
+    
+    private CompletableFuture<String> enviarComando(String command, long timeoutMs) {
+        // connected (volatile) é gravado depois dos streams: lido antes deles
+        if (!connected) {
+            return falha(new IOException("Não conectado ao servidor"));
+        }
+        PrintWriter saida = output;
+        
+        if (binario) {
+            String[] partes = command.split("\\|");
+            return enviarRequisicao(timeoutMs, partes[0], Arrays.copyOfRange(partes, 1, partes.length));
+        }
+        
+        String id = Long.toString(proximoId.incrementAndGet());
+        CompletableFuture<String> future = registrar(id, timeoutMs);
+        // println do PrintWriter é sincronizado: cada linha sai inteira
+        saida.println(REQUEST_ID_PREFIX + id + "|" + command);
+        if (saida.checkError()) {
+            IOException causa = new IOException("Falha ao enviar comando");
+            perderConexao(socketDe(saida), causa);
+            falhar(id, future, causa);
+        }
+        return future;
+    }
+    
+    /**
+     * Envia comando com os argumentos já separados, com o prazo padrão
+     * 
+     * @see #sendRequestAsync(long, String, String...)
+     */
+    public CompletableFuture<String> sendRequestAsync(String command, String... args) {
+        return sendRequestAsync(DEFAULT_REQUEST_TIMEOUT_MS, command, args);
+    }
+    
+    /**
+     * Envia comando com os argumentos já separados
+     * 
+     * No formato binário cada argumento vai como string própria, então pode
+     * conter | ; , sem ambiguidade; no texto eles são unidos com '|'.
+     * 
+     * @param timeoutMs prazo da resposta (0 espera indefinidamente)
+     * @param command nome do comando (ex: "ADD_MOVIMENTACAO")
+     * @param args argumentos do comando
+     * @return future com a resposta "STATUS|dados"
+     */
+    public CompletableFuture<String> sendRequestAsync(long timeoutMs, String command, String... args) {
+        if (restaurando) {
+            return falha(new IOException("Reconectando ao servidor"));
+        }
+        return enviarRequisicao(timeoutMs, command, args);
+    }
+    
+    private CompletableFuture<String> enviarRequisicao(long timeoutMs, String command, String... args) {
+        if (!binario) {
+            return enviarComando(args.length == 0 ? command : command + "|" + String.join("|", args), timeoutMs);
+        }
+        
+        if (!connected) {
+            return falha(new IOException("Não conectado ao servidor"));
+        }
+        OutputStream saida = rawOutput;
+        Socket socketAtual = socket;
+        long id = proximoId.incrementAndGet();
+        CompletableFuture<String> future = registrar(Long.toString(id), timeoutMs);
+        byte[] frame = BinaryCodec.codificarRequisicao(id, command, args);
+        try {
+            synchronized (saida) {
+                BinaryCodec.enviar(saida, frame);
+            }
+        } catch (IOException e) {
+            IOException causa = new IOException("Falha ao enviar comando", e);
+            perderConexao(socketAtual, causa);
+            falhar(Long.toString(id), future, causa);
+        }
+        return future;
+    }
+    
+    /**
+     * Registra a requisição pendente e agenda o fim do seu prazo
+     * 
+     * Ao expirar, o ID sai de pendentes (a resposta tardia é ignorada pela
+     * thread leitora) e o future falha com TimeoutException.
+     */
+    private CompletableFuture<String> registrar(String id, long timeoutMs) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        pendentes.put(id, future);
+        if (timeoutMs > 0) {
+            ScheduledFuture<?> prazo = agendador.schedule(() -> {
+                if (pendentes.remove(id, future)) {
+                    future.completeExceptionally(new TimeoutException(
+                            "Servidor não respondeu em " + timeoutMs + " ms"));
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            future.whenComplete((resposta, erro) -> prazo.cancel(false));
+        }
+        return future;
+    }
+    
+    /**
+     * Falha a requisição que não chegou a sair (a conexão pode ter caído
+     * antes do registro, sem passar por falharPendentes)
+     */
+    private void falhar(String id, CompletableFuture<String> future, IOException causa) {
+        if (pendentes.remove(id, future)) {
+            future.completeExceptionally(causa);
+        }
+    }
+    
+    private static CompletableFuture<String> falha(Throwable causa) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(causa);
+        return future;
+    }
+    
+    /** Socket da conexão a que pertence o writer (null se já foi trocado) */
+    private Socket socketDe(PrintWriter saida) {
+        synchronized (conexao) {
+            return saida == output ? socket : null;
+        }
+    }
+    
+    /**
+     * Passa a conexão para o formato binário (SET_FORMAT|binary)
+     * 
+     * Deve ser chamado logo após connect(), sem comandos em voo. Se o
+     * servidor não suportar o formato, a conexão continua em texto.
+     * 
+     * @return true se a conexão está no formato binário
+     */
+    public synchronized boolean useBinaryFormat() {
+        if (!connected) {
+            return false;
+        }
+        if (binario) {
+            return true;
+        }
+        
+        CompletableFuture<String> resposta = new CompletableFuture<>();
+        negociacao = resposta;
+        output.println("SET_FORMAT|" + BinaryCodec.FORMATO_BINARIO);
+        try {
+            String texto = resposta.get(NEGOTIATION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            System.out.println("Negociação de formato: " + texto);
+            querBinario = binario;
+            return binario;
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Erro na negociação de formato: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            negociacao = null;
+        }
+    }
+    
+    /**
+     * Verifica se a conexão está no formato binário
+     */
+    public boolean isBinaryFormat() {
+        return binario;
+    }
+    
+    /**
+     * Pede ao servidor que comprima as respostas acima do limiar padrão
+     * 
+     * @return true se o servidor aceitou (SET_COMPRESSION|deflate)
+     */
+    public boolean useCompression() {
+        return useCompression(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+    
+    /**
+     * Pede ao servidor que comprima as respostas acima de thresholdBytes
+     * 
+     * Pode ser chamado a qualquer momento, em texto ou binário: a thread
+     * leitora aceita respostas comprimidas ou não em qualquer ordem.
+     * 
+     * @param thresholdBytes tamanho mínimo de resposta a comprimir
+     * @return true se o servidor aceitou
+     */
+    public boolean useCompression(int thresholdBytes) {
+        String resposta = sendCommand("SET_COMPRESSION|" + ResponseDecompressor.ALGORITMO_DEFLATE + "|" + thresholdBytes);
+        boolean aceito = resposta.startsWith("OK|" + ResponseDecompressor.ALGORITMO_DEFLATE);
+        if (aceito) {
+            limiarCompressao = thresholdBytes;
+        }
+        return aceito;
+    }
+    
+    /**
+     * Define quem recebe as notificações de alterações do servidor
+     * 
+     * O ouvinte é chamado na thread leitora, então deve ser rápido
+     * (telas Swing repassam com SwingUtilities.invokeLater).
+     * 
+     * @param ouvinte recebe "NOTIFY|entidade|operacao|id|versao|idUsuario"; null remove
+     */
+    public void setNotificationListener(Consumer<String> ouvinte) {
+        this.ouvinteNotificacoes = ouvinte;
+    }
+    
+    /**
+     * Pede ao servidor as notificações de alterações feitas por outras conexões
+     * 
+     * Deve ser chamado depois do login (e de novo após reconectar) e depois
+     * de useBinaryFormat(): o servidor não aceita trocar o formato com a
+     * inscrição ativa.
+     * 
+     * @param escopo "usuario" (próprio usuário), "todos" (admin) ou "off"
+     * @return future com a resposta (OK|escopo se aceito)
+     */
+    public CompletableFuture<String> subscribe(String escopo) {
+        return sendRequestAsync("SUBSCRIBE", escopo);
+    }
+    
+    /**
+     * Define quem é avisado depois de cada reconexão automática
+     * 
+     * A conexão nova ainda não tem sessão nem inscrição: o ouvinte deve
+     * retomar a sessão (RESUME) e refazer o subscribe(). É chamado em uma
+     * thread do cliente, não na do Swing, e deve usar apenas os métodos
+     * *Async.
+     * 
+     * @param ouvinte chamado já reconectado; null remove
+     */
+    public void setReconnectListener(Runnable ouvinte) {
+        this.ouvinteReconexao = ouvinte;
+    }
+    
+    /**
+     * Liga ou desliga a reconexão automática (ligada por padrão)
+     */
+    public void setAutoReconnect(boolean ativa) {
+        this.reconexaoAutomatica = ativa;
+        if (!ativa) {
+            synchronized (conexao) {
+                cancelarReconexao();
+            }
+        }
+    }
+    
+    /**
+     * Loop da thread leitora: entrega cada resposta ao future do seu ID
+     * 
+     * Cada conexão tem a sua thread leitora, com o próprio socket, stream e
+     * inflater; ao terminar, ela só derruba a conexão se ainda for a atual.
+     */
+    private void lerRespostas(Socket socket, InputStream input, ResponseDecompressor descompressor) {
+        IOException causa = new IOException("Conexão encerrada pelo servidor");
+        try {
+            while (true) {
+                if (binario) {
+                    byte[] frame = BinaryCodec.lerFrame(input);
+                    if (frame == null) {
+                        break;
+                    }
+                    BinaryCodec.Resposta resposta = BinaryCodec.decodificarResposta(frame, descompressor);
+                    completar(Long.toString(resposta.idRequisicao), resposta.texto);
+                    continue;
+                }
+                
+                String linha = lerLinha(input);
+                if (linha == null) {
+                    break;
+                }
+                int fimId = linha.indexOf('|');
+                if (!linha.startsWith(REQUEST_ID_PREFIX) || fimId < 0) {
+                    CompletableFuture<String> aguardando = negociacao;
+                    if (aguardando != null) {
+                        // Resposta do SET_FORMAT: a partir daqui o servidor envia frames
+                        binario = ("OK|" + BinaryCodec.FORMATO_BINARIO).equals(linha);
+                        aguardando.complete(linha);
+                    } else {
+                        System.err.println("Resposta sem ID de requisição ignorada: " + linha);
+                    }
+                    continue;
+                }
+                String resposta = linha.substring(fimId + 1);
+                if (ResponseDecompressor.isComprimida(resposta)) {
+                    // Os bytes comprimidos seguem a linha do cabeçalho
+                    resposta = descompressor.lerResposta(resposta, input);
+                }
+                completar(linha.substring(REQUEST_ID_PREFIX.length(), fimId), resposta);
+            }
+        } catch (IOException e) {
+            causa = e;
+        } finally {
+            descompressor.encerrar();
+        }
+        perderConexao(socket, causa);
+    }
+    
+    private void completar(String id, String resposta) {
+        if (NOTIFY_REQUEST_ID.equals(id) && resposta.startsWith(NOTIFY_PREFIX)) {
+            Consumer<String> ouvinte = ouvinteNotificacoes;
+            if (ouvinte != null) {
+                try {
+                    ouvinte.accept(resposta);
+                } catch (RuntimeException e) {
+                    System.err.println("Erro ao tratar notificação: " + e.getMessage());
+                }
+            }
+            return;
+        }
+        CompletableFuture<String> future = pendentes.remove(id);
+        if (future != null) {
+            future.complete(resposta);
+        }
+    }
+    
+    /**
+     * Lê uma linha de texto (UTF-8) byte a byte, sem consumir os frames
+     * binários que podem vir depois da negociação
+     */
+    private static String lerLinha(InputStream input) throws IOException {
+        ByteArrayOutputStream linha = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b < 0) {
+                return linha.size() > 0 ? new String(linha.toByteArray(), StandardCharsets.UTF_8) : null;
+            }
+            linha.write(b);
+        }
+        byte[] bytes = linha.toByteArray();
+        int tamanho = bytes.length;
+        if (tamanho > 0 && bytes[tamanho - 1] == '\r') {
+            tamanho--;
+        }
+        return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+    }
+    
+    private void falharPendentes(IOException causa) {
+        for (String id : pendentes.keySet()) {
+            CompletableFuture<String> future = pendentes.remove(id);
+            if (future != null) {
+                future.completeExceptionally(causa);
+            }
+        }
+    }
+    
+    /**
+     * Trata a queda da conexão (fim do stream, erro de leitura ou de escrita)
+     * 
+     * Só age se o socket ainda for o da conexão atual: a thread leitora de
+     * uma conexão já substituída, ou o disconnect() do usuário, chegam aqui
+     * sem efeito. Falha as requisições em voo e, se a reconexão automática
+     * estiver ligada, agenda a primeira tentativa.
+     */
+    private void perderConexao(Socket perdido, IOException causa) {
+        synchronized (conexao) {
+            if (perdido == null || perdido != socket || !connected) {
+                return;
+            }
+            connected = false;
+            fechar();
+            if (!encerrado) {
+                System.err.println("Conexão com o servidor perdida: " + causa.getMessage());
+                if (reconexaoAutomatica) {
+                    agendarReconexao(RECONNECT_MIN_DELAY_MS);
+                }
+            }
+        }
+        falharNegociacao(causa);
+        falharPendentes(causa);
+    }
+    
+    /** Agenda uma tentativa de reconexão (com o lock conexao) */
+    private void agendarReconexao(long esperaMs) {
+        cancelarReconexao();
+        reconexaoAgendada = agendador.schedule(() -> tentarReconectar(esperaMs), esperaMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private void cancelarReconexao() {
+        if (reconexaoAgendada != null) {
+            reconexaoAgendada.cancel(false);
+            reconexaoAgendada = null;
+        }
+    }
+    
+    /**
+     * Uma tentativa de reconexão; se falhar, agenda a próxima com o dobro da
+     * espera (até RECONNECT_MAX_DELAY_MS)
+     */
+    private void tentarReconectar(long esperaMs) {
+        synchronized (conexao) {
+            reconexaoAgendada = null;
+            if (encerrado || connected || !reconexaoAutomatica) {
+                return;
+            }
+            if (!abrirConexao()) {
+                agendarReconexao(Math.min(esperaMs * 2, RECONNECT_MAX_DELAY_MS));
+                return;
+            }
+            restaurando = true;
+        }
+        
+        try {
+            restaurarConfiguracao();
+        } finally {
+            restaurando = false;
+        }
+        
+        Runnable ouvinte = ouvinteReconexao;
+        if (connected && ouvinte != null) {
+            try {
+                ouvinte.run();
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao tratar reconexão: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Refaz na conexão nova o formato binário e a compressão da anterior
+     * (antes de liberar os demais comandos)
+     */
+    private void restaurarConfiguracao() {
+        if (querBinario && !useBinaryFormat()) {
+            System.err.println("Reconectado sem o formato binário");
+        }
+        int limiar = limiarCompressao;
+        if (limiar >= 0 && connected) {
+            String comando = "SET_COMPRESSION|" + ResponseDecompressor.ALGORITMO_DEFLATE + "|" + limiar;
+            try {
+                enviarComando(comando, NEGOTIATION_TIMEOUT_MS).get();
+            } catch (ExecutionException e) {
+                System.err.println("Reconectado sem compressão: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void falharNegociacao(IOException causa) {
+        CompletableFuture<String> aguardando = negociacao;
+        if (aguardando != null) {
+            aguardando.completeExceptionally(causa);
+        }
+    }
+    
+    /** Fecha os streams da conexão atual (com o lock conexao) */
+    private void fechar() {
         try {
+            // Fecha o socket primeiro: desbloqueia a leitura da thread leitora
+            if (socket != null) socket.close();
             if (input != null) input.close();
             if (output != null) output.close();
-            if (socket != null) socket.close();
-            connected = false;
-            System.out.println("Desconectado do servidor");
         } catch (IOException e) {
             System.err.println("Erro ao desconectar: " + e.getMessage());
         }
     }
     
+    /**
+     * Desconecta do servidor (sem reconexão automática até o próximo connect())
+     */
+    public void disconnect() {
+        synchronized (conexao) {
+            encerrado = true;
+            cancelarReconexao();
+            boolean estava = connected;
+            connected = false;
+            fechar();
+            if (estava) {
+                System.out.println("Desconectado do servidor");
+            }
+        }
+        IOException causa = new IOException("Desconectado do servidor");
+        falharNegociacao(causa);
+        falharPendentes(causa);
+    }
+    
     /**
      * Verifica se está conectado
      */
     public boolean isConnected() {
         return connected;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Descompressão das respostas comprimidas pelo servidor (SET_COMPRESSION)
+ *
+ * No texto, a resposta comprimida chega como a linha
+ * "[#id|]COMPRESSED|tamanho|tamanhoOriginal" seguida de tamanho bytes deflate
+ * (sem '\n'); no formato binário, como corpo CORPO_COMPRIMIDO (BinaryCodec).
+ *
+ * Um Inflater por conexão, usado só pela thread leitora e reaproveitado
+ * entre as respostas (cada uma é um stream deflate independente).
+ */
+public final class ResponseDecompressor {
+
+    public static final String ALGORITMO_DEFLATE = "deflate";
+    public static final String STATUS_COMPRIMIDO = "COMPRESSED";
+
+    /** Limite do tamanho descomprimido aceito em uma resposta */
+    private static final int MAX_TAMANHO_ORIGINAL = 256 * 1024 * 1024;
+
+    private static final String PREFIXO = STATUS_COMPRIMIDO + "|";
+
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Verifica se a resposta (já sem o ID) é o cabeçalho de uma resposta comprimida
+     */
+    public static boolean isComprimida(String resposta) {
+        return resposta.startsWith(PREFIXO);
+    }
+
+    /**
+     * Lê os bytes anunciados pelo cabeçalho e devolve a resposta "STATUS|dados"
+     *
+     * @param cabecalho linha COMPRESSED|tamanho|tamanhoOriginal (sem o ID)
+     * @param in stream posicionado logo após a linha
+     * @throws IOException se o cabeçalho ou os dados forem inválidos
+     */
+    public String lerResposta(String cabecalho, InputStream in) throws IOException {
+        String[] partes = cabecalho.split("\\|");
+        int tamanho;
+        int tamanhoOriginal;
+        try {
+            tamanho = Integer.parseInt(partes[1]);
+            tamanhoOriginal = Integer.parseInt(partes[2]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IOException("Cabeçalho de compressão inválido: " + cabecalho);
+        }
+        if (tamanho < 0 || tamanho > MAX_TAMANHO_ORIGINAL) {
+            throw new IOException("Tamanho comprimido inválido: " + tamanho);
+        }
+
+        byte[] dados = new byte[tamanho];
+        int lidos = 0;
+        while (lidos < tamanho) {
+            int n = in.read(dados, lidos, tamanho - lidos);
+            if (n < 0) {
+                throw new EOFException("Conexão encerrada no meio da resposta comprimida");
+            }
+            lidos += n;
+        }
+        return new String(descomprimir(dados, 0, tamanho, tamanhoOriginal), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Descomprime um stream deflate completo
+     *
+     * @param tamanhoOriginal tamanho anunciado pelo servidor
+     * @throws IOException se os dados estiverem corrompidos ou o tamanho não bater
+     */
+    public byte[] descomprimir(byte[] dados, int off, int len, int tamanhoOriginal) throws IOException {
+        if (tamanhoOriginal < 0 || tamanhoOriginal > MAX_TAMANHO_ORIGINAL) {
+            throw new IOException("Tamanho descomprimido inválido: " + tamanhoOriginal);
+        }
+        inflater.reset();
+        inflater.setInput(dados, off, len);
+        byte[] saida = new byte[tamanhoOriginal];
+        int total = 0;
+        try {
+            while (!inflater.finished()) {
+                if (total == saida.length) {
+                    // Dados sobrando além do tamanho anunciado
+                    if (inflater.inflate(new byte[1]) > 0) {
+                        throw new IOException("Resposta maior que o tamanho anunciado");
+                    }
+                    break;
+                }
+                int n = inflater.inflate(saida, total, saida.length - total);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Resposta comprimida truncada");
+                }
+                total += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Resposta comprimida inválida: " + e.getMessage(), e);
+        }
+        if (total != tamanhoOriginal) {
+            throw new IOException("Resposta menor que o tamanho anunciado");
+        }
+        return saida;
+    }
+
+    /**
+     * Libera a memória nativa do Inflater (fim da conexão)
+     */
+    public void encerrar() {
+        inflater.end();
+    }
+}
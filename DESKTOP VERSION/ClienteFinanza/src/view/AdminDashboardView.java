@@ -2,13 +2,19 @@ package view;
 
 import controller.AuthController;
 import model.Usuario;
+import util.NetworkClient;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 
 /**
  * AdminDashboardView - Painel de Administração Desktop do Sistema Finanza
@@ -27,22 +33,27 @@ import java.util.List;
  * - Editar/excluir contas, categorias e movimentações
  * - Filtrar dados por usuário específico
  * - Buscar dados por texto
+ * - Acompanhar as métricas do servidor (comando STATS)
+ * - Recarregar as abas quando outro cliente altera dados (SUBSCRIBE|todos)
  * - Editar próprio perfil de administrador
  * - Fazer logout do sistema
  * 
  * Arquitetura:
  * - Padrão MVC (Model-View-Controller)
  * - Interface Swing com JFrame principal
- * - JTabbedPane com 4 abas (Usuários, Contas, Categorias, Movimentações)
+ * - JTabbedPane com 5 abas (Usuários, Contas, Categorias, Movimentações, Servidor)
  * - Comunicação com servidor via AuthController
  * - Uso de JTable para exibir dados tabulares
  * - DefaultTableModel para gerenciar dados das tabelas
+ * - Movimentações em MovimentacoesTableModel: páginas buscadas sob demanda,
+ *   com busca e ordenação (clique no cabeçalho) feitas no servidor
  * 
  * Abas disponíveis:
  * 1. Usuários: Gerenciamento completo de usuários do sistema
  * 2. Contas: Visualização e edição de contas bancárias
  * 3. Categorias: Visualização e edição de categorias financeiras
  * 4. Movimentações: Visualização e edição de lançamentos financeiros
+ * 5. Servidor: Medidores e latências por comando, com atualização automática opcional
  * 
  * Segurança:
  * - Acesso exclusivo para usuários com tipo "admin"
@@ -52,7 +63,7 @@ import java.util.List;
  * 
  * Layout:
  * - Header: Título, contador de usuários, informações do admin logado
- * - Centro: JTabbedPane com as 4 abas de gerenciamento
+ * - Centro: JTabbedPane com as 5 abas
  * - Footer: Botões "Editar Meu Perfil" e "Sair"
  * 
  * Tecnologias utilizadas:
@@ -78,7 +89,7 @@ public class AdminDashboardView extends JFrame {
 
     // ================== COMPONENTES PRINCIPAIS DA INTERFACE ==================
     
-    /** Painel de abas principal (Usuários, Contas, Categorias, Movimentações) */
+    /** Painel de abas principal (Usuários, Contas, Categorias, Movimentações, Servidor) */
     private JTabbedPane tabbedPane;
     
     /** Label que exibe o total de usuários cadastrados no sistema */
@@ -138,6 +149,9 @@ public class AdminDashboardView extends JFrame {
     
     /** Lista completa de contas (antes de filtros) */
     private List<Object[]> todasContas;
+    
+    /** Número da consulta de contas mais recente (respostas anteriores são ignoradas) */
+    private int consultaContas;
 
     // ================== COMPONENTES DA ABA DE CATEGORIAS ==================
     
@@ -164,14 +178,17 @@ public class AdminDashboardView extends JFrame {
     
     /** Lista completa de categorias (antes de filtros) */
     private List<Object[]> todasCategorias;
+    
+    /** Número da consulta de categorias mais recente */
+    private int consultaCategorias;
 
     // ================== COMPONENTES DA ABA DE MOVIMENTAÇÕES ==================
     
     /** Tabela que exibe todas as movimentações financeiras do sistema */
     private JTable movimentacoesTable;
     
-    /** Modelo de dados da tabela de movimentações */
-    private DefaultTableModel movimentacoesTableModel;
+    /** Modelo paginado da tabela de movimentações (busca e ordem no servidor) */
+    private MovimentacoesTableModel movimentacoesTableModel;
     
     /** Botão para recarregar lista de movimentações do servidor */
     private JButton refreshMovimentacoesButton;
@@ -187,9 +204,35 @@ public class AdminDashboardView extends JFrame {
     
     /** Campo de texto para buscar movimentações por descrição */
     private JTextField searchMovimentacoesField;
+
+
+    // ================== COMPONENTES DA ABA DO SERVIDOR ==================
+    
+    /** Medidores do servidor (tempo ativo, conexões, threads, pool do banco) */
+    private JTextArea medidoresArea;
+    
+    /** Modelo de dados da tabela de métricas por comando */
+    private DefaultTableModel metricasTableModel;
+    
+    /** Botão para consultar as métricas no servidor */
+    private JButton refreshMetricasButton;
+    
+    /** Liga a atualização automática das métricas */
+    private JCheckBox autoAtualizarMetricas;
     
-    /** Lista completa de movimentações (antes de filtros) */
-    private List<Object[]> todasMovimentacoes;
+    /** Dispara a atualização automática (a cada 5 s, na thread do Swing) */
+    private Timer metricasTimer;
+    
+    /** Evita consultas sobrepostas quando o servidor demora a responder */
+    private boolean carregandoMetricas;
+
+    // ================== NOTIFICAÇÕES DO SERVIDOR ==================
+    
+    /** Entidades alteradas por outros clientes aguardando recarga (apenas na thread do Swing) */
+    private final Set<String> entidadesAlteradas = new HashSet<>();
+    
+    /** Agrupa uma rajada de notificações em uma única recarga por aba */
+    private Timer notificacoesTimer;
 
     /**
      * Construtor da tela de administração
@@ -222,6 +265,9 @@ public class AdminDashboardView extends JFrame {
         
         // Passo 4: Carregar dados iniciais
         carregarUsuarios();
+        
+        // Passo 5: Receber as alterações feitas pelos outros clientes
+        inscreverNotificacoes();
     }
 
     /**
@@ -244,7 +290,6 @@ public class AdminDashboardView extends JFrame {
         todosUsuarios = new java.util.ArrayList<>();
         todasContas = new java.util.ArrayList<>();
         todasCategorias = new java.util.ArrayList<>();
-        todasMovimentacoes = new java.util.ArrayList<>();
     }
 
     /**
@@ -252,7 +297,7 @@ public class AdminDashboardView extends JFrame {
      * 
      * Cria e organiza todos os componentes visuais da janela:
      * - Header (topo): Título, contador de usuários, info do admin
-     * - Centro: JTabbedPane com 4 abas de gerenciamento
+     * - Centro: JTabbedPane com 5 abas
      * - Footer (rodapé): Botões de editar perfil e sair
      * 
      * Layout utilizado: BorderLayout
@@ -295,6 +340,7 @@ public class AdminDashboardView extends JFrame {
         tabbedPane.addTab("Contas", createContasPanel());               // Aba 2: Visualizar contas
         tabbedPane.addTab("Categorias", createCategoriasPanel());       // Aba 3: Visualizar categorias
         tabbedPane.addTab("Movimentações", createMovimentacoesPanel()); // Aba 4: Visualizar movimentações
+        tabbedPane.addTab("Servidor", createServidorPanel());           // Aba 5: Métricas do servidor
 
         add(tabbedPane, BorderLayout.CENTER);
 
@@ -548,12 +594,12 @@ public class AdminDashboardView extends JFrame {
         searchMovimentacoesField = new JTextField(30);
         searchPanel.add(searchMovimentacoesField);
         JButton searchButton = new JButton("Buscar");
-        searchButton.addActionListener(e -> filtrarMovimentacoes());
+        searchButton.addActionListener(e -> carregarMovimentacoes());
         searchPanel.add(searchButton);
         JButton clearButton = new JButton("Limpar");
         clearButton.addActionListener(e -> {
             searchMovimentacoesField.setText("");
-            filtrarMovimentacoes();
+            carregarMovimentacoes();
         });
         searchPanel.add(clearButton);
 
@@ -561,17 +607,16 @@ public class AdminDashboardView extends JFrame {
         topPanel.add(searchPanel, BorderLayout.SOUTH);
         panel.add(topPanel, BorderLayout.NORTH);
 
-        // Tabela de movimentações
-        String[] columnNames = {"ID", "Usuário", "Valor", "Data", "Descrição", "Tipo", "Conta", "Categoria"};
-        movimentacoesTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Tabela de movimentações: páginas buscadas conforme a rolagem
+        movimentacoesTableModel = new MovimentacoesTableModel(authController.getNetworkClient(), erro ->
+            JOptionPane.showMessageDialog(AdminDashboardView.this,
+                "Erro ao carregar movimentações: " + erro,
+                "Erro",
+                JOptionPane.ERROR_MESSAGE));
         movimentacoesTable = new JTable(movimentacoesTableModel);
         movimentacoesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         movimentacoesTable.getTableHeader().setReorderingAllowed(false);
+        movimentacoesTable.getTableHeader().setToolTipText("Clique para ordenar");
         movimentacoesTable.setRowHeight(25);
 
         JScrollPane scrollPane = new JScrollPane(movimentacoesTable);
@@ -595,6 +640,61 @@ public class AdminDashboardView extends JFrame {
         return panel;
     }
 
+    /**
+     * Cria o painel da aba Servidor
+     * 
+     * Componentes do painel:
+     * - Medidores (topo): tempo ativo, requisições, conexões, threads e pool do banco
+     * - Tabela (centro): por comando, requisições, erros, latências (média,
+     *   p50, p95, p99, máxima), tamanho médio da resposta e tempo de banco
+     * - Barra de ações (rodapé): Atualizar e atualização automática a cada 5 s
+     * 
+     * @return JPanel configurado com todos os componentes da aba do servidor
+     */
+    private JPanel createServidorPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Medidores
+        medidoresArea = new JTextArea(3, 80);
+        medidoresArea.setEditable(false);
+        medidoresArea.setLineWrap(true);
+        medidoresArea.setWrapStyleWord(true);
+        medidoresArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        medidoresArea.setBorder(BorderFactory.createTitledBorder("Medidores"));
+        medidoresArea.setText("Métricas ainda não consultadas");
+        panel.add(medidoresArea, BorderLayout.NORTH);
+
+        // Tabela de métricas por comando
+        String[] columnNames = {"Comando", "Requisições", "Erros", "Média (ms)", "p50 (ms)",
+                                "p95 (ms)", "p99 (ms)", "Máx (ms)", "Tamanho Médio", "Banco Médio (ms)"};
+        metricasTableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable metricasTable = new JTable(metricasTableModel);
+        metricasTable.getTableHeader().setReorderingAllowed(false);
+        metricasTable.setRowHeight(25);
+
+        JScrollPane scrollPane = new JScrollPane(metricasTable);
+        panel.add(scrollPane, BorderLayout.CENTER);
+
+        // Painel de botões
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        refreshMetricasButton = new JButton("Atualizar");
+        autoAtualizarMetricas = new JCheckBox("Atualizar a cada 5 s");
+        metricasTimer = new Timer(5000, e -> carregarMetricas());
+
+        buttonPanel.add(refreshMetricasButton);
+        buttonPanel.add(autoAtualizarMetricas);
+
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
     private void setupEvents() {
         // Eventos da aba de usuários
         refreshUsersButton.addActionListener(e -> carregarUsuarios());
@@ -645,7 +745,16 @@ public class AdminDashboardView extends JFrame {
         refreshMovimentacoesButton.addActionListener(e -> carregarMovimentacoes());
         editMovimentacaoButton.addActionListener(e -> editarMovimentacaoSelecionada());
         deleteMovimentacaoButton.addActionListener(e -> excluirMovimentacaoSelecionada());
-        searchMovimentacoesField.addActionListener(e -> filtrarMovimentacoes());
+        searchMovimentacoesField.addActionListener(e -> carregarMovimentacoes());
+        movimentacoesTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int coluna = movimentacoesTable.columnAtPoint(e.getPoint());
+                if (coluna >= 0) {
+                    ordenarMovimentacoes(movimentacoesTable.convertColumnIndexToModel(coluna));
+                }
+            }
+        });
 
         movimentacoesTable.getSelectionModel().addListSelectionListener(e -> {
             boolean hasSelection = movimentacoesTable.getSelectedRow() != -1;
@@ -653,6 +762,16 @@ public class AdminDashboardView extends JFrame {
             deleteMovimentacaoButton.setEnabled(hasSelection);
         });
 
+        // Eventos da aba do servidor
+        refreshMetricasButton.addActionListener(e -> carregarMetricas());
+        autoAtualizarMetricas.addActionListener(e -> {
+            if (autoAtualizarMetricas.isSelected()) {
+                metricasTimer.start();
+            } else {
+                metricasTimer.stop();
+            }
+        });
+
         // Eventos gerais
         editProfileButton.addActionListener(e -> editarPerfil());
         logoutButton.addActionListener(e -> realizarLogout());
@@ -666,6 +785,8 @@ public class AdminDashboardView extends JFrame {
                 carregarCategorias();
             } else if (selectedIndex == 3 && movimentacoesTableModel.getRowCount() == 0) {
                 carregarMovimentacoes();
+            } else if (selectedIndex == 4 && metricasTableModel.getRowCount() == 0) {
+                carregarMetricas();
             }
         });
     }
@@ -770,74 +891,110 @@ public class AdminDashboardView extends JFrame {
         }
     }
 
+    /**
+     * Busca as contas (de todos ou do usuário do filtro) sem travar a tela
+     * 
+     * A resposta é convertida fora da thread do Swing e só a da consulta
+     * mais recente preenche a tabela: "Atualizar" seguido de troca de
+     * filtro não mistura as duas listas.
+     */
     private void carregarContas() {
         contasTableModel.setRowCount(0);
         todasContas.clear();
 
         String selectedUser = (String) userFilterContas.getSelectedItem();
-        Integer userId = null;
+        String comando = "ADMIN_LIST_ALL_CONTAS";
 
         if (selectedUser != null && !selectedUser.equals("Todos")) {
-            userId = Integer.parseInt(selectedUser.split(" - ")[0]);
+            comando = "ADMIN_LIST_CONTAS_USER|" + Integer.parseInt(selectedUser.split(" - ")[0]);
         }
 
-        final Integer finalUserId = userId;
-
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                if (finalUserId == null) {
-                    // Carregar contas de todos os usuários com comando otimizado
-                    String comando = "ADMIN_LIST_ALL_CONTAS";
-                    String resposta = authController.getNetworkClient().sendCommand(comando);
-
-                    if (resposta != null && resposta.startsWith("OK")) {
-                        String[] partes = resposta.split("\\|");
-                        if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
-                            String[] contas = partes[1].split(";");
-                            for (String contaData : contas) {
-                                String[] campos = contaData.split(",");
-                                if (campos.length >= 4) {
-                                    Object[] row = {
-                                        campos[0].trim(), // ID
-                                        campos[1].trim(), // Nome
-                                        campos[2].trim(), // Saldo Inicial
-                                        campos[3].trim(), // Usuário
-                                        campos.length >= 5 ? campos[4].trim() : "N/A"  // Data de Criação
-                                    };
-                                    todasContas.add(row);
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    // Carregar contas de um usuário específico
-                    carregarContasDoUsuario(finalUserId);
+        int consulta = ++consultaContas;
+        authController.getNetworkClient().sendCommandAsync(comando)
+            .thenApplyAsync(AdminDashboardView::converterContas)
+            .whenComplete((contas, erro) -> SwingUtilities.invokeLater(() -> {
+                if (consulta != consultaContas) {
+                    return;
                 }
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    get();
-                    filtrarContas();
-                } catch (Exception e) {
+                if (erro != null) {
                     JOptionPane.showMessageDialog(AdminDashboardView.this,
-                        "Erro ao carregar contas: " + e.getMessage(),
+                        "Erro ao carregar contas: " + mensagemDe(erro),
                         "Erro",
                         JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            }
-        };
+                todasContas = contas;
+                filtrarContas();
+            }));
+    }
 
-        worker.execute();
+    /**
+     * Consulta as métricas do servidor (STATS) e atualiza a aba Servidor
+     * 
+     * Resposta: OK|medidor=valor,...;COMANDO,requisicoes,erros,media_ms,
+     * p50_ms,p95_ms,p99_ms,max_ms,tamanho_medio,banco_medio_ms;...
+     */
+    private void carregarMetricas() {
+        if (carregandoMetricas) {
+            return;
+        }
+        carregandoMetricas = true;
+
+        authController.getNetworkClient().sendCommandAsync("STATS")
+            .whenComplete((resposta, erro) -> SwingUtilities.invokeLater(() -> {
+                carregandoMetricas = false;
+                if (erro != null) {
+                    medidoresArea.setText("Erro ao carregar métricas: " + mensagemDe(erro));
+                    return;
+                }
+                if (!resposta.startsWith("OK")) {
+                    // ERROR|... ou ACCESS_DENIED|...: mostra a mensagem do servidor
+                    String mensagem = resposta.contains("|")
+                            ? resposta.substring(resposta.indexOf('|') + 1) : "sem resposta do servidor";
+                    medidoresArea.setText("Não foi possível carregar as métricas: " + mensagem);
+                    return;
+                }
+                exibirMetricas(resposta.substring(resposta.indexOf('|') + 1));
+            }));
     }
 
-    private void carregarContasDoUsuario(int userId) {
-        String comando = "ADMIN_LIST_CONTAS_USER|" + userId;
-        String resposta = authController.getNetworkClient().sendCommand(comando);
+    /**
+     * Preenche medidores e tabela com os dados de uma resposta de STATS
+     */
+    private void exibirMetricas(String dados) {
+        String[] registros = dados.split(";");
+
+        StringBuilder medidores = new StringBuilder();
+        for (String medidor : registros[0].split(",")) {
+            String[] par = medidor.split("=", 2);
+            if (par.length == 2) {
+                if (medidores.length() > 0) {
+                    medidores.append("   ");
+                }
+                medidores.append(par[0].replace('_', ' ')).append(": ").append(par[1]);
+            }
+        }
+        medidoresArea.setText(medidores.toString());
+
+        metricasTableModel.setRowCount(0);
+        for (int i = 1; i < registros.length; i++) {
+            String[] campos = registros[i].split(",");
+            if (campos.length >= 10) {
+                metricasTableModel.addRow(new Object[] {
+                    campos[0], campos[1], campos[2], campos[3], campos[4],
+                    campos[5], campos[6], campos[7], campos[8], campos[9]
+                });
+            }
+        }
+    }
 
+    /**
+     * Linhas da tabela a partir de "OK|id,nome,saldo,usuario,data;..."
+     * (ADMIN_LIST_ALL_CONTAS e ADMIN_LIST_CONTAS_USER); outra resposta
+     * resulta em lista vazia
+     */
+    private static List<Object[]> converterContas(String resposta) {
+        List<Object[]> linhas = new java.util.ArrayList<>();
         if (resposta != null && resposta.startsWith("OK")) {
             String[] partes = resposta.split("\\|");
             if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
@@ -852,11 +1009,12 @@ public class AdminDashboardView extends JFrame {
                             campos[3].trim(), // Usuário
                             campos.length >= 5 ? campos[4].trim() : "N/A"  // Data de Criação
                         };
-                        todasContas.add(row);
+                        linhas.add(row);
                     }
                 }
             }
         }
+        return linhas;
     }
 
     private void filtrarContas() {
@@ -873,118 +1031,93 @@ public class AdminDashboardView extends JFrame {
         }
     }
 
+    /**
+     * Busca as categorias (de todos ou do usuário do filtro) sem travar a
+     * tela; como em carregarContas(), só a consulta mais recente vale
+     */
     private void carregarCategorias() {
         categoriasTableModel.setRowCount(0);
         todasCategorias.clear();
 
         String selectedUser = (String) userFilterCategorias.getSelectedItem();
-        Integer userId = null;
+        String comando = "ADMIN_LIST_ALL_CATEGORIAS";
 
         if (selectedUser != null && !selectedUser.equals("Todos")) {
-            userId = Integer.parseInt(selectedUser.split(" - ")[0]);
+            comando = "ADMIN_LIST_CATEGORIAS_USER|" + Integer.parseInt(selectedUser.split(" - ")[0]);
         }
 
-        final Integer finalUserId = userId;
-
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                if (finalUserId == null) {
-                    // Carregar categorias de todos os usuários com comando otimizado
-                    String comando = "ADMIN_LIST_ALL_CATEGORIAS";
-                    String resposta = authController.getNetworkClient().sendCommand(comando);
-
-                    if (resposta != null && resposta.startsWith("OK")) {
-                        String[] partes = resposta.split("\\|");
-                        if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
-                            String[] categorias = partes[1].split(";");
-                            for (String catData : categorias) {
-                                String[] campos = catData.split(",");
-                               
-                                if (campos.length >= 5) { // Agora espera 5 campos
-    // Formatar a data de criação
-    String dataOriginal = campos[4].trim();
-    String dataFormatada = dataOriginal;
-    try {
-        java.text.SimpleDateFormat formatoEntrada;
-        if (dataOriginal.length() > 10) {
-            formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        } else {
-            formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd");
-        }
-        java.text.SimpleDateFormat formatoSaida = new java.text.SimpleDateFormat("dd/MM/yyyy");
-        java.util.Date data = formatoEntrada.parse(dataOriginal);
-        dataFormatada = formatoSaida.format(data);
-    } catch (Exception ex) {
-        // Se der erro, mantém a data original
-    }
-    Object[] row = {
-        campos[0].trim(), // ID
-        campos[1].trim(), // Nome
-        campos[2].trim(), // Tipo
-        campos[3].trim(), // Usuário
-        dataFormatada     // Data de Criação
-    };
-    todasCategorias.add(row);
-} else if (campos.length >= 4) { // fallback caso não exista data
-    Object[] row = {
-        campos[0].trim(),
-        campos[1].trim(),
-        campos[2].trim(),
-        campos[3].trim(),
-        "N/A"
-    };
-    todasCategorias.add(row);
-}
-                            }
-                        }
-                    }
-                } else {
-                    // Carregar categorias de um usuário específico
-                    carregarCategoriasDoUsuario(finalUserId);
+        int consulta = ++consultaCategorias;
+        authController.getNetworkClient().sendCommandAsync(comando)
+            .thenApplyAsync(AdminDashboardView::converterCategorias)
+            .whenComplete((categorias, erro) -> SwingUtilities.invokeLater(() -> {
+                if (consulta != consultaCategorias) {
+                    return;
                 }
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    get();
-                    filtrarCategorias();
-                } catch (Exception e) {
+                if (erro != null) {
                     JOptionPane.showMessageDialog(AdminDashboardView.this,
-                        "Erro ao carregar categorias: " + e.getMessage(),
+                        "Erro ao carregar categorias: " + mensagemDe(erro),
                         "Erro",
                         JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-            }
-        };
-
-        worker.execute();
+                todasCategorias = categorias;
+                filtrarCategorias();
+            }));
     }
 
-    private void carregarCategoriasDoUsuario(int userId) {
-        String comando = "ADMIN_LIST_CATEGORIAS_USER|" + userId;
-        String resposta = authController.getNetworkClient().sendCommand(comando);
-
-        if (resposta != null && resposta.startsWith("OK")) {
-            String[] partes = resposta.split("\\|");
-            if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
-                String[] categorias = partes[1].split(";");
-                for (String catData : categorias) {
-                    String[] campos = catData.split(",");
-                    if (campos.length >= 4) {
-                        Object[] row = {
-                            campos[0].trim(), // ID
-                            campos[1].trim(), // Nome
-                            campos[2].trim(), // Tipo
-                            campos[3].trim()  // Usuário
-                        };
-                        todasCategorias.add(row);
+    /**
+     * Linhas da tabela a partir de "OK|id,nome,tipo,usuario[,data];..."
+     * (ADMIN_LIST_ALL_CATEGORIAS e ADMIN_LIST_CATEGORIAS_USER); sem a data
+     * de criação a coluna fica "N/A"
+     */
+    private static List<Object[]> converterCategorias(String resposta) {
+        List<Object[]> linhas = new java.util.ArrayList<>();
+        if (resposta == null || !resposta.startsWith("OK")) {
+            return linhas;
+        }
+        String[] partes = resposta.split("\\|");
+        if (partes.length < 2 || partes[1].trim().isEmpty()) {
+            return linhas;
+        }
+        java.text.SimpleDateFormat formatoSaida = new java.text.SimpleDateFormat("dd/MM/yyyy");
+        for (String catData : partes[1].split(";")) {
+            String[] campos = catData.split(",");
+            if (campos.length >= 5) {
+                // Formatar a data de criação
+                String dataOriginal = campos[4].trim();
+                String dataFormatada = dataOriginal;
+                try {
+                    java.text.SimpleDateFormat formatoEntrada;
+                    if (dataOriginal.length() > 10) {
+                        formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                    } else {
+                        formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd");
                     }
+                    java.util.Date data = formatoEntrada.parse(dataOriginal);
+                    dataFormatada = formatoSaida.format(data);
+                } catch (Exception ex) {
+                    // Se der erro, mantém a data original
                 }
+                Object[] row = {
+                    campos[0].trim(), // ID
+                    campos[1].trim(), // Nome
+                    campos[2].trim(), // Tipo
+                    campos[3].trim(), // Usuário
+                    dataFormatada     // Data de Criação
+                };
+                linhas.add(row);
+            } else if (campos.length >= 4) { // fallback caso não exista data
+                Object[] row = {
+                    campos[0].trim(),
+                    campos[1].trim(),
+                    campos[2].trim(),
+                    campos[3].trim(),
+                    "N/A"
+                };
+                linhas.add(row);
             }
         }
+        return linhas;
     }
 
     private void filtrarCategorias() {
@@ -1003,153 +1136,34 @@ public class AdminDashboardView extends JFrame {
         }
     }
 
+    /**
+     * Consulta as movimentações com o filtro de usuário e a busca atuais
+     * 
+     * Só a primeira página (e o total) é buscada aqui; as demais chegam
+     * conforme a tabela é rolada (ver MovimentacoesTableModel).
+     */
     private void carregarMovimentacoes() {
-        movimentacoesTableModel.setRowCount(0);
-        todasMovimentacoes.clear();
-
         String selectedUser = (String) userFilterMovimentacoes.getSelectedItem();
-        Integer userId = null;
-
+        int userId = 0;
         if (selectedUser != null && !selectedUser.equals("Todos")) {
             userId = Integer.parseInt(selectedUser.split(" - ")[0]);
         }
-
-        final Integer finalUserId = userId;
-
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                if (finalUserId == null) {
-                    // Carregar movimentações de todos os usuários com comando otimizado
-                    String comando = "ADMIN_LIST_ALL_MOVIMENTACOES";
-                    String resposta = authController.getNetworkClient().sendCommand(comando);
-
-                    if (resposta != null && resposta.startsWith("OK")) {
-                        String[] partes = resposta.split("\\|");
-                        if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
-                            String[] movimentacoes = partes[1].split(";");
-                            for (String movData : movimentacoes) {
-                                String[] campos = movData.split(",");
-                                if (campos.length >= 8) {
-                                    // Formatar a data para dd/MM/yyyy
-                                    String dataOriginal = campos[3].trim();
-                                    String dataFormatada = dataOriginal;
-                                    try {
-                                        java.text.SimpleDateFormat formatoEntrada;
-                                        if (dataOriginal.length() > 10) {
-                                            formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                                        } else {
-                                            formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd");
-                                        }
-                                        java.text.SimpleDateFormat formatoSaida = new java.text.SimpleDateFormat("dd/MM/yyyy");
-                                        java.util.Date data = formatoEntrada.parse(dataOriginal);
-                                        dataFormatada = formatoSaida.format(data);
-                                    } catch (Exception ex) {
-                                        // Se der erro, mantém a data original
-                                    }
-
-                                    Object[] row = {
-                                        campos[0].trim(), // ID
-                                        campos[1].trim(), // Usuário
-                                        campos[2].trim(), // Valor
-                                        dataFormatada,    // Data formatada
-                                        campos[4].trim(), // Descrição
-                                        campos[5].trim(), // Tipo
-                                        campos[6].trim(), // Conta
-                                        campos[7].trim()  // Categoria
-                                    };
-                                    todasMovimentacoes.add(row);
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    // Carregar movimentações de um usuário específico
-                    carregarMovimentacoesDoUsuario(finalUserId);
-                }
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    get();
-                    filtrarMovimentacoes();
-                } catch (Exception e) {
-                    JOptionPane.showMessageDialog(AdminDashboardView.this,
-                        "Erro ao carregar movimentações: " + e.getMessage(),
-                        "Erro",
-                        JOptionPane.ERROR_MESSAGE);
-                }
-            }
-        };
-
-        worker.execute();
+        movimentacoesTableModel.consultar(userId, searchMovimentacoesField.getText());
     }
 
-    private void carregarMovimentacoesDoUsuario(int userId) {
-        String comando = "ADMIN_LIST_MOVIMENTACOES_USER|" + userId;
-        String resposta = authController.getNetworkClient().sendCommand(comando);
-
-        if (resposta != null && resposta.startsWith("OK")) {
-            String[] partes = resposta.split("\\|");
-            if (partes.length >= 2 && !partes[1].trim().isEmpty()) {
-                String[] movimentacoes = partes[1].split(";");
-                for (String movData : movimentacoes) {
-                    String[] campos = movData.split(",");
-                    if (campos.length >= 8) {
-                        // Formatar a data para dd/MM/yyyy
-                        String dataOriginal = campos[3].trim();
-                        String dataFormatada = dataOriginal;
-                        try {
-                            java.text.SimpleDateFormat formatoEntrada;
-                            if (dataOriginal.length() > 10) {
-                                formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                            } else {
-                                formatoEntrada = new java.text.SimpleDateFormat("yyyy-MM-dd");
-                            }
-                            java.text.SimpleDateFormat formatoSaida = new java.text.SimpleDateFormat("dd/MM/yyyy");
-                            java.util.Date data = formatoEntrada.parse(dataOriginal);
-                            dataFormatada = formatoSaida.format(data);
-                        } catch (Exception ex) {
-                            // Se der erro, mantém a data original
-                        }
-
-                        Object[] row = {
-                            campos[0].trim(), // ID
-                            campos[1].trim(), // Usuário
-                            campos[2].trim(), // Valor
-                            dataFormatada,    // Data formatada
-                            campos[4].trim(), // Descrição
-                            campos[5].trim(), // Tipo
-                            campos[6].trim(), // Conta
-                            campos[7].trim()  // Categoria
-                        };
-                        todasMovimentacoes.add(row);
-                    }
-                }
-            }
+    /**
+     * Ordena no servidor pela coluna clicada e atualiza a seta do cabeçalho
+     */
+    private void ordenarMovimentacoes(int coluna) {
+        movimentacoesTableModel.ordenarPor(coluna);
+        TableColumnModel colunas = movimentacoesTable.getColumnModel();
+        for (int i = 0; i < colunas.getColumnCount(); i++) {
+            TableColumn tableColumn = colunas.getColumn(i);
+            tableColumn.setHeaderValue(movimentacoesTableModel.getColumnName(tableColumn.getModelIndex()));
         }
+        movimentacoesTable.getTableHeader().repaint();
     }
 
-    private void filtrarMovimentacoes() {
-        String busca = searchMovimentacoesField.getText().trim().toLowerCase();
-        movimentacoesTableModel.setRowCount(0);
-
-        for (Object[] movimentacao : todasMovimentacoes) {
-            if (busca.isEmpty() ||
-                movimentacao[0].toString().toLowerCase().contains(busca) ||  // ID
-                movimentacao[1].toString().toLowerCase().contains(busca) ||  // Usuário
-                movimentacao[2].toString().toLowerCase().contains(busca) ||  // Valor
-                movimentacao[3].toString().toLowerCase().contains(busca) ||  // Data
-                movimentacao[4].toString().toLowerCase().contains(busca) ||  // Descrição
-                movimentacao[5].toString().toLowerCase().contains(busca) ||  // Tipo
-                movimentacao[6].toString().toLowerCase().contains(busca) ||  // Conta
-                movimentacao[7].toString().toLowerCase().contains(busca)) {  // Categoria
-                movimentacoesTableModel.addRow(movimentacao);
-            }
-        }
-    }
 
     private void editarUsuarioSelecionado() {
         int selectedRow = usuariosTable.getSelectedRow();
@@ -1292,14 +1306,7 @@ public class AdminDashboardView extends JFrame {
 
             // Usar tipo padrão "corrente" já que não é mais exibido/editável
             String comando = "ADMIN_UPDATE_CONTA|" + contaId + "|" + novoNome + "|corrente|" + novoSaldo;
-            String resposta = authController.getNetworkClient().sendCommand(comando);
-
-            if (resposta != null && resposta.startsWith("OK")) {
-                JOptionPane.showMessageDialog(this, "Conta atualizada com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                carregarContas();
-            } else {
-                JOptionPane.showMessageDialog(this, "Erro ao atualizar conta", "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            enviarAlteracao(comando, "Conta atualizada com sucesso!", "Erro ao atualizar conta", this::carregarContas);
         }
     }
 
@@ -1322,14 +1329,7 @@ public class AdminDashboardView extends JFrame {
 
         if (option == JOptionPane.YES_OPTION) {
             String comando = "ADMIN_DELETE_CONTA|" + contaId;
-            String resposta = authController.getNetworkClient().sendCommand(comando);
-
-            if (resposta != null && resposta.startsWith("OK")) {
-                JOptionPane.showMessageDialog(this, "Conta excluída com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                carregarContas();
-            } else {
-                JOptionPane.showMessageDialog(this, "Erro ao excluir conta", "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            enviarAlteracao(comando, "Conta excluída com sucesso!", "Erro ao excluir conta", this::carregarContas);
         }
     }
 
@@ -1363,14 +1363,7 @@ public class AdminDashboardView extends JFrame {
             String novoTipo = tipoCombo.getSelectedItem().toString();
 
             String comando = "ADMIN_UPDATE_CATEGORIA|" + categoriaId + "|" + novoNome + "|" + novoTipo;
-            String resposta = authController.getNetworkClient().sendCommand(comando);
-
-            if (resposta != null && resposta.startsWith("OK")) {
-                JOptionPane.showMessageDialog(this, "Categoria atualizada com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                carregarCategorias();
-            } else {
-                JOptionPane.showMessageDialog(this, "Erro ao atualizar categoria", "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            enviarAlteracao(comando, "Categoria atualizada com sucesso!", "Erro ao atualizar categoria", this::carregarCategorias);
         }
     }
 
@@ -1393,14 +1386,7 @@ public class AdminDashboardView extends JFrame {
 
         if (option == JOptionPane.YES_OPTION) {
             String comando = "ADMIN_DELETE_CATEGORIA|" + categoriaId;
-            String resposta = authController.getNetworkClient().sendCommand(comando);
-
-            if (resposta != null && resposta.startsWith("OK")) {
-                JOptionPane.showMessageDialog(this, "Categoria excluída com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                carregarCategorias();
-            } else {
-                JOptionPane.showMessageDialog(this, "Erro ao excluir categoria", "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            enviarAlteracao(comando, "Categoria excluída com sucesso!", "Erro ao excluir categoria", this::carregarCategorias);
         }
     }
 
@@ -1412,13 +1398,19 @@ public class AdminDashboardView extends JFrame {
             return;
         }
 
-        int movimentacaoId = Integer.parseInt(movimentacoesTableModel.getValueAt(selectedRow, 0).toString());
-        String valor = movimentacoesTableModel.getValueAt(selectedRow, 1).toString();
-        String data = movimentacoesTableModel.getValueAt(selectedRow, 2).toString();
-        String descricao = movimentacoesTableModel.getValueAt(selectedRow, 3).toString();
-        String tipo = movimentacoesTableModel.getValueAt(selectedRow, 4).toString();
-        String idConta = movimentacoesTableModel.getValueAt(selectedRow, 5).toString();
-        String idCategoria = movimentacoesTableModel.getValueAt(selectedRow, 6).toString();
+        // Linha de uma página ainda não recebida: nada a editar
+        String[] movimentacao = movimentacoesTableModel.getLinha(movimentacoesTable.convertRowIndexToModel(selectedRow));
+        if (movimentacao == null) {
+            return;
+        }
+
+        int movimentacaoId = Integer.parseInt(movimentacao[MovimentacoesTableModel.CAMPO_ID]);
+        String valor = movimentacao[MovimentacoesTableModel.CAMPO_VALOR];
+        String data = movimentacao[MovimentacoesTableModel.CAMPO_DATA];
+        String descricao = movimentacao[MovimentacoesTableModel.CAMPO_DESCRICAO];
+        String tipo = movimentacao[MovimentacoesTableModel.CAMPO_TIPO];
+        String idConta = movimentacao[MovimentacoesTableModel.CAMPO_ID_CONTA];
+        String idCategoria = movimentacao[MovimentacoesTableModel.CAMPO_ID_CATEGORIA];
 
         // Criar diálogo de edição
         JTextField valorField = new JTextField(valor);
@@ -1456,14 +1448,7 @@ public class AdminDashboardView extends JFrame {
 
                 String comando = "ADMIN_UPDATE_MOVIMENTACAO|" + movimentacaoId + "|" + novoValor + "|" +
                                 novaData + "|" + novaDescricao + "|" + novoTipo + "|" + novoIdConta + "|" + novoIdCategoria;
-                String resposta = authController.getNetworkClient().sendCommand(comando);
-
-                if (resposta != null && resposta.startsWith("OK")) {
-                    JOptionPane.showMessageDialog(this, "Movimentação atualizada com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                    carregarMovimentacoes();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Erro ao atualizar movimentação", "Erro", JOptionPane.ERROR_MESSAGE);
-                }
+                enviarAlteracao(comando, "Movimentação atualizada com sucesso!", "Erro ao atualizar movimentação", movimentacoesTableModel::recarregar);
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(this, "Erro: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
             }
@@ -1476,8 +1461,13 @@ public class AdminDashboardView extends JFrame {
             return;
         }
 
-        int movimentacaoId = Integer.parseInt(movimentacoesTableModel.getValueAt(selectedRow, 0).toString());
-        String descricao = movimentacoesTableModel.getValueAt(selectedRow, 3).toString();
+        String[] movimentacao = movimentacoesTableModel.getLinha(movimentacoesTable.convertRowIndexToModel(selectedRow));
+        if (movimentacao == null) {
+            return;
+        }
+
+        int movimentacaoId = Integer.parseInt(movimentacao[MovimentacoesTableModel.CAMPO_ID]);
+        String descricao = movimentacao[MovimentacoesTableModel.CAMPO_DESCRICAO];
 
         int option = JOptionPane.showConfirmDialog(
             this,
@@ -1489,15 +1479,119 @@ public class AdminDashboardView extends JFrame {
 
         if (option == JOptionPane.YES_OPTION) {
             String comando = "ADMIN_DELETE_MOVIMENTACAO|" + movimentacaoId;
-            String resposta = authController.getNetworkClient().sendCommand(comando);
+            enviarAlteracao(comando, "Movimentação excluída com sucesso!", "Erro ao excluir movimentação", movimentacoesTableModel::recarregar);
+        }
+    }
 
-            if (resposta != null && resposta.startsWith("OK")) {
-                JOptionPane.showMessageDialog(this, "Movimentação excluída com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                carregarMovimentacoes();
-            } else {
-                JOptionPane.showMessageDialog(this, "Erro ao excluir movimentação", "Erro", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Envia uma alteração do admin (ADMIN_UPDATE_*, ADMIN_DELETE_*) sem
+     * travar a tela; a resposta é tratada na thread do Swing
+     * 
+     * @param recarregar executado após a confirmação do servidor
+     */
+    private void enviarAlteracao(String comando, String mensagemSucesso, String mensagemErro, Runnable recarregar) {
+        authController.getNetworkClient().sendCommandAsync(comando)
+            .whenComplete((resposta, erro) -> SwingUtilities.invokeLater(() -> {
+                if (erro == null && resposta.startsWith("OK")) {
+                    JOptionPane.showMessageDialog(this, mensagemSucesso, "Sucesso", JOptionPane.INFORMATION_MESSAGE);
+                    recarregar.run();
+                } else {
+                    // Sem resposta (prazo esgotado, conexão caída): diz o motivo
+                    String mensagem = erro != null ? mensagemErro + ": " + mensagemDe(erro) : mensagemErro;
+                    JOptionPane.showMessageDialog(this, mensagem, "Erro", JOptionPane.ERROR_MESSAGE);
+                }
+            }));
+    }
+
+    /**
+     * Mensagem da falha de um future (sem o CompletionException em volta)
+     */
+    private static String mensagemDe(Throwable erro) {
+        Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+        return causa.getMessage() != null ? causa.getMessage() : causa.getClass().getSimpleName();
+    }
+
+    /**
+     * Inscreve o painel nas alterações de todos os usuários (SUBSCRIBE|todos)
+     * 
+     * Cada notificação só marca a entidade alterada; um segundo depois da
+     * última, as abas dessas entidades que já estavam carregadas são
+     * recarregadas uma vez, sem o admin precisar clicar em "Atualizar".
+     */
+    private void inscreverNotificacoes() {
+        notificacoesTimer = new Timer(1000, e -> recarregarAlteradas());
+        notificacoesTimer.setRepeats(false);
+        
+        NetworkClient client = authController.getNetworkClient();
+        client.setNotificationListener(notificacao ->
+            SwingUtilities.invokeLater(() -> registrarNotificacao(notificacao)));
+        authController.setOuvinteReconexao(resultado ->
+            SwingUtilities.invokeLater(() -> sessaoRetomada(resultado)));
+        pedirNotificacoes();
+    }
+
+    private void pedirNotificacoes() {
+        authController.getNetworkClient().subscribe("todos").whenComplete((resposta, erro) -> {
+            if (erro != null || !resposta.startsWith("OK")) {
+                System.err.println("Notificações indisponíveis: " + (erro != null ? erro.getMessage() : resposta));
             }
+        });
+    }
+
+    /**
+     * A conexão caiu e voltou sozinha (ver NetworkClient)
+     * 
+     * Com a sessão retomada, refaz a inscrição e recarrega as abas abertas,
+     * já que as notificações do intervalo se perderam. Sessão expirada
+     * exige novo login.
+     */
+    private void sessaoRetomada(AuthController.LoginResult resultado) {
+        if (!resultado.isSucesso()) {
+            JOptionPane.showMessageDialog(this,
+                "A conexão com o servidor foi refeita, mas a sessão não pôde ser retomada:\n"
+                    + resultado.getMensagem() + "\n\nFaça logout e entre novamente.",
+                "Sessão encerrada",
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        pedirNotificacoes();
+        entidadesAlteradas.add("conta");
+        entidadesAlteradas.add("categoria");
+        entidadesAlteradas.add("movimentacao");
+        recarregarAlteradas();
+    }
+
+    /**
+     * Marca a entidade de "NOTIFY|entidade|operacao|id|versao|idUsuario"
+     */
+    private void registrarNotificacao(String notificacao) {
+        String[] partes = notificacao.split("\\|");
+        if (partes.length < 3) {
+            return;
+        }
+        entidadesAlteradas.add(partes[1]);
+        // Excluir conta ou categoria remove as movimentações delas
+        if ("DELETE".equals(partes[2]) && !"movimentacao".equals(partes[1])) {
+            entidadesAlteradas.add("movimentacao");
+        }
+        notificacoesTimer.restart();
+    }
+
+    /**
+     * Recarrega as abas já abertas das entidades alteradas
+     */
+    private void recarregarAlteradas() {
+        int aba = tabbedPane.getSelectedIndex();
+        if (entidadesAlteradas.contains("conta") && (aba == 1 || contasTableModel.getRowCount() > 0)) {
+            carregarContas();
+        }
+        if (entidadesAlteradas.contains("categoria") && (aba == 2 || categoriasTableModel.getRowCount() > 0)) {
+            carregarCategorias();
+        }
+        if (entidadesAlteradas.contains("movimentacao") && (aba == 3 || movimentacoesTableModel.getRowCount() > 0)) {
+            movimentacoesTableModel.recarregar();
         }
+        entidadesAlteradas.clear();
     }
 
     private void realizarLogout() {
@@ -1509,6 +1603,10 @@ public class AdminDashboardView extends JFrame {
         );
 
         if (option == JOptionPane.YES_OPTION) {
+            metricasTimer.stop();
+            notificacoesTimer.stop();
+            authController.getNetworkClient().setNotificationListener(null);
+            authController.setOuvinteReconexao(null);
             authController.desconectar();
             dispose();
             SwingUtilities.invokeLater(() -> {
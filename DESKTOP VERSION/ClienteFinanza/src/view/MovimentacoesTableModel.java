@@ -0,0 +1,318 @@
+package view;
+
+import util.NetworkClient;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Modelo da tabela de movimentações do AdminDashboardView, paginado sob demanda
+ *
+ * Em vez de baixar todas as movimentações (ADMIN_LIST_ALL_MOVIMENTACOES) e
+ * refazer a tabela a cada filtro, o modelo só conhece o total de linhas e
+ * pede ao servidor, com ADMIN_LIST_MOVIMENTACOES_PAGE, as páginas que a
+ * JTable tenta desenhar. Busca e ordem são aplicadas no servidor; o modelo
+ * apenas refaz a consulta.
+ *
+ * - Uma célula de página ainda não recebida mostra "..." e dispara o pedido
+ *   dela; quando a resposta chega, só essas linhas são redesenhadas
+ * - As páginas recebidas ficam em um cache limitado (as menos usadas saem
+ *   primeiro), então rolar por centenas de milhares de linhas não acumula
+ *   memória
+ * - Cada consulta tem uma geração: respostas de consultas anteriores que
+ *   chegam atrasadas são descartadas
+ * - Uma página que falha (erro ou resposta malformada) não é pedida de novo
+ *   a cada repintura; fica como "..." até a próxima consulta ou recarregar()
+ *
+ * Todo o estado é acessado apenas na thread de eventos do Swing.
+ */
+class MovimentacoesTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Linhas por pedido ao servidor (máximo do servidor: 500) */
+    static final int TAMANHO_PAGINA = 200;
+
+    /** Páginas mantidas em memória (janela de linhas em cache) */
+    static final int PAGINAS_EM_CACHE = 25;
+
+    /** Índices dos campos de uma linha (ver getLinha) */
+    static final int CAMPO_ID = 0;
+    static final int CAMPO_VALOR = 2;
+    static final int CAMPO_DATA = 3;
+    static final int CAMPO_DESCRICAO = 4;
+    static final int CAMPO_TIPO = 5;
+    static final int CAMPO_ID_CONTA = 8;
+    static final int CAMPO_ID_CATEGORIA = 9;
+    private static final int CAMPO_DATA_FORMATADA = 10;
+
+    private static final String[] COLUNAS = {"ID", "Usuário", "Valor", "Data", "Descrição", "Tipo", "Conta", "Categoria"};
+
+    /** Coluna de ordenação do servidor correspondente a cada coluna da tabela */
+    private static final String[] ORDENS = {"id", "usuario", "valor", "data", "descricao", "tipo", "conta", "categoria"};
+
+    private static final int COLUNA_VALOR = 2;
+    private static final int COLUNA_DATA = 3;
+    private static final String CARREGANDO = "...";
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final transient NetworkClient client;
+    private final transient Consumer<String> aoFalhar;
+
+    /** Páginas recebidas, em ordem de acesso (LRU) */
+    private final transient Map<Integer, String[][]> paginas = new LinkedHashMap<Integer, String[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[][]> maisAntiga) {
+            return size() > PAGINAS_EM_CACHE;
+        }
+    };
+
+    /** Páginas pedidas e ainda sem resposta */
+    private final transient Set<Integer> carregando = new HashSet<>();
+
+    /** Páginas que falharam na consulta atual (não são pedidas de novo) */
+    private final transient Set<Integer> falhas = new HashSet<>();
+
+    private int total;
+    private int geracao;
+
+    // Consulta atual
+    private int idUsuario;
+    private String busca = "";
+    private int colunaOrdem = COLUNA_DATA;
+    private boolean descendente = true;
+
+    /**
+     * @param client conexão autenticada do admin
+     * @param aoFalhar recebe a mensagem quando a primeira página de uma
+     *                 consulta falha (chamado na thread de eventos)
+     */
+    MovimentacoesTableModel(NetworkClient client, Consumer<String> aoFalhar) {
+        this.client = client;
+        this.aoFalhar = aoFalhar;
+    }
+
+    /**
+     * Refaz a consulta com novo filtro, mantendo a ordem
+     * @param idUsuario usuário filtrado (0 para todos)
+     * @param busca texto procurado (vazio para todas)
+     */
+    void consultar(int idUsuario, String busca) {
+        this.idUsuario = idUsuario;
+        this.busca = busca != null ? busca.trim() : "";
+        recarregar();
+    }
+
+    /**
+     * Ordena pela coluna; na coluna já ordenada, inverte a direção
+     * (datas e valores começam do maior, as demais em ordem alfabética)
+     */
+    void ordenarPor(int coluna) {
+        if (coluna < 0 || coluna >= COLUNAS.length) {
+            return;
+        }
+        if (coluna == colunaOrdem) {
+            descendente = !descendente;
+        } else {
+            colunaOrdem = coluna;
+            descendente = coluna == COLUNA_DATA || coluna == COLUNA_VALOR;
+        }
+        recarregar();
+    }
+
+    /**
+     * Descarta as páginas em cache e busca de novo a consulta atual
+     * (após edição, exclusão ou notificação de alteração)
+     *
+     * As linhas continuam na tela, como "...", até a primeira página chegar
+     * com o novo total.
+     */
+    void recarregar() {
+        geracao++;
+        paginas.clear();
+        carregando.clear();
+        falhas.clear();
+        buscarPagina(0);
+        if (total > 0) {
+            fireTableRowsUpdated(0, total - 1);
+        }
+    }
+
+    /**
+     * Campos da movimentação na linha, ou null se a página ainda não chegou:
+     * id, usuario, valor, data (yyyy-MM-dd), descricao, tipo, conta,
+     * categoria, idConta, idCategoria (ver constantes CAMPO_*)
+     */
+    String[] getLinha(int linha) {
+        if (linha < 0 || linha >= total) {
+            return null;
+        }
+        int pagina = linha / TAMANHO_PAGINA;
+        String[][] linhas = paginas.get(pagina);
+        if (linhas == null) {
+            buscarPagina(pagina);
+            return null;
+        }
+        int indice = linha % TAMANHO_PAGINA;
+        return indice < linhas.length ? linhas[indice] : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return total;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUNAS.length;
+    }
+
+    /** Nome da coluna, com a seta da ordenação atual */
+    @Override
+    public String getColumnName(int coluna) {
+        if (coluna != colunaOrdem) {
+            return COLUNAS[coluna];
+        }
+        return COLUNAS[coluna] + (descendente ? " ▼" : " ▲");
+    }
+
+    @Override
+    public boolean isCellEditable(int linha, int coluna) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        String[] campos = getLinha(linha);
+        if (campos == null) {
+            return CARREGANDO;
+        }
+        return coluna == COLUNA_DATA ? campos[CAMPO_DATA_FORMATADA] : campos[coluna];
+    }
+
+    private void buscarPagina(int pagina) {
+        if (falhas.contains(pagina) || !carregando.add(pagina)) {
+            return;
+        }
+        int geracaoPedido = geracao;
+        client.sendRequestAsync("ADMIN_LIST_MOVIMENTACOES_PAGE",
+                String.valueOf(idUsuario),
+                codificar(busca),
+                ORDENS[colunaOrdem] + (descendente ? "_desc" : "_asc"),
+                String.valueOf(pagina * TAMANHO_PAGINA),
+                String.valueOf(TAMANHO_PAGINA))
+            .whenComplete((resposta, erro) -> SwingUtilities.invokeLater(() ->
+                receberPagina(geracaoPedido, pagina, erro == null ? resposta : null,
+                        erro != null ? erro.getMessage() : null)));
+    }
+
+    /**
+     * Guarda a página "OK|total|mov;mov;..." e redesenha as linhas dela
+     */
+    private void receberPagina(int geracaoPedido, int pagina, String resposta, String erro) {
+        if (geracaoPedido != geracao) {
+            return;
+        }
+        carregando.remove(pagina);
+        if (resposta == null || !resposta.startsWith("OK")) {
+            falharPagina(pagina, erro != null ? erro : resposta);
+            return;
+        }
+
+        String[] partes = resposta.split("\\|", 3);
+        int novoTotal;
+        try {
+            novoTotal = partes.length > 1 ? Integer.parseInt(partes[1].trim()) : -1;
+        } catch (NumberFormatException e) {
+            falharPagina(pagina, "Resposta inválida do servidor: " + resposta);
+            return;
+        }
+        String[][] linhas = partes.length > 2 ? decodificarLinhas(partes[2]) : new String[0][];
+        paginas.put(pagina, linhas);
+
+        if (pagina == 0 && novoTotal >= 0) {
+            total = novoTotal;
+            fireTableDataChanged();
+            return;
+        }
+        int inicio = pagina * TAMANHO_PAGINA;
+        int fim = Math.min(total, inicio + TAMANHO_PAGINA) - 1;
+        if (fim >= inicio) {
+            fireTableRowsUpdated(inicio, fim);
+        }
+    }
+
+    /**
+     * Registra a falha da página na consulta atual; a primeira página avisa
+     * a tela, as demais só ficam como "..." até recarregar()
+     */
+    private void falharPagina(int pagina, String mensagem) {
+        falhas.add(pagina);
+        System.err.println("Erro ao carregar página " + pagina + " de movimentações: " + mensagem);
+        if (pagina == 0) {
+            aoFalhar.accept(mensagem);
+        }
+    }
+
+    private static String[][] decodificarLinhas(String dados) {
+        if (dados.trim().isEmpty()) {
+            return new String[0][];
+        }
+        String[] registros = dados.split(";");
+        String[][] linhas = new String[registros.length][];
+        for (int i = 0; i < registros.length; i++) {
+            String[] campos = registros[i].split(",", -1);
+            String[] linha = new String[CAMPO_DATA_FORMATADA + 1];
+            for (int c = 0; c < CAMPO_DATA_FORMATADA && c < campos.length; c++) {
+                linha[c] = decodificar(campos[c]);
+            }
+            linha[CAMPO_DATA_FORMATADA] = formatarData(linha[CAMPO_DATA]);
+            linhas[i] = linha;
+        }
+        return linhas;
+    }
+
+    // URL encoding dos textos do protocolo (UTF-8 existe em toda JVM)
+
+    private static String codificar(String texto) {
+        try {
+            return URLEncoder.encode(texto, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decodificar(String texto) {
+        try {
+            return URLDecoder.decode(texto, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            // Campo malformado: exibido como veio
+            return texto;
+        }
+    }
+
+    /**
+     * yyyy-MM-dd para dd/MM/yyyy; se não for uma data, mantém o texto
+     */
+    private static String formatarData(String data) {
+        if (data == null) {
+            return "";
+        }
+        try {
+            return LocalDate.parse(data).format(FORMATO_DATA);
+        } catch (DateTimeParseException e) {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import model.Movimentacao;
+import server.BinaryProtocol;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark do codec de LIST_MOVIMENTACOES: texto atual x formato binário
+ *
+ * Para uma lista de movimentações sintéticas mede, em cada formato:
+ * - codificação no servidor (texto: String.format + split, como
+ *   ClientHandler.formatarMovimentacoes; binário: BinaryProtocol)
+ * - decodificação no cliente (texto: split por ';' e ',' + parse;
+ *   binário: BinaryProtocol.Leitor)
+ * - bytes na rede por resposta
+ *
+ * Uma fração das descrições contém ',' (como "Mercado, padaria"): no texto
+ * esses registros chegam com campos deslocados e são contados como
+ * corrompidos; no binário a string tem tamanho próprio e chega intacta.
+ * Não usa banco de dados.
+ *
+ * Uso (a partir de ServidorFinanza, após ant compile):
+ *   javac -encoding UTF-8 -cp build/classes -d build/benchmark benchmark/CodecBenchmark.java
+ *   java -cp build/classes:build/benchmark CodecBenchmark [registros=500] [iteracoes=2000]
+ */
+public class CodecBenchmark {
+
+    private static final String[] DESCRICOES = {
+        "Supermercado", "Salário", "Aluguel", "Conta de luz", "Farmácia",
+        "Restaurante", "Mercado, padaria", "Transferência recebida"
+    };
+
+    public static void main(String[] args) {
+        int registros = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int iteracoes = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        List<Movimentacao> movimentacoes = gerar(registros);
+        String texto = codificarTexto(movimentacoes);
+        byte[] binario = codificarBinario(movimentacoes);
+
+        // Aquecimento do JIT
+        for (int i = 0; i < Math.max(200, iteracoes / 5); i++) {
+            decodificarTexto(codificarTexto(movimentacoes));
+            decodificarBinario(codificarBinario(movimentacoes));
+        }
+
+        long sink = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            sink += codificarTexto(movimentacoes).length();
+        }
+        long textoEncode = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            sink += codificarBinario(movimentacoes).length;
+        }
+        long binarioEncode = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            sink += decodificarTexto(texto).size();
+        }
+        long textoDecode = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            sink += decodificarBinario(binario).size();
+        }
+        long binarioDecode = System.nanoTime() - inicio;
+
+        int bytesTexto = ("OK|" + texto + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int bytesBinario = binario.length + tamanhoVarint(binario.length);
+        int corrompidosTexto = registros - decodificarTexto(texto).size();
+        int corrompidosBinario = registros - decodificarBinario(binario).size();
+
+        System.out.println("Registros por resposta: " + registros + ", iterações: " + iteracoes);
+        System.out.println();
+        System.out.printf(Locale.US, "%-10s %14s %14s %14s %12s%n",
+                "Formato", "encode (µs)", "decode (µs)", "MB/s decode", "bytes");
+        imprimir("texto", textoEncode, textoDecode, iteracoes, bytesTexto);
+        imprimir("binário", binarioEncode, binarioDecode, iteracoes, bytesBinario);
+        System.out.println();
+        System.out.printf(Locale.US, "Bytes na rede: binário = %.0f%% do texto%n", 100.0 * bytesBinario / bytesTexto);
+        System.out.printf(Locale.US, "Encode %.1fx, decode %.1fx mais rápidos no binário%n",
+                (double) textoEncode / binarioEncode, (double) textoDecode / binarioDecode);
+        System.out.println("Registros corrompidos (',' na descrição): texto = " + corrompidosTexto
+                + ", binário = " + corrompidosBinario);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static void imprimir(String formato, long encodeNs, long decodeNs, int iteracoes, int bytes) {
+        double encodeUs = encodeNs / 1000.0 / iteracoes;
+        double decodeUs = decodeNs / 1000.0 / iteracoes;
+        double mbs = bytes / (decodeUs / 1_000_000.0) / (1024 * 1024);
+        System.out.printf(Locale.US, "%-10s %14.1f %14.1f %14.1f %12d%n", formato, encodeUs, decodeUs, mbs, bytes);
+    }
+
+    private static List<Movimentacao> gerar(int n) {
+        Random random = new Random(42);
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        List<Movimentacao> lista = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            Movimentacao.TipoMovimentacao tipo = random.nextInt(4) == 0
+                    ? Movimentacao.TipoMovimentacao.RECEITA : Movimentacao.TipoMovimentacao.DESPESA;
+            double valor = random.nextInt(500_000) / 100.0;
+            lista.add(new Movimentacao(i, valor, Date.valueOf(base.plusDays(random.nextInt(365))),
+                    DESCRICOES[random.nextInt(DESCRICOES.length)], tipo,
+                    1 + random.nextInt(5), 1 + random.nextInt(20), 1));
+        }
+        return lista;
+    }
+
+    // ========== TEXTO (formato atual) ==========
+
+    /** Mesmo algoritmo de ClientHandler.formatarMovimentacoes */
+    private static String codificarTexto(List<Movimentacao> movimentacoes) {
+        StringBuilder sb = new StringBuilder();
+        for (Movimentacao mov : movimentacoes) {
+            String[] valorParts = String.format(Locale.US, "%.2f", mov.getValor()).split("\\.");
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(mov.getId()).append(',')
+              .append(valorParts[0]).append(',')
+              .append(valorParts[1]).append(',')
+              .append(mov.getData().toString()).append(',')
+              .append(mov.getDescricao()).append(',')
+              .append(mov.getTipo().getValor()).append(',')
+              .append(mov.getIdConta()).append(',')
+              .append(mov.getIdCategoria());
+        }
+        return sb.toString();
+    }
+
+    /** Parse como nos clientes: split + parse de cada campo; registros malformados são descartados */
+    private static List<Movimentacao> decodificarTexto(String dados) {
+        List<Movimentacao> lista = new ArrayList<>();
+        for (String registro : dados.split(";")) {
+            String[] campos = registro.split(",");
+            if (campos.length != 8) {
+                continue;
+            }
+            try {
+                lista.add(new Movimentacao(Integer.parseInt(campos[0]),
+                        Double.parseDouble(campos[1] + "." + campos[2]),
+                        Date.valueOf(campos[3]), campos[4],
+                        Movimentacao.TipoMovimentacao.fromString(campos[5]),
+                        Integer.parseInt(campos[6]), Integer.parseInt(campos[7]), 0));
+            } catch (IllegalArgumentException e) {
+                // Registro corrompido
+            }
+        }
+        return lista;
+    }
+
+    // ========== BINÁRIO ==========
+
+    private static byte[] codificarBinario(List<Movimentacao> movimentacoes) {
+        BinaryProtocol.Escritor escritor = new BinaryProtocol.Escritor(movimentacoes.size() * 32);
+        BinaryProtocol.escreverMovimentacoes(escritor, movimentacoes);
+        return escritor.toByteArray();
+    }
+
+    private static List<Movimentacao> decodificarBinario(byte[] corpo) {
+        BinaryProtocol.Leitor leitor = new BinaryProtocol.Leitor(corpo);
+        int n = leitor.varint();
+        List<Movimentacao> lista = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int id = leitor.varint();
+            double valor = leitor.centavos() / 100.0;
+            Date data = leitor.data();
+            String descricao = leitor.string();
+            Movimentacao.TipoMovimentacao tipo = Movimentacao.TipoMovimentacao.fromString(leitor.string());
+            lista.add(new Movimentacao(id, valor, data, descricao, tipo, leitor.varint(), leitor.varint(), 0));
+        }
+        return lista;
+    }
+
+    private static int tamanhoVarint(int valor) {
+        int bytes = 1;
+        while ((valor & ~0x7F) != 0) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,222 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Benchmark da compressão de respostas (SET_COMPRESSION)
+ *
+ * Monta respostas de LIST_MOVIMENTACOES (um usuário) e de
+ * ADMIN_LIST_ALL_MOVIMENTACOES (vários usuários) para extratos sintéticos
+ * com descrições, valores e datas realistas, e mede para cada tamanho:
+ * - bytes na rede sem compressão e com deflate (nível 1, usado pelo
+ *   servidor, e nível 6, o padrão do zlib)
+ * - tempo de compressão no servidor e de descompressão no cliente, com um
+ *   Deflater/Inflater reaproveitado como na conexão
+ * - tempo total estimado (compressão + transferência + descompressão) em
+ *   enlaces típicos de celular e Wi-Fi; a transferência é calculada pela
+ *   banda, então o resultado não depende da rede da máquina do teste
+ *
+ * Não usa banco de dados.
+ *
+ * Uso (a partir de ServidorFinanza):
+ *   javac -encoding UTF-8 -d build/benchmark benchmark/CompressionBenchmark.java
+ *   java -cp build/benchmark CompressionBenchmark [iteracoes=200]
+ */
+public class CompressionBenchmark {
+
+    /** Enlaces simulados: nome e banda em Mbit/s */
+    private static final String[] ENLACES = {"3G", "4G", "Wi-Fi"};
+    private static final double[] BANDA_MBITS = {2, 20, 100};
+
+    private static final String[] DESCRICOES = {
+        "Supermercado Extra", "Padaria Pão Quente", "Uber *viagem", "iFood *pedido",
+        "Posto Shell", "Farmácia Drogasil", "Conta de luz CEMIG", "Conta de água",
+        "Internet Vivo Fibra", "Aluguel apartamento", "Condomínio", "Netflix.com",
+        "Spotify", "Academia Smart Fit", "PIX recebido", "PIX enviado",
+        "Salário empresa", "Restaurante almoço", "Cinema", "Livraria Cultura",
+        "Mercado Livre", "Amazon Marketplace", "Estacionamento", "Pedágio",
+        "Consulta médica", "Seguro do carro", "IPVA parcela", "Transferência poupança"
+    };
+
+    public static void main(String[] args) {
+        int iteracoes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        Deflater rapido = new Deflater(Deflater.BEST_SPEED);
+        Deflater padrao = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        Inflater inflater = new Inflater();
+
+        System.out.printf(Locale.US, "%-32s %10s %10s %7s %10s %7s %9s %9s%n",
+                "Resposta", "texto", "nível 1", "razão", "nível 6", "razão", "comp µs", "desc µs");
+
+        String[] nomes = {
+            "LIST_MOVIMENTACOES 1 mês",
+            "LIST_MOVIMENTACOES 1 ano",
+            "LIST_MOVIMENTACOES 5 anos",
+            "ADMIN_LIST_ALL 50 usuários x 1 ano"
+        };
+        byte[][] respostas = {
+            listMovimentacoes(60, 1),
+            listMovimentacoes(720, 2),
+            listMovimentacoes(3600, 3),
+            adminListAll(50, 720, 4)
+        };
+
+        double[][] totais = new double[respostas.length][];
+        for (int r = 0; r < respostas.length; r++) {
+            byte[] texto = respostas[r];
+            byte[] nivel1 = comprimir(rapido, texto);
+            byte[] nivel6 = comprimir(padrao, texto);
+            if (!Arrays.equals(texto, descomprimir(inflater, nivel1, texto.length))) {
+                throw new IllegalStateException("Descompressão diferente do original");
+            }
+
+            int repeticoes = Math.max(5, iteracoes * 60_000 / Math.max(60_000, texto.length));
+            for (int i = 0; i < repeticoes / 5 + 1; i++) {
+                comprimir(rapido, texto);
+                descomprimir(inflater, nivel1, texto.length);
+            }
+            long inicio = System.nanoTime();
+            for (int i = 0; i < repeticoes; i++) {
+                comprimir(rapido, texto);
+            }
+            double compUs = (System.nanoTime() - inicio) / 1000.0 / repeticoes;
+            inicio = System.nanoTime();
+            for (int i = 0; i < repeticoes; i++) {
+                descomprimir(inflater, nivel1, texto.length);
+            }
+            double descUs = (System.nanoTime() - inicio) / 1000.0 / repeticoes;
+
+            System.out.printf(Locale.US, "%-32s %10d %10d %6.1fx %10d %6.1fx %9.0f %9.0f%n",
+                    nomes[r], texto.length, nivel1.length, (double) texto.length / nivel1.length,
+                    nivel6.length, (double) texto.length / nivel6.length, compUs, descUs);
+            totais[r] = new double[] {texto.length, nivel1.length, compUs + descUs};
+        }
+
+        System.out.println();
+        System.out.println("Tempo total estimado (ms): sem compressão / com deflate nível 1");
+        System.out.printf(Locale.US, "%-32s", "Resposta");
+        for (String enlace : ENLACES) {
+            System.out.printf(Locale.US, " %20s", enlace);
+        }
+        System.out.println();
+        for (int r = 0; r < respostas.length; r++) {
+            System.out.printf(Locale.US, "%-32s", nomes[r]);
+            for (double banda : BANDA_MBITS) {
+                double semCompressao = transferenciaMs(totais[r][0], banda);
+                double comCompressao = transferenciaMs(totais[r][1], banda) + totais[r][2] / 1000.0;
+                System.out.printf(Locale.US, " %9.1f / %8.1f", semCompressao, comCompressao);
+            }
+            System.out.println();
+        }
+
+        rapido.end();
+        padrao.end();
+        inflater.end();
+    }
+
+    private static double transferenciaMs(double bytes, double bandaMbits) {
+        return bytes * 8 / (bandaMbits * 1_000_000) * 1000;
+    }
+
+    // ========== RESPOSTAS ==========
+
+    /** OK|id,inteiro,decimal,data,descricao,tipo,idConta,idCategoria;... */
+    private static byte[] listMovimentacoes(int quantidade, long semente) {
+        Random random = new Random(semente);
+        StringBuilder sb = new StringBuilder("OK|");
+        LocalDate data = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < quantidade; i++) {
+            if (i > 0) {
+                sb.append(';');
+            }
+            boolean receita = random.nextInt(10) == 0;
+            String[] valor = String.format(Locale.US, "%.2f", valorAleatorio(random, receita)).split("\\.");
+            sb.append(1000 + i).append(',')
+              .append(valor[0]).append(',')
+              .append(valor[1]).append(',')
+              .append(data).append(',')
+              .append(DESCRICOES[random.nextInt(DESCRICOES.length)]).append(',')
+              .append(receita ? "receita" : "despesa").append(',')
+              .append(1 + random.nextInt(4)).append(',')
+              .append(1 + random.nextInt(15));
+            if (random.nextInt(2) == 0) {
+                data = data.plusDays(1);
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** OK|id,nomeUsuario,valor,data,descricao,tipo,nomeConta,nomeCategoria,dataCriacao;... */
+    private static byte[] adminListAll(int usuarios, int porUsuario, long semente) {
+        Random random = new Random(semente);
+        String[] contas = {"Nubank", "Itaú Corrente", "Carteira", "Poupança Caixa"};
+        String[] categorias = {"Alimentação", "Transporte", "Moradia", "Lazer", "Saúde", "Salário", "Outros"};
+        StringBuilder sb = new StringBuilder("OK|");
+        int id = 1;
+        for (int u = 0; u < usuarios; u++) {
+            String usuario = "Usuário " + (u + 1);
+            LocalDate data = LocalDate.of(2024, 1, 1);
+            for (int i = 0; i < porUsuario; i++) {
+                if (id > 1) {
+                    sb.append(';');
+                }
+                boolean receita = random.nextInt(10) == 0;
+                sb.append(id++).append(',')
+                  .append(usuario).append(',')
+                  .append(valorAleatorio(random, receita)).append(',')
+                  .append(data).append(',')
+                  .append(DESCRICOES[random.nextInt(DESCRICOES.length)]).append(',')
+                  .append(receita ? "RECEITA" : "DESPESA").append(',')
+                  .append(contas[random.nextInt(contas.length)]).append(',')
+                  .append(categorias[random.nextInt(categorias.length)]).append(',')
+                  .append(String.format("%02d/%02d/%d", data.getDayOfMonth(), data.getMonthValue(), data.getYear()));
+                if (random.nextInt(2) == 0) {
+                    data = data.plusDays(1);
+                }
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double valorAleatorio(Random random, boolean receita) {
+        int centavos = receita ? 50_000 + random.nextInt(800_000) : 500 + random.nextInt(60_000);
+        return centavos / 100.0;
+    }
+
+    // ========== DEFLATE ==========
+
+    private static byte[] comprimir(Deflater deflater, byte[] dados) {
+        deflater.reset();
+        deflater.setInput(dados);
+        deflater.finish();
+        byte[] saida = new byte[Math.max(64, dados.length / 4)];
+        int tamanho = 0;
+        while (!deflater.finished()) {
+            if (tamanho == saida.length) {
+                saida = Arrays.copyOf(saida, saida.length * 2);
+            }
+            tamanho += deflater.deflate(saida, tamanho, saida.length - tamanho);
+        }
+        return Arrays.copyOf(saida, tamanho);
+    }
+
+    private static byte[] descomprimir(Inflater inflater, byte[] dados, int tamanhoOriginal) {
+        inflater.reset();
+        inflater.setInput(dados);
+        byte[] saida = new byte[tamanhoOriginal];
+        int total = 0;
+        try {
+            while (total < tamanhoOriginal && !inflater.finished()) {
+                total += inflater.inflate(saida, total, tamanhoOriginal - total);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(e);
+        }
+        return saida;
+    }
+}
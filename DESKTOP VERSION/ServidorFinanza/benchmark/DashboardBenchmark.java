@@ -0,0 +1,150 @@
+import dao.*;
+import model.*;
+import util.DatabaseUtil;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark do cálculo do dashboard (GET_DASHBOARD)
+ *
+ * Compara o caminho antigo (listarPorUsuario + calcularSaldoAtual por conta +
+ * receitas + despesas + contagem, N+4 consultas) com a consulta única do
+ * DashboardDAO, para um usuário temporário com várias contas.
+ *
+ * Mede latência (média, p50, p95) e idas ao banco (conexões emprestadas do pool
+ * por chamada). Requer o MySQL configurado em DatabaseUtil; o usuário criado é
+ * removido ao final (ON DELETE CASCADE remove contas e movimentações).
+ *
+ * Uso (a partir de ServidorFinanza, após ant compile):
+ *   javac -encoding UTF-8 -cp build/classes -d build/benchmark benchmark/DashboardBenchmark.java
+ *   java -cp build/classes:build/benchmark:../lib/mysql-connector-j-8.0.33.jar \
+ *        DashboardBenchmark [contas=25] [movimentacoesPorConta=20] [iteracoes=500]
+ */
+public class DashboardBenchmark {
+
+    public static void main(String[] args) {
+        int numContas = args.length > 0 ? Integer.parseInt(args[0]) : 25;
+        int movPorConta = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iteracoes = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        if (!DatabaseUtil.testConnection()) {
+            System.err.println("Não foi possível conectar ao banco de dados");
+            System.exit(1);
+        }
+        DatabaseUtil.initializeDatabase();
+
+        UsuarioDAO usuarioDAO = new UsuarioDAO();
+        Usuario usuario = new Usuario("Benchmark Dashboard",
+                "bench-dashboard-" + System.currentTimeMillis() + "@finanza.local", "x");
+        if (!usuarioDAO.inserir(usuario)) {
+            System.err.println("Falha ao criar usuário do benchmark");
+            System.exit(1);
+        }
+
+        try {
+            popular(usuario.getId(), numContas, movPorConta);
+
+            LocalDate hoje = LocalDate.now();
+            Date inicio = Date.valueOf(hoje.withDayOfMonth(1));
+            Date fim = Date.valueOf(hoje.withDayOfMonth(hoje.lengthOfMonth()));
+
+            ContaDAO contaDAO = new ContaDAO();
+            MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+            DashboardDAO dashboardDAO = new DashboardDAO();
+            int idUsuario = usuario.getId();
+
+            ResumoDashboard antigo = caminhoAntigo(contaDAO, movimentacaoDAO, idUsuario, inicio, fim);
+            ResumoDashboard novo = dashboardDAO.calcularResumo(idUsuario, inicio, fim);
+            System.out.println("Caminho antigo: " + antigo);
+            System.out.println("Consulta única: " + novo);
+            if (novo == null || Math.abs(antigo.getSaldoTotal() - novo.getSaldoTotal()) > 0.005
+                    || Math.abs(antigo.getReceitasMes() - novo.getReceitasMes()) > 0.005
+                    || Math.abs(antigo.getDespesasMes() - novo.getDespesasMes()) > 0.005
+                    || antigo.getNumTransacoes() != novo.getNumTransacoes()) {
+                System.err.println("Resultados divergentes entre os dois caminhos!");
+                System.exit(1);
+            }
+
+            System.out.printf("%nUsuário com %d contas e %d movimentações, %d iterações%n",
+                    numContas, numContas * movPorConta, iteracoes);
+            medir("N+4 consultas", iteracoes,
+                    () -> caminhoAntigo(contaDAO, movimentacaoDAO, idUsuario, inicio, fim));
+            medir("Consulta única", iteracoes,
+                    () -> dashboardDAO.calcularResumo(idUsuario, inicio, fim));
+        } finally {
+            usuarioDAO.excluir(usuario.getId());
+            DatabaseUtil.shutdown();
+        }
+    }
+
+    /**
+     * Implementação anterior do processarGetDashboard, mantida como referência
+     */
+    private static ResumoDashboard caminhoAntigo(ContaDAO contaDAO, MovimentacaoDAO movimentacaoDAO,
+                                                 int idUsuario, Date inicio, Date fim) {
+        double saldoTotal = 0.0;
+        List<Conta> contas = contaDAO.listarPorUsuario(idUsuario);
+        for (Conta conta : contas) {
+            saldoTotal += contaDAO.calcularSaldoAtual(conta.getId());
+        }
+        double receitas = movimentacaoDAO.calcularTotalReceitas(idUsuario, inicio, fim);
+        double despesas = movimentacaoDAO.calcularTotalDespesas(idUsuario, inicio, fim);
+        int total = movimentacaoDAO.contarMovimentacoes(idUsuario);
+        return new ResumoDashboard(saldoTotal, receitas, despesas, total);
+    }
+
+    private static void popular(int idUsuario, int numContas, int movPorConta) {
+        ContaDAO contaDAO = new ContaDAO();
+        CategoriaDAO categoriaDAO = new CategoriaDAO();
+        MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+
+        Categoria receita = new Categoria("Salário", Categoria.TipoCategoria.RECEITA, idUsuario);
+        Categoria despesa = new Categoria("Mercado", Categoria.TipoCategoria.DESPESA, idUsuario);
+        categoriaDAO.inserir(receita);
+        categoriaDAO.inserir(despesa);
+
+        LocalDate hoje = LocalDate.now();
+        for (int c = 0; c < numContas; c++) {
+            Conta conta = new Conta("Conta " + c, Conta.TipoConta.CORRENTE, 100.0 * c, idUsuario);
+            contaDAO.inserir(conta);
+            for (int m = 0; m < movPorConta; m++) {
+                boolean ehReceita = m % 3 == 0;
+                Movimentacao mov = new Movimentacao(
+                        10.0 + m,
+                        Date.valueOf(hoje.minusDays(m * 3L)),
+                        "Lançamento " + c + "-" + m,
+                        ehReceita ? Movimentacao.TipoMovimentacao.RECEITA : Movimentacao.TipoMovimentacao.DESPESA,
+                        conta.getId(),
+                        ehReceita ? receita.getId() : despesa.getId(),
+                        idUsuario);
+                movimentacaoDAO.inserir(mov);
+            }
+        }
+    }
+
+    private static void medir(String nome, int iteracoes, Runnable chamada) {
+        // Aquecimento (JIT, cache de statements e do pool)
+        for (int i = 0; i < Math.max(50, iteracoes / 10); i++) {
+            chamada.run();
+        }
+
+        long[] tempos = new long[iteracoes];
+        long emprestimosAntes = DatabaseUtil.getPool().getBorrowCount();
+        for (int i = 0; i < iteracoes; i++) {
+            long inicio = System.nanoTime();
+            chamada.run();
+            tempos[i] = System.nanoTime() - inicio;
+        }
+        long emprestimos = DatabaseUtil.getPool().getBorrowCount() - emprestimosAntes;
+
+        Arrays.sort(tempos);
+        double media = Arrays.stream(tempos).average().orElse(0) / 1_000_000.0;
+        double p50 = tempos[iteracoes / 2] / 1_000_000.0;
+        double p95 = tempos[(int) (iteracoes * 0.95)] / 1_000_000.0;
+        System.out.printf("%-16s idas ao banco/chamada=%.1f  média=%.3fms  p50=%.3fms  p95=%.3fms%n",
+                nome, (double) emprestimos / iteracoes, media, p50, p95);
+    }
+}
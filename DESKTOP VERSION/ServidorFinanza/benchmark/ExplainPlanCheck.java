@@ -0,0 +1,224 @@
+import dao.*;
+import model.*;
+import util.DatabaseUtil;
+import util.Dialeto;
+import util.SchemaMigrator;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verificação dos planos de execução (EXPLAIN) das consultas principais
+ *
+ * Aplica as migrações, cria um usuário temporário com contas, categorias e
+ * movimentações, atualiza as estatísticas (ANALYZE TABLE) e confere, para
+ * cada consulta dos DAOs, se o MySQL usa o índice esperado da migração 4 e
+ * se as consultas ordenadas dispensam filesort. Termina com código 1 se
+ * algum plano divergir.
+ *
+ * Requer o MySQL configurado em DatabaseUtil (o EXPLAIN do H2 embutido tem
+ * outro formato); o usuário criado é removido ao final (ON DELETE CASCADE
+ * remove contas e movimentações).
+ *
+ * Uso (a partir de ServidorFinanza, após ant compile):
+ *   javac -encoding UTF-8 -cp build/classes -d build/benchmark benchmark/ExplainPlanCheck.java
+ *   java -cp build/classes:build/benchmark:../lib/mysql-connector-j-8.0.33.jar \
+ *        ExplainPlanCheck [contas=5] [movimentacoesPorConta=400]
+ */
+public class ExplainPlanCheck {
+
+    /**
+     * Consulta verificada: SQL com parâmetros, índices aceitos e exigência de
+     * ordenação pelo índice
+     */
+    private static final class Caso {
+        final String nome;
+        final String sql;
+        final Object[] parametros;
+        final List<String> indices;
+        final boolean semFilesort;
+
+        Caso(String nome, String sql, Object[] parametros, boolean semFilesort, String... indices) {
+            this.nome = nome;
+            this.sql = sql;
+            this.parametros = parametros;
+            this.semFilesort = semFilesort;
+            this.indices = Arrays.asList(indices);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int numContas = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int movPorConta = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+        if (DatabaseUtil.getDialeto() != Dialeto.MYSQL) {
+            System.err.println("A verificação dos planos só se aplica ao MySQL");
+            System.exit(1);
+        }
+        if (!DatabaseUtil.testConnection()) {
+            System.err.println("Não foi possível conectar ao banco de dados");
+            System.exit(1);
+        }
+        DatabaseUtil.initializeDatabase();
+
+        UsuarioDAO usuarioDAO = new UsuarioDAO();
+        Usuario usuario = new Usuario("Verificação de planos",
+                "explain-check-" + System.currentTimeMillis() + "@finanza.local", "x");
+        if (!usuarioDAO.inserir(usuario)) {
+            System.err.println("Falha ao criar usuário da verificação");
+            System.exit(1);
+        }
+
+        int falhas;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            int idUsuario = usuario.getId();
+            Movimentacao exemplo = popular(idUsuario, numContas, movPorConta);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE TABLE usuario, conta, categoria, movimentacao");
+            }
+
+            System.out.println("Esquema na versão " + SchemaMigrator.versaoAtual(conn) + "; usuário com "
+                    + numContas + " contas e " + numContas * movPorConta + " movimentações");
+            System.out.println();
+            System.out.printf("%-28s %-40s %-8s %s%n", "Consulta", "Índice usado", "Linhas", "Resultado");
+
+            LocalDate hoje = LocalDate.now();
+            Date inicio = Date.valueOf(hoje.minusDays(30));
+            Date fim = Date.valueOf(hoje);
+            falhas = 0;
+            for (Caso caso : casos(idUsuario, exemplo, inicio, fim)) {
+                if (!verificar(conn, caso)) {
+                    falhas++;
+                }
+            }
+        } finally {
+            usuarioDAO.excluir(usuario.getId());
+            DatabaseUtil.shutdown();
+        }
+
+        System.out.println();
+        if (falhas > 0) {
+            System.err.println(falhas + " plano(s) fora do esperado");
+            System.exit(1);
+        }
+        System.out.println("Todos os planos usam os índices esperados");
+    }
+
+    private static List<Caso> casos(int idUsuario, Movimentacao exemplo, Date inicio, Date fim) {
+        List<Caso> casos = new ArrayList<>();
+        casos.add(new Caso("movimentações do usuário",
+                "SELECT * FROM movimentacao WHERE id_usuario = ? ORDER BY data DESC, id DESC",
+                new Object[] {idUsuario}, true, "idx_movimentacao_usuario_data_id"));
+        casos.add(new Caso("página por período",
+                "SELECT * FROM movimentacao WHERE id_usuario = ? AND data >= ? AND data <= ? " +
+                "ORDER BY data DESC, id DESC LIMIT 50",
+                new Object[] {idUsuario, inicio, fim}, true, "idx_movimentacao_usuario_data_id"));
+        casos.add(new Caso("movimentações da conta",
+                "SELECT * FROM movimentacao WHERE id_conta = ? AND id_usuario = ? ORDER BY data DESC, id DESC",
+                new Object[] {exemplo.getIdConta(), idUsuario}, true, "idx_movimentacao_conta_data_id"));
+        casos.add(new Caso("página do admin",
+                "SELECT m.*, u.nome AS nome_usuario, c.nome AS nome_conta, cat.nome AS nome_categoria " +
+                "FROM movimentacao m JOIN usuario u ON u.id = m.id_usuario " +
+                "LEFT JOIN conta c ON c.id = m.id_conta LEFT JOIN categoria cat ON cat.id = m.id_categoria " +
+                "ORDER BY m.data DESC, m.id DESC LIMIT 200 OFFSET 0",
+                new Object[0], true, "idx_movimentacao_data_id"));
+        casos.add(new Caso("duplicata (inserir)",
+                "SELECT * FROM movimentacao WHERE valor = ? AND data = ? AND descricao = ? AND id_conta = ? AND id_usuario = ?",
+                new Object[] {BigDecimal.valueOf(Math.round(exemplo.getValor() * 100), 2), exemplo.getData(),
+                        exemplo.getDescricao(), exemplo.getIdConta(), idUsuario},
+                false, "idx_movimentacao_duplicata"));
+        casos.add(new Caso("total de receitas",
+                "SELECT COALESCE(SUM(valor), 0) FROM movimentacao WHERE id_usuario = ? AND tipo = 'receita' AND data BETWEEN ? AND ?",
+                new Object[] {idUsuario, inicio, fim}, false, "idx_movimentacao_usuario_tipo_data"));
+        casos.add(new Caso("categoria em uso",
+                "SELECT COUNT(*) FROM movimentacao WHERE id_categoria = ?",
+                new Object[] {exemplo.getIdCategoria()}, false, "idx_movimentacao_categoria_data_id", "id_categoria"));
+        casos.add(new Caso("contas do usuário",
+                "SELECT * FROM conta WHERE id_usuario = ? ORDER BY nome",
+                new Object[] {idUsuario}, true, "idx_conta_usuario_nome"));
+        casos.add(new Caso("categorias do usuário",
+                "SELECT * FROM categoria WHERE id_usuario = ? ORDER BY tipo, nome",
+                new Object[] {idUsuario}, true, "idx_categoria_usuario_tipo_nome"));
+        casos.add(new Caso("saldo atual da conta",
+                "SELECT saldo_atual FROM conta WHERE id = ?",
+                new Object[] {exemplo.getIdConta()}, false, "PRIMARY"));
+        return casos;
+    }
+
+    /**
+     * Executa EXPLAIN e confere o índice da tabela consultada (primeira linha)
+     */
+    private static boolean verificar(Connection conn, Caso caso) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + caso.sql)) {
+            for (int i = 0; i < caso.parametros.length; i++) {
+                stmt.setObject(i + 1, caso.parametros[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    System.out.printf("%-28s %-40s %-8s %s%n", caso.nome, "-", "-", "FALHA (sem plano)");
+                    return false;
+                }
+                String indice = rs.getString("key");
+                String extra = rs.getString("Extra");
+                boolean filesort = extra != null && extra.contains("Using filesort");
+                boolean ok = indice != null && caso.indices.contains(indice) && !(caso.semFilesort && filesort);
+
+                String resultado = ok ? "OK" : "FALHA (esperado " + String.join(" ou ", caso.indices)
+                        + (caso.semFilesort ? " sem filesort" : "") + ")";
+                System.out.printf("%-28s %-40s %-8s %s%n", caso.nome,
+                        indice == null ? "(nenhum)" : indice + (filesort ? " +filesort" : ""),
+                        rs.getString("rows"), resultado);
+                return ok;
+            }
+        }
+    }
+
+    /**
+     * Cria contas, categorias e movimentações do usuário em lote
+     * @return uma movimentação gravada, usada como parâmetro das consultas
+     */
+    private static Movimentacao popular(int idUsuario, int numContas, int movPorConta) {
+        ContaDAO contaDAO = new ContaDAO();
+        CategoriaDAO categoriaDAO = new CategoriaDAO();
+        MovimentacaoDAO movimentacaoDAO = new MovimentacaoDAO();
+
+        Categoria receita = new Categoria("Salário", Categoria.TipoCategoria.RECEITA, idUsuario);
+        Categoria despesa = new Categoria("Mercado", Categoria.TipoCategoria.DESPESA, idUsuario);
+        categoriaDAO.inserirLote(idUsuario, Arrays.asList(receita, despesa));
+
+        List<Conta> contas = new ArrayList<>();
+        for (int c = 0; c < numContas; c++) {
+            contas.add(new Conta("Conta " + c, Conta.TipoConta.CORRENTE, 100.0 * c, idUsuario));
+        }
+        contaDAO.inserirLote(idUsuario, contas);
+
+        LocalDate hoje = LocalDate.now();
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        for (Conta conta : contas) {
+            for (int m = 0; m < movPorConta; m++) {
+                boolean ehReceita = m % 3 == 0;
+                movimentacoes.add(new Movimentacao(
+                        10.0 + m,
+                        Date.valueOf(hoje.minusDays(m)),
+                        "Lançamento " + conta.getId() + "-" + m,
+                        ehReceita ? Movimentacao.TipoMovimentacao.RECEITA : Movimentacao.TipoMovimentacao.DESPESA,
+                        conta.getId(),
+                        ehReceita ? receita.getId() : despesa.getId(),
+                        idUsuario));
+            }
+        }
+        if (!movimentacaoDAO.inserirLote(idUsuario, movimentacoes)) {
+            throw new IllegalStateException("Falha ao gravar as movimentações da verificação");
+        }
+        return movimentacoes.get(movimentacoes.size() / 2);
+    }
+}
@@ -0,0 +1,864 @@
+import server.Protocol;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gerador de carga com vários clientes simultâneos
+ *
+ * Abre N sessões de socket (protocolo de texto), cada uma registra e
+ * autentica um usuário próprio, cria uma conta, duas categorias e algumas
+ * movimentações iniciais (BULK_UPLOAD) e depois executa até o fim do tempo
+ * uma mistura ponderada de comandos, como um celular usando o aplicativo:
+ *
+ *   dashboard  GET_DASHBOARD
+ *   list       LIST_MOVIMENTACOES
+ *   page       LIST_MOVIMENTACOES_PAGE (50 por página, seguindo o cursor)
+ *   contas     LIST_CONTAS
+ *   add        ADD_MOVIMENTACAO
+ *   update     UPDATE_MOVIMENTACAO (de uma movimentação criada pela sessão)
+ *   delete     DELETE_MOVIMENTACAO (idem; sem movimentação, vira add)
+ *   sync       INCREMENTAL_SYNC (a partir da última versão recebida)
+ *   admin      ADMIN_LIST_ALL_MOVIMENTACOES
+ *
+ * O comando admin exige um administrador (--admin=email:senha); as sessões
+ * de administrador (--admin-sessions) executam apenas ele, com o mesmo
+ * intervalo entre comandos.
+ *
+ * Entre comandos há uma pausa exponencial com média --think (modelo fechado,
+ * como um usuário lendo a tela). Com --rate cada sessão segue uma agenda
+ * fixa de comandos por segundo e a latência é medida a partir do horário
+ * previsto, não do envio: quando o servidor atrasa, a espera na fila da
+ * própria sessão entra na medida (sem "coordinated omission").
+ *
+ * Latências são registradas em histogramas log-lineares por sessão
+ * (precisão de ~1%, como o HdrHistogram com 2 dígitos) e somadas ao final.
+ * Comandos iniciados durante o aquecimento não entram no relatório.
+ * Respostas diferentes de OK contam como erro pelo status (ERROR,
+ * INVALID_DATA...), e falhas de socket como CONEXAO; a sessão então
+ * reconecta e autentica de novo.
+ *
+ * O relatório sai em tabela no console e em JSON (--report), com a
+ * configuração e um rótulo livre (--label) para comparar versões do
+ * servidor. Os usuários criados ficam no banco (e-mails
+ * carga-<execução>-<n>@finanza.local); no modo --test do servidor somem
+ * ao encerrá-lo.
+ *
+ * Uso (a partir de ServidorFinanza, após ant compile):
+ *   javac -encoding UTF-8 -cp build/classes -d build/benchmark benchmark/LoadGenerator.java
+ *   java -cp build/classes:build/benchmark LoadGenerator [opções]
+ *
+ * Opções:
+ *   --host=H             servidor (localhost)
+ *   --port=N             porta (8080)
+ *   --sessions=N         sessões simultâneas (50)
+ *   --duration=S         duração medida em segundos, após o aquecimento (60)
+ *   --warmup=S           aquecimento em segundos (10)
+ *   --think=MS           pausa média entre comandos (200; 0 sem pausa)
+ *   --rate=N             comandos por segundo por sessão (substitui --think)
+ *   --mix=cmd:peso,...   pesos da mistura (dashboard:20,list:10,page:20,contas:10,
+ *                        add:15,update:10,delete:8,sync:7)
+ *   --seed=N             movimentações iniciais por sessão (20)
+ *   --admin=email:senha  administrador para o comando admin
+ *   --admin-sessions=N   sessões de administrador (1 quando --admin é informado)
+ *   --timeout=MS         tempo máximo de espera por resposta (30000)
+ *   --label=texto        rótulo da execução no relatório
+ *   --report=arquivo     grava o relatório JSON
+ */
+public class LoadGenerator {
+
+    /**
+     * Comandos da mistura
+     */
+    enum Comando {
+        DASHBOARD("dashboard"),
+        LIST("list"),
+        PAGE("page"),
+        CONTAS("contas"),
+        ADD("add"),
+        UPDATE("update"),
+        DELETE("delete"),
+        SYNC("sync"),
+        ADMIN("admin");
+
+        private final String valor;
+
+        Comando(String valor) {
+            this.valor = valor;
+        }
+
+        public String getValor() {
+            return valor;
+        }
+
+        public static Comando fromString(String valor) {
+            for (Comando comando : Comando.values()) {
+                if (comando.valor.equalsIgnoreCase(valor)) {
+                    return comando;
+                }
+            }
+            throw new IllegalArgumentException("Comando inválido na mistura: " + valor);
+        }
+    }
+
+    private static final String MIX_PADRAO =
+            "dashboard:20,list:10,page:20,contas:10,add:15,update:10,delete:8,sync:7";
+    private static final String SENHA = "carga123";
+    private static final String STATUS_CONEXAO = "CONEXAO";
+    private static final int TAMANHO_PAGINA = 50;
+
+    public static void main(String[] args) throws Exception {
+        Configuracao config;
+        try {
+            config = Configuracao.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        String execucao = Long.toString(System.currentTimeMillis(), 36);
+        System.out.println("Gerador de carga: " + config);
+
+        LongAdder concluidos = new LongAdder();
+        List<Sessao> sessoes = new ArrayList<>();
+        for (int i = 0; i < config.sessoes + config.sessoesAdmin; i++) {
+            sessoes.add(new Sessao(config, i, i >= config.sessoes, execucao, concluidos));
+        }
+
+        CountDownLatch prontas = new CountDownLatch(sessoes.size());
+        Relogio relogio = new Relogio();
+        List<Thread> threads = new ArrayList<>();
+        for (Sessao sessao : sessoes) {
+            Thread thread = new Thread(() -> sessao.executar(prontas, relogio), "carga-" + sessao.numero);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        // A medição começa quando todas as sessões terminaram a preparação
+        prontas.await();
+        long falhasPreparacao = sessoes.stream().filter(s -> s.falhaPreparacao != null).count();
+        if (falhasPreparacao == sessoes.size()) {
+            System.err.println("✗ Nenhuma sessão conseguiu se preparar: " + sessoes.get(0).falhaPreparacao);
+            System.exit(1);
+        }
+        if (falhasPreparacao > 0) {
+            String motivo = sessoes.stream().filter(s -> s.falhaPreparacao != null).findFirst().get().falhaPreparacao;
+            System.err.println("⚠ " + falhasPreparacao + " sessão(ões) falharam na preparação e ficam de fora: " + motivo);
+        }
+        relogio.iniciar(config);
+        System.out.println("Aquecimento de " + config.aquecimentoSegundos + " s, medição de "
+                + config.duracaoSegundos + " s com " + (sessoes.size() - falhasPreparacao) + " sessões");
+
+        while (System.nanoTime() < relogio.fim) {
+            Thread.sleep(Math.min(5000, Math.max(1, TimeUnit.NANOSECONDS.toMillis(relogio.fim - System.nanoTime()))));
+            long decorrido = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - relogio.inicio);
+            System.out.println("  " + decorrido + " s: " + concluidos.sum() + " comandos");
+        }
+        for (Thread thread : threads) {
+            thread.join(config.timeoutMs + 1000);
+        }
+
+        Relatorio relatorio = new Relatorio(config, execucao, relogio);
+        for (Sessao sessao : sessoes) {
+            relatorio.somar(sessao);
+        }
+        relatorio.imprimir();
+        if (config.arquivoRelatorio != null) {
+            Files.write(Paths.get(config.arquivoRelatorio), relatorio.toJson().getBytes(StandardCharsets.UTF_8));
+            System.out.println("Relatório gravado em " + config.arquivoRelatorio);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Opções de linha de comando
+     */
+    static final class Configuracao {
+        String host = "localhost";
+        int porta = 8080;
+        int sessoes = 50;
+        int duracaoSegundos = 60;
+        int aquecimentoSegundos = 10;
+        int pausaMediaMs = 200;
+        double taxaPorSessao;
+        int movimentacoesIniciais = 20;
+        String emailAdmin;
+        String senhaAdmin;
+        int sessoesAdmin;
+        int timeoutMs = 30000;
+        String rotulo = "";
+        String arquivoRelatorio;
+        String mix = MIX_PADRAO;
+        final int[] pesos = new int[Comando.values().length];
+        int pesoTotal;
+
+        static Configuracao fromArgs(String[] args) {
+            Configuracao config = new Configuracao();
+            Integer sessoesAdmin = null;
+            for (String arg : args) {
+                int igual = arg.indexOf('=');
+                if (!arg.startsWith("--") || igual < 0) {
+                    throw new IllegalArgumentException("Opção inválida: " + arg);
+                }
+                String nome = arg.substring(2, igual);
+                String valor = arg.substring(igual + 1);
+                switch (nome) {
+                    case "host": config.host = valor; break;
+                    case "port": config.porta = inteiro(nome, valor, 1); break;
+                    case "sessions": config.sessoes = inteiro(nome, valor, 0); break;
+                    case "duration": config.duracaoSegundos = inteiro(nome, valor, 1); break;
+                    case "warmup": config.aquecimentoSegundos = inteiro(nome, valor, 0); break;
+                    case "think": config.pausaMediaMs = inteiro(nome, valor, 0); break;
+                    case "rate":
+                        config.taxaPorSessao = Double.parseDouble(valor);
+                        if (config.taxaPorSessao <= 0) {
+                            throw new IllegalArgumentException("--rate deve ser positivo");
+                        }
+                        break;
+                    case "mix": config.mix = valor; break;
+                    case "seed": config.movimentacoesIniciais = Math.min(inteiro(nome, valor, 0), Protocol.MAX_BULK_ITEMS); break;
+                    case "admin": {
+                        int separador = valor.indexOf(':');
+                        if (separador <= 0) {
+                            throw new IllegalArgumentException("--admin deve ser email:senha");
+                        }
+                        config.emailAdmin = valor.substring(0, separador);
+                        config.senhaAdmin = valor.substring(separador + 1);
+                        break;
+                    }
+                    case "admin-sessions": sessoesAdmin = inteiro(nome, valor, 0); break;
+                    case "timeout": config.timeoutMs = inteiro(nome, valor, 1); break;
+                    case "label": config.rotulo = valor; break;
+                    case "report": config.arquivoRelatorio = valor; break;
+                    default: throw new IllegalArgumentException("Opção desconhecida: --" + nome);
+                }
+            }
+
+            for (String item : config.mix.split(",")) {
+                String[] partes = item.trim().split(":");
+                if (partes.length != 2) {
+                    throw new IllegalArgumentException("Item inválido na mistura: " + item);
+                }
+                config.pesos[Comando.fromString(partes[0].trim()).ordinal()] = inteiro("mix", partes[1].trim(), 0);
+            }
+            // O comando admin é das sessões de administrador; as demais sorteiam o resto
+            config.pesos[Comando.ADMIN.ordinal()] = 0;
+            for (int peso : config.pesos) {
+                config.pesoTotal += peso;
+            }
+            if (config.pesoTotal == 0 && config.sessoes > 0) {
+                throw new IllegalArgumentException("A mistura não tem nenhum comando com peso");
+            }
+
+            if (config.emailAdmin != null) {
+                config.sessoesAdmin = sessoesAdmin != null ? sessoesAdmin : 1;
+            } else if (sessoesAdmin != null && sessoesAdmin > 0) {
+                throw new IllegalArgumentException("--admin-sessions requer --admin=email:senha");
+            }
+            if (config.sessoes + config.sessoesAdmin == 0) {
+                throw new IllegalArgumentException("Nenhuma sessão configurada");
+            }
+            return config;
+        }
+
+        private static int inteiro(String nome, String valor, int minimo) {
+            try {
+                int numero = Integer.parseInt(valor);
+                if (numero < minimo) {
+                    throw new IllegalArgumentException("--" + nome + " deve ser pelo menos " + minimo);
+                }
+                return numero;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor inválido para --" + nome + ": " + valor);
+            }
+        }
+
+        /** Pesos da mistura efetiva, no formato de --mix */
+        String mixEfetivo() {
+            StringBuilder sb = new StringBuilder();
+            for (Comando comando : Comando.values()) {
+                int peso = comando == Comando.ADMIN ? (sessoesAdmin > 0 ? 1 : 0) : pesos[comando.ordinal()];
+                if (peso > 0) {
+                    if (sb.length() > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(comando.getValor()).append(':').append(comando == Comando.ADMIN ? "sessões" : peso);
+                }
+            }
+            return sb.toString();
+        }
+
+        /** Pausa ou agenda entre comandos, como descrita no relatório */
+        String intervalo() {
+            return taxaPorSessao > 0 ? String.format(Locale.US, "%.2f/s por sessão", taxaPorSessao)
+                                     : pausaMediaMs + " ms (média exponencial)";
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + porta + ", " + sessoes + " sessões"
+                    + (sessoesAdmin > 0 ? " + " + sessoesAdmin + " admin" : "")
+                    + ", intervalo " + intervalo() + ", mistura " + mixEfetivo()
+                    + (rotulo.isEmpty() ? "" : ", rótulo " + rotulo);
+        }
+    }
+
+    /**
+     * Início e fim da medição, compartilhados pelas sessões
+     */
+    static final class Relogio {
+        volatile long inicio;
+        volatile long fimAquecimento;
+        volatile long fim;
+
+        void iniciar(Configuracao config) {
+            long agora = System.nanoTime();
+            inicio = agora;
+            fimAquecimento = agora + TimeUnit.SECONDS.toNanos(config.aquecimentoSegundos);
+            // fim por último: as sessões começam quando ele deixa de ser 0
+            fim = fimAquecimento + TimeUnit.SECONDS.toNanos(config.duracaoSegundos);
+        }
+    }
+
+    /**
+     * Uma conexão de cliente com o seu usuário e seus dados
+     */
+    static final class Sessao {
+        final Configuracao config;
+        final int numero;
+        final boolean admin;
+        final String email;
+        final String senha;
+        final Random aleatorio;
+
+        final Map<Comando, Histograma> latencias = new EnumMap<>(Comando.class);
+        final Map<Comando, long[]> erros = new EnumMap<>(Comando.class);
+        final Map<String, Long> errosPorStatus = new TreeMap<>();
+        final LongAdder concluidos;
+        volatile String falhaPreparacao;
+
+        private Socket socket;
+        private BufferedReader entrada;
+        private BufferedWriter saida;
+        private int idConta;
+        private int idReceita;
+        private int idDespesa;
+        private final ArrayDeque<Integer> movimentacoes = new ArrayDeque<>();
+        private String cursor = "";
+        private String versao = "0";
+        private int sequencia;
+
+        Sessao(Configuracao config, int numero, boolean admin, String execucao, LongAdder concluidos) {
+            this.config = config;
+            this.concluidos = concluidos;
+            this.numero = numero;
+            this.admin = admin;
+            this.email = admin ? config.emailAdmin : "carga-" + execucao + "-" + numero + "@finanza.local";
+            this.senha = admin ? config.senhaAdmin : SENHA;
+            this.aleatorio = new Random(execucao.hashCode() * 31L + numero);
+            for (Comando comando : Comando.values()) {
+                latencias.put(comando, new Histograma());
+                erros.put(comando, new long[1]);
+            }
+        }
+
+        void executar(CountDownLatch prontas, Relogio relogio) {
+            try {
+                conectar();
+                if (!admin) {
+                    preparar();
+                }
+            } catch (IOException | RuntimeException e) {
+                falhaPreparacao = e.getMessage();
+                fechar();
+                return;
+            } finally {
+                prontas.countDown();
+            }
+
+            try {
+                prontas.await();
+                while (relogio.fim == 0) {
+                    Thread.sleep(1);
+                }
+                long intervalo = config.taxaPorSessao > 0 ? (long) (1e9 / config.taxaPorSessao) : 0;
+                // Sessões com agenda começam defasadas para não enviar todas juntas
+                long previsto = relogio.inicio + (intervalo > 0 ? (long) (aleatorio.nextDouble() * intervalo) : 0);
+                while (true) {
+                    if (intervalo > 0) {
+                        esperarAte(previsto);
+                    }
+                    long inicio = intervalo > 0 ? previsto : System.nanoTime();
+                    if (inicio >= relogio.fim) {
+                        break;
+                    }
+                    Comando comando = admin ? Comando.ADMIN : sortear();
+                    String status = executarComando(comando);
+                    long fim = System.nanoTime();
+
+                    if (inicio >= relogio.fimAquecimento) {
+                        latencias.get(comando).registrar(TimeUnit.NANOSECONDS.toMicros(fim - inicio));
+                        if (!Protocol.STATUS_OK.equals(status)) {
+                            erros.get(comando)[0]++;
+                            errosPorStatus.merge(status, 1L, Long::sum);
+                        }
+                        concluidos.increment();
+                    }
+
+                    if (intervalo > 0) {
+                        previsto += intervalo;
+                    } else if (config.pausaMediaMs > 0) {
+                        double pausa = -Math.log(1 - aleatorio.nextDouble()) * config.pausaMediaMs;
+                        Thread.sleep(Math.min((long) pausa, config.pausaMediaMs * 10L));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                fechar();
+            }
+        }
+
+        private static void esperarAte(long instante) throws InterruptedException {
+            long restante = instante - System.nanoTime();
+            if (restante > 0) {
+                TimeUnit.NANOSECONDS.sleep(restante);
+            }
+        }
+
+        private Comando sortear() {
+            int sorteio = aleatorio.nextInt(config.pesoTotal);
+            for (Comando comando : Comando.values()) {
+                sorteio -= config.pesos[comando.ordinal()];
+                if (sorteio < 0) {
+                    return comando;
+                }
+            }
+            return Comando.DASHBOARD;
+        }
+
+        /**
+         * Executa um comando; falhas de conexão reconectam a sessão
+         * @return status da resposta (OK, ERROR...) ou CONEXAO
+         */
+        private String executarComando(Comando comando) {
+            try {
+                if (socket == null) {
+                    conectar();
+                }
+                switch (comando) {
+                    case DASHBOARD:
+                        return status(enviar(Protocol.CMD_GET_DASHBOARD));
+                    case LIST:
+                        return status(enviar(Protocol.CMD_LIST_MOVIMENTACOES));
+                    case PAGE: {
+                        String resposta = enviar(Protocol.buildCommand(Protocol.CMD_LIST_MOVIMENTACOES_PAGE,
+                                String.valueOf(TAMANHO_PAGINA), cursor));
+                        String[] partes = Protocol.parseCommand(resposta);
+                        // Continua rolando a lista; na última página volta ao início
+                        cursor = partes.length > 1 && Protocol.STATUS_OK.equals(partes[0]) ? partes[1] : "";
+                        return status(resposta);
+                    }
+                    case CONTAS:
+                        return status(enviar(Protocol.CMD_LIST_CONTAS));
+                    case UPDATE:
+                        if (!movimentacoes.isEmpty()) {
+                            Integer id = movimentacoes.pollFirst();
+                            movimentacoes.addLast(id);
+                            String[] campos = camposMovimentacao();
+                            String[] parametros = new String[campos.length + 1];
+                            parametros[0] = String.valueOf(id);
+                            System.arraycopy(campos, 0, parametros, 1, campos.length);
+                            return status(enviar(Protocol.buildCommand(Protocol.CMD_UPDATE_MOVIMENTACAO, parametros)));
+                        }
+                        return adicionar();
+                    case DELETE:
+                        if (!movimentacoes.isEmpty()) {
+                            return status(enviar(Protocol.buildCommand(Protocol.CMD_DELETE_MOVIMENTACAO,
+                                    String.valueOf(movimentacoes.pollFirst()))));
+                        }
+                        return adicionar();
+                    case SYNC: {
+                        String resposta = enviar(Protocol.buildCommand(Protocol.CMD_INCREMENTAL_SYNC, versao));
+                        String[] partes = Protocol.parseCommand(resposta);
+                        if (partes.length > 1 && Protocol.STATUS_OK.equals(partes[0])) {
+                            versao = partes[1];
+                        }
+                        return status(resposta);
+                    }
+                    case ADMIN:
+                        return status(enviar(Protocol.CMD_ADMIN_LIST_ALL_MOVIMENTACOES));
+                    default:
+                        return adicionar();
+                }
+            } catch (IOException | RuntimeException e) {
+                fechar();
+                return STATUS_CONEXAO;
+            }
+        }
+
+        private String adicionar() throws IOException {
+            String resposta = enviar(Protocol.buildCommand(Protocol.CMD_ADD_MOVIMENTACAO, camposMovimentacao()));
+            String[] partes = Protocol.parseCommand(resposta);
+            if (partes.length > 1 && Protocol.STATUS_OK.equals(partes[0])) {
+                movimentacoes.addLast(Integer.parseInt(partes[1]));
+            }
+            return status(resposta);
+        }
+
+        /** valor, data, descricao, tipo, idConta, idCategoria de uma movimentação nova */
+        private String[] camposMovimentacao() {
+            boolean receita = aleatorio.nextInt(4) == 0;
+            String valor = String.format(Locale.US, "%.2f", 5 + aleatorio.nextInt(50000) / 100.0);
+            String data = LocalDate.now().minusDays(aleatorio.nextInt(90)).toString();
+            return new String[] {
+                valor, data, "Carga " + numero + " #" + (++sequencia),
+                receita ? "receita" : "despesa",
+                String.valueOf(idConta),
+                String.valueOf(receita ? idReceita : idDespesa)
+            };
+        }
+
+        /**
+         * Abre a conexão e autentica (usuário comum como mobile, admin como admin)
+         */
+        private void conectar() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(config.timeoutMs);
+            socket.connect(new InetSocketAddress(config.host, config.porta), config.timeoutMs);
+            entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            saida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            String resposta = enviar(Protocol.buildCommand(Protocol.CMD_LOGIN, email, senha, admin ? "admin" : "mobile"));
+            if (!admin && Protocol.STATUS_INVALID_CREDENTIALS.equals(status(resposta))) {
+                exigirOk(enviar(Protocol.buildCommand(Protocol.CMD_REGISTER, "Carga " + numero, email, senha)), "registro");
+                resposta = enviar(Protocol.buildCommand(Protocol.CMD_LOGIN, email, senha, "mobile"));
+            }
+            exigirOk(resposta, "login de " + email);
+        }
+
+        /**
+         * Cria conta, categorias e as movimentações iniciais do usuário
+         */
+        private void preparar() throws IOException {
+            idConta = Integer.parseInt(exigirOk(enviar(Protocol.buildCommand(Protocol.CMD_ADD_CONTA,
+                    "Conta carga", "corrente", "1000.00")), "conta"));
+            idReceita = Integer.parseInt(exigirOk(enviar(Protocol.buildCommand(Protocol.CMD_ADD_CATEGORIA,
+                    "Receitas carga", "receita")), "categoria"));
+            idDespesa = Integer.parseInt(exigirOk(enviar(Protocol.buildCommand(Protocol.CMD_ADD_CATEGORIA,
+                    "Despesas carga", "despesa")), "categoria"));
+
+            if (config.movimentacoesIniciais > 0) {
+                StringBuilder itens = new StringBuilder();
+                for (int i = 0; i < config.movimentacoesIniciais; i++) {
+                    if (i > 0) {
+                        itens.append(Protocol.FIELD_SEPARATOR);
+                    }
+                    // Campos numéricos, datas e "Carga n #k" não precisam de URL encoding
+                    itens.append(String.join(",", camposMovimentacao()).replace(' ', '+'));
+                }
+                String ids = exigirOk(enviar(Protocol.buildCommand(Protocol.CMD_BULK_UPLOAD, "movimentacao",
+                        itens.toString())), "movimentações iniciais");
+                for (String id : Protocol.parseFields(ids)) {
+                    movimentacoes.addLast(Integer.parseInt(id));
+                }
+            }
+        }
+
+        private String enviar(String comando) throws IOException {
+            saida.write(comando);
+            saida.write('\n');
+            saida.flush();
+            String resposta = entrada.readLine();
+            if (resposta == null) {
+                throw new IOException("Conexão encerrada pelo servidor");
+            }
+            return resposta;
+        }
+
+        /** Dados de uma resposta OK; outras respostas interrompem a preparação */
+        private static String exigirOk(String resposta, String etapa) {
+            String[] partes = resposta.split("\\" + Protocol.SEPARATOR, 2);
+            if (!Protocol.STATUS_OK.equals(partes[0])) {
+                throw new IllegalStateException("Falha em " + etapa + ": " + resposta);
+            }
+            return partes.length > 1 ? partes[1] : "";
+        }
+
+        private static String status(String resposta) {
+            int separador = resposta.indexOf(Protocol.SEPARATOR);
+            return separador < 0 ? resposta : resposta.substring(0, separador);
+        }
+
+        private void fechar() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Sessão já encerrada
+                }
+                socket = null;
+            }
+        }
+    }
+
+    /**
+     * Histograma log-linear de latências em microssegundos
+     *
+     * Valores até 255 têm posição própria; acima disso cada potência de 2
+     * é dividida em 128 faixas iguais, então o erro relativo fica abaixo de
+     * 1% em toda a escala com alguns milhares de contadores.
+     */
+    static final class Histograma {
+        private static final int BITS_SUB = 7;
+        private static final int SUB = 1 << BITS_SUB;
+        private static final long LIMITE = (1L << 36) - 1;
+        private static final int TAMANHO = indice(LIMITE) + 1;
+
+        private final long[] contagens = new long[TAMANHO];
+        private long total;
+        private long soma;
+        private long maximo;
+
+        void registrar(long micros) {
+            long valor = Math.min(Math.max(micros, 0), LIMITE);
+            contagens[indice(valor)]++;
+            total++;
+            soma += valor;
+            maximo = Math.max(maximo, valor);
+        }
+
+        void somar(Histograma outro) {
+            for (int i = 0; i < TAMANHO; i++) {
+                contagens[i] += outro.contagens[i];
+            }
+            total += outro.total;
+            soma += outro.soma;
+            maximo = Math.max(maximo, outro.maximo);
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        long getMaximo() {
+            return maximo;
+        }
+
+        double getMedia() {
+            return total == 0 ? 0 : (double) soma / total;
+        }
+
+        /** Valor abaixo do qual ficam p% das amostras */
+        long percentil(double p) {
+            if (total == 0) {
+                return 0;
+            }
+            long alvo = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+            long acumulado = 0;
+            for (int i = 0; i < TAMANHO; i++) {
+                acumulado += contagens[i];
+                if (acumulado >= alvo) {
+                    return Math.min(valor(i), maximo);
+                }
+            }
+            return maximo;
+        }
+
+        private static int indice(long valor) {
+            if (valor < 2 * SUB) {
+                return (int) valor;
+            }
+            int expoente = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUB;
+            return 2 * SUB + (expoente - 1) * SUB + (int) ((valor >>> expoente) - SUB);
+        }
+
+        /** Maior valor que cai na posição */
+        private static long valor(int indice) {
+            if (indice < 2 * SUB) {
+                return indice;
+            }
+            int expoente = (indice - 2 * SUB) / SUB + 1;
+            long base = (long) ((indice - 2 * SUB) % SUB + SUB) << expoente;
+            return base + (1L << expoente) - 1;
+        }
+    }
+
+    /**
+     * Resultado somado de todas as sessões
+     */
+    static final class Relatorio {
+        private static final double[] PERCENTIS = {50, 90, 99, 99.9};
+
+        private final Configuracao config;
+        private final String execucao;
+        private final double segundosMedidos;
+        private final Map<Comando, Histograma> latencias = new EnumMap<>(Comando.class);
+        private final Map<Comando, Long> erros = new EnumMap<>(Comando.class);
+        private final Map<String, Long> errosPorStatus = new TreeMap<>();
+        private final Histograma geral = new Histograma();
+        private int sessoesAtivas;
+        private int falhasPreparacao;
+
+        Relatorio(Configuracao config, String execucao, Relogio relogio) {
+            this.config = config;
+            this.execucao = execucao;
+            this.segundosMedidos = (relogio.fim - relogio.fimAquecimento) / 1e9;
+            for (Comando comando : Comando.values()) {
+                latencias.put(comando, new Histograma());
+                erros.put(comando, 0L);
+            }
+        }
+
+        void somar(Sessao sessao) {
+            if (sessao.falhaPreparacao != null) {
+                falhasPreparacao++;
+                return;
+            }
+            sessoesAtivas++;
+            for (Comando comando : Comando.values()) {
+                latencias.get(comando).somar(sessao.latencias.get(comando));
+                geral.somar(sessao.latencias.get(comando));
+                erros.merge(comando, sessao.erros.get(comando)[0], Long::sum);
+            }
+            sessao.errosPorStatus.forEach((status, n) -> errosPorStatus.merge(status, n, Long::sum));
+        }
+
+        private long totalErros() {
+            return erros.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        void imprimir() {
+            System.out.println();
+            System.out.printf(Locale.US, "%-10s %9s %7s %9s %9s %9s %9s %9s %9s %9s%n",
+                    "Comando", "req", "erros", "req/s", "média ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms");
+            for (Comando comando : Comando.values()) {
+                if (latencias.get(comando).getTotal() > 0) {
+                    imprimirLinha(comando.getValor(), latencias.get(comando), erros.get(comando));
+                }
+            }
+            imprimirLinha("total", geral, totalErros());
+            System.out.println();
+            System.out.printf(Locale.US, "%d sessões, %.1f s medidos, %.1f req/s, %.3f%% de erros%n",
+                    sessoesAtivas, segundosMedidos, geral.getTotal() / segundosMedidos,
+                    geral.getTotal() == 0 ? 0 : 100.0 * totalErros() / geral.getTotal());
+            if (!errosPorStatus.isEmpty()) {
+                System.out.println("Erros por status: " + errosPorStatus);
+            }
+            if (falhasPreparacao > 0) {
+                System.out.println("Sessões que falharam na preparação: " + falhasPreparacao);
+            }
+        }
+
+        private void imprimirLinha(String nome, Histograma h, long numErros) {
+            System.out.printf(Locale.US, "%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    nome, h.getTotal(), numErros, h.getTotal() / segundosMedidos, h.getMedia() / 1000.0,
+                    h.percentil(50) / 1000.0, h.percentil(90) / 1000.0, h.percentil(99) / 1000.0,
+                    h.percentil(99.9) / 1000.0, h.getMaximo() / 1000.0);
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("{\n");
+            json.append("  \"label\": ").append(texto(config.rotulo)).append(",\n");
+            json.append("  \"run\": ").append(texto(execucao)).append(",\n");
+            json.append("  \"timestamp\": ").append(texto(Instant.now().toString())).append(",\n");
+            json.append("  \"config\": {")
+                    .append("\"host\": ").append(texto(config.host))
+                    .append(", \"port\": ").append(config.porta)
+                    .append(", \"sessions\": ").append(config.sessoes)
+                    .append(", \"adminSessions\": ").append(config.sessoesAdmin)
+                    .append(", \"durationSeconds\": ").append(config.duracaoSegundos)
+                    .append(", \"warmupSeconds\": ").append(config.aquecimentoSegundos)
+                    .append(", \"thinkMs\": ").append(config.taxaPorSessao > 0 ? 0 : config.pausaMediaMs)
+                    .append(", \"ratePerSession\": ").append(numero(config.taxaPorSessao))
+                    .append(", \"seed\": ").append(config.movimentacoesIniciais)
+                    .append(", \"mix\": ").append(texto(config.mixEfetivo()))
+                    .append("},\n");
+            json.append("  \"activeSessions\": ").append(sessoesAtivas).append(",\n");
+            json.append("  \"setupFailures\": ").append(falhasPreparacao).append(",\n");
+            json.append("  \"measuredSeconds\": ").append(numero(segundosMedidos)).append(",\n");
+            json.append("  \"total\": ");
+            comandoJson(json, geral, totalErros());
+            json.append(",\n  \"commands\": {");
+            boolean primeiro = true;
+            for (Comando comando : Comando.values()) {
+                if (latencias.get(comando).getTotal() == 0) {
+                    continue;
+                }
+                json.append(primeiro ? "\n" : ",\n").append("    ").append(texto(comando.getValor())).append(": ");
+                comandoJson(json, latencias.get(comando), erros.get(comando));
+                primeiro = false;
+            }
+            json.append("\n  },\n  \"errorsByStatus\": {");
+            primeiro = true;
+            for (Map.Entry<String, Long> e : errosPorStatus.entrySet()) {
+                json.append(primeiro ? "" : ", ").append(texto(e.getKey())).append(": ").append(e.getValue());
+                primeiro = false;
+            }
+            json.append("}\n}\n");
+            return json.toString();
+        }
+
+        private void comandoJson(StringBuilder json, Histograma h, long numErros) {
+            json.append("{\"requests\": ").append(h.getTotal())
+                    .append(", \"errors\": ").append(numErros)
+                    .append(", \"errorRate\": ").append(numero(h.getTotal() == 0 ? 0 : (double) numErros / h.getTotal()))
+                    .append(", \"throughput\": ").append(numero(h.getTotal() / segundosMedidos))
+                    .append(", \"meanMs\": ").append(numero(h.getMedia() / 1000.0));
+            for (double p : PERCENTIS) {
+                json.append(", \"p").append(String.valueOf(p).replace(".0", "").replace('.', '_'))
+                        .append("Ms\": ").append(numero(h.percentil(p) / 1000.0));
+            }
+            json.append(", \"maxMs\": ").append(numero(h.getMaximo() / 1000.0)).append('}');
+        }
+
+        private static String numero(double valor) {
+            return String.format(Locale.US, "%.3f", valor);
+        }
+
+        private static String texto(String valor) {
+            StringBuilder sb = new StringBuilder("\"");
+            for (char c : valor.toCharArray()) {
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            return sb.append('"').toString();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package cliente;
+
+import model.Movimentacao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import server.DadosBenchmark;
+import server.Protocol;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura da resposta de LIST_MOVIMENTACOES nos clientes
+ *
+ * A resposta é a que o servidor monta (DadosBenchmark.respostaLista). Os
+ * parsers dos clientes não podem ser chamados daqui (o desktop tem outro
+ * model.Movimentacao e o aplicativo depende do Android), então cada
+ * benchmark repete o algoritmo do cliente sem a parte de interface/banco:
+ * - desktop: FinanceController.listarMovimentacoes + parseMovimentacoes
+ *   (split por '|', ';' e ',', valor reconstruído "inteiro,decimal")
+ * - aplicativo: SyncService.processarMovimentacoesDoServidor
+ *   (Protocol.parseCommand/parseFields, trim de cada campo), sem o Room
+ * Ao mudar um desses parsers, atualize a cópia correspondente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientParseBenchmark {
+
+    private static final String SEPARATOR = "|";
+    private static final String FIELD_SEPARATOR = ";";
+    private static final String STATUS_OK = "OK";
+
+    @Param({"1000", "100000"})
+    public int linhas;
+
+    private String resposta;
+
+    @Setup
+    public void preparar() {
+        resposta = DadosBenchmark.respostaLista(DadosBenchmark.movimentacoes(linhas));
+    }
+
+    /** Mesmo algoritmo de FinanceController (desktop) */
+    @Benchmark
+    public List<Movimentacao> desktopFinanceController() {
+        String[] partes = resposta.split("\\" + SEPARATOR);
+        if (partes.length >= 1 && STATUS_OK.equals(partes[0])) {
+            return parseMovimentacoes(partes.length >= 2 ? partes[1] : "");
+        }
+        return null;
+    }
+
+    private static List<Movimentacao> parseMovimentacoes(String dados) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        if (dados == null || dados.trim().isEmpty()) {
+            return movimentacoes;
+        }
+        for (String movStr : dados.split(FIELD_SEPARATOR)) {
+            try {
+                String[] campos = movStr.split(",");
+                if (campos.length >= 8) {
+                    int id = Integer.parseInt(campos[0]);
+                    double valor = parsePortugueseDouble(campos[1] + "," + campos[2]);
+                    Date data = Date.valueOf(campos[3]);
+                    String descricao = campos[4];
+                    Movimentacao.TipoMovimentacao tipo = Movimentacao.TipoMovimentacao.fromString(campos[5]);
+                    if (tipo == null) {
+                        continue;
+                    }
+                    int idConta = Integer.parseInt(campos[6]);
+                    int idCategoria = Integer.parseInt(campos[7]);
+                    movimentacoes.add(new Movimentacao(id, valor, data, descricao, tipo, idConta, idCategoria, 0));
+                }
+            } catch (Exception e) {
+                // O cliente registra e segue para o próximo registro
+            }
+        }
+        return movimentacoes;
+    }
+
+    private static double parsePortugueseDouble(String valor) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return 0.0;
+        }
+        return Double.parseDouble(valor.replace(",", "."));
+    }
+
+    /** Mesmo algoritmo de SyncService (aplicativo), sem gravar no banco local */
+    @Benchmark
+    public int aplicativoSyncService(Blackhole bh) {
+        String[] partes = Protocol.parseCommand(resposta);
+        if (partes.length < 2 || !Protocol.STATUS_OK.equals(partes[0])) {
+            return 0;
+        }
+        int processadas = 0;
+        for (String movData : Protocol.parseFields(partes[1])) {
+            if (movData == null || movData.trim().isEmpty()) continue;
+            String[] campos = movData.split(",");
+            if (campos.length >= 8) {
+                try {
+                    int serverId = Integer.parseInt(campos[0].trim());
+                    String valorStr = campos[1].trim() + "." + campos[2].trim();
+                    double valor = Double.parseDouble(valorStr.replace(",", "."));
+                    long data;
+                    try {
+                        data = Date.valueOf(campos[3].trim()).getTime();
+                    } catch (Exception dateError) {
+                        data = System.currentTimeMillis();
+                    }
+                    String descricao = campos[4].trim();
+                    String tipo = campos[5].trim();
+                    int serverContaId = Integer.parseInt(campos[6].trim());
+                    int categoriaId = Integer.parseInt(campos[7].trim());
+                    if (descricao.isEmpty()) {
+                        continue;
+                    }
+                    bh.consume(serverId);
+                    bh.consume(valor);
+                    bh.consume(data);
+                    bh.consume(descricao);
+                    bh.consume(tipo);
+                    bh.consume(serverContaId);
+                    bh.consume(categoriaId);
+                    processadas++;
+                } catch (NumberFormatException e) {
+                    // O aplicativo registra e segue para o próximo registro
+                }
+            }
+        }
+        return processadas;
+    }
+}
@@ -0,0 +1,55 @@
+package server;
+
+import model.Movimentacao;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dados sintéticos compartilhados pelos benchmarks JMH
+ *
+ * Gera extratos com valores, datas e descrições realistas (semente fixa,
+ * então cada execução mede os mesmos dados) e monta a resposta de
+ * LIST_MOVIMENTACOES com o próprio ClientHandler, para que os benchmarks
+ * do cliente leiam exatamente o que o servidor envia.
+ */
+public final class DadosBenchmark {
+
+    private static final String[] DESCRICOES = {
+        "Supermercado Extra", "Padaria Pão Quente", "Uber *viagem", "iFood *pedido",
+        "Posto Shell", "Farmácia Drogasil", "Conta de luz CEMIG", "Conta de água",
+        "Internet Vivo Fibra", "Aluguel apartamento", "Condomínio", "Netflix.com",
+        "PIX recebido", "PIX enviado", "Salário empresa", "Restaurante almoço"
+    };
+
+    private DadosBenchmark() {
+    }
+
+    /**
+     * Movimentações de um usuário com 5 contas e 20 categorias
+     */
+    public static List<Movimentacao> movimentacoes(int quantidade) {
+        Random random = new Random(42);
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        List<Movimentacao> lista = new ArrayList<>(quantidade);
+        for (int i = 1; i <= quantidade; i++) {
+            Movimentacao.TipoMovimentacao tipo = random.nextInt(4) == 0
+                    ? Movimentacao.TipoMovimentacao.RECEITA : Movimentacao.TipoMovimentacao.DESPESA;
+            double valor = random.nextInt(500_000) / 100.0;
+            lista.add(new Movimentacao(i, valor, Date.valueOf(base.plusDays(random.nextInt(730))),
+                    DESCRICOES[random.nextInt(DESCRICOES.length)], tipo,
+                    1 + random.nextInt(5), 1 + random.nextInt(20), 1));
+        }
+        return lista;
+    }
+
+    /**
+     * Resposta "OK|mov;mov;..." de LIST_MOVIMENTACOES para as movimentações
+     */
+    public static String respostaLista(List<Movimentacao> movimentacoes) {
+        return Protocol.createSuccessResponse(ClientHandler.formatarMovimentacoes(movimentacoes));
+    }
+}
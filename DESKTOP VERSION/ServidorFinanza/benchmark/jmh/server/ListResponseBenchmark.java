@@ -0,0 +1,66 @@
+package server;
+
+import model.Movimentacao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem da resposta de LIST_MOVIMENTACOES no servidor
+ *
+ * formatarMovimentacoes é o ClientHandler.formatarMovimentacoes usado por
+ * LIST_MOVIMENTACOES, pelas páginas e por LIST_CHANGES_SINCE; respostaCompleta
+ * inclui o "OK|" de Protocol.createSuccessResponse (mais uma cópia da
+ * string). formatarValores isola o String.format + split("\\.") feito para
+ * o valor de cada linha, para separar o custo dele do resto da montagem.
+ * O repositório fica de fora: as listas já estão em memória.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListResponseBenchmark {
+
+    @Param({"1000", "100000"})
+    public int linhas;
+
+    private List<Movimentacao> movimentacoes;
+
+    @Setup
+    public void preparar() {
+        movimentacoes = DadosBenchmark.movimentacoes(linhas);
+    }
+
+    @Benchmark
+    public String formatarMovimentacoes() {
+        return ClientHandler.formatarMovimentacoes(movimentacoes);
+    }
+
+    @Benchmark
+    public String respostaCompleta() {
+        return DadosBenchmark.respostaLista(movimentacoes);
+    }
+
+    @Benchmark
+    public void formatarValores(Blackhole bh) {
+        for (Movimentacao mov : movimentacoes) {
+            String[] partes = String.format(Locale.US, "%.2f", mov.getValor()).split("\\.");
+            bh.consume(partes);
+        }
+    }
+}
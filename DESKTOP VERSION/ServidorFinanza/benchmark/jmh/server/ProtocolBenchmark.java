@@ -0,0 +1,68 @@
+package server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse dos comandos recebidos pelo servidor
+ *
+ * Cada requisição passa por Protocol.parseCommand (String.split por '|'),
+ * e as requisições com ID antes por extractRequestId/stripRequestId.
+ * Mede comandos curtos (LOGIN), o comando de escrita mais frequente
+ * (ADD_MOVIMENTACAO) com e sem ID de requisição, e Protocol.parseFields
+ * sobre os dados de uma listagem de 1000 movimentações.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    private String login;
+    private String addMovimentacao;
+    private String addMovimentacaoComId;
+    private String dadosLista;
+
+    @Setup
+    public void preparar() {
+        login = Protocol.buildCommand(Protocol.CMD_LOGIN, "ana.souza@exemplo.com.br", "senha123", "mobile");
+        addMovimentacao = Protocol.buildCommand(Protocol.CMD_ADD_MOVIMENTACAO,
+                "155.30", "2025-09-02", "Supermercado Extra", "despesa", "12", "48");
+        addMovimentacaoComId = Protocol.REQUEST_ID_PREFIX + "1742" + Protocol.SEPARATOR + addMovimentacao;
+        dadosLista = ClientHandler.formatarMovimentacoes(DadosBenchmark.movimentacoes(1000));
+    }
+
+    @Benchmark
+    public String[] parseCommandLogin() {
+        return Protocol.parseCommand(login);
+    }
+
+    @Benchmark
+    public String[] parseCommandAddMovimentacao() {
+        return Protocol.parseCommand(addMovimentacao);
+    }
+
+    /** Caminho das requisições com ID (pipelining) */
+    @Benchmark
+    public String[] parseCommandComRequestId() {
+        String requestId = Protocol.extractRequestId(addMovimentacaoComId);
+        return Protocol.parseCommand(Protocol.stripRequestId(addMovimentacaoComId, requestId));
+    }
+
+    @Benchmark
+    public String[] parseFieldsLista1000() {
+        return Protocol.parseFields(dadosLista);
+    }
+}
@@ -1,4 +1,5 @@
 import server.FinanzaServer;
+import server.ServerConfig;
 
 /**
  * MainServidor - Classe Principal do Servidor Finanza
@@ -15,6 +16,11 @@ import server.FinanzaServer;
  * Uso:
  * - Modo produção: java MainServidor
  * - Modo teste:    java MainServidor --test
+ * - Virtual threads (JDK 21+): java MainServidor --mode=virtual --workers=10000
+ * - Pool limitado: java MainServidor --mode=pool --workers=200 --queue=500 --backlog=128
+ * - Front end NIO:  java MainServidor --frontend=nio --nio-workers=8
+ * - Banco embutido: java MainServidor --db=h2 (arquivo em -Dfinanza.db.path, padrão ./data/finanza)
+ * - Log em arquivo: java MainServidor --log-file=logs/finanza.log --log-level=warn
  * 
  * Shutdown Hook:
  * - Captura sinais de encerramento (Ctrl+C, kill, etc)
@@ -39,7 +45,18 @@ public class MainServidor {
      * Método principal - ponto de entrada da aplicação servidor
      * 
      * @param args Argumentos de linha de comando
-     *             --test: Inicia em modo de teste (sem banco de dados)
+     *             --test: Inicia em modo de teste (sem banco de dados, dados em memória)
+     *             --mode=pool|virtual: Modo de execução das conexões
+     *             --workers=N: Threads do pool ou conexões simultâneas (virtual)
+     *             --queue=N: Conexões aguardando worker livre (pool)
+     *             --backlog=N: Fila de aceite do ServerSocket
+     *             --frontend=blocking|nio: Front end de rede
+     *             --nio-workers=N: Workers de comandos do front end NIO
+     *             --pipeline-workers=N: Workers das requisições com ID (pipelining)
+     *             --reconcile-minutes=N: Intervalo da conferência dos saldos (0 desativa)
+     *             --db=mysql|h2: Banco de dados (MySQL externo ou H2 embutido)
+     *             --log-level=debug|info|warn|error: Nível mínimo do log
+     *             --log-file=caminho: Log em arquivo com rotação (padrão: console)
      *             
      * Modo de teste é útil para:
      * - Desenvolvimento sem MySQL configurado
@@ -62,22 +79,29 @@ public class MainServidor {
         System.out.println("Trabalho Interdisciplinar - 2024\n");
         
         // ========== VERIFICAÇÃO DE ARGUMENTOS ==========
-        // Verifica se foi passado argumento --test na linha de comando
-        // args é um array de strings com os argumentos
-        // args[0] é o primeiro argumento (se houver)
-        boolean testMode = args.length > 0 && "--test".equals(args[0]);
+        // Converte os argumentos (--test, --mode=..., --workers=...) em configuração
+        ServerConfig config;
+        try {
+            config = ServerConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Argumento inválido: " + e.getMessage());
+            System.err.println("Uso: java MainServidor [--test] [--mode=pool|virtual] [--workers=N] [--queue=N] [--backlog=N] [--frontend=blocking|nio] [--nio-workers=N] [--pipeline-workers=N] [--reconcile-minutes=N] [--db=mysql|h2] [--log-level=debug|info|warn|error] [--log-file=caminho]");
+            System.exit(2);
+            return;
+        }
+        boolean testMode = config.isTestMode();
         
         if (testMode) {
             System.out.println("⚠ MODO DE TESTE ATIVADO");
             System.out.println("  - Banco de dados desabilitado");
-            System.out.println("  - Apenas validação de protocolo\n");
+            System.out.println("  - Dados em memória, perdidos ao encerrar\n");
         }
         
         // ========== CRIAÇÃO DO SERVIDOR ==========
         // Instancia o servidor Finanza
-        // testMode=true: Sem banco de dados
+        // testMode=true: Sem banco de dados (repositórios em memória)
         // testMode=false: Modo produção completo
-        FinanzaServer server = new FinanzaServer(testMode);
+        FinanzaServer server = new FinanzaServer(config);
         
         // ========== CONFIGURAÇÃO DE SHUTDOWN HOOK ==========
         // Shutdown Hook é executado quando a JVM está sendo encerrada
@@ -0,0 +1,1523 @@
+package dao;
+
+import model.AlteracoesSync;
+import model.Categoria;
+import model.Conta;
+import model.Movimentacao;
+import model.ResumoDashboard;
+import model.ResumoSync;
+import model.Usuario;
+import util.PasswordHasher;
+import util.SecurityUtil;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Repositórios em memória usados no modo de teste (--test)
+ *
+ * Implementa as mesmas interfaces dos DAOs com as mesmas regras: duplicatas
+ * de inserir() e dos lotes, saldo atual mantido a cada escrita de
+ * movimentação, exclusões em cascata, versões e marcas de exclusão da
+ * sincronização incremental. Assim o ClientHandler roda a lógica real dos
+ * comandos sem MySQL, e testes de carga medem o servidor sem o banco.
+ *
+ * Organização:
+ * - Cada usuário tem seus registros em DadosUsuario: mapas por ID (MapaInt,
+ *   sem boxing) e as movimentações também em um TreeSet na ordem das
+ *   listagens (data DESC, id DESC), que responde período, páginas por
+ *   cursor e busca de duplicatas sem percorrer o histórico inteiro.
+ * - As escritas de um usuário são serializadas pelo monitor do DadosUsuario
+ *   (o papel da trava da linha do usuário em VersaoSync); usuários
+ *   diferentes escrevem em paralelo.
+ * - Os índices globais (usuário por ID e email, dono de cada conta,
+ *   categoria e movimentação) ficam sob uma trava de leitura/escrita,
+ *   sempre tomada por último e por pouco tempo.
+ *
+ * Os registros guardados nunca saem daqui: toda leitura devolve cópias e
+ * toda escrita guarda uma cópia do que recebeu. Os dados existem só enquanto
+ * o processo roda.
+ */
+public final class BancoMemoria {
+
+    /** Índices das entidades versionadas em DadosUsuario */
+    private static final int CATEGORIA = 0;
+    private static final int CONTA = 1;
+    private static final int MOVIMENTACAO = 2;
+
+    /** Nomes das entidades, na ordem em que o cliente deve aplicá-las (como em SincronizacaoDAO) */
+    private static final String[] ENTIDADES = {VersaoSync.CATEGORIA, VersaoSync.CONTA, VersaoSync.MOVIMENTACAO};
+
+    /** Ordem das listagens de movimentações: data DESC, id DESC */
+    private static final Comparator<Movimentacao> ORDEM_MOVIMENTACOES = (a, b) -> {
+        int porData = b.getData().compareTo(a.getData());
+        return porData != 0 ? porData : Integer.compare(b.getId(), a.getId());
+    };
+
+    /** ORDER BY nome (sem diferenciar maiúsculas, como a collation do banco) */
+    private static final Comparator<Conta> ORDEM_CONTAS =
+            Comparator.comparing(Conta::getNome, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Conta::getId);
+
+    /** ORDER BY tipo, nome (ENUM ordena pela posição: receita antes de despesa) */
+    private static final Comparator<Categoria> ORDEM_CATEGORIAS =
+            Comparator.comparing(Categoria::getTipo)
+                      .thenComparing(Categoria::getNome, String.CASE_INSENSITIVE_ORDER)
+                      .thenComparingInt(Categoria::getId);
+
+    /** Protege os índices globais abaixo; nunca é tomada antes do monitor de um DadosUsuario */
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final MapaInt<DadosUsuario> usuarios = new MapaInt<>();
+    private final Map<String, Integer> idPorEmail = new HashMap<>();
+    private final MapaInt<DadosUsuario> donoConta = new MapaInt<>();
+    private final MapaInt<DadosUsuario> donoCategoria = new MapaInt<>();
+    private final MapaInt<DadosUsuario> donoMovimentacao = new MapaInt<>();
+
+    /** Sequências dos IDs (AUTO_INCREMENT): IDs nunca são reutilizados */
+    private final AtomicInteger sequenciaUsuario = new AtomicInteger();
+    private final AtomicInteger sequenciaConta = new AtomicInteger();
+    private final AtomicInteger sequenciaCategoria = new AtomicInteger();
+    private final AtomicInteger sequenciaMovimentacao = new AtomicInteger();
+
+    private final UsuarioRepositorio usuarioRepositorio = new Usuarios();
+    private final ContaRepositorio contaRepositorio = new Contas();
+    private final CategoriaRepositorio categoriaRepositorio = new Categorias();
+    private final MovimentacaoRepositorio movimentacaoRepositorio = new Movimentacoes();
+    private final DashboardRepositorio dashboardRepositorio = new Dashboard();
+    private final SincronizacaoRepositorio sincronizacaoRepositorio = new Sincronizacao();
+
+    public UsuarioRepositorio usuarios() {
+        return usuarioRepositorio;
+    }
+
+    public ContaRepositorio contas() {
+        return contaRepositorio;
+    }
+
+    public CategoriaRepositorio categorias() {
+        return categoriaRepositorio;
+    }
+
+    public MovimentacaoRepositorio movimentacoes() {
+        return movimentacaoRepositorio;
+    }
+
+    public DashboardRepositorio dashboard() {
+        return dashboardRepositorio;
+    }
+
+    public SincronizacaoRepositorio sincronizacao() {
+        return sincronizacaoRepositorio;
+    }
+
+    // ========== REGISTROS ==========
+
+    private static final class LinhaConta {
+        Conta conta;
+        long versao;
+        /** saldo_atual em centavos */
+        long saldoCentavos;
+    }
+
+    private static final class LinhaCategoria {
+        Categoria categoria;
+        long versao;
+        /** Movimentações que usam a categoria (estaEmUso) */
+        int usos;
+    }
+
+    private static final class LinhaMovimentacao {
+        Movimentacao movimentacao;
+        long versao;
+    }
+
+    /**
+     * Registros de um usuário; tudo aqui é protegido pelo monitor do objeto,
+     * exceto usuario, protegido pela trava global (índice por email)
+     */
+    private static final class DadosUsuario {
+        final int id;
+        Usuario usuario;
+        long versao;
+        boolean excluido;
+
+        final MapaInt<LinhaConta> contas = new MapaInt<>();
+        final MapaInt<LinhaCategoria> categorias = new MapaInt<>();
+        final MapaInt<LinhaMovimentacao> movimentacoes = new MapaInt<>();
+        /** As mesmas movimentações de movimentacoes, na ordem das listagens */
+        final NavigableSet<Movimentacao> ordem = new TreeSet<>(ORDEM_MOVIMENTACOES);
+
+        /** Marcas de exclusão (ID -> versão) e última versão com alteração, por entidade */
+        final List<MapaInt<Long>> exclusoes = List.of(new MapaInt<>(), new MapaInt<>(), new MapaInt<>());
+        final long[] ultimaAlteracao = new long[ENTIDADES.length];
+
+        DadosUsuario(Usuario usuario) {
+            this.id = usuario.getId();
+            this.usuario = usuario;
+        }
+
+        /** Chamado com o monitor do usuário: a escrita é confirmada ao sair dele */
+        long proximaVersao() {
+            UltimaEscrita.registrar(id, versao + 1);
+            return ++versao;
+        }
+
+        void alterado(int entidade, long versaoAlteracao) {
+            ultimaAlteracao[entidade] = versaoAlteracao;
+        }
+
+        void registrarExclusao(int entidade, int idRegistro, long versaoExclusao) {
+            exclusoes.get(entidade).colocar(idRegistro, versaoExclusao);
+            alterado(entidade, versaoExclusao);
+        }
+
+        /** Dá nova versão à conta cujo saldo mudou (VersaoSync.marcarContasAlteradas) */
+        void marcarContaAlterada(int idConta, long versaoAlteracao) {
+            LinhaConta linha = contas.obter(idConta);
+            if (linha != null) {
+                linha.versao = versaoAlteracao;
+                alterado(CONTA, versaoAlteracao);
+            }
+        }
+    }
+
+    // ========== ÍNDICES GLOBAIS ==========
+
+    private DadosUsuario dados(int idUsuario) {
+        return dono(usuarios, idUsuario);
+    }
+
+    private DadosUsuario dono(MapaInt<DadosUsuario> indice, int id) {
+        trava.readLock().lock();
+        try {
+            return indice.obter(id);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private void indexar(MapaInt<DadosUsuario> indice, int id, DadosUsuario dados) {
+        trava.writeLock().lock();
+        try {
+            indice.colocar(id, dados);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void desindexar(MapaInt<DadosUsuario> indice, int id) {
+        trava.writeLock().lock();
+        try {
+            indice.remover(id);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /** Usuários existentes, por ID */
+    private List<DadosUsuario> todosUsuarios() {
+        trava.readLock().lock();
+        try {
+            List<DadosUsuario> todos = new ArrayList<>(usuarios.tamanho());
+            for (int id : usuarios.chavesOrdenadas()) {
+                todos.add(usuarios.obter(id));
+            }
+            return todos;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private String nomeUsuario(DadosUsuario dados) {
+        trava.readLock().lock();
+        try {
+            return dados.usuario.getNome();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // ========== ESCRITAS COMPARTILHADAS ==========
+
+    private LinhaConta gravarConta(DadosUsuario dados, Conta conta, long versao) {
+        conta.setId(sequenciaConta.incrementAndGet());
+        conta.setIdUsuario(dados.id);
+        LinhaConta linha = new LinhaConta();
+        linha.conta = copiar(conta);
+        linha.conta.setSaldoInicial(centavos(conta.getSaldoInicial()) / 100.0);
+        linha.conta.setDataCriacao(agora());
+        linha.saldoCentavos = centavos(conta.getSaldoInicial());
+        linha.versao = versao;
+        dados.contas.colocar(conta.getId(), linha);
+        dados.alterado(CONTA, versao);
+        indexar(donoConta, conta.getId(), dados);
+        return linha;
+    }
+
+    private void gravarCategoria(DadosUsuario dados, Categoria categoria, long versao) {
+        categoria.setId(sequenciaCategoria.incrementAndGet());
+        categoria.setIdUsuario(dados.id);
+        LinhaCategoria linha = new LinhaCategoria();
+        linha.categoria = copiar(categoria);
+        linha.categoria.setDataCriacao(agora());
+        linha.versao = versao;
+        dados.categorias.colocar(categoria.getId(), linha);
+        dados.alterado(CATEGORIA, versao);
+        indexar(donoCategoria, categoria.getId(), dados);
+    }
+
+    /**
+     * Conta e categoria precisam existir entre os registros do usuário
+     * (no banco, as chaves estrangeiras recusam a escrita)
+     */
+    private static boolean referenciasValidas(DadosUsuario dados, Movimentacao movimentacao) {
+        return dados.contas.contem(movimentacao.getIdConta())
+                && dados.categorias.contem(movimentacao.getIdCategoria());
+    }
+
+    private void gravarMovimentacao(DadosUsuario dados, Movimentacao movimentacao, long versao) {
+        movimentacao.setId(sequenciaMovimentacao.incrementAndGet());
+        movimentacao.setIdUsuario(dados.id);
+        LinhaMovimentacao linha = new LinhaMovimentacao();
+        linha.movimentacao = copiarParaGravar(movimentacao);
+        Timestamp criacao = agora();
+        linha.movimentacao.setDataCriacao(criacao);
+        linha.movimentacao.setDataAtualizacao(criacao);
+        linha.versao = versao;
+        dados.movimentacoes.colocar(movimentacao.getId(), linha);
+        dados.ordem.add(linha.movimentacao);
+        dados.alterado(MOVIMENTACAO, versao);
+        aplicarEfeito(dados, linha.movimentacao, 1, versao);
+        indexar(donoMovimentacao, movimentacao.getId(), dados);
+    }
+
+    /**
+     * Soma (sinal 1) ou desconta (sinal -1) a movimentação do saldo da conta
+     * e do uso da categoria
+     */
+    private static void aplicarEfeito(DadosUsuario dados, Movimentacao movimentacao, int sinal, long versao) {
+        LinhaConta conta = dados.contas.obter(movimentacao.getIdConta());
+        if (conta != null) {
+            conta.saldoCentavos += sinal * SaldoConta.efeito(movimentacao);
+            dados.marcarContaAlterada(movimentacao.getIdConta(), versao);
+        }
+        LinhaCategoria categoria = dados.categorias.obter(movimentacao.getIdCategoria());
+        if (categoria != null) {
+            categoria.usos += sinal;
+        }
+    }
+
+    private void excluirMovimentacao(DadosUsuario dados, LinhaMovimentacao linha, long versao) {
+        Movimentacao movimentacao = linha.movimentacao;
+        dados.ordem.remove(movimentacao);
+        dados.movimentacoes.remover(movimentacao.getId());
+        aplicarEfeito(dados, movimentacao, -1, versao);
+        dados.registrarExclusao(MOVIMENTACAO, movimentacao.getId(), versao);
+        desindexar(donoMovimentacao, movimentacao.getId());
+    }
+
+    /**
+     * Exclui as movimentações de uma conta ou categoria (cascata)
+     */
+    private void excluirMovimentacoes(DadosUsuario dados, int idConta, int idCategoria, long versao) {
+        for (Movimentacao movimentacao : new ArrayList<>(dados.ordem)) {
+            if (movimentacao.getIdConta() == idConta || movimentacao.getIdCategoria() == idCategoria) {
+                excluirMovimentacao(dados, dados.movimentacoes.obter(movimentacao.getId()), versao);
+            }
+        }
+    }
+
+    private boolean excluirConta(DadosUsuario dados, int id) {
+        synchronized (dados) {
+            if (dados.excluido || !dados.contas.contem(id)) {
+                return false;
+            }
+            long versao = dados.proximaVersao();
+            excluirMovimentacoes(dados, id, 0, versao);
+            dados.contas.remover(id);
+            dados.registrarExclusao(CONTA, id, versao);
+            desindexar(donoConta, id);
+            return true;
+        }
+    }
+
+    private boolean excluirCategoria(DadosUsuario dados, int id, boolean somenteSemUso) {
+        synchronized (dados) {
+            LinhaCategoria linha = dados.excluido ? null : dados.categorias.obter(id);
+            if (linha == null) {
+                return false;
+            }
+            if (somenteSemUso && linha.usos > 0) {
+                System.err.println("Categoria não pode ser removida pois está em uso");
+                return false;
+            }
+            long versao = dados.proximaVersao();
+            excluirMovimentacoes(dados, 0, id, versao);
+            dados.categorias.remover(id);
+            dados.registrarExclusao(CATEGORIA, id, versao);
+            desindexar(donoCategoria, id);
+            return true;
+        }
+    }
+
+    private boolean excluirMovimentacao(DadosUsuario dados, int id) {
+        synchronized (dados) {
+            LinhaMovimentacao linha = dados.excluido ? null : dados.movimentacoes.obter(id);
+            if (linha == null) {
+                return false;
+            }
+            excluirMovimentacao(dados, linha, dados.proximaVersao());
+            return true;
+        }
+    }
+
+    /**
+     * Alterações desde uma versão: registros com versão maior, por ID, e
+     * marcas de exclusão com versão maior
+     */
+    private static <L, T> AlteracoesSync<T> alteracoes(DadosUsuario dados, int entidade, MapaInt<L> linhas,
+                                                       long desde, ToLongFunction<L> versao, Function<L, T> copia) {
+        AlteracoesSync<T> alteracoes = new AlteracoesSync<>(dados.versao);
+        if (dados.ultimaAlteracao[entidade] <= desde) {
+            return alteracoes;
+        }
+        for (int id : linhas.chavesOrdenadas()) {
+            L linha = linhas.obter(id);
+            if (versao.applyAsLong(linha) > desde) {
+                alteracoes.getAlterados().add(copia.apply(linha));
+            }
+        }
+        MapaInt<Long> exclusoes = dados.exclusoes.get(entidade);
+        for (int id : exclusoes.chavesOrdenadas()) {
+            if (exclusoes.obter(id) > desde) {
+                alteracoes.getIdsExcluidos().add(id);
+            }
+        }
+        return alteracoes;
+    }
+
+    /**
+     * Movimentações entre as datas (inclusive) e depois do cursor, na ordem
+     * das listagens; qualquer limite pode ser null
+     */
+    private static NavigableSet<Movimentacao> faixa(NavigableSet<Movimentacao> ordem, Date dataInicio,
+                                                    Date dataFim, CursorMovimentacao apos) {
+        // Na ordem decrescente, a faixa começa no fim do período ou logo após o cursor
+        Movimentacao de = dataFim != null ? sonda(dataFim, Integer.MAX_VALUE) : null;
+        boolean incluiDe = true;
+        if (apos != null) {
+            Movimentacao cursor = sonda(apos.getData(), apos.getId());
+            if (de == null || ORDEM_MOVIMENTACOES.compare(cursor, de) >= 0) {
+                de = cursor;
+                incluiDe = false;
+            }
+        }
+        Movimentacao ate = dataInicio != null ? sonda(dataInicio, 0) : null;
+
+        if (de != null && ate != null) {
+            if (ORDEM_MOVIMENTACOES.compare(de, ate) > 0) {
+                return Collections.emptyNavigableSet();
+            }
+            return ordem.subSet(de, incluiDe, ate, true);
+        }
+        if (de != null) {
+            return ordem.tailSet(de, incluiDe);
+        }
+        if (ate != null) {
+            return ordem.headSet(ate, true);
+        }
+        return ordem;
+    }
+
+    /** Chave de busca no TreeSet (id MAX_VALUE/0: antes/depois de todas as da data) */
+    private static Movimentacao sonda(Date data, int id) {
+        Movimentacao sonda = new Movimentacao();
+        sonda.setData(data);
+        sonda.setId(id);
+        return sonda;
+    }
+
+    /**
+     * Duplicata de buscarDuplicata(): mesmo valor em centavos, data, conta e
+     * descrição sem diferenciar maiúsculas (descrição nula nunca é duplicata)
+     */
+    private static Movimentacao duplicata(DadosUsuario dados, double valor, Date data,
+                                          String descricao, int idConta) {
+        if (descricao == null || data == null) {
+            return null;
+        }
+        long valorCentavos = centavos(valor);
+        for (Movimentacao movimentacao : faixa(dados.ordem, data, data, null)) {
+            if (movimentacao.getIdConta() == idConta
+                    && centavos(movimentacao.getValor()) == valorCentavos
+                    && descricao.equalsIgnoreCase(movimentacao.getDescricao())) {
+                return movimentacao;
+            }
+        }
+        return null;
+    }
+
+    // ========== USUÁRIOS ==========
+
+    private final class Usuarios implements UsuarioRepositorio {
+
+        @Override
+        public boolean inserir(Usuario usuario) {
+            trava.writeLock().lock();
+            try {
+                String email = chaveEmail(usuario.getEmail());
+                if (idPorEmail.containsKey(email)) {
+                    System.err.println("Erro ao inserir usuário: email já cadastrado");
+                    return false;
+                }
+                usuario.setId(sequenciaUsuario.incrementAndGet());
+                if (usuario.getTipoUsuario() == null) {
+                    usuario.setTipoUsuario(Usuario.TIPO_USUARIO);
+                }
+                Usuario guardado = copiar(usuario);
+                Timestamp criacao = agora();
+                guardado.setDataCriacao(criacao);
+                guardado.setDataAtualizacao(criacao);
+                usuarios.colocar(usuario.getId(), new DadosUsuario(guardado));
+                idPorEmail.put(email, usuario.getId());
+                return true;
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public Usuario buscarPorEmail(String email) {
+            trava.readLock().lock();
+            try {
+                Integer id = email != null ? idPorEmail.get(chaveEmail(email)) : null;
+                return id != null ? copiar(usuarios.obter(id).usuario) : null;
+            } finally {
+                trava.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Usuario buscarPorId(int id) {
+            trava.readLock().lock();
+            try {
+                DadosUsuario dados = usuarios.obter(id);
+                return dados != null ? copiar(dados.usuario) : null;
+            } finally {
+                trava.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Usuario autenticar(String email, String senha) {
+            Usuario usuario = buscarPorEmail(email);
+            if (usuario != null && SecurityUtil.verificarSenha(senha, usuario.getSenhaHash())) {
+                if (SecurityUtil.precisaRehash(usuario.getSenhaHash())) {
+                    int id = usuario.getId();
+                    String antigo = usuario.getSenhaHash();
+                    PasswordHasher.getInstance().rehashAsync(senha, novo -> regravarHash(id, antigo, novo));
+                }
+                return usuario;
+            }
+            return null;
+        }
+
+        /** Troca o hash só se ele ainda for o lido no login */
+        private void regravarHash(int idUsuario, String hashAntigo, String hashNovo) {
+            trava.writeLock().lock();
+            try {
+                DadosUsuario dados = usuarios.obter(idUsuario);
+                if (dados == null || !hashAntigo.equals(dados.usuario.getSenhaHash())) {
+                    return;
+                }
+                Usuario guardado = copiar(dados.usuario);
+                guardado.setSenhaHash(hashNovo);
+                dados.usuario = guardado;
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean atualizar(Usuario usuario) {
+            trava.writeLock().lock();
+            try {
+                DadosUsuario dados = usuarios.obter(usuario.getId());
+                if (dados == null) {
+                    return false;
+                }
+                String emailAnterior = chaveEmail(dados.usuario.getEmail());
+                String email = chaveEmail(usuario.getEmail());
+                Integer outro = idPorEmail.get(email);
+                if (outro != null && outro != usuario.getId()) {
+                    System.err.println("Erro ao atualizar usuário: email já cadastrado");
+                    return false;
+                }
+                Usuario guardado = copiar(dados.usuario);
+                guardado.setNome(usuario.getNome());
+                guardado.setEmail(usuario.getEmail());
+                guardado.setDataAtualizacao(agora());
+                dados.usuario = guardado;
+                idPorEmail.remove(emailAnterior);
+                idPorEmail.put(email, usuario.getId());
+                return true;
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean atualizarSenha(int idUsuario, String novaSenha) {
+            // Hash fora da trava: é a parte cara
+            String hash = SecurityUtil.hashSenha(novaSenha);
+            trava.writeLock().lock();
+            try {
+                DadosUsuario dados = usuarios.obter(idUsuario);
+                if (dados == null) {
+                    return false;
+                }
+                Usuario guardado = copiar(dados.usuario);
+                guardado.setSenhaHash(hash);
+                guardado.setDataAtualizacao(agora());
+                dados.usuario = guardado;
+                return true;
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public List<Usuario> listarTodos() {
+            List<Usuario> lista = new ArrayList<>();
+            trava.readLock().lock();
+            try {
+                for (int id : usuarios.chavesOrdenadas()) {
+                    lista.add(copiar(usuarios.obter(id).usuario));
+                }
+            } finally {
+                trava.readLock().unlock();
+            }
+            return lista;
+        }
+
+        @Override
+        public boolean excluir(int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                // Escritas que já pegaram o DadosUsuario encontram excluido e falham
+                dados.excluido = true;
+                trava.writeLock().lock();
+                try {
+                    usuarios.remover(idUsuario);
+                    idPorEmail.remove(chaveEmail(dados.usuario.getEmail()));
+                    for (int id : dados.contas.chavesOrdenadas()) {
+                        donoConta.remover(id);
+                    }
+                    for (int id : dados.categorias.chavesOrdenadas()) {
+                        donoCategoria.remover(id);
+                    }
+                    for (int id : dados.movimentacoes.chavesOrdenadas()) {
+                        donoMovimentacao.remover(id);
+                    }
+                } finally {
+                    trava.writeLock().unlock();
+                }
+                return true;
+            }
+        }
+    }
+
+    // ========== CONTAS ==========
+
+    private final class Contas implements ContaRepositorio {
+
+        @Override
+        public Conta buscarPorNomeEUsuario(String nome, int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                LinhaConta linha = contaPorNome(dados, nome);
+                return linha != null ? copiar(linha) : null;
+            }
+        }
+
+        @Override
+        public boolean inserir(Conta conta) {
+            DadosUsuario dados = dados(conta.getIdUsuario());
+            if (dados == null) {
+                System.err.println("Erro ao inserir conta: usuário " + conta.getIdUsuario() + " não encontrado");
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                LinhaConta existente = contaPorNome(dados, conta.getNome());
+                if (existente != null) {
+                    conta.setId(existente.conta.getId());
+                    return true;
+                }
+                gravarConta(dados, conta, dados.proximaVersao());
+                return true;
+            }
+        }
+
+        @Override
+        public boolean inserirLote(int idUsuario, List<Conta> contas) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                System.err.println("Erro ao inserir lote de contas: usuário " + idUsuario + " não encontrado");
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                long versao = dados.proximaVersao();
+                for (Conta conta : contas) {
+                    conta.setIdUsuario(idUsuario);
+                    // Repetidas no próprio lote já estão gravadas quando chegam aqui
+                    LinhaConta existente = contaPorNome(dados, conta.getNome());
+                    if (existente != null) {
+                        conta.setId(existente.conta.getId());
+                    } else {
+                        gravarConta(dados, conta, versao);
+                    }
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public Conta buscarPorId(int id) {
+            DadosUsuario dados = dono(donoConta, id);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                LinhaConta linha = dados.contas.obter(id);
+                return linha != null ? copiar(linha) : null;
+            }
+        }
+
+        @Override
+        public List<Conta> listarPorUsuario(int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return new ArrayList<>();
+            }
+            synchronized (dados) {
+                return contasOrdenadas(dados);
+            }
+        }
+
+        @Override
+        public boolean atualizar(Conta conta) {
+            DadosUsuario dados = dados(conta.getIdUsuario());
+            if (dados == null) {
+                return false;
+            }
+            synchronized (dados) {
+                LinhaConta linha = dados.excluido ? null : dados.contas.obter(conta.getId());
+                if (linha == null) {
+                    return false;
+                }
+                long versao = dados.proximaVersao();
+                Conta guardada = copiar(linha.conta);
+                guardada.setNome(conta.getNome());
+                guardada.setTipo(conta.getTipo());
+                guardada.setSaldoInicial(centavos(conta.getSaldoInicial()) / 100.0);
+                // Mudança no saldo inicial vale também para o saldo atual
+                linha.saldoCentavos += centavos(conta.getSaldoInicial()) - centavos(linha.conta.getSaldoInicial());
+                linha.conta = guardada;
+                linha.versao = versao;
+                dados.alterado(CONTA, versao);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean remover(int id, int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            return dados != null && excluirConta(dados, id);
+        }
+
+        @Override
+        public boolean excluir(int id) {
+            DadosUsuario dados = dono(donoConta, id);
+            return dados != null && excluirConta(dados, id);
+        }
+
+        @Override
+        public AlteracoesSync<Conta> listarAlteracoesDesde(int idUsuario, long desde) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                return dados.excluido ? null
+                        : alteracoes(dados, CONTA, dados.contas, desde, l -> l.versao, BancoMemoria::copiar);
+            }
+        }
+
+        @Override
+        public double calcularSaldoAtual(int idConta) {
+            DadosUsuario dados = dono(donoConta, idConta);
+            if (dados == null) {
+                return 0.0;
+            }
+            synchronized (dados) {
+                LinhaConta linha = dados.contas.obter(idConta);
+                return linha != null ? linha.saldoCentavos / 100.0 : 0.0;
+            }
+        }
+
+        @Override
+        public boolean percorrerTodasComUsuario(ProcessadorConta processador) throws IOException {
+            for (DadosUsuario dados : todosUsuarios()) {
+                List<Conta> contas;
+                String nomeUsuario;
+                synchronized (dados) {
+                    contas = contasOrdenadas(dados);
+                    nomeUsuario = nomeUsuario(dados);
+                }
+                // Processador (escrita na rede) fora do monitor
+                for (Conta conta : contas) {
+                    processador.processar(conta, nomeUsuario);
+                }
+            }
+            return true;
+        }
+
+        private LinhaConta contaPorNome(DadosUsuario dados, String nome) {
+            for (LinhaConta linha : dados.contas.valores()) {
+                if (linha.conta.getNome().equalsIgnoreCase(nome)) {
+                    return linha;
+                }
+            }
+            return null;
+        }
+
+        private List<Conta> contasOrdenadas(DadosUsuario dados) {
+            List<Conta> contas = new ArrayList<>(dados.contas.tamanho());
+            for (LinhaConta linha : dados.contas.valores()) {
+                contas.add(copiar(linha));
+            }
+            contas.sort(ORDEM_CONTAS);
+            return contas;
+        }
+    }
+
+    // ========== CATEGORIAS ==========
+
+    private final class Categorias implements CategoriaRepositorio {
+
+        @Override
+        public Categoria buscarPorNomeETipo(String nome, Categoria.TipoCategoria tipo, int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                LinhaCategoria linha = categoriaPorNomeETipo(dados, nome, tipo);
+                return linha != null ? copiar(linha) : null;
+            }
+        }
+
+        @Override
+        public boolean inserir(Categoria categoria) {
+            DadosUsuario dados = dados(categoria.getIdUsuario());
+            if (dados == null) {
+                System.err.println("Erro ao inserir categoria: usuário " + categoria.getIdUsuario() + " não encontrado");
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                LinhaCategoria existente = categoriaPorNomeETipo(dados, categoria.getNome(), categoria.getTipo());
+                if (existente != null) {
+                    categoria.setId(existente.categoria.getId());
+                    return true;
+                }
+                gravarCategoria(dados, categoria, dados.proximaVersao());
+                return true;
+            }
+        }
+
+        @Override
+        public boolean inserirLote(int idUsuario, List<Categoria> categorias) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                System.err.println("Erro ao inserir lote de categorias: usuário " + idUsuario + " não encontrado");
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                long versao = dados.proximaVersao();
+                for (Categoria categoria : categorias) {
+                    categoria.setIdUsuario(idUsuario);
+                    LinhaCategoria existente = categoriaPorNomeETipo(dados, categoria.getNome(), categoria.getTipo());
+                    if (existente != null) {
+                        categoria.setId(existente.categoria.getId());
+                    } else {
+                        gravarCategoria(dados, categoria, versao);
+                    }
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public Categoria buscarPorId(int id) {
+            DadosUsuario dados = dono(donoCategoria, id);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                LinhaCategoria linha = dados.categorias.obter(id);
+                return linha != null ? copiar(linha) : null;
+            }
+        }
+
+        @Override
+        public List<Categoria> listarPorUsuario(int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return new ArrayList<>();
+            }
+            synchronized (dados) {
+                return categoriasOrdenadas(dados);
+            }
+        }
+
+        @Override
+        public List<Categoria> listarPorTipo(int idUsuario, Categoria.TipoCategoria tipo) {
+            List<Categoria> categorias = listarPorUsuario(idUsuario);
+            categorias.removeIf(categoria -> categoria.getTipo() != tipo);
+            return categorias;
+        }
+
+        @Override
+        public boolean atualizar(Categoria categoria) {
+            DadosUsuario dados = dados(categoria.getIdUsuario());
+            if (dados == null) {
+                return false;
+            }
+            synchronized (dados) {
+                LinhaCategoria linha = dados.excluido ? null : dados.categorias.obter(categoria.getId());
+                if (linha == null) {
+                    return false;
+                }
+                long versao = dados.proximaVersao();
+                Categoria guardada = copiar(linha.categoria);
+                guardada.setNome(categoria.getNome());
+                guardada.setTipo(categoria.getTipo());
+                linha.categoria = guardada;
+                linha.versao = versao;
+                dados.alterado(CATEGORIA, versao);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean remover(int id, int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            return dados != null && excluirCategoria(dados, id, true);
+        }
+
+        @Override
+        public boolean estaEmUso(int idCategoria) {
+            DadosUsuario dados = dono(donoCategoria, idCategoria);
+            if (dados == null) {
+                return false;
+            }
+            synchronized (dados) {
+                LinhaCategoria linha = dados.categorias.obter(idCategoria);
+                return linha != null && linha.usos > 0;
+            }
+        }
+
+        @Override
+        public boolean excluir(int id) {
+            DadosUsuario dados = dono(donoCategoria, id);
+            return dados != null && excluirCategoria(dados, id, false);
+        }
+
+        @Override
+        public AlteracoesSync<Categoria> listarAlteracoesDesde(int idUsuario, long desde) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                return dados.excluido ? null
+                        : alteracoes(dados, CATEGORIA, dados.categorias, desde, l -> l.versao, BancoMemoria::copiar);
+            }
+        }
+
+        @Override
+        public boolean percorrerTodasComUsuario(ProcessadorCategoria processador) throws IOException {
+            for (DadosUsuario dados : todosUsuarios()) {
+                List<Categoria> categorias;
+                String nomeUsuario;
+                synchronized (dados) {
+                    categorias = categoriasOrdenadas(dados);
+                    nomeUsuario = nomeUsuario(dados);
+                }
+                for (Categoria categoria : categorias) {
+                    processador.processar(categoria, nomeUsuario);
+                }
+            }
+            return true;
+        }
+
+        private LinhaCategoria categoriaPorNomeETipo(DadosUsuario dados, String nome, Categoria.TipoCategoria tipo) {
+            for (LinhaCategoria linha : dados.categorias.valores()) {
+                if (linha.categoria.getTipo() == tipo && linha.categoria.getNome().equalsIgnoreCase(nome)) {
+                    return linha;
+                }
+            }
+            return null;
+        }
+
+        private List<Categoria> categoriasOrdenadas(DadosUsuario dados) {
+            List<Categoria> categorias = new ArrayList<>(dados.categorias.tamanho());
+            for (LinhaCategoria linha : dados.categorias.valores()) {
+                categorias.add(copiar(linha));
+            }
+            categorias.sort(ORDEM_CATEGORIAS);
+            return categorias;
+        }
+    }
+
+    // ========== MOVIMENTAÇÕES ==========
+
+    private final class Movimentacoes implements MovimentacaoRepositorio {
+
+        @Override
+        public Movimentacao buscarDuplicata(double valor, Date data, String descricao, int idConta, int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                Movimentacao existente = duplicata(dados, valor, data, descricao, idConta);
+                return existente != null ? copiar(existente) : null;
+            }
+        }
+
+        @Override
+        public boolean inserir(Movimentacao movimentacao) {
+            DadosUsuario dados = dados(movimentacao.getIdUsuario());
+            if (dados == null) {
+                System.err.println("Erro ao inserir movimentação: usuário " + movimentacao.getIdUsuario() + " não encontrado");
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                Movimentacao existente = duplicata(dados, movimentacao.getValor(), movimentacao.getData(),
+                        movimentacao.getDescricao(), movimentacao.getIdConta());
+                if (existente != null) {
+                    movimentacao.setId(existente.getId());
+                    return true;
+                }
+                if (!referenciasValidas(dados, movimentacao)) {
+                    System.err.println("Erro ao inserir movimentação: conta " + movimentacao.getIdConta() +
+                                       " ou categoria " + movimentacao.getIdCategoria() + " não encontrada");
+                    return false;
+                }
+                gravarMovimentacao(dados, movimentacao, dados.proximaVersao());
+                return true;
+            }
+        }
+
+        @Override
+        public boolean inserirLote(int idUsuario, List<Movimentacao> movimentacoes) {
+            if (movimentacoes.isEmpty()) {
+                return true;
+            }
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                System.err.println("Erro ao inserir lote de movimentações: usuário " + idUsuario + " não encontrado");
+                return false;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return false;
+                }
+                // Tudo ou nada: confere as referências antes de gravar a primeira
+                for (Movimentacao mov : movimentacoes) {
+                    mov.setIdUsuario(idUsuario);
+                    if (!referenciasValidas(dados, mov)) {
+                        System.err.println("Erro ao inserir lote de movimentações: conta " + mov.getIdConta() +
+                                           " ou categoria " + mov.getIdCategoria() + " não encontrada");
+                        return false;
+                    }
+                }
+                long versao = dados.proximaVersao();
+                for (Movimentacao mov : movimentacoes) {
+                    // Repetidas no próprio lote já estão gravadas quando chegam aqui
+                    Movimentacao existente = duplicata(dados, mov.getValor(), mov.getData(),
+                            mov.getDescricao(), mov.getIdConta());
+                    if (existente != null) {
+                        mov.setId(existente.getId());
+                    } else {
+                        gravarMovimentacao(dados, mov, versao);
+                    }
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public Movimentacao buscarPorId(int id) {
+            DadosUsuario dados = dono(donoMovimentacao, id);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                LinhaMovimentacao linha = dados.movimentacoes.obter(id);
+                return linha != null ? copiar(linha.movimentacao) : null;
+            }
+        }
+
+        @Override
+        public Movimentacao buscarPorIdEUsuario(int id, int idUsuario) {
+            Movimentacao movimentacao = buscarPorId(id);
+            return movimentacao != null && movimentacao.getIdUsuario() == idUsuario ? movimentacao : null;
+        }
+
+        @Override
+        public List<Movimentacao> listarPorUsuario(int idUsuario) {
+            return listarPagina(idUsuario, null, null, null, null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<Movimentacao> listarPorPeriodo(int idUsuario, Date dataInicio, Date dataFim) {
+            return listarPagina(idUsuario, null, dataInicio, dataFim, null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<Movimentacao> listarPorConta(int idConta, int idUsuario) {
+            return listarPagina(idUsuario, idConta, null, null, null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<Movimentacao> listarPorCategoria(int idCategoria, int idUsuario) {
+            List<Movimentacao> movimentacoes = listarPorUsuario(idUsuario);
+            movimentacoes.removeIf(movimentacao -> movimentacao.getIdCategoria() != idCategoria);
+            return movimentacoes;
+        }
+
+        @Override
+        public List<Movimentacao> listarPagina(int idUsuario, Integer idConta, Date dataInicio, Date dataFim,
+                                               CursorMovimentacao apos, int limite) {
+            List<Movimentacao> movimentacoes = new ArrayList<>();
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return movimentacoes;
+            }
+            synchronized (dados) {
+                for (Movimentacao movimentacao : faixa(dados.ordem, dataInicio, dataFim, apos)) {
+                    if (movimentacoes.size() >= limite) {
+                        break;
+                    }
+                    if (idConta == null || movimentacao.getIdConta() == idConta) {
+                        movimentacoes.add(copiar(movimentacao));
+                    }
+                }
+            }
+            return movimentacoes;
+        }
+
+        @Override
+        public boolean atualizar(Movimentacao movimentacao) {
+            DadosUsuario dados = dados(movimentacao.getIdUsuario());
+            LinhaMovimentacao linha = null;
+            if (dados != null) {
+                synchronized (dados) {
+                    linha = dados.excluido ? null : dados.movimentacoes.obter(movimentacao.getId());
+                    if (linha != null) {
+                        if (!referenciasValidas(dados, movimentacao)) {
+                            System.err.println("Erro ao atualizar movimentação ID " + movimentacao.getId() +
+                                               ": conta ou categoria não encontrada");
+                            return false;
+                        }
+                        long versao = dados.proximaVersao();
+                        Movimentacao anterior = linha.movimentacao;
+                        Movimentacao guardada = copiarParaGravar(movimentacao);
+                        guardada.setIdUsuario(dados.id);
+                        guardada.setDataCriacao(anterior.getDataCriacao());
+                        guardada.setDataAtualizacao(agora());
+
+                        // Saldo muda na conta antiga e na nova (se a movimentação trocou de conta)
+                        dados.ordem.remove(anterior);
+                        aplicarEfeito(dados, anterior, -1, versao);
+                        linha.movimentacao = guardada;
+                        linha.versao = versao;
+                        dados.ordem.add(guardada);
+                        aplicarEfeito(dados, guardada, 1, versao);
+                        dados.alterado(MOVIMENTACAO, versao);
+                        return true;
+                    }
+                }
+            }
+            System.err.println("Erro ao atualizar movimentação: ID " + movimentacao.getId() +
+                               " não encontrado ou não pertence ao usuário " + movimentacao.getIdUsuario());
+            return false;
+        }
+
+        @Override
+        public boolean remover(int id, int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null || !excluirMovimentacao(dados, id)) {
+                System.err.println("Erro ao remover movimentação: ID " + id +
+                                   " não encontrado ou não pertence ao usuário " + idUsuario);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean excluir(int id) {
+            DadosUsuario dados = dono(donoMovimentacao, id);
+            return dados != null && excluirMovimentacao(dados, id);
+        }
+
+        @Override
+        public AlteracoesSync<Movimentacao> listarAlteracoesDesde(int idUsuario, long desde) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                return dados.excluido ? null
+                        : alteracoes(dados, MOVIMENTACAO, dados.movimentacoes, desde, l -> l.versao,
+                                     l -> copiar(l.movimentacao));
+            }
+        }
+
+        @Override
+        public double calcularTotalReceitas(int idUsuario, Date dataInicio, Date dataFim) {
+            return total(idUsuario, dataInicio, dataFim, Movimentacao.TipoMovimentacao.RECEITA);
+        }
+
+        @Override
+        public double calcularTotalDespesas(int idUsuario, Date dataInicio, Date dataFim) {
+            return total(idUsuario, dataInicio, dataFim, Movimentacao.TipoMovimentacao.DESPESA);
+        }
+
+        private double total(int idUsuario, Date dataInicio, Date dataFim, Movimentacao.TipoMovimentacao tipo) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return 0.0;
+            }
+            long soma = 0;
+            synchronized (dados) {
+                for (Movimentacao movimentacao : faixa(dados.ordem, dataInicio, dataFim, null)) {
+                    if (movimentacao.getTipo() == tipo) {
+                        soma += centavos(movimentacao.getValor());
+                    }
+                }
+            }
+            return soma / 100.0;
+        }
+
+        @Override
+        public int contarMovimentacoes(int idUsuario) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return 0;
+            }
+            synchronized (dados) {
+                return dados.movimentacoes.tamanho();
+            }
+        }
+
+        @Override
+        public boolean percorrerTodasComNomes(ProcessadorMovimentacao processador) throws IOException {
+            for (DadosUsuario dados : todosUsuarios()) {
+                List<Movimentacao> movimentacoes = new ArrayList<>();
+                List<String> nomesContas = new ArrayList<>();
+                List<String> nomesCategorias = new ArrayList<>();
+                String nomeUsuario;
+                synchronized (dados) {
+                    nomeUsuario = nomeUsuario(dados);
+                    for (Movimentacao movimentacao : dados.ordem) {
+                        LinhaConta conta = dados.contas.obter(movimentacao.getIdConta());
+                        LinhaCategoria categoria = dados.categorias.obter(movimentacao.getIdCategoria());
+                        movimentacoes.add(copiar(movimentacao));
+                        nomesContas.add(conta != null ? conta.conta.getNome() : null);
+                        nomesCategorias.add(categoria != null ? categoria.categoria.getNome() : null);
+                    }
+                }
+                for (int i = 0; i < movimentacoes.size(); i++) {
+                    processador.processar(movimentacoes.get(i), nomeUsuario,
+                            nomesContas.get(i), nomesCategorias.get(i));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int contarComNomes(Integer idUsuario, String busca) {
+            return listarComNomes(idUsuario, busca).size();
+        }
+
+        @Override
+        public boolean percorrerPaginaComNomes(Integer idUsuario, String busca, OrdemMovimentacao ordem,
+                                               int deslocamento, int limite,
+                                               ProcessadorMovimentacao processador) throws IOException {
+            List<MovimentacaoComNomes> linhas = listarComNomes(idUsuario, busca);
+            linhas.sort(comparadorAdmin(ordem));
+            int fim = (int) Math.min(linhas.size(), (long) deslocamento + limite);
+            for (int i = deslocamento; i < fim; i++) {
+                MovimentacaoComNomes linha = linhas.get(i);
+                processador.processar(linha.movimentacao, linha.nomeUsuario, linha.nomeConta, linha.nomeCategoria);
+            }
+            return true;
+        }
+
+        /**
+         * Cópias das movimentações filtradas da listagem do admin, com os
+         * nomes; sem índice de texto, cada página percorre os usuários
+         */
+        private List<MovimentacaoComNomes> listarComNomes(Integer idUsuario, String busca) {
+            List<DadosUsuario> usuarios;
+            if (idUsuario == null) {
+                usuarios = todosUsuarios();
+            } else {
+                DadosUsuario dados = dados(idUsuario);
+                usuarios = dados != null ? Collections.singletonList(dados) : Collections.emptyList();
+            }
+            String termo = busca != null && !busca.isEmpty() ? busca.toLowerCase(Locale.ROOT) : null;
+            List<MovimentacaoComNomes> linhas = new ArrayList<>();
+            for (DadosUsuario dados : usuarios) {
+                synchronized (dados) {
+                    String nomeUsuario = nomeUsuario(dados);
+                    for (Movimentacao movimentacao : dados.ordem) {
+                        LinhaConta conta = dados.contas.obter(movimentacao.getIdConta());
+                        LinhaCategoria categoria = dados.categorias.obter(movimentacao.getIdCategoria());
+                        String nomeConta = conta != null ? conta.conta.getNome() : null;
+                        String nomeCategoria = categoria != null ? categoria.categoria.getNome() : null;
+                        if (termo == null || contem(movimentacao.getDescricao(), termo) ||
+                                contem(nomeUsuario, termo) || contem(nomeConta, termo) ||
+                                contem(nomeCategoria, termo)) {
+                            linhas.add(new MovimentacaoComNomes(copiar(movimentacao), nomeUsuario,
+                                    nomeConta, nomeCategoria));
+                        }
+                    }
+                }
+            }
+            return linhas;
+        }
+    }
+
+    /** Linha da listagem do admin: movimentação e nomes relacionados */
+    private static final class MovimentacaoComNomes {
+        final Movimentacao movimentacao;
+        final String nomeUsuario;
+        final String nomeConta;
+        final String nomeCategoria;
+
+        MovimentacaoComNomes(Movimentacao movimentacao, String nomeUsuario,
+                             String nomeConta, String nomeCategoria) {
+            this.movimentacao = movimentacao;
+            this.nomeUsuario = nomeUsuario;
+            this.nomeConta = nomeConta;
+            this.nomeCategoria = nomeCategoria;
+        }
+    }
+
+    private static boolean contem(String texto, String termoMinusculo) {
+        return texto != null && texto.toLowerCase(Locale.ROOT).contains(termoMinusculo);
+    }
+
+    /**
+     * Mesma ordem do ORDER BY de OrdemMovimentacao.toSql(), com null antes
+     * dos demais valores como no MySQL
+     */
+    private static Comparator<MovimentacaoComNomes> comparadorAdmin(OrdemMovimentacao ordem) {
+        Comparator<MovimentacaoComNomes> porColuna;
+        switch (ordem.getColuna()) {
+            case USUARIO:
+                porColuna = Comparator.comparing(l -> l.nomeUsuario, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            case VALOR:
+                porColuna = Comparator.comparingDouble(l -> l.movimentacao.getValor());
+                break;
+            case DATA:
+                porColuna = Comparator.comparing(l -> l.movimentacao.getData());
+                break;
+            case DESCRICAO:
+                porColuna = Comparator.comparing(l -> l.movimentacao.getDescricao(),
+                        Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            case TIPO:
+                porColuna = Comparator.comparing(l -> l.movimentacao.getTipo().getValor());
+                break;
+            case CONTA:
+                porColuna = Comparator.comparing(l -> l.nomeConta, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            case CATEGORIA:
+                porColuna = Comparator.comparing(l -> l.nomeCategoria,
+                        Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            default:
+                porColuna = (a, b) -> 0;
+        }
+        Comparator<MovimentacaoComNomes> comparador =
+                porColuna.thenComparingInt(l -> l.movimentacao.getId());
+        return ordem.isDescendente() ? comparador.reversed() : comparador;
+    }
+
+    // ========== DASHBOARD E SINCRONIZAÇÃO ==========
+
+    private final class Dashboard implements DashboardRepositorio {
+
+        @Override
+        public ResumoDashboard calcularResumo(int idUsuario, Date dataInicio, Date dataFim) {
+            ResumoDashboard resumo = new ResumoDashboard();
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return resumo;
+            }
+            long saldo = 0;
+            long receitas = 0;
+            long despesas = 0;
+            synchronized (dados) {
+                // Saldo atual de cada conta já inclui o saldo inicial e as movimentações
+                for (LinhaConta linha : dados.contas.valores()) {
+                    saldo += linha.saldoCentavos;
+                }
+                for (Movimentacao movimentacao : faixa(dados.ordem, dataInicio, dataFim, null)) {
+                    if (movimentacao.getTipo() == Movimentacao.TipoMovimentacao.RECEITA) {
+                        receitas += centavos(movimentacao.getValor());
+                    } else {
+                        despesas += centavos(movimentacao.getValor());
+                    }
+                }
+                resumo.setNumTransacoes(dados.movimentacoes.tamanho());
+            }
+            resumo.setSaldoTotal(saldo / 100.0);
+            resumo.setReceitasMes(receitas / 100.0);
+            resumo.setDespesasMes(despesas / 100.0);
+            return resumo;
+        }
+    }
+
+    private final class Sincronizacao implements SincronizacaoRepositorio {
+
+        @Override
+        public ResumoSync resumir(int idUsuario, long desde) {
+            DadosUsuario dados = dados(idUsuario);
+            if (dados == null) {
+                return null;
+            }
+            synchronized (dados) {
+                if (dados.excluido) {
+                    return null;
+                }
+                List<String> alteradas = new ArrayList<>();
+                for (int entidade = 0; entidade < ENTIDADES.length; entidade++) {
+                    if (dados.ultimaAlteracao[entidade] > desde) {
+                        alteradas.add(ENTIDADES[entidade]);
+                    }
+                }
+                return new ResumoSync(dados.versao, alteradas);
+            }
+        }
+    }
+
+    // ========== CÓPIAS ==========
+
+    private static String chaveEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /** Valor em centavos, como gravado em DECIMAL(10,2) */
+    private static long centavos(double valor) {
+        return Math.round(valor * 100);
+    }
+
+    private static Timestamp agora() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    private static Usuario copiar(Usuario original) {
+        Usuario usuario = new Usuario(original.getId(), original.getNome(), original.getEmail(),
+                original.getSenhaHash(), original.getTipoUsuario());
+        usuario.setDataCriacao(original.getDataCriacao());
+        usuario.setDataAtualizacao(original.getDataAtualizacao());
+        return usuario;
+    }
+
+    private static Conta copiar(Conta original) {
+        Conta conta = new Conta(original.getId(), original.getNome(), original.getTipo(),
+                original.getSaldoInicial(), original.getIdUsuario());
+        conta.setDataCriacao(original.getDataCriacao());
+        return conta;
+    }
+
+    private static Conta copiar(LinhaConta linha) {
+        Conta conta = copiar(linha.conta);
+        conta.setSaldoAtual(linha.saldoCentavos / 100.0);
+        return conta;
+    }
+
+    private static Categoria copiar(LinhaCategoria linha) {
+        Categoria categoria = new Categoria(linha.categoria.getId(), linha.categoria.getNome(),
+                linha.categoria.getTipo(), linha.categoria.getIdUsuario());
+        categoria.setDataCriacao(linha.categoria.getDataCriacao());
+        return categoria;
+    }
+
+    private static Categoria copiar(Categoria original) {
+        Categoria categoria = new Categoria(original.getId(), original.getNome(),
+                original.getTipo(), original.getIdUsuario());
+        categoria.setDataCriacao(original.getDataCriacao());
+        return categoria;
+    }
+
+    private static Movimentacao copiar(Movimentacao original) {
+        Movimentacao movimentacao = new Movimentacao(original.getId(), original.getValor(), original.getData(),
+                original.getDescricao(), original.getTipo(), original.getIdConta(),
+                original.getIdCategoria(), original.getIdUsuario());
+        movimentacao.setDataCriacao(original.getDataCriacao());
+        movimentacao.setDataAtualizacao(original.getDataAtualizacao());
+        return movimentacao;
+    }
+
+    /** Cópia com o valor arredondado a centavos, como fica no banco */
+    private static Movimentacao copiarParaGravar(Movimentacao original) {
+        Movimentacao movimentacao = copiar(original);
+        movimentacao.setValor(centavos(original.getValor()) / 100.0);
+        return movimentacao;
+    }
+}
@@ -0,0 +1,235 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache de leitura (read-through) das listas de um usuário
+ *
+ * Guarda, por usuário, o resultado de uma consulta como listarPorUsuario().
+ * É limitado em número de usuários (o menos usado recentemente sai primeiro)
+ * e cada lista expira após o TTL. Os DAOs chamam invalidar(idUsuario) depois
+ * de cada escrita confirmada, então uma lista em cache nunca é mais antiga
+ * que a última escrita do usuário feita por este servidor.
+ *
+ * Os registros ficam guardados como cópias e cada leitura devolve cópias
+ * novas: quem chama pode alterar os objetos (ex: saldo atual da conta) sem
+ * afetar o cache.
+ *
+ * Uma carga em andamento ocupa a entrada com um marcador; se o usuário for
+ * invalidado antes de a carga terminar, o marcador sai e o resultado (que
+ * pode ter sido lido antes da escrita) não é guardado.
+ */
+public final class CacheUsuario<T> {
+
+    /**
+     * Consulta ao banco executada em caso de falta
+     */
+    @FunctionalInterface
+    interface Carregador<T> {
+        List<T> carregar() throws SQLException;
+    }
+
+    /** Configuração (sobrescrevível via -Dfinanza.cache.*); maxUsuarios 0 desativa o cache */
+    static final int MAX_USUARIOS = Integer.getInteger("finanza.cache.maxUsuarios", 1000);
+    static final long TTL_SEGUNDOS = Long.getLong("finanza.cache.ttlSegundos", 300L);
+
+    private final String nome;
+    private final int maxUsuarios;
+    private final long ttlNanos;
+    private final UnaryOperator<T> copiador;
+
+    /** Entradas por usuário, em ordem de acesso (LRU) */
+    private final Map<Integer, Entrada<T>> entradas;
+
+    // Métricas
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+    private final LongAdder expiracoes = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+
+    /**
+     * Lista guardada de um usuário; itens == null marca uma carga em andamento
+     */
+    private static final class Entrada<T> {
+        final List<T> itens;
+        final long carregadaEm;
+
+        Entrada(List<T> itens, long carregadaEm) {
+            this.itens = itens;
+            this.carregadaEm = carregadaEm;
+        }
+    }
+
+    CacheUsuario(String nome, UnaryOperator<T> copiador) {
+        this(nome, MAX_USUARIOS, TTL_SEGUNDOS, copiador);
+    }
+
+    CacheUsuario(String nome, int maxUsuarios, long ttlSegundos, UnaryOperator<T> copiador) {
+        this.nome = nome;
+        this.maxUsuarios = Math.max(0, maxUsuarios);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSegundos));
+        this.copiador = copiador;
+        this.entradas = new LinkedHashMap<Integer, Entrada<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada<T>> maisAntiga) {
+                if (size() > CacheUsuario.this.maxUsuarios) {
+                    despejos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devolve a lista do usuário, do cache ou do carregador
+     *
+     * @param idUsuario dono da lista
+     * @param carregador consulta ao banco em caso de falta ou expiração
+     * @return cópia da lista (pode ser alterada por quem chama)
+     * @throws SQLException se a consulta falhar (nada é guardado)
+     */
+    List<T> obter(int idUsuario, Carregador<T> carregador) throws SQLException {
+        if (maxUsuarios == 0) {
+            falhas.increment();
+            return carregador.carregar();
+        }
+
+        Entrada<T> marcador = new Entrada<>(null, 0);
+        List<T> guardados = null;
+        synchronized (entradas) {
+            Entrada<T> entrada = entradas.get(idUsuario);
+            if (entrada != null && entrada.itens != null) {
+                if (System.nanoTime() - entrada.carregadaEm < ttlNanos) {
+                    guardados = entrada.itens;
+                } else {
+                    expiracoes.increment();
+                }
+            }
+            if (guardados == null) {
+                entradas.put(idUsuario, marcador);
+            }
+        }
+        if (guardados != null) {
+            acertos.increment();
+            return copiar(guardados);
+        }
+
+        falhas.increment();
+        List<T> itens;
+        try {
+            itens = carregador.carregar();
+        } catch (SQLException | RuntimeException e) {
+            synchronized (entradas) {
+                entradas.remove(idUsuario, marcador);
+            }
+            throw e;
+        }
+
+        Entrada<T> carregada = new Entrada<>(Collections.unmodifiableList(copiar(itens)), System.nanoTime());
+        synchronized (entradas) {
+            // Sem o marcador: invalidado ou despejado durante a carga
+            if (entradas.get(idUsuario) == marcador) {
+                entradas.put(idUsuario, carregada);
+            }
+        }
+        return itens;
+    }
+
+    /**
+     * Descarta a lista do usuário (chamado após cada escrita confirmada)
+     */
+    void invalidar(int idUsuario) {
+        Entrada<T> removida;
+        synchronized (entradas) {
+            removida = entradas.remove(idUsuario);
+        }
+        if (removida != null) {
+            invalidacoes.increment();
+        }
+    }
+
+    /**
+     * Descarta todas as listas
+     */
+    public void limpar() {
+        synchronized (entradas) {
+            invalidacoes.add(entradas.size());
+            entradas.clear();
+        }
+    }
+
+    private List<T> copiar(List<T> itens) {
+        List<T> copia = new ArrayList<>(itens.size());
+        for (T item : itens) {
+            copia.add(copiador.apply(item));
+        }
+        return copia;
+    }
+
+    // ========== MÉTRICAS ==========
+
+    public String getNome() {
+        return nome;
+    }
+
+    public int getSize() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxUsuarios;
+    }
+
+    public long getHitCount() {
+        return acertos.sum();
+    }
+
+    public long getMissCount() {
+        return falhas.sum();
+    }
+
+    /** Entradas removidas por excesso de usuários (LRU) */
+    public long getEvictionCount() {
+        return despejos.sum();
+    }
+
+    /** Entradas descartadas por TTL vencido */
+    public long getExpirationCount() {
+        return expiracoes.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidacoes.sum();
+    }
+
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Resumo das métricas do cache (log no encerramento do servidor)
+     */
+    public String getStatistics() {
+        return String.format(Locale.US,
+                "usuarios=%d/%d, acertos=%d, falhas=%d, taxa_acerto=%.1f%%, " +
+                "despejos=%d, expiradas=%d, invalidacoes=%d, ttl=%ds",
+                getSize(), maxUsuarios, getHitCount(), getMissCount(), getHitRatio() * 100,
+                getEvictionCount(), getExpirationCount(), getInvalidationCount(),
+                TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+    }
+}
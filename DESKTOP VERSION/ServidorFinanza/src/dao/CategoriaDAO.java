@@ -1,16 +1,28 @@
 package dao;
 
+import model.AlteracoesSync;
 import model.Categoria;
 import util.DatabaseUtil;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Data Access Object para a entidade Categoria
+ *
+ * listarPorUsuario() e listarPorTipo() passam pelo cache por usuário
+ * (CacheUsuario), invalidado após cada inserção, atualização e exclusão de
+ * categoria do usuário.
  */
-public class CategoriaDAO {
+public class CategoriaDAO implements CategoriaRepositorio {
+    
+    /** Categorias por usuário, compartilhado por todas as instâncias do DAO */
+    private static final CacheUsuario<Categoria> CACHE = new CacheUsuario<>("categorias", CategoriaDAO::copiar);
     
     /**
      * Verifica se uma categoria já existe para o usuário
@@ -56,33 +68,119 @@ public class CategoriaDAO {
             return true;
         }
         
-        String sql = "INSERT INTO categoria (nome, tipo, id_usuario) VALUES (?, ?, ?)";
+        String sql = "INSERT INTO categoria (nome, tipo, id_usuario, versao) VALUES (?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, categoria.getNome());
-            stmt.setString(2, categoria.getTipo().getValor());
-            stmt.setInt(3, categoria.getIdUsuario());
-            
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            return VersaoSync.executar(categoria.getIdUsuario(), (conn, versao) -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, categoria.getNome());
+                    stmt.setString(2, categoria.getTipo().getValor());
+                    stmt.setInt(3, categoria.getIdUsuario());
+                    stmt.setLong(4, versao);
+                    
+                    if (stmt.executeUpdate() > 0) {
+                        try (ResultSet rs = stmt.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                categoria.setId(rs.getInt(1));
+                            }
+                        }
+                        return true;
+                    }
+                    return false;
+                }
+            });
             
-            if (rowsAffected > 0) {
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        categoria.setId(rs.getInt(1));
+        } catch (SQLException e) {
+            System.err.println("Erro ao inserir categoria: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(categoria.getIdUsuario());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Insere várias categorias do usuário em uma única transação (BULK_UPLOAD)
+     * 
+     * Categorias com mesmo nome e tipo de uma existente (no banco ou repetida
+     * no próprio lote) recebem o ID da existente, como em inserir(). As novas
+     * são gravadas com addBatch/executeBatch e recebem o mesmo número de versão.
+     * 
+     * @param idUsuario dono das categorias
+     * @param categorias categorias a inserir; o ID de cada uma é preenchido
+     * @return true se o lote inteiro foi gravado (false desfaz tudo)
+     */
+    public boolean inserirLote(int idUsuario, List<Categoria> categorias) {
+        String sql = "INSERT INTO categoria (nome, tipo, id_usuario, versao) VALUES (?, ?, ?, ?)";
+        
+        try {
+            return VersaoSync.executar(idUsuario, (conn, versao) -> {
+                Map<String, Integer> existentes = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT id, nome, tipo FROM categoria WHERE id_usuario = ?")) {
+                    stmt.setInt(1, idUsuario);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.putIfAbsent(chaveLote(rs.getString("nome"), rs.getString("tipo")), rs.getInt("id"));
+                        }
+                    }
+                }
+                
+                Map<String, Categoria> novas = new HashMap<>();
+                List<Categoria> inseridas = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Categoria categoria : categorias) {
+                        String chave = chaveLote(categoria.getNome(), categoria.getTipo().getValor());
+                        if (existentes.containsKey(chave) || novas.containsKey(chave)) {
+                            continue;
+                        }
+                        novas.put(chave, categoria);
+                        inseridas.add(categoria);
+                        
+                        stmt.setString(1, categoria.getNome());
+                        stmt.setString(2, categoria.getTipo().getValor());
+                        stmt.setInt(3, idUsuario);
+                        stmt.setLong(4, versao);
+                        stmt.addBatch();
+                    }
+                    
+                    if (!inseridas.isEmpty()) {
+                        stmt.executeBatch();
+                        try (ResultSet rs = stmt.getGeneratedKeys()) {
+                            for (Categoria categoria : inseridas) {
+                                if (!rs.next()) {
+                                    throw new SQLException("IDs gerados incompletos no lote de categorias");
+                                }
+                                categoria.setId(rs.getInt(1));
+                            }
+                        }
                     }
                 }
+                
+                for (Categoria categoria : categorias) {
+                    categoria.setIdUsuario(idUsuario);
+                    String chave = chaveLote(categoria.getNome(), categoria.getTipo().getValor());
+                    Integer existente = existentes.get(chave);
+                    categoria.setId(existente != null ? existente : novas.get(chave).getId());
+                }
                 return true;
-            }
+            });
             
         } catch (SQLException e) {
-            System.err.println("Erro ao inserir categoria: " + e.getMessage());
+            System.err.println("Erro ao inserir lote de categorias: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(idUsuario);
         }
         
         return false;
     }
     
+    /**
+     * Chave de duplicidade (nome e tipo, sem diferenciar maiúsculas como a collation do banco)
+     */
+    private static String chaveLote(String nome, String tipo) {
+        return tipo.toLowerCase(Locale.ROOT) + "|" + nome.toLowerCase(Locale.ROOT);
+    }
+    
     /**
      * Busca categoria por ID
      * @param id ID da categoria
@@ -110,10 +208,24 @@ public class CategoriaDAO {
     
     /**
      * Lista todas as categorias de um usuário
+     * 
+     * Lida do cache quando possível; a lista devolvida é uma cópia.
+     * 
      * @param idUsuario ID do usuário
      * @return Lista de categorias
      */
     public List<Categoria> listarPorUsuario(int idUsuario) {
+        try {
+            return CACHE.obter(idUsuario, () -> consultarPorUsuario(idUsuario));
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar categorias do usuário: " + e.getMessage());
+        }
+        
+        return new ArrayList<>();
+    }
+    
+    private List<Categoria> consultarPorUsuario(int idUsuario) throws SQLException {
         List<Categoria> categorias = new ArrayList<>();
         String sql = "SELECT * FROM categoria WHERE id_usuario = ? ORDER BY tipo, nome";
         
@@ -126,9 +238,6 @@ public class CategoriaDAO {
                     categorias.add(mapResultSetToCategoria(rs));
                 }
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Erro ao listar categorias do usuário: " + e.getMessage());
         }
         
         return categorias;
@@ -136,52 +245,63 @@ public class CategoriaDAO {
     
     /**
      * Lista categorias por tipo de um usuário
+     * 
+     * Filtra a lista completa do usuário (cache): ordenada por tipo e nome,
+     * as categorias de um tipo já saem ordenadas por nome.
+     * 
      * @param idUsuario ID do usuário
      * @param tipo tipo da categoria (receita/despesa)
      * @return Lista de categorias
      */
     public List<Categoria> listarPorTipo(int idUsuario, Categoria.TipoCategoria tipo) {
         List<Categoria> categorias = new ArrayList<>();
-        String sql = "SELECT * FROM categoria WHERE id_usuario = ? AND tipo = ? ORDER BY nome";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, idUsuario);
-            stmt.setString(2, tipo.getValor());
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    categorias.add(mapResultSetToCategoria(rs));
-                }
+        for (Categoria categoria : listarPorUsuario(idUsuario)) {
+            if (categoria.getTipo() == tipo) {
+                categorias.add(categoria);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Erro ao listar categorias por tipo: " + e.getMessage());
         }
-        
         return categorias;
     }
     
+    /**
+     * Cache de listarPorUsuario() e listarPorTipo() (métricas)
+     */
+    public static CacheUsuario<Categoria> getCache() {
+        return CACHE;
+    }
+    
+    /**
+     * Descarta as categorias em cache do usuário (ex: usuário excluído)
+     */
+    static void invalidarCache(int idUsuario) {
+        CACHE.invalidar(idUsuario);
+    }
+    
     /**
      * Atualiza dados da categoria
      * @param categoria Categoria com dados atualizados
      * @return true se atualizada com sucesso
      */
     public boolean atualizar(Categoria categoria) {
-        String sql = "UPDATE categoria SET nome = ?, tipo = ? WHERE id = ? AND id_usuario = ?";
+        String sql = "UPDATE categoria SET nome = ?, tipo = ?, versao = ? WHERE id = ? AND id_usuario = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, categoria.getNome());
-            stmt.setString(2, categoria.getTipo().getValor());
-            stmt.setInt(3, categoria.getId());
-            stmt.setInt(4, categoria.getIdUsuario());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return VersaoSync.executar(categoria.getIdUsuario(), (conn, versao) -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, categoria.getNome());
+                    stmt.setString(2, categoria.getTipo().getValor());
+                    stmt.setLong(3, versao);
+                    stmt.setInt(4, categoria.getId());
+                    stmt.setInt(5, categoria.getIdUsuario());
+                    
+                    return stmt.executeUpdate() > 0;
+                }
+            });
             
         } catch (SQLException e) {
             System.err.println("Erro ao atualizar categoria: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(categoria.getIdUsuario());
         }
         
         return false;
@@ -200,18 +320,14 @@ public class CategoriaDAO {
             return false;
         }
         
-        String sql = "DELETE FROM categoria WHERE id = ? AND id_usuario = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            stmt.setInt(2, idUsuario);
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return VersaoSync.executar(idUsuario, (conn, versao) -> excluirVersionado(conn, id, idUsuario, versao));
             
         } catch (SQLException e) {
             System.err.println("Erro ao remover categoria: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(idUsuario);
+            ContaDAO.invalidarCache(idUsuario);
         }
         
         return false;
@@ -248,17 +364,100 @@ public class CategoriaDAO {
      * @return true se excluída com sucesso
      */
     public boolean excluir(int id) {
-        String sql = "DELETE FROM categoria WHERE id = ?";
+        // O dono é necessário para registrar a exclusão na versão dele
+        Categoria existente = buscarPorId(id);
+        if (existente == null) {
+            return false;
+        }
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try {
+            return VersaoSync.executar(existente.getIdUsuario(),
+                    (conn, versao) -> excluirVersionado(conn, id, existente.getIdUsuario(), versao));
             
+        } catch (SQLException e) {
+            System.err.println("Erro ao excluir categoria: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(existente.getIdUsuario());
+            ContaDAO.invalidarCache(existente.getIdUsuario());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Exclui a categoria registrando a exclusão dela e das movimentações
+     * removidas em cascata (ON DELETE CASCADE), que saem também do saldo das contas
+     */
+    private boolean excluirVersionado(Connection conn, int id, int idUsuario, long versao) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id FROM categoria WHERE id = ? AND id_usuario = ? FOR UPDATE")) {
+            stmt.setInt(1, id);
+            stmt.setInt(2, idUsuario);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+            }
+        }
+        
+        VersaoSync.registrarExclusaoMovimentacoes(conn, "id_categoria", id, versao);
+        SaldoConta.removerMovimentacoes(conn, "id_categoria", id, versao);
+        
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM categoria WHERE id = ?")) {
             stmt.setInt(1, id);
+            stmt.executeUpdate();
+        }
+        
+        VersaoSync.registrarExclusao(conn, VersaoSync.CATEGORIA, id, idUsuario, versao);
+        return true;
+    }
+    
+    /**
+     * Lista as categorias criadas ou alteradas e os IDs das excluídas desde uma versão
+     * @param idUsuario ID do usuário
+     * @param desde versão já conhecida pelo cliente (0 = todas)
+     * @return alterações ou null se o usuário não existir ou em caso de erro
+     */
+    public AlteracoesSync<Categoria> listarAlteracoesDesde(int idUsuario, long desde) {
+        String sql = "SELECT * FROM categoria WHERE id_usuario = ? AND versao > ? AND versao <= ? ORDER BY id";
+        
+        try {
+            return VersaoSync.listarAlteracoes(idUsuario, desde, VersaoSync.CATEGORIA, sql,
+                    this::mapResultSetToCategoria);
             
-            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar alterações de categorias: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Percorre as categorias de todos os usuários com o nome do dono (uso admin)
+     * 
+     * Uma única consulta com JOIN em usuario, lida em streaming.
+     * Ordem: usuário, tipo e nome da categoria.
+     * 
+     * @param processador callback chamado para cada categoria
+     * @return true se todas as linhas foram percorridas, false em erro de banco
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    public boolean percorrerTodasComUsuario(ProcessadorCategoria processador) throws IOException {
+        String sql = "SELECT cat.*, u.nome AS nome_usuario FROM categoria cat " +
+                    "JOIN usuario u ON u.id = cat.id_usuario " +
+                    "ORDER BY cat.id_usuario, cat.tipo, cat.nome";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = DatabaseUtil.prepareStreamingStatement(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                processador.processar(mapResultSetToCategoria(rs), rs.getString("nome_usuario"));
+            }
+            return true;
             
         } catch (SQLException e) {
-            System.err.println("Erro ao excluir categoria: " + e.getMessage());
+            System.err.println("Erro ao percorrer todas as categorias: " + e.getMessage());
         }
         
         return false;
@@ -276,4 +475,14 @@ public class CategoriaDAO {
         categoria.setDataCriacao(rs.getTimestamp("data_criacao"));
         return categoria;
     }
+    
+    /**
+     * Cópia da categoria guardada no cache
+     */
+    private static Categoria copiar(Categoria original) {
+        Categoria categoria = new Categoria(original.getId(), original.getNome(),
+                original.getTipo(), original.getIdUsuario());
+        categoria.setDataCriacao(original.getDataCriacao());
+        return categoria;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package dao;
+
+import model.AlteracoesSync;
+import model.Categoria;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Acesso às categorias
+ *
+ * Implementado por CategoriaDAO (banco de dados) e por BancoMemoria (modo de teste).
+ */
+public interface CategoriaRepositorio {
+
+    /**
+     * Recebe cada categoria percorrida por percorrerTodasComUsuario()
+     */
+    @FunctionalInterface
+    interface ProcessadorCategoria {
+        void processar(Categoria categoria, String nomeUsuario) throws IOException;
+    }
+
+    /**
+     * Categoria do usuário com o nome e tipo informados
+     * @return Categoria existente ou null se não existe
+     */
+    Categoria buscarPorNomeETipo(String nome, Categoria.TipoCategoria tipo, int idUsuario);
+
+    /**
+     * Insere uma categoria; se o usuário já tem uma com o mesmo nome e tipo,
+     * preenche o ID da existente e retorna true
+     */
+    boolean inserir(Categoria categoria);
+
+    /**
+     * Insere várias categorias do usuário de uma vez (BULK_UPLOAD), com a
+     * mesma regra de repetidas de inserir()
+     * @return true se o lote inteiro foi gravado (false não grava nenhuma)
+     */
+    boolean inserirLote(int idUsuario, List<Categoria> categorias);
+
+    /**
+     * Busca categoria por ID
+     * @return Categoria encontrada ou null
+     */
+    Categoria buscarPorId(int id);
+
+    /**
+     * Lista as categorias do usuário, por tipo e nome
+     */
+    List<Categoria> listarPorUsuario(int idUsuario);
+
+    /**
+     * Lista as categorias do usuário de um tipo, por nome
+     */
+    List<Categoria> listarPorTipo(int idUsuario, Categoria.TipoCategoria tipo);
+
+    /**
+     * Atualiza nome e tipo da categoria
+     * @return true se atualizada com sucesso
+     */
+    boolean atualizar(Categoria categoria);
+
+    /**
+     * Remove categoria do usuário (falha se estiver em uso)
+     * @return true se removida com sucesso
+     */
+    boolean remover(int id, int idUsuario);
+
+    /**
+     * Verifica se a categoria está sendo usada em movimentações
+     */
+    boolean estaEmUso(int idCategoria);
+
+    /**
+     * Exclui categoria e suas movimentações (admin - sem verificação de usuário)
+     * @return true se excluída com sucesso
+     */
+    boolean excluir(int id);
+
+    /**
+     * Categorias criadas ou alteradas e IDs das excluídas desde uma versão
+     * @return alterações ou null se o usuário não existir ou em caso de erro
+     */
+    AlteracoesSync<Categoria> listarAlteracoesDesde(int idUsuario, long desde);
+
+    /**
+     * Percorre as categorias de todos os usuários com o nome do dono (uso
+     * admin), por usuário, tipo e nome da categoria
+     * @return true se todas foram percorridas, false em erro de acesso aos dados
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    boolean percorrerTodasComUsuario(ProcessadorCategoria processador) throws IOException;
+}
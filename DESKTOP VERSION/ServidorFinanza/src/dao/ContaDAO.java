@@ -1,16 +1,29 @@
 package dao;
 
+import model.AlteracoesSync;
 import model.Conta;
 import util.DatabaseUtil;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Data Access Object para a entidade Conta
+ *
+ * O saldo atual vem da coluna saldo_atual, mantida a cada escrita de
+ * movimentação (SaldoConta). listarPorUsuario() passa pelo cache por usuário
+ * (CacheUsuario), invalidado após cada inserção, atualização e exclusão de
+ * conta do usuário e após cada escrita de movimentação (o saldo muda).
  */
-public class ContaDAO {
+public class ContaDAO implements ContaRepositorio {
+    
+    /** Contas por usuário, compartilhado por todas as instâncias do DAO */
+    private static final CacheUsuario<Conta> CACHE = new CacheUsuario<>("contas", ContaDAO::copiar);
     
     /**
      * Verifica se uma conta já existe para o usuário
@@ -54,29 +67,113 @@ public class ContaDAO {
             return true;
         }
         
-        String sql = "INSERT INTO conta (nome, tipo, saldo_inicial, id_usuario) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO conta (nome, tipo, saldo_inicial, saldo_atual, id_usuario, versao) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, conta.getNome());
-            stmt.setString(2, conta.getTipo().getValor());
-            stmt.setDouble(3, conta.getSaldoInicial());
-            stmt.setInt(4, conta.getIdUsuario());
-            
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            return VersaoSync.executar(conta.getIdUsuario(), (conn, versao) -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, conta.getNome());
+                    stmt.setString(2, conta.getTipo().getValor());
+                    stmt.setDouble(3, conta.getSaldoInicial());
+                    stmt.setDouble(4, conta.getSaldoInicial());
+                    stmt.setInt(5, conta.getIdUsuario());
+                    stmt.setLong(6, versao);
+                    
+                    if (stmt.executeUpdate() > 0) {
+                        try (ResultSet rs = stmt.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                conta.setId(rs.getInt(1));
+                            }
+                        }
+                        conta.setSaldoAtual(conta.getSaldoInicial());
+                        return true;
+                    }
+                    return false;
+                }
+            });
             
-            if (rowsAffected > 0) {
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        conta.setId(rs.getInt(1));
+        } catch (SQLException e) {
+            System.err.println("Erro ao inserir conta: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(conta.getIdUsuario());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Insere várias contas do usuário em uma única transação (BULK_UPLOAD)
+     * 
+     * Contas com nome já existente (no banco ou repetido no próprio lote)
+     * recebem o ID da existente, como em inserir(). As novas são gravadas
+     * com addBatch/executeBatch e todas recebem o mesmo número de versão.
+     * 
+     * @param idUsuario dono das contas
+     * @param contas contas a inserir; o ID de cada uma é preenchido
+     * @return true se o lote inteiro foi gravado (false desfaz tudo)
+     */
+    public boolean inserirLote(int idUsuario, List<Conta> contas) {
+        String sql = "INSERT INTO conta (nome, tipo, saldo_inicial, saldo_atual, id_usuario, versao) VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try {
+            return VersaoSync.executar(idUsuario, (conn, versao) -> {
+                // Nome em minúsculas: mesma comparação da collation usada em buscarPorNomeEUsuario
+                Map<String, Integer> existentes = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT id, nome FROM conta WHERE id_usuario = ?")) {
+                    stmt.setInt(1, idUsuario);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.putIfAbsent(rs.getString("nome").toLowerCase(Locale.ROOT), rs.getInt("id"));
+                        }
                     }
                 }
+                
+                Map<String, Conta> novas = new HashMap<>();
+                List<Conta> inseridas = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Conta conta : contas) {
+                        String chave = conta.getNome().toLowerCase(Locale.ROOT);
+                        if (existentes.containsKey(chave) || novas.containsKey(chave)) {
+                            continue;
+                        }
+                        novas.put(chave, conta);
+                        inseridas.add(conta);
+                        
+                        stmt.setString(1, conta.getNome());
+                        stmt.setString(2, conta.getTipo().getValor());
+                        stmt.setDouble(3, conta.getSaldoInicial());
+                        stmt.setDouble(4, conta.getSaldoInicial());
+                        stmt.setInt(5, idUsuario);
+                        stmt.setLong(6, versao);
+                        stmt.addBatch();
+                    }
+                    
+                    if (!inseridas.isEmpty()) {
+                        stmt.executeBatch();
+                        try (ResultSet rs = stmt.getGeneratedKeys()) {
+                            for (Conta conta : inseridas) {
+                                if (!rs.next()) {
+                                    throw new SQLException("IDs gerados incompletos no lote de contas");
+                                }
+                                conta.setId(rs.getInt(1));
+                            }
+                        }
+                    }
+                }
+                
+                for (Conta conta : contas) {
+                    conta.setIdUsuario(idUsuario);
+                    String chave = conta.getNome().toLowerCase(Locale.ROOT);
+                    Integer existente = existentes.get(chave);
+                    conta.setId(existente != null ? existente : novas.get(chave).getId());
+                }
                 return true;
-            }
+            });
             
         } catch (SQLException e) {
-            System.err.println("Erro ao inserir conta: " + e.getMessage());
+            System.err.println("Erro ao inserir lote de contas: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(idUsuario);
         }
         
         return false;
@@ -109,10 +206,24 @@ public class ContaDAO {
     
     /**
      * Lista todas as contas de um usuário
+     * 
+     * Lida do cache quando possível; a lista devolvida é uma cópia.
+     * 
      * @param idUsuario ID do usuário
      * @return Lista de contas
      */
     public List<Conta> listarPorUsuario(int idUsuario) {
+        try {
+            return CACHE.obter(idUsuario, () -> consultarPorUsuario(idUsuario));
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar contas do usuário: " + e.getMessage());
+        }
+        
+        return new ArrayList<>();
+    }
+    
+    private List<Conta> consultarPorUsuario(int idUsuario) throws SQLException {
         List<Conta> contas = new ArrayList<>();
         String sql = "SELECT * FROM conta WHERE id_usuario = ? ORDER BY nome";
         
@@ -125,35 +236,58 @@ public class ContaDAO {
                     contas.add(mapResultSetToConta(rs));
                 }
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Erro ao listar contas do usuário: " + e.getMessage());
         }
         
         return contas;
     }
     
+    /**
+     * Cache de listarPorUsuario() (métricas)
+     */
+    public static CacheUsuario<Conta> getCache() {
+        return CACHE;
+    }
+    
+    /**
+     * Descarta as contas em cache do usuário (ex: usuário excluído)
+     */
+    static void invalidarCache(int idUsuario) {
+        CACHE.invalidar(idUsuario);
+    }
+    
     /**
      * Atualiza dados da conta
+     * 
+     * Uma mudança no saldo inicial é aplicada também ao saldo atual.
+     * 
      * @param conta Conta com dados atualizados
      * @return true se atualizada com sucesso
      */
     public boolean atualizar(Conta conta) {
-        String sql = "UPDATE conta SET nome = ?, tipo = ?, saldo_inicial = ? WHERE id = ? AND id_usuario = ?";
+        // saldo_atual antes de saldo_inicial: o MySQL avalia o SET da esquerda para a direita
+        // (o H2 usa os valores antigos em todo o SET; nos dois casos saldo_inicial ainda é o anterior)
+        String sql = "UPDATE conta SET nome = ?, tipo = ?, saldo_atual = saldo_atual + ? - saldo_inicial, " +
+                     "saldo_inicial = ?, versao = ? WHERE id = ? AND id_usuario = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, conta.getNome());
-            stmt.setString(2, conta.getTipo().getValor());
-            stmt.setDouble(3, conta.getSaldoInicial());
-            stmt.setInt(4, conta.getId());
-            stmt.setInt(5, conta.getIdUsuario());
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return VersaoSync.executar(conta.getIdUsuario(), (conn, versao) -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, conta.getNome());
+                    stmt.setString(2, conta.getTipo().getValor());
+                    stmt.setDouble(3, conta.getSaldoInicial());
+                    stmt.setDouble(4, conta.getSaldoInicial());
+                    stmt.setLong(5, versao);
+                    stmt.setInt(6, conta.getId());
+                    stmt.setInt(7, conta.getIdUsuario());
+                    
+                    return stmt.executeUpdate() > 0;
+                }
+            });
             
         } catch (SQLException e) {
             System.err.println("Erro ao atualizar conta: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(conta.getIdUsuario());
         }
         
         return false;
@@ -166,18 +300,13 @@ public class ContaDAO {
      * @return true se removida com sucesso
      */
     public boolean remover(int id, int idUsuario) {
-        String sql = "DELETE FROM conta WHERE id = ? AND id_usuario = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            stmt.setInt(2, idUsuario);
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return VersaoSync.executar(idUsuario, (conn, versao) -> excluirVersionado(conn, id, idUsuario, versao));
             
         } catch (SQLException e) {
             System.err.println("Erro ao remover conta: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(idUsuario);
         }
         
         return false;
@@ -189,35 +318,85 @@ public class ContaDAO {
      * @return true se excluída com sucesso
      */
     public boolean excluir(int id) {
-        String sql = "DELETE FROM conta WHERE id = ?";
+        // O dono é necessário para registrar a exclusão na versão dele
+        Conta existente = buscarPorId(id);
+        if (existente == null) {
+            return false;
+        }
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return VersaoSync.executar(existente.getIdUsuario(),
+                    (conn, versao) -> excluirVersionado(conn, id, existente.getIdUsuario(), versao));
             
         } catch (SQLException e) {
             System.err.println("Erro ao excluir conta: " + e.getMessage());
+        } finally {
+            CACHE.invalidar(existente.getIdUsuario());
         }
         
         return false;
     }
     
     /**
-     * Calcula saldo atual da conta (saldo inicial + movimentações)
+     * Exclui a conta registrando a exclusão dela e das movimentações
+     * removidas em cascata (ON DELETE CASCADE)
+     */
+    private boolean excluirVersionado(Connection conn, int id, int idUsuario, long versao) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id FROM conta WHERE id = ? AND id_usuario = ? FOR UPDATE")) {
+            stmt.setInt(1, id);
+            stmt.setInt(2, idUsuario);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+            }
+        }
+        
+        VersaoSync.registrarExclusaoMovimentacoes(conn, "id_conta", id, versao);
+        
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM conta WHERE id = ?")) {
+            stmt.setInt(1, id);
+            stmt.executeUpdate();
+        }
+        
+        VersaoSync.registrarExclusao(conn, VersaoSync.CONTA, id, idUsuario, versao);
+        return true;
+    }
+    
+    /**
+     * Lista as contas criadas ou alteradas e os IDs das excluídas desde uma versão
+     * 
+     * O saldo atual vem da coluna saldo_atual, e a conta recebe nova versão
+     * também quando suas movimentações mudam.
+     * 
+     * @param idUsuario ID do usuário
+     * @param desde versão já conhecida pelo cliente (0 = todas)
+     * @return alterações ou null se o usuário não existir ou em caso de erro
+     */
+    public AlteracoesSync<Conta> listarAlteracoesDesde(int idUsuario, long desde) {
+        String sql = "SELECT * FROM conta WHERE id_usuario = ? AND versao > ? AND versao <= ? ORDER BY id";
+        
+        try {
+            return VersaoSync.listarAlteracoes(idUsuario, desde, VersaoSync.CONTA, sql, this::mapResultSetToConta);
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar alterações de contas: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Saldo atual da conta (saldo inicial + movimentações)
+     * 
+     * Lido da coluna saldo_atual, mantida a cada escrita de movimentação.
+     * 
      * @param idConta ID da conta
      * @return saldo atual
      */
     public double calcularSaldoAtual(int idConta) {
-        String sql = "SELECT c.saldo_inicial, " +
-                    "COALESCE(SUM(CASE WHEN m.tipo = 'receita' THEN m.valor ELSE 0 END), 0) as receitas, " +
-                    "COALESCE(SUM(CASE WHEN m.tipo = 'despesa' THEN m.valor ELSE 0 END), 0) as despesas " +
-                    "FROM conta c " +
-                    "LEFT JOIN movimentacao m ON c.id = m.id_conta " +
-                    "WHERE c.id = ? " +
-                    "GROUP BY c.id, c.saldo_inicial";
+        String sql = "SELECT saldo_atual FROM conta WHERE id = ?";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -225,10 +404,7 @@ public class ContaDAO {
             stmt.setInt(1, idConta);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    double saldoInicial = rs.getDouble("saldo_inicial");
-                    double receitas = rs.getDouble("receitas");
-                    double despesas = rs.getDouble("despesas");
-                    return saldoInicial + receitas - despesas;
+                    return rs.getDouble("saldo_atual");
                 }
             }
             
@@ -239,6 +415,55 @@ public class ContaDAO {
         return 0.0;
     }
     
+    /**
+     * Confere o saldo atual de todas as contas com a soma das movimentações
+     * e corrige as divergências (tarefa periódica do servidor)
+     * 
+     * @return contas corrigidas, ou -1 em erro de banco
+     */
+    public static int reconciliarSaldos() {
+        try {
+            return SaldoConta.reconciliar();
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao reconciliar saldos das contas: " + e.getMessage());
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Percorre as contas de todos os usuários com o nome do dono (uso admin)
+     * 
+     * Uma única consulta com JOIN em usuario, lida em streaming: cada linha é
+     * entregue ao processador assim que chega, sem montar a lista completa.
+     * Ordem: usuário e nome da conta.
+     * 
+     * @param processador callback chamado para cada conta
+     * @return true se todas as linhas foram percorridas, false em erro de banco
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    public boolean percorrerTodasComUsuario(ProcessadorConta processador) throws IOException {
+        String sql = "SELECT c.*, u.nome AS nome_usuario FROM conta c " +
+                    "JOIN usuario u ON u.id = c.id_usuario " +
+                    "ORDER BY c.id_usuario, c.nome";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = DatabaseUtil.prepareStreamingStatement(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                processador.processar(mapResultSetToConta(rs), rs.getString("nome_usuario"));
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao percorrer todas as contas: " + e.getMessage());
+        }
+        
+        return false;
+    }
+    
     /**
      * Mapeia ResultSet para objeto Conta
      */
@@ -250,6 +475,18 @@ public class ContaDAO {
         conta.setSaldoInicial(rs.getDouble("saldo_inicial"));
         conta.setIdUsuario(rs.getInt("id_usuario"));
         conta.setDataCriacao(rs.getTimestamp("data_criacao"));
+        conta.setSaldoAtual(rs.getDouble("saldo_atual"));
+        return conta;
+    }
+    
+    /**
+     * Cópia da conta guardada no cache
+     */
+    private static Conta copiar(Conta original) {
+        Conta conta = new Conta(original.getId(), original.getNome(), original.getTipo(),
+                original.getSaldoInicial(), original.getIdUsuario());
+        conta.setDataCriacao(original.getDataCriacao());
+        conta.setSaldoAtual(original.getSaldoAtual());
         return conta;
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package dao;
+
+import model.AlteracoesSync;
+import model.Conta;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Acesso às contas
+ *
+ * Implementado por ContaDAO (banco de dados) e por BancoMemoria (modo de teste).
+ */
+public interface ContaRepositorio {
+
+    /**
+     * Recebe cada conta percorrida por percorrerTodasComUsuario()
+     */
+    @FunctionalInterface
+    interface ProcessadorConta {
+        void processar(Conta conta, String nomeUsuario) throws IOException;
+    }
+
+    /**
+     * Conta do usuário com o nome informado (sem diferenciar maiúsculas)
+     * @return Conta existente ou null se não existe
+     */
+    Conta buscarPorNomeEUsuario(String nome, int idUsuario);
+
+    /**
+     * Insere uma conta; se o usuário já tem uma com o mesmo nome, preenche o
+     * ID da existente e retorna true
+     */
+    boolean inserir(Conta conta);
+
+    /**
+     * Insere várias contas do usuário de uma vez (BULK_UPLOAD), com a mesma
+     * regra de nome repetido de inserir()
+     * @return true se o lote inteiro foi gravado (false não grava nenhuma)
+     */
+    boolean inserirLote(int idUsuario, List<Conta> contas);
+
+    /**
+     * Busca conta por ID
+     * @return Conta encontrada ou null
+     */
+    Conta buscarPorId(int id);
+
+    /**
+     * Lista as contas do usuário, por nome, com o saldo atual
+     */
+    List<Conta> listarPorUsuario(int idUsuario);
+
+    /**
+     * Atualiza nome, tipo e saldo inicial (a diferença também vai para o saldo atual)
+     * @return true se atualizada com sucesso
+     */
+    boolean atualizar(Conta conta);
+
+    /**
+     * Remove conta do usuário e suas movimentações
+     * @return true se removida com sucesso
+     */
+    boolean remover(int id, int idUsuario);
+
+    /**
+     * Exclui conta e suas movimentações (admin - sem verificação de usuário)
+     * @return true se excluída com sucesso
+     */
+    boolean excluir(int id);
+
+    /**
+     * Contas criadas ou alteradas e IDs das excluídas desde uma versão
+     * @return alterações ou null se o usuário não existir ou em caso de erro
+     */
+    AlteracoesSync<Conta> listarAlteracoesDesde(int idUsuario, long desde);
+
+    /**
+     * Saldo atual da conta (saldo inicial + movimentações)
+     */
+    double calcularSaldoAtual(int idConta);
+
+    /**
+     * Percorre as contas de todos os usuários com o nome do dono (uso admin),
+     * por usuário e nome da conta
+     * @return true se todas foram percorridas, false em erro de acesso aos dados
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    boolean percorrerTodasComUsuario(ProcessadorConta processador) throws IOException;
+}
@@ -0,0 +1,66 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Base64;
+
+/**
+ * Posição na listagem paginada de movimentações (ordem data DESC, id DESC)
+ *
+ * Guarda a data e o id da última movimentação de uma página; a próxima página
+ * começa logo depois dela. Para o cliente o cursor é um token opaco
+ * (Base64 URL-safe), que deve ser devolvido sem alterações.
+ */
+public final class CursorMovimentacao {
+    private final Date data;
+    private final int id;
+
+    public CursorMovimentacao(Date data, int id) {
+        this.data = data;
+        this.id = id;
+    }
+
+    public Date getData() {
+        return data;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Codifica o cursor como token opaco para o protocolo
+     * @return token sem caracteres reservados do protocolo (| ; ,)
+     */
+    public String toToken() {
+        String bruto = data.toString() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica um token gerado por toToken()
+     * @param token token recebido do cliente
+     * @return cursor correspondente
+     * @throws IllegalArgumentException se o token for inválido
+     */
+    public static CursorMovimentacao fromToken(String token) {
+        try {
+            String bruto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = bruto.lastIndexOf(':');
+            if (separador < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            Date data = Date.valueOf(bruto.substring(0, separador));
+            int id = Integer.parseInt(bruto.substring(separador + 1));
+            return new CursorMovimentacao(data, id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CursorMovimentacao{data=" + data + ", id=" + id + '}';
+    }
+}
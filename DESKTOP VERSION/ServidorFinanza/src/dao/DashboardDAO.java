@@ -0,0 +1,71 @@
+package dao;
+
+import model.ResumoDashboard;
+import util.DatabaseUtil;
+
+import java.sql.*;
+
+/**
+ * Data Access Object para os totais do dashboard
+ *
+ * Calcula saldo total, receitas e despesas do período e número de transações
+ * em uma única consulta agregada, em vez de uma consulta por conta mais três
+ * consultas de totais (N+4 idas ao banco).
+ */
+public class DashboardDAO implements DashboardRepositorio {
+
+    /**
+     * Saldo inicial das contas (subconsulta) somado às movimentações do usuário
+     * lançadas em suas próprias contas; receitas/despesas filtradas pelo período
+     * com agregação condicional sobre o mesmo conjunto de linhas.
+     */
+    private static final String SQL_RESUMO =
+            "SELECT " +
+            "(SELECT COALESCE(SUM(saldo_inicial), 0) FROM conta WHERE id_usuario = ?) AS saldo_inicial, " +
+            "COALESCE(SUM(CASE WHEN c.id IS NULL THEN 0 " +
+            "WHEN m.tipo = 'receita' THEN m.valor " +
+            "WHEN m.tipo = 'despesa' THEN -m.valor ELSE 0 END), 0) AS movimentado, " +
+            "COALESCE(SUM(CASE WHEN m.tipo = 'receita' AND m.data BETWEEN ? AND ? THEN m.valor ELSE 0 END), 0) AS receitas, " +
+            "COALESCE(SUM(CASE WHEN m.tipo = 'despesa' AND m.data BETWEEN ? AND ? THEN m.valor ELSE 0 END), 0) AS despesas, " +
+            "COUNT(m.id) AS total " +
+            "FROM movimentacao m " +
+            "LEFT JOIN conta c ON c.id = m.id_conta AND c.id_usuario = ? " +
+            "WHERE m.id_usuario = ?";
+
+    /**
+     * Calcula o resumo do dashboard de um usuário
+     * @param idUsuario ID do usuário
+     * @param dataInicio data inicial do período de receitas/despesas
+     * @param dataFim data final do período de receitas/despesas
+     * @return resumo calculado ou null em caso de erro
+     */
+    public ResumoDashboard calcularResumo(int idUsuario, Date dataInicio, Date dataFim) {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_RESUMO)) {
+
+            stmt.setInt(1, idUsuario);
+            stmt.setDate(2, dataInicio);
+            stmt.setDate(3, dataFim);
+            stmt.setDate(4, dataInicio);
+            stmt.setDate(5, dataFim);
+            stmt.setInt(6, idUsuario);
+            stmt.setInt(7, idUsuario);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    ResumoDashboard resumo = new ResumoDashboard();
+                    resumo.setSaldoTotal(rs.getDouble("saldo_inicial") + rs.getDouble("movimentado"));
+                    resumo.setReceitasMes(rs.getDouble("receitas"));
+                    resumo.setDespesasMes(rs.getDouble("despesas"));
+                    resumo.setNumTransacoes(rs.getInt("total"));
+                    return resumo;
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erro ao calcular resumo do dashboard: " + e.getMessage());
+        }
+
+        return null;
+    }
+}
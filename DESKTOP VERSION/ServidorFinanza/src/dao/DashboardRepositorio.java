@@ -0,0 +1,21 @@
+package dao;
+
+import model.ResumoDashboard;
+
+import java.sql.Date;
+
+/**
+ * Totais do dashboard
+ *
+ * Implementado por DashboardDAO (banco de dados) e por BancoMemoria (modo de teste).
+ */
+public interface DashboardRepositorio {
+
+    /**
+     * Calcula o resumo do dashboard de um usuário
+     * @param dataInicio data inicial do período de receitas/despesas
+     * @param dataFim data final do período de receitas/despesas
+     * @return resumo calculado ou null em caso de erro
+     */
+    ResumoDashboard calcularResumo(int idUsuario, Date dataInicio, Date dataFim);
+}
@@ -0,0 +1,164 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mapa de chave int para objeto, sem boxing da chave
+ *
+ * Endereçamento aberto com sondagem linear: as chaves ficam em um int[] e os
+ * valores em um Object[] paralelo, então uma busca por ID não cria Integer
+ * nem percorre nós encadeados como um HashMap<Integer, V>. A remoção desloca
+ * as entradas seguintes da sequência (sem marcas de removido), e a tabela
+ * dobra quando passa de 2/3 de ocupação.
+ *
+ * Não é thread-safe: quem usa protege com a própria trava (BancoMemoria).
+ * A chave 0 marca posição livre, o que serve aos IDs (sempre positivos).
+ */
+final class MapaInt<V> {
+
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private int[] chaves;
+    private Object[] valores;
+    private int tamanho;
+
+    MapaInt() {
+        chaves = new int[CAPACIDADE_INICIAL];
+        valores = new Object[CAPACIDADE_INICIAL];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    @SuppressWarnings("unchecked")
+    V obter(int chave) {
+        int mascara = chaves.length - 1;
+        for (int i = posicao(chave, mascara); chaves[i] != 0; i = (i + 1) & mascara) {
+            if (chaves[i] == chave) {
+                return (V) valores[i];
+            }
+        }
+        return null;
+    }
+
+    boolean contem(int chave) {
+        return obter(chave) != null;
+    }
+
+    /**
+     * Associa o valor à chave
+     * @return valor anterior ou null
+     */
+    @SuppressWarnings("unchecked")
+    V colocar(int chave, V valor) {
+        if (chave == 0) {
+            throw new IllegalArgumentException("Chave 0 é reservada");
+        }
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor nulo");
+        }
+        int mascara = chaves.length - 1;
+        int i = posicao(chave, mascara);
+        for (; chaves[i] != 0; i = (i + 1) & mascara) {
+            if (chaves[i] == chave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho * 3 > chaves.length * 2) {
+            redimensionar(chaves.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Remove a chave
+     * @return valor removido ou null
+     */
+    @SuppressWarnings("unchecked")
+    V remover(int chave) {
+        int mascara = chaves.length - 1;
+        int i = posicao(chave, mascara);
+        while (chaves[i] != chave) {
+            if (chaves[i] == 0) {
+                return null;
+            }
+            i = (i + 1) & mascara;
+        }
+        V removido = (V) valores[i];
+
+        // Traz para a posição livre as entradas seguintes que não estão na posição ideal
+        int livre = i;
+        for (int j = (i + 1) & mascara; chaves[j] != 0; j = (j + 1) & mascara) {
+            int ideal = posicao(chaves[j], mascara);
+            // ideal fora do intervalo circular (livre, j]: a entrada pode ocupar a posição livre
+            if (livre <= j ? (ideal <= livre || ideal > j) : (ideal <= livre && ideal > j)) {
+                chaves[livre] = chaves[j];
+                valores[livre] = valores[j];
+                livre = j;
+            }
+        }
+        chaves[livre] = 0;
+        valores[livre] = null;
+        tamanho--;
+        return removido;
+    }
+
+    /**
+     * Valores em uma lista nova (ordem da tabela, não das chaves)
+     */
+    @SuppressWarnings("unchecked")
+    List<V> valores() {
+        List<V> lista = new ArrayList<>(tamanho);
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != 0) {
+                lista.add((V) valores[i]);
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Chaves em ordem crescente
+     */
+    int[] chavesOrdenadas() {
+        int[] ordenadas = new int[tamanho];
+        int n = 0;
+        for (int chave : chaves) {
+            if (chave != 0) {
+                ordenadas[n++] = chave;
+            }
+        }
+        Arrays.sort(ordenadas);
+        return ordenadas;
+    }
+
+    private void redimensionar(int capacidade) {
+        int[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        chaves = new int[capacidade];
+        valores = new Object[capacidade];
+        int mascara = capacidade - 1;
+        for (int j = 0; j < chavesAntigas.length; j++) {
+            if (chavesAntigas[j] != 0) {
+                int i = posicao(chavesAntigas[j], mascara);
+                while (chaves[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chavesAntigas[j];
+                valores[i] = valoresAntigos[j];
+            }
+        }
+    }
+
+    /** IDs sequenciais espalhados pela tabela (hash multiplicativo) */
+    private static int posicao(int chave, int mascara) {
+        return (chave * 0x9E3779B9 >>> 16 ^ chave * 0x9E3779B9) & mascara;
+    }
+}
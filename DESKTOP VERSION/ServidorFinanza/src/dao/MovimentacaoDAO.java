@@ -1,16 +1,26 @@
 package dao;
 
+import model.AlteracoesSync;
 import model.Movimentacao;
 import util.DatabaseUtil;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Data Access Object para a entidade Movimentacao
+ *
+ * Toda escrita aplica a diferença no saldo atual da conta na mesma transação
+ * (SaldoConta) e descarta as contas do usuário em cache.
  */
-public class MovimentacaoDAO {
+public class MovimentacaoDAO implements MovimentacaoRepositorio {
     
     /**
      * Verifica se uma movimentação já existe
@@ -27,7 +37,9 @@ public class MovimentacaoDAO {
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDouble(1, valor);
+            // Valor exato em centavos: comparado a DECIMAL sem conversão para double,
+            // o índice idx_movimentacao_duplicata (id_conta, data, valor) é usado por inteiro
+            stmt.setBigDecimal(1, BigDecimal.valueOf(Math.round(valor * 100), 2));
             stmt.setDate(2, data);
             stmt.setString(3, descricao);
             stmt.setInt(4, idConta);
@@ -66,37 +78,167 @@ public class MovimentacaoDAO {
             return true;
         }
         
-        String sql = "INSERT INTO movimentacao (valor, data, descricao, tipo, id_conta, id_categoria, id_usuario) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO movimentacao (valor, data, descricao, tipo, id_conta, id_categoria, id_usuario, versao) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setDouble(1, movimentacao.getValor());
-            stmt.setDate(2, movimentacao.getData());
-            stmt.setString(3, movimentacao.getDescricao());
-            stmt.setString(4, movimentacao.getTipo().getValor());
-            stmt.setInt(5, movimentacao.getIdConta());
-            stmt.setInt(6, movimentacao.getIdCategoria());
-            stmt.setInt(7, movimentacao.getIdUsuario());
-            
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        movimentacao.setId(rs.getInt(1));
+        try {
+            return VersaoSync.executar(movimentacao.getIdUsuario(), (conn, versao) -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setDouble(1, movimentacao.getValor());
+                    stmt.setDate(2, movimentacao.getData());
+                    stmt.setString(3, movimentacao.getDescricao());
+                    stmt.setString(4, movimentacao.getTipo().getValor());
+                    stmt.setInt(5, movimentacao.getIdConta());
+                    stmt.setInt(6, movimentacao.getIdCategoria());
+                    stmt.setInt(7, movimentacao.getIdUsuario());
+                    stmt.setLong(8, versao);
+                    
+                    if (stmt.executeUpdate() > 0) {
+                        try (ResultSet rs = stmt.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                movimentacao.setId(rs.getInt(1));
+                            }
+                        }
+                        SaldoConta.ajustar(conn, movimentacao.getIdConta(), SaldoConta.efeito(movimentacao));
+                        VersaoSync.marcarContasAlteradas(conn, versao, movimentacao.getIdConta());
+                        return true;
                     }
+                    return false;
                 }
-                return true;
-            }
+            });
             
         } catch (SQLException e) {
             System.err.println("Erro ao inserir movimentação: " + e.getMessage());
+        } finally {
+            ContaDAO.invalidarCache(movimentacao.getIdUsuario());
         }
         
         return false;
     }
     
+    /**
+     * Insere várias movimentações do usuário em uma única transação (BULK_UPLOAD)
+     * 
+     * Aplica a mesma regra de duplicidade de inserir() (valor, data, descrição
+     * e conta), comparando com as movimentações do período do lote lidas em
+     * uma única consulta e com os itens anteriores do próprio lote. As novas
+     * são gravadas com addBatch/executeBatch e recebem o mesmo número de versão.
+     * 
+     * @param idUsuario dono das movimentações
+     * @param movimentacoes movimentações a inserir; o ID de cada uma é preenchido
+     * @return true se o lote inteiro foi gravado (false desfaz tudo)
+     */
+    public boolean inserirLote(int idUsuario, List<Movimentacao> movimentacoes) {
+        if (movimentacoes.isEmpty()) {
+            return true;
+        }
+        
+        String sql = "INSERT INTO movimentacao (valor, data, descricao, tipo, id_conta, id_categoria, id_usuario, versao) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        Date dataInicio = movimentacoes.get(0).getData();
+        Date dataFim = dataInicio;
+        for (Movimentacao mov : movimentacoes) {
+            if (mov.getData().before(dataInicio)) {
+                dataInicio = mov.getData();
+            }
+            if (mov.getData().after(dataFim)) {
+                dataFim = mov.getData();
+            }
+        }
+        Date inicio = dataInicio;
+        Date fim = dataFim;
+        
+        try {
+            return VersaoSync.executar(idUsuario, (conn, versao) -> {
+                Map<String, Integer> existentes = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id, valor, data, descricao, id_conta FROM movimentacao " +
+                        "WHERE id_usuario = ? AND data BETWEEN ? AND ?")) {
+                    stmt.setInt(1, idUsuario);
+                    stmt.setDate(2, inicio);
+                    stmt.setDate(3, fim);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String descricao = rs.getString("descricao");
+                            if (descricao != null) {
+                                existentes.putIfAbsent(chaveLote(rs.getDouble("valor"), rs.getDate("data"),
+                                        descricao, rs.getInt("id_conta")), rs.getInt("id"));
+                            }
+                        }
+                    }
+                }
+                
+                Map<String, Movimentacao> novas = new HashMap<>();
+                List<Movimentacao> inseridas = new ArrayList<>();
+                Map<Integer, Long> saldos = new LinkedHashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Movimentacao mov : movimentacoes) {
+                        String chave = mov.getDescricao() == null ? null
+                                : chaveLote(mov.getValor(), mov.getData(), mov.getDescricao(), mov.getIdConta());
+                        if (chave != null) {
+                            if (existentes.containsKey(chave) || novas.containsKey(chave)) {
+                                continue;
+                            }
+                            novas.put(chave, mov);
+                        }
+                        inseridas.add(mov);
+                        saldos.merge(mov.getIdConta(), SaldoConta.efeito(mov), Long::sum);
+                        
+                        stmt.setDouble(1, mov.getValor());
+                        stmt.setDate(2, mov.getData());
+                        stmt.setString(3, mov.getDescricao());
+                        stmt.setString(4, mov.getTipo().getValor());
+                        stmt.setInt(5, mov.getIdConta());
+                        stmt.setInt(6, mov.getIdCategoria());
+                        stmt.setInt(7, idUsuario);
+                        stmt.setLong(8, versao);
+                        stmt.addBatch();
+                    }
+                    
+                    if (!inseridas.isEmpty()) {
+                        stmt.executeBatch();
+                        try (ResultSet rs = stmt.getGeneratedKeys()) {
+                            for (Movimentacao mov : inseridas) {
+                                if (!rs.next()) {
+                                    throw new SQLException("IDs gerados incompletos no lote de movimentações");
+                                }
+                                mov.setId(rs.getInt(1));
+                            }
+                        }
+                    }
+                }
+                
+                for (Movimentacao mov : movimentacoes) {
+                    mov.setIdUsuario(idUsuario);
+                    if (mov.getDescricao() != null && mov.getId() == 0) {
+                        String chave = chaveLote(mov.getValor(), mov.getData(), mov.getDescricao(), mov.getIdConta());
+                        Integer existente = existentes.get(chave);
+                        mov.setId(existente != null ? existente : novas.get(chave).getId());
+                    }
+                }
+                
+                SaldoConta.ajustar(conn, saldos);
+                VersaoSync.marcarContasAlteradas(conn, versao,
+                        saldos.keySet().stream().mapToInt(Integer::intValue).toArray());
+                return true;
+            });
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao inserir lote de movimentações: " + e.getMessage());
+        } finally {
+            ContaDAO.invalidarCache(idUsuario);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Chave de duplicidade de buscarDuplicata(): valor em centavos (DECIMAL(10,2)),
+     * data, descrição sem diferenciar maiúsculas (collation do banco) e conta
+     */
+    private static String chaveLote(double valor, Date data, String descricao, int idConta) {
+        return Math.round(valor * 100) + "|" + data + "|" + idConta + "|" + descricao.toLowerCase(Locale.ROOT);
+    }
+    
     /**
      * Busca movimentação por ID
      * @param id ID da movimentação
@@ -261,6 +403,74 @@ public class MovimentacaoDAO {
         return movimentacoes;
     }
     
+    /**
+     * Lista uma página de movimentações do usuário por keyset (data DESC, id DESC)
+     * 
+     * Em vez de OFFSET, a página seguinte começa estritamente depois do cursor
+     * (data, id) da última linha recebida, o que permite ao banco buscar direto
+     * no índice composto (id_usuario, data, id) ou (id_conta, data, id): o custo
+     * de cada página não depende de quantas vieram antes.
+     * 
+     * @param idUsuario ID do usuário
+     * @param idConta filtra por conta (null para todas)
+     * @param dataInicio início do período (null para sem limite)
+     * @param dataFim fim do período (null para sem limite)
+     * @param apos cursor da última linha da página anterior (null para a primeira)
+     * @param limite número máximo de linhas
+     * @return lista com até limite movimentações
+     */
+    public List<Movimentacao> listarPagina(int idUsuario, Integer idConta, Date dataInicio, Date dataFim,
+                                           CursorMovimentacao apos, int limite) {
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM movimentacao WHERE id_usuario = ?");
+        if (idConta != null) {
+            sql.append(" AND id_conta = ?");
+        }
+        if (dataInicio != null) {
+            sql.append(" AND data >= ?");
+        }
+        if (dataFim != null) {
+            sql.append(" AND data <= ?");
+        }
+        if (apos != null) {
+            sql.append(" AND (data < ? OR (data = ? AND id < ?))");
+        }
+        sql.append(" ORDER BY data DESC, id DESC LIMIT ?");
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            int i = 1;
+            stmt.setInt(i++, idUsuario);
+            if (idConta != null) {
+                stmt.setInt(i++, idConta);
+            }
+            if (dataInicio != null) {
+                stmt.setDate(i++, dataInicio);
+            }
+            if (dataFim != null) {
+                stmt.setDate(i++, dataFim);
+            }
+            if (apos != null) {
+                stmt.setDate(i++, apos.getData());
+                stmt.setDate(i++, apos.getData());
+                stmt.setInt(i++, apos.getId());
+            }
+            stmt.setInt(i, limite);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    movimentacoes.add(mapResultSetToMovimentacao(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar página de movimentações: " + e.getMessage());
+        }
+        
+        return movimentacoes;
+    }
+    
     /**
      * Atualiza dados da movimentação
      * @param movimentacao Movimentacao com dados atualizados
@@ -275,27 +485,44 @@ public class MovimentacaoDAO {
             return false;
         }
         
-        String sql = "UPDATE movimentacao SET valor = ?, data = ?, descricao = ?, tipo = ?, id_conta = ?, id_categoria = ? WHERE id = ? AND id_usuario = ?";
+        String sql = "UPDATE movimentacao SET valor = ?, data = ?, descricao = ?, tipo = ?, id_conta = ?, id_categoria = ?, versao = ? WHERE id = ? AND id_usuario = ?";
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setDouble(1, movimentacao.getValor());
-            stmt.setDate(2, movimentacao.getData());
-            stmt.setString(3, movimentacao.getDescricao());
-            stmt.setString(4, movimentacao.getTipo().getValor());
-            stmt.setInt(5, movimentacao.getIdConta());
-            stmt.setInt(6, movimentacao.getIdCategoria());
-            stmt.setInt(7, movimentacao.getId());
-            stmt.setInt(8, movimentacao.getIdUsuario());
-            
-            int rowsUpdated = stmt.executeUpdate();
-            System.out.println("Movimentação atualizada: ID " + movimentacao.getId() + 
-                             ", rows affected: " + rowsUpdated);
-            return rowsUpdated > 0;
+        try {
+            return VersaoSync.executar(movimentacao.getIdUsuario(), (conn, versao) -> {
+                // Valores confirmados, lidos com a trava do usuário: base da diferença de saldo
+                Movimentacao anterior = buscarParaAlteracao(conn, movimentacao.getId(), movimentacao.getIdUsuario());
+                if (anterior == null) {
+                    return false;
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setDouble(1, movimentacao.getValor());
+                    stmt.setDate(2, movimentacao.getData());
+                    stmt.setString(3, movimentacao.getDescricao());
+                    stmt.setString(4, movimentacao.getTipo().getValor());
+                    stmt.setInt(5, movimentacao.getIdConta());
+                    stmt.setInt(6, movimentacao.getIdCategoria());
+                    stmt.setLong(7, versao);
+                    stmt.setInt(8, movimentacao.getId());
+                    stmt.setInt(9, movimentacao.getIdUsuario());
+                    
+                    int rowsUpdated = stmt.executeUpdate();
+                    System.out.println("Movimentação atualizada: ID " + movimentacao.getId() + 
+                                     ", rows affected: " + rowsUpdated);
+                    if (rowsUpdated > 0) {
+                        // Saldo muda na conta antiga e na nova (se a movimentação trocou de conta)
+                        SaldoConta.ajustar(conn, anterior.getIdConta(), -SaldoConta.efeito(anterior));
+                        SaldoConta.ajustar(conn, movimentacao.getIdConta(), SaldoConta.efeito(movimentacao));
+                        VersaoSync.marcarContasAlteradas(conn, versao, anterior.getIdConta(), movimentacao.getIdConta());
+                        return true;
+                    }
+                    return false;
+                }
+            });
             
         } catch (SQLException e) {
             System.err.println("Erro SQL ao atualizar movimentação ID " + movimentacao.getId() + ": " + e.getMessage());
+        } finally {
+            ContaDAO.invalidarCache(movimentacao.getIdUsuario());
         }
         
         return false;
@@ -316,21 +543,18 @@ public class MovimentacaoDAO {
             return false;
         }
         
-        String sql = "DELETE FROM movimentacao WHERE id = ? AND id_usuario = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            stmt.setInt(2, idUsuario);
-            
-            int rowsDeleted = stmt.executeUpdate();
-            System.out.println("Movimentação removida: ID " + id + 
-                             ", rows affected: " + rowsDeleted);
-            return rowsDeleted > 0;
+        try {
+            return VersaoSync.executar(idUsuario, (conn, versao) -> {
+                int rowsDeleted = excluirVersionado(conn, existente, versao);
+                System.out.println("Movimentação removida: ID " + id + 
+                                 ", rows affected: " + rowsDeleted);
+                return rowsDeleted > 0;
+            });
             
         } catch (SQLException e) {
             System.err.println("Erro SQL ao remover movimentação ID " + id + ": " + e.getMessage());
+        } finally {
+            ContaDAO.invalidarCache(idUsuario);
         }
         
         return false;
@@ -342,25 +566,90 @@ public class MovimentacaoDAO {
      * @return true se excluída com sucesso
      */
     public boolean excluir(int id) {
-        String sql = "DELETE FROM movimentacao WHERE id = ?";
+        // O dono é necessário para registrar a exclusão na versão dele
+        Movimentacao existente = buscarPorId(id);
+        if (existente == null) {
+            return false;
+        }
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, id);
-            
-            int rowsDeleted = stmt.executeUpdate();
-            System.out.println("Movimentação excluída (admin): ID " + id + 
-                             ", rows affected: " + rowsDeleted);
-            return rowsDeleted > 0;
+        try {
+            return VersaoSync.executar(existente.getIdUsuario(), (conn, versao) -> {
+                int rowsDeleted = excluirVersionado(conn, existente, versao);
+                System.out.println("Movimentação excluída (admin): ID " + id + 
+                                 ", rows affected: " + rowsDeleted);
+                return rowsDeleted > 0;
+            });
             
         } catch (SQLException e) {
             System.err.println("Erro SQL ao excluir movimentação ID " + id + ": " + e.getMessage());
+        } finally {
+            ContaDAO.invalidarCache(existente.getIdUsuario());
         }
         
         return false;
     }
     
+    /**
+     * Exclui a movimentação registrando a exclusão e a alteração de saldo da conta
+     * @return número de linhas excluídas
+     */
+    private int excluirVersionado(Connection conn, Movimentacao existente, long versao) throws SQLException {
+        Movimentacao anterior = buscarParaAlteracao(conn, existente.getId(), existente.getIdUsuario());
+        if (anterior == null) {
+            return 0;
+        }
+        
+        int rowsDeleted;
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM movimentacao WHERE id = ? AND id_usuario = ?")) {
+            stmt.setInt(1, existente.getId());
+            stmt.setInt(2, existente.getIdUsuario());
+            rowsDeleted = stmt.executeUpdate();
+        }
+        
+        if (rowsDeleted > 0) {
+            VersaoSync.registrarExclusao(conn, VersaoSync.MOVIMENTACAO, existente.getId(),
+                    existente.getIdUsuario(), versao);
+            SaldoConta.ajustar(conn, anterior.getIdConta(), -SaldoConta.efeito(anterior));
+            VersaoSync.marcarContasAlteradas(conn, versao, anterior.getIdConta());
+        }
+        return rowsDeleted;
+    }
+    
+    /**
+     * Lê a movimentação dentro da transação da escrita, travando a linha
+     * @return movimentação atual ou null se não existir ou não for do usuário
+     */
+    private Movimentacao buscarParaAlteracao(Connection conn, int id, int idUsuario) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT * FROM movimentacao WHERE id = ? AND id_usuario = ? FOR UPDATE")) {
+            stmt.setInt(1, id);
+            stmt.setInt(2, idUsuario);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapResultSetToMovimentacao(rs) : null;
+            }
+        }
+    }
+    
+    /**
+     * Lista as movimentações criadas ou alteradas e os IDs das excluídas desde uma versão
+     * @param idUsuario ID do usuário
+     * @param desde versão já conhecida pelo cliente (0 = todas)
+     * @return alterações ou null se o usuário não existir ou em caso de erro
+     */
+    public AlteracoesSync<Movimentacao> listarAlteracoesDesde(int idUsuario, long desde) {
+        String sql = "SELECT * FROM movimentacao WHERE id_usuario = ? AND versao > ? AND versao <= ? ORDER BY id";
+        
+        try {
+            return VersaoSync.listarAlteracoes(idUsuario, desde, VersaoSync.MOVIMENTACAO, sql,
+                    this::mapResultSetToMovimentacao);
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar alterações de movimentações: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
     /**
      * Calcula total de receitas de um usuário por período
      * @param idUsuario ID do usuário
@@ -444,6 +733,159 @@ public class MovimentacaoDAO {
         return 0;
     }
     
+    /**
+     * Percorre as movimentações de todos os usuários com os nomes de usuário,
+     * conta e categoria (uso admin)
+     * 
+     * Uma única consulta com JOIN em usuario, conta e categoria, lida em
+     * streaming, no lugar de uma busca de conta e categoria por movimentação.
+     * Ordem: usuário, data (mais recente primeiro) e id.
+     * 
+     * @param processador callback chamado para cada movimentação
+     * @return true se todas as linhas foram percorridas, false em erro de banco
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    public boolean percorrerTodasComNomes(ProcessadorMovimentacao processador) throws IOException {
+        String sql = "SELECT m.*, u.nome AS nome_usuario, c.nome AS nome_conta, cat.nome AS nome_categoria " +
+                    "FROM movimentacao m " +
+                    "JOIN usuario u ON u.id = m.id_usuario " +
+                    "LEFT JOIN conta c ON c.id = m.id_conta " +
+                    "LEFT JOIN categoria cat ON cat.id = m.id_categoria " +
+                    "ORDER BY m.id_usuario, m.data DESC, m.id DESC";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = DatabaseUtil.prepareStreamingStatement(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                processador.processar(mapResultSetToMovimentacao(rs), rs.getString("nome_usuario"),
+                        rs.getString("nome_conta"), rs.getString("nome_categoria"));
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao percorrer todas as movimentações: " + e.getMessage());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Conta as movimentações da listagem paginada do admin
+     * 
+     * Sem busca, conta só a tabela movimentacao (pelo índice de usuário, se
+     * filtrado); com busca, faz os mesmos JOINs da página.
+     * 
+     * @param idUsuario filtra por usuário (null para todos)
+     * @param busca texto procurado na descrição e nos nomes (null ou vazio para todas)
+     * @return total, ou -1 em erro de banco
+     */
+    public int contarComNomes(Integer idUsuario, String busca) {
+        boolean comBusca = busca != null && !busca.isEmpty();
+        String sql = "SELECT COUNT(*) FROM movimentacao m" +
+                    (comBusca ? JOINS_NOMES : "") + filtroAdmin(idUsuario, busca);
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            parametrosFiltroAdmin(stmt, 1, idUsuario, busca);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao contar movimentações do admin: " + e.getMessage());
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Percorre uma página da listagem do admin (LIMIT/OFFSET)
+     * 
+     * A tabela do painel pede páginas em qualquer posição (a barra de rolagem
+     * pode pular para o meio), por isso deslocamento em vez de keyset. Na
+     * ordem padrão o índice (data, id) evita ordenar a tabela inteira.
+     * 
+     * @param idUsuario filtra por usuário (null para todos)
+     * @param busca texto procurado na descrição e nos nomes (null ou vazio para todas)
+     * @param ordem coluna e direção (o id desempata)
+     * @param deslocamento linhas puladas antes da página
+     * @param limite número máximo de linhas
+     * @param processador callback chamado para cada movimentação
+     * @return true se a página foi percorrida, false em erro de banco
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    public boolean percorrerPaginaComNomes(Integer idUsuario, String busca, OrdemMovimentacao ordem,
+                                           int deslocamento, int limite,
+                                           ProcessadorMovimentacao processador) throws IOException {
+        String sql = "SELECT m.*, u.nome AS nome_usuario, c.nome AS nome_conta, cat.nome AS nome_categoria " +
+                    "FROM movimentacao m" + JOINS_NOMES + filtroAdmin(idUsuario, busca) +
+                    " ORDER BY " + ordem.toSql() + " LIMIT ? OFFSET ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int i = parametrosFiltroAdmin(stmt, 1, idUsuario, busca);
+            stmt.setInt(i++, limite);
+            stmt.setInt(i, deslocamento);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    processador.processar(mapResultSetToMovimentacao(rs), rs.getString("nome_usuario"),
+                            rs.getString("nome_conta"), rs.getString("nome_categoria"));
+                }
+            }
+            return true;
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar página de movimentações do admin: " + e.getMessage());
+        }
+        
+        return false;
+    }
+    
+    private static final String JOINS_NOMES =
+            " JOIN usuario u ON u.id = m.id_usuario" +
+            " LEFT JOIN conta c ON c.id = m.id_conta" +
+            " LEFT JOIN categoria cat ON cat.id = m.id_categoria";
+    
+    /**
+     * WHERE da listagem do admin (vazio sem filtros); a busca exige JOINS_NOMES
+     */
+    private static String filtroAdmin(Integer idUsuario, String busca) {
+        StringBuilder where = new StringBuilder();
+        if (idUsuario != null) {
+            where.append(" WHERE m.id_usuario = ?");
+        }
+        if (busca != null && !busca.isEmpty()) {
+            where.append(idUsuario != null ? " AND " : " WHERE ")
+                 .append("(LOWER(m.descricao) LIKE ? OR LOWER(u.nome) LIKE ? " +
+                         "OR LOWER(c.nome) LIKE ? OR LOWER(cat.nome) LIKE ?)");
+        }
+        return where.toString();
+    }
+    
+    /**
+     * Preenche os parâmetros de filtroAdmin() a partir do índice informado
+     * @return próximo índice livre
+     */
+    private static int parametrosFiltroAdmin(PreparedStatement stmt, int i, Integer idUsuario, String busca)
+            throws SQLException {
+        if (idUsuario != null) {
+            stmt.setInt(i++, idUsuario);
+        }
+        if (busca != null && !busca.isEmpty()) {
+            // %, _ e \ da busca valem como texto, não como curinga
+            String padrao = "%" + busca.toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            for (int campo = 0; campo < 4; campo++) {
+                stmt.setString(i++, padrao);
+            }
+        }
+        return i;
+    }
+    
     /**
      * Mapeia ResultSet para objeto Movimentacao
      */
@@ -0,0 +1,137 @@
+package dao;
+
+import model.AlteracoesSync;
+import model.Movimentacao;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Acesso às movimentações
+ *
+ * Implementado por MovimentacaoDAO (banco de dados) e por BancoMemoria (modo
+ * de teste). Toda escrita atualiza o saldo atual das contas envolvidas.
+ * As listagens são ordenadas por data e id, mais recentes primeiro.
+ */
+public interface MovimentacaoRepositorio {
+
+    /**
+     * Recebe cada movimentação percorrida por percorrerTodasComNomes();
+     * nomeConta e nomeCategoria são null se o registro relacionado não existir
+     */
+    @FunctionalInterface
+    interface ProcessadorMovimentacao {
+        void processar(Movimentacao movimentacao, String nomeUsuario,
+                       String nomeConta, String nomeCategoria) throws IOException;
+    }
+
+    /**
+     * Movimentação com mesmo valor, data, descrição e conta
+     * @return Movimentacao existente ou null se não existe
+     */
+    Movimentacao buscarDuplicata(double valor, Date data, String descricao, int idConta, int idUsuario);
+
+    /**
+     * Insere uma movimentação; se já existe uma duplicata (buscarDuplicata),
+     * preenche o ID da existente e retorna true
+     */
+    boolean inserir(Movimentacao movimentacao);
+
+    /**
+     * Insere várias movimentações do usuário de uma vez (BULK_UPLOAD), com a
+     * mesma regra de duplicidade de inserir()
+     * @return true se o lote inteiro foi gravado (false não grava nenhuma)
+     */
+    boolean inserirLote(int idUsuario, List<Movimentacao> movimentacoes);
+
+    /**
+     * Busca movimentação por ID
+     * @return Movimentacao encontrada ou null
+     */
+    Movimentacao buscarPorId(int id);
+
+    /**
+     * Busca movimentação por ID, somente se pertencer ao usuário
+     * @return Movimentacao encontrada ou null
+     */
+    Movimentacao buscarPorIdEUsuario(int id, int idUsuario);
+
+    List<Movimentacao> listarPorUsuario(int idUsuario);
+
+    List<Movimentacao> listarPorPeriodo(int idUsuario, Date dataInicio, Date dataFim);
+
+    List<Movimentacao> listarPorConta(int idConta, int idUsuario);
+
+    List<Movimentacao> listarPorCategoria(int idCategoria, int idUsuario);
+
+    /**
+     * Página de movimentações por keyset (data DESC, id DESC)
+     * @param idConta filtra por conta (null para todas)
+     * @param dataInicio início do período (null para sem limite)
+     * @param dataFim fim do período (null para sem limite)
+     * @param apos cursor da última linha da página anterior (null para a primeira)
+     * @param limite número máximo de linhas
+     */
+    List<Movimentacao> listarPagina(int idUsuario, Integer idConta, Date dataInicio, Date dataFim,
+                                    CursorMovimentacao apos, int limite);
+
+    /**
+     * Atualiza a movimentação do usuário
+     * @return true se atualizada com sucesso
+     */
+    boolean atualizar(Movimentacao movimentacao);
+
+    /**
+     * Remove movimentação do usuário
+     * @return true se removida com sucesso
+     */
+    boolean remover(int id, int idUsuario);
+
+    /**
+     * Exclui movimentação (admin - sem verificação de usuário)
+     * @return true se excluída com sucesso
+     */
+    boolean excluir(int id);
+
+    /**
+     * Movimentações criadas ou alteradas e IDs das excluídas desde uma versão
+     * @return alterações ou null se o usuário não existir ou em caso de erro
+     */
+    AlteracoesSync<Movimentacao> listarAlteracoesDesde(int idUsuario, long desde);
+
+    double calcularTotalReceitas(int idUsuario, Date dataInicio, Date dataFim);
+
+    double calcularTotalDespesas(int idUsuario, Date dataInicio, Date dataFim);
+
+    int contarMovimentacoes(int idUsuario);
+
+    /**
+     * Percorre as movimentações de todos os usuários com os nomes de usuário,
+     * conta e categoria (uso admin), por usuário, data (mais recente primeiro) e id
+     * @return true se todas foram percorridas, false em erro de acesso aos dados
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    boolean percorrerTodasComNomes(ProcessadorMovimentacao processador) throws IOException;
+
+    /**
+     * Conta as movimentações da listagem paginada do admin
+     * @param idUsuario filtra por usuário (null para todos)
+     * @param busca texto procurado na descrição e nos nomes de usuário, conta e
+     *              categoria, sem diferenciar maiúsculas (null ou vazio para todas)
+     * @return total, ou -1 em erro de acesso aos dados
+     */
+    int contarComNomes(Integer idUsuario, String busca);
+
+    /**
+     * Percorre uma página da listagem do admin, com os mesmos filtros de
+     * contarComNomes() e os nomes de percorrerTodasComNomes()
+     * @param deslocamento linhas puladas antes da página
+     * @param limite número máximo de linhas
+     * @return true se a página foi percorrida, false em erro de acesso aos dados
+     * @throws IOException se o processador falhar (ex.: cliente desconectou)
+     */
+    boolean percorrerPaginaComNomes(Integer idUsuario, String busca, OrdemMovimentacao ordem,
+                                    int deslocamento, int limite,
+                                    ProcessadorMovimentacao processador) throws IOException;
+}
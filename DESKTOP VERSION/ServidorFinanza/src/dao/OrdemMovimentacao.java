@@ -0,0 +1,96 @@
+package dao;
+
+import java.util.Locale;
+
+/**
+ * Ordem da listagem paginada de movimentações do admin
+ *
+ * Uma coluna da tabela e a direção; o id, na mesma direção, desempata para
+ * que as páginas não repitam nem percam linhas. No protocolo a ordem é o
+ * token "coluna_asc" ou "coluna_desc" (ex.: data_desc). As colunas são um
+ * conjunto fechado: o SQL usa a expressão daqui, nunca o texto recebido.
+ */
+public final class OrdemMovimentacao {
+
+    /** Colunas ordenáveis, com a expressão SQL da consulta com JOIN */
+    public enum Coluna {
+        ID("m.id"),
+        USUARIO("u.nome"),
+        VALOR("m.valor"),
+        DATA("m.data"),
+        DESCRICAO("m.descricao"),
+        TIPO("m.tipo"),
+        CONTA("c.nome"),
+        CATEGORIA("cat.nome");
+
+        private final String expressao;
+
+        Coluna(String expressao) {
+            this.expressao = expressao;
+        }
+
+        public String getExpressao() {
+            return expressao;
+        }
+    }
+
+    /** Mais recentes primeiro, como as demais listagens */
+    public static final OrdemMovimentacao PADRAO = new OrdemMovimentacao(Coluna.DATA, true);
+
+    private final Coluna coluna;
+    private final boolean descendente;
+
+    public OrdemMovimentacao(Coluna coluna, boolean descendente) {
+        this.coluna = coluna;
+        this.descendente = descendente;
+    }
+
+    public Coluna getColuna() {
+        return coluna;
+    }
+
+    public boolean isDescendente() {
+        return descendente;
+    }
+
+    /**
+     * Cláusula ORDER BY (sem a palavra-chave), com o id como desempate
+     */
+    public String toSql() {
+        String direcao = descendente ? " DESC" : " ASC";
+        if (coluna == Coluna.ID) {
+            return "m.id" + direcao;
+        }
+        return coluna.getExpressao() + direcao + ", m.id" + direcao;
+    }
+
+    /** Token do protocolo (ex.: data_desc) */
+    public String toToken() {
+        return coluna.name().toLowerCase(Locale.ROOT) + (descendente ? "_desc" : "_asc");
+    }
+
+    /**
+     * Decodifica um token gerado por toToken(); vazio ou null é a ordem padrão
+     * @throws IllegalArgumentException se a coluna ou a direção forem inválidas
+     */
+    public static OrdemMovimentacao fromToken(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return PADRAO;
+        }
+        String bruto = token.trim().toUpperCase(Locale.ROOT);
+        int separador = bruto.lastIndexOf('_');
+        if (separador <= 0) {
+            throw new IllegalArgumentException("Ordem inválida: " + token);
+        }
+        String direcao = bruto.substring(separador + 1);
+        if (!"ASC".equals(direcao) && !"DESC".equals(direcao)) {
+            throw new IllegalArgumentException("Ordem inválida: " + token);
+        }
+        return new OrdemMovimentacao(Coluna.valueOf(bruto.substring(0, separador)), "DESC".equals(direcao));
+    }
+
+    @Override
+    public String toString() {
+        return "OrdemMovimentacao{" + toToken() + '}';
+    }
+}
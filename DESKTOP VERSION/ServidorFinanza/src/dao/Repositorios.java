@@ -0,0 +1,79 @@
+package dao;
+
+/**
+ * Conjunto de repositórios usado pelo servidor
+ *
+ * - jdbc(): DAOs sobre o banco configurado em DatabaseUtil (MySQL ou H2)
+ * - memoria(): BancoMemoria, para o modo de teste; cada chamada cria um
+ *   banco vazio, compartilhado por todas as conexões que receberem o conjunto
+ */
+public final class Repositorios {
+
+    private final UsuarioRepositorio usuarios;
+    private final ContaRepositorio contas;
+    private final CategoriaRepositorio categorias;
+    private final MovimentacaoRepositorio movimentacoes;
+    private final DashboardRepositorio dashboard;
+    private final SincronizacaoRepositorio sincronizacao;
+    private final boolean emMemoria;
+
+    private Repositorios(UsuarioRepositorio usuarios, ContaRepositorio contas, CategoriaRepositorio categorias,
+                         MovimentacaoRepositorio movimentacoes, DashboardRepositorio dashboard,
+                         SincronizacaoRepositorio sincronizacao, boolean emMemoria) {
+        this.usuarios = usuarios;
+        this.contas = contas;
+        this.categorias = categorias;
+        this.movimentacoes = movimentacoes;
+        this.dashboard = dashboard;
+        this.sincronizacao = sincronizacao;
+        this.emMemoria = emMemoria;
+    }
+
+    /**
+     * DAOs sobre o banco de dados
+     */
+    public static Repositorios jdbc() {
+        return new Repositorios(new UsuarioDAO(), new ContaDAO(), new CategoriaDAO(),
+                new MovimentacaoDAO(), new DashboardDAO(), new SincronizacaoDAO(), false);
+    }
+
+    /**
+     * Novo banco em memória, vazio
+     */
+    public static Repositorios memoria() {
+        BancoMemoria banco = new BancoMemoria();
+        return new Repositorios(banco.usuarios(), banco.contas(), banco.categorias(),
+                banco.movimentacoes(), banco.dashboard(), banco.sincronizacao(), true);
+    }
+
+    public UsuarioRepositorio getUsuarios() {
+        return usuarios;
+    }
+
+    public ContaRepositorio getContas() {
+        return contas;
+    }
+
+    public CategoriaRepositorio getCategorias() {
+        return categorias;
+    }
+
+    public MovimentacaoRepositorio getMovimentacoes() {
+        return movimentacoes;
+    }
+
+    public DashboardRepositorio getDashboard() {
+        return dashboard;
+    }
+
+    public SincronizacaoRepositorio getSincronizacao() {
+        return sincronizacao;
+    }
+
+    /**
+     * Dados só em memória (modo de teste)
+     */
+    public boolean isEmMemoria() {
+        return emMemoria;
+    }
+}
@@ -0,0 +1,207 @@
+package dao;
+
+import model.Movimentacao;
+import util.DatabaseUtil;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saldo atual das contas mantido de forma incremental
+ *
+ * A coluna conta.saldo_atual guarda saldo_inicial + receitas - despesas da
+ * conta. Cada escrita de movimentação aplica a diferença no saldo dentro da
+ * mesma transação (VersaoSync.executar), então o saldo lido é sempre o das
+ * movimentações confirmadas e ler o saldo é ler uma coluna, sem somar o
+ * histórico. As diferenças são somadas em centavos, sem erro de double.
+ *
+ * reconciliar() confere a coluna com a soma completa das movimentações e
+ * corrige divergências (ex: escritas feitas direto no banco).
+ */
+final class SaldoConta {
+
+    /** Saldo calculado pela soma completa, como era feito antes da coluna */
+    private static final String SQL_SOMA_USUARIO =
+            "SELECT c.id, c.saldo_atual, c.saldo_inicial + " +
+            "COALESCE(SUM(CASE WHEN m.tipo = 'receita' THEN m.valor " +
+            "WHEN m.tipo = 'despesa' THEN -m.valor ELSE 0 END), 0) AS saldo_calculado " +
+            "FROM conta c " +
+            "LEFT JOIN movimentacao m ON m.id_conta = c.id " +
+            "WHERE c.id_usuario = ? " +
+            "GROUP BY c.id, c.saldo_atual, c.saldo_inicial";
+
+    private SaldoConta() {}
+
+    /**
+     * Efeito da movimentação no saldo da conta, em centavos
+     */
+    static long efeito(Movimentacao movimentacao) {
+        long centavos = Math.round(movimentacao.getValor() * 100);
+        return movimentacao.getTipo() == Movimentacao.TipoMovimentacao.RECEITA ? centavos : -centavos;
+    }
+
+    /**
+     * Soma centavos ao saldo atual da conta
+     */
+    static void ajustar(Connection conn, int idConta, long centavos) throws SQLException {
+        if (centavos == 0) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE conta SET saldo_atual = saldo_atual + ? WHERE id = ?")) {
+            stmt.setBigDecimal(1, BigDecimal.valueOf(centavos, 2));
+            stmt.setInt(2, idConta);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Soma a diferença de cada conta ao seu saldo atual (lotes)
+     */
+    static void ajustar(Connection conn, Map<Integer, Long> centavosPorConta) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE conta SET saldo_atual = saldo_atual + ? WHERE id = ?")) {
+            boolean pendente = false;
+            for (Map.Entry<Integer, Long> ajuste : centavosPorConta.entrySet()) {
+                if (ajuste.getValue() == 0) {
+                    continue;
+                }
+                stmt.setBigDecimal(1, BigDecimal.valueOf(ajuste.getValue(), 2));
+                stmt.setInt(2, ajuste.getKey());
+                stmt.addBatch();
+                pendente = true;
+            }
+            if (pendente) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Desconta do saldo das contas as movimentações que serão removidas em
+     * cascata junto com uma categoria, dando nova versão às contas afetadas
+     *
+     * @param coluna coluna de filtro das movimentações (id_categoria)
+     */
+    static void removerMovimentacoes(Connection conn, String coluna, int idPai, long versao) throws SQLException {
+        String sql = "SELECT id_conta, " +
+                     "SUM(CASE WHEN tipo = 'receita' THEN valor WHEN tipo = 'despesa' THEN -valor ELSE 0 END) AS total " +
+                     "FROM movimentacao WHERE " + coluna + " = ? GROUP BY id_conta";
+
+        Map<Integer, Long> ajustes = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idPai);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ajustes.put(rs.getInt("id_conta"), -centavos(rs.getBigDecimal("total")));
+                }
+            }
+        }
+        if (ajustes.isEmpty()) {
+            return;
+        }
+
+        ajustar(conn, ajustes);
+        VersaoSync.marcarContasAlteradas(conn, versao,
+                ajustes.keySet().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Confere o saldo de todas as contas com a soma das movimentações
+     *
+     * Cada usuário é conferido em uma transação própria que trava a linha
+     * dele (a mesma trava de VersaoSync.executar), então nenhuma escrita do
+     * usuário acontece entre a soma e a correção. Contas corrigidas recebem
+     * nova versão, para o saldo certo chegar na sincronização incremental.
+     *
+     * @return contas cujo saldo estava divergente e foi corrigido
+     * @throws SQLException em erro de banco
+     */
+    static int reconciliar() throws SQLException {
+        List<Integer> usuarios = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT id FROM usuario ORDER BY id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                usuarios.add(rs.getInt(1));
+            }
+        }
+
+        int corrigidas = 0;
+        for (int idUsuario : usuarios) {
+            int doUsuario = reconciliarUsuario(idUsuario);
+            if (doUsuario > 0) {
+                ContaDAO.invalidarCache(idUsuario);
+                corrigidas += doUsuario;
+            }
+        }
+        return corrigidas;
+    }
+
+    private static int reconciliarUsuario(int idUsuario) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id FROM usuario WHERE id = ? FOR UPDATE")) {
+                    stmt.setInt(1, idUsuario);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            // Excluído depois da listagem
+                            conn.commit();
+                            return 0;
+                        }
+                    }
+                }
+
+                Map<Integer, BigDecimal> corretos = new LinkedHashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_SOMA_USUARIO)) {
+                    stmt.setInt(1, idUsuario);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            BigDecimal atual = rs.getBigDecimal("saldo_atual");
+                            BigDecimal calculado = rs.getBigDecimal("saldo_calculado");
+                            if (atual.compareTo(calculado) != 0) {
+                                System.err.println("Saldo divergente na conta " + rs.getInt("id") +
+                                                   ": registrado " + atual + ", calculado " + calculado);
+                                corretos.put(rs.getInt("id"), calculado);
+                            }
+                        }
+                    }
+                }
+
+                if (!corretos.isEmpty()) {
+                    long versao = VersaoSync.proximaVersao(conn, idUsuario);
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "UPDATE conta SET saldo_atual = ?, versao = ? WHERE id = ?")) {
+                        for (Map.Entry<Integer, BigDecimal> correto : corretos.entrySet()) {
+                            stmt.setBigDecimal(1, correto.getValue());
+                            stmt.setLong(2, versao);
+                            stmt.setInt(3, correto.getKey());
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+
+                conn.commit();
+                return corretos.size();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor == null ? 0 : valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
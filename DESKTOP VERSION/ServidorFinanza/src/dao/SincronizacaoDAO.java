@@ -0,0 +1,65 @@
+package dao;
+
+import model.ResumoSync;
+import util.DatabaseUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object para o estado da sincronização incremental
+ *
+ * Responde em uma única consulta qual a versão atual do usuário e quais
+ * entidades mudaram desde a versão do cliente, para que ele só peça
+ * (LIST_CHANGES_SINCE) o que de fato foi alterado.
+ */
+public class SincronizacaoDAO implements SincronizacaoRepositorio {
+
+    /** Nomes das entidades, na ordem em que o cliente deve aplicá-las */
+    private static final String[] ENTIDADES = {VersaoSync.CATEGORIA, VersaoSync.CONTA, VersaoSync.MOVIMENTACAO};
+
+    private static final String SQL_RESUMO =
+            "SELECT u.versao_sync, " +
+            "EXISTS(SELECT 1 FROM categoria WHERE id_usuario = u.id AND versao > ?) " +
+            "OR EXISTS(SELECT 1 FROM exclusao_sync WHERE entidade = 'categoria' AND id_usuario = u.id AND versao > ?) AS categoria, " +
+            "EXISTS(SELECT 1 FROM conta WHERE id_usuario = u.id AND versao > ?) " +
+            "OR EXISTS(SELECT 1 FROM exclusao_sync WHERE entidade = 'conta' AND id_usuario = u.id AND versao > ?) AS conta, " +
+            "EXISTS(SELECT 1 FROM movimentacao WHERE id_usuario = u.id AND versao > ?) " +
+            "OR EXISTS(SELECT 1 FROM exclusao_sync WHERE entidade = 'movimentacao' AND id_usuario = u.id AND versao > ?) AS movimentacao " +
+            "FROM usuario u WHERE u.id = ?";
+
+    /**
+     * Calcula o estado de sincronização do usuário
+     * @param idUsuario ID do usuário
+     * @param desde versão já conhecida pelo cliente (0 = nunca sincronizou)
+     * @return resumo ou null se o usuário não existir ou em caso de erro
+     */
+    public ResumoSync resumir(int idUsuario, long desde) {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_RESUMO)) {
+
+            for (int i = 1; i <= 6; i++) {
+                stmt.setLong(i, desde);
+            }
+            stmt.setInt(7, idUsuario);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    List<String> alteradas = new ArrayList<>();
+                    for (String entidade : ENTIDADES) {
+                        if (rs.getBoolean(entidade)) {
+                            alteradas.add(entidade);
+                        }
+                    }
+                    return new ResumoSync(rs.getLong("versao_sync"), alteradas);
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erro ao calcular resumo de sincronização: " + e.getMessage());
+        }
+
+        return null;
+    }
+}
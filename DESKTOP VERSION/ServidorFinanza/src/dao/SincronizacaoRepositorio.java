@@ -0,0 +1,18 @@
+package dao;
+
+import model.ResumoSync;
+
+/**
+ * Estado da sincronização incremental
+ *
+ * Implementado por SincronizacaoDAO (banco de dados) e por BancoMemoria (modo de teste).
+ */
+public interface SincronizacaoRepositorio {
+
+    /**
+     * Versão atual do usuário e entidades alteradas desde a versão do cliente
+     * @param desde versão já conhecida pelo cliente (0 = nunca sincronizou)
+     * @return resumo ou null se o usuário não existir ou em caso de erro
+     */
+    ResumoSync resumir(int idUsuario, long desde);
+}
@@ -0,0 +1,50 @@
+package dao;
+
+/**
+ * Última escrita versionada confirmada na thread atual
+ *
+ * VersaoSync (após o commit) e BancoMemoria registram aqui o dono e a versão
+ * de cada escrita. O ClientHandler limpa o registro antes de um comando que
+ * altera dados e o lê depois da resposta OK, para notificar as outras
+ * sessões do dono (NotificationHub) sem que os repositórios precisem
+ * devolver a versão. Nos comandos ADMIN_* é também daqui que sai o dono do
+ * registro alterado.
+ *
+ * Como o tempo de banco do ConnectionPool, vale por thread: a leitura deve
+ * acontecer na mesma thread que executou o comando.
+ */
+public final class UltimaEscrita {
+
+    /** [idUsuario, versao]; idUsuario 0 = nenhuma escrita desde limpar() */
+    private static final ThreadLocal<long[]> ESCRITA = ThreadLocal.withInitial(() -> new long[2]);
+
+    private UltimaEscrita() {}
+
+    /** Esquece a escrita anterior da thread (início de um comando) */
+    public static void limpar() {
+        long[] escrita = ESCRITA.get();
+        escrita[0] = 0;
+        escrita[1] = 0;
+    }
+
+    /**
+     * Registra uma escrita confirmada; num lote fica a maior versão
+     */
+    static void registrar(int idUsuario, long versao) {
+        long[] escrita = ESCRITA.get();
+        if (escrita[0] != idUsuario || versao > escrita[1]) {
+            escrita[0] = idUsuario;
+            escrita[1] = versao;
+        }
+    }
+
+    /** Dono da última escrita, ou 0 se nenhuma foi registrada */
+    public static int getIdUsuario() {
+        return (int) ESCRITA.get()[0];
+    }
+
+    /** Versão da última escrita, ou 0 se nenhuma foi registrada */
+    public static long getVersao() {
+        return ESCRITA.get()[1];
+    }
+}
@@ -2,6 +2,7 @@ package dao;
 
 import model.Usuario;
 import util.DatabaseUtil;
+import util.PasswordHasher;
 import util.SecurityUtil;
 
 import java.sql.*;
@@ -11,7 +12,7 @@ import java.util.List;
 /**
  * Data Access Object para a entidade Usuario
  */
-public class UsuarioDAO {
+public class UsuarioDAO implements UsuarioRepositorio {
     
     /**
      * Insere um novo usuário no banco de dados
@@ -107,12 +108,38 @@ public class UsuarioDAO {
         Usuario usuario = buscarPorEmail(email);
         
         if (usuario != null && SecurityUtil.verificarSenha(senha, usuario.getSenhaHash())) {
+            // Hash antigo (SHA-256) ou fraco: regrava no formato atual em segundo plano
+            if (SecurityUtil.precisaRehash(usuario.getSenhaHash())) {
+                int id = usuario.getId();
+                String antigo = usuario.getSenhaHash();
+                PasswordHasher.getInstance().rehashAsync(senha, novo -> regravarHash(id, antigo, novo));
+            }
             return usuario;
         }
         
         return null;
     }
     
+    /**
+     * Troca o hash da senha só se ele ainda for o lido no login
+     * (uma troca de senha no meio do caminho prevalece)
+     */
+    private void regravarHash(int idUsuario, String hashAntigo, String hashNovo) {
+        String sql = "UPDATE usuario SET senha_hash = ? WHERE id = ? AND senha_hash = ?";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, hashNovo);
+            stmt.setInt(2, idUsuario);
+            stmt.setString(3, hashAntigo);
+            stmt.executeUpdate();
+            
+        } catch (SQLException e) {
+            System.err.println("Erro ao regravar hash da senha: " + e.getMessage());
+        }
+    }
+    
     /**
      * Atualiza dados do usuário
      * @param usuario Usuario com dados atualizados
@@ -145,11 +172,13 @@ public class UsuarioDAO {
      */
     public boolean atualizarSenha(int idUsuario, String novaSenha) {
         String sql = "UPDATE usuario SET senha_hash = ? WHERE id = ?";
+        // Hash antes de pegar a conexão: é a parte cara
+        String hash = SecurityUtil.hashSenha(novaSenha);
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, SecurityUtil.hashSenha(novaSenha));
+            stmt.setString(1, hash);
             stmt.setInt(2, idUsuario);
             
             return stmt.executeUpdate() > 0;
@@ -206,6 +235,10 @@ public class UsuarioDAO {
             
         } catch (SQLException e) {
             System.err.println("Erro ao excluir usuário: " + e.getMessage());
+        } finally {
+            // Contas e categorias são excluídas em cascata
+            ContaDAO.invalidarCache(idUsuario);
+            CategoriaDAO.invalidarCache(idUsuario);
         }
         
         return false;
@@ -0,0 +1,62 @@
+package dao;
+
+import model.Usuario;
+
+import java.util.List;
+
+/**
+ * Acesso aos usuários
+ *
+ * Implementado por UsuarioDAO (banco de dados) e por BancoMemoria (modo de
+ * teste); o ClientHandler usa apenas esta interface.
+ */
+public interface UsuarioRepositorio {
+
+    /**
+     * Insere um novo usuário
+     * @param usuario objeto Usuario a ser inserido; o ID é preenchido
+     * @return true se inserido com sucesso
+     */
+    boolean inserir(Usuario usuario);
+
+    /**
+     * Busca usuário por email
+     * @return Usuario encontrado ou null
+     */
+    Usuario buscarPorEmail(String email);
+
+    /**
+     * Busca usuário por ID
+     * @return Usuario encontrado ou null
+     */
+    Usuario buscarPorId(int id);
+
+    /**
+     * Autentica usuário com email e senha
+     * @return Usuario autenticado ou null
+     */
+    Usuario autenticar(String email, String senha);
+
+    /**
+     * Atualiza nome e email do usuário
+     * @return true se atualizado com sucesso
+     */
+    boolean atualizar(Usuario usuario);
+
+    /**
+     * Atualiza senha do usuário (recebe a senha, grava o hash)
+     * @return true se atualizada com sucesso
+     */
+    boolean atualizarSenha(int idUsuario, String novaSenha);
+
+    /**
+     * Lista todos os usuários, por ID
+     */
+    List<Usuario> listarTodos();
+
+    /**
+     * Exclui o usuário com suas contas, categorias e movimentações
+     * @return true se excluído com sucesso
+     */
+    boolean excluir(int idUsuario);
+}
@@ -0,0 +1,213 @@
+package dao;
+
+import model.AlteracoesSync;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Controle de versões para a sincronização incremental
+ *
+ * Cada usuário tem um contador (usuario.versao_sync). Toda escrita em conta,
+ * categoria ou movimentação incrementa o contador e grava o novo valor na
+ * coluna versao da linha alterada; exclusões deixam uma marca em exclusao_sync
+ * com a mesma versão. Assim o cliente pede "alterações desde a versão X" e
+ * recebe só o que mudou.
+ *
+ * O incremento e a escrita acontecem na mesma transação: o UPDATE em usuario
+ * trava a linha do usuário até o commit, então as escritas de um mesmo usuário
+ * ficam serializadas e uma versão só fica visível junto com os dados dela.
+ * Depois do commit, dono e versão ficam em UltimaEscrita (notificações).
+ */
+final class VersaoSync {
+
+    /** Entidades versionadas (valores gravados em exclusao_sync.entidade) */
+    static final String CONTA = "conta";
+    static final String CATEGORIA = "categoria";
+    static final String MOVIMENTACAO = "movimentacao";
+
+    /**
+     * Escrita executada dentro da transação versionada
+     */
+    @FunctionalInterface
+    interface OperacaoVersionada<T> {
+        T executar(Connection conn, long versao) throws SQLException;
+    }
+
+    /**
+     * Converte a linha atual do ResultSet em um registro
+     */
+    @FunctionalInterface
+    interface MapeadorLinha<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    private VersaoSync() {}
+
+    /**
+     * Executa uma escrita com a próxima versão do usuário
+     *
+     * @param idUsuario dono dos registros alterados
+     * @param operacao escrita a executar (recebe a conexão e a nova versão)
+     * @return resultado da operação
+     * @throws SQLException em erro de banco (a transação é desfeita)
+     */
+    static <T> T executar(int idUsuario, OperacaoVersionada<T> operacao) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long versao = proximaVersao(conn, idUsuario);
+                T resultado = operacao.executar(conn, versao);
+                conn.commit();
+                UltimaEscrita.registrar(idUsuario, versao);
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Registra a exclusão de um registro (tombstone)
+     */
+    static void registrarExclusao(Connection conn, String entidade, int idRegistro,
+                                  int idUsuario, long versao) throws SQLException {
+        String sql = "INSERT INTO exclusao_sync (entidade, id_registro, id_usuario, versao) VALUES (?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE id_usuario = VALUES(id_usuario), versao = VALUES(versao)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, entidade);
+            stmt.setInt(2, idRegistro);
+            stmt.setInt(3, idUsuario);
+            stmt.setLong(4, versao);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Registra a exclusão das movimentações que serão removidas em cascata
+     * junto com uma conta ou categoria
+     *
+     * @param coluna coluna de filtro (id_conta ou id_categoria)
+     */
+    static void registrarExclusaoMovimentacoes(Connection conn, String coluna, int idPai,
+                                               long versao) throws SQLException {
+        String sql = "INSERT INTO exclusao_sync (entidade, id_registro, id_usuario, versao) " +
+                     "SELECT '" + MOVIMENTACAO + "', id, id_usuario, ? FROM movimentacao WHERE " + coluna + " = ? " +
+                     "ON DUPLICATE KEY UPDATE id_usuario = VALUES(id_usuario), versao = VALUES(versao)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, versao);
+            stmt.setInt(2, idPai);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Dá nova versão às contas cujo saldo mudou por causa de uma movimentação,
+     * para que o saldo atualizado também chegue na sincronização incremental
+     */
+    static void marcarContasAlteradas(Connection conn, long versao, int... idsConta) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE conta SET versao = ? WHERE id = ?")) {
+            for (int idConta : idsConta) {
+                stmt.setLong(1, versao);
+                stmt.setInt(2, idConta);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Lista as alterações de uma entidade entre a versão informada e a atual
+     *
+     * A leitura é feita em uma única transação (snapshot consistente do InnoDB),
+     * então registros, exclusões e versão atual correspondem ao mesmo instante.
+     *
+     * @param idUsuario dono dos registros
+     * @param desde versão já conhecida pelo cliente (0 = tudo)
+     * @param entidade entidade em exclusao_sync
+     * @param sqlAlterados consulta dos registros com parâmetros (id_usuario, desde, versaoAtual)
+     * @param mapeador conversão de cada linha
+     * @return alterações, ou null se o usuário não existir
+     * @throws SQLException em erro de banco
+     */
+    static <T> AlteracoesSync<T> listarAlteracoes(int idUsuario, long desde, String entidade,
+                                                  String sqlAlterados, MapeadorLinha<T> mapeador) throws SQLException {
+        String sqlExcluidos = "SELECT id_registro FROM exclusao_sync " +
+                              "WHERE entidade = ? AND id_usuario = ? AND versao > ? AND versao <= ? ORDER BY id_registro";
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long atual = versaoAtual(conn, idUsuario);
+                if (atual < 0) {
+                    conn.commit();
+                    return null;
+                }
+                AlteracoesSync<T> alteracoes = new AlteracoesSync<>(atual);
+
+                try (PreparedStatement stmt = conn.prepareStatement(sqlAlterados)) {
+                    stmt.setInt(1, idUsuario);
+                    stmt.setLong(2, desde);
+                    stmt.setLong(3, atual);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            alteracoes.getAlterados().add(mapeador.mapear(rs));
+                        }
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(sqlExcluidos)) {
+                    stmt.setString(1, entidade);
+                    stmt.setInt(2, idUsuario);
+                    stmt.setLong(3, desde);
+                    stmt.setLong(4, atual);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            alteracoes.getIdsExcluidos().add(rs.getInt(1));
+                        }
+                    }
+                }
+
+                conn.commit();
+                return alteracoes;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Versão atual do usuário (última versão já confirmada)
+     *
+     * @return versão atual ou -1 se o usuário não existir
+     */
+    static long versaoAtual(Connection conn, int idUsuario) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT versao_sync FROM usuario WHERE id = ?")) {
+            stmt.setInt(1, idUsuario);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Incrementa e devolve a versão do usuário, travando a linha dele até o
+     * fim da transação
+     */
+    static long proximaVersao(Connection conn, int idUsuario) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE usuario SET versao_sync = versao_sync + 1, data_atualizacao = data_atualizacao WHERE id = ?")) {
+            stmt.setInt(1, idUsuario);
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("Usuário " + idUsuario + " não encontrado");
+            }
+        }
+        return versaoAtual(conn, idUsuario);
+    }
+}
@@ -0,0 +1,64 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe modelo com as alterações de uma entidade desde uma versão
+ * (resposta da sincronização incremental)
+ *
+ * @param <T> tipo dos registros alterados (Conta, Categoria ou Movimentacao)
+ */
+public class AlteracoesSync<T> {
+    private long versaoAtual;
+    private List<T> alterados;
+    private List<Integer> idsExcluidos;
+
+    // Constructors
+    public AlteracoesSync() {
+        this.alterados = new ArrayList<>();
+        this.idsExcluidos = new ArrayList<>();
+    }
+
+    public AlteracoesSync(long versaoAtual) {
+        this();
+        this.versaoAtual = versaoAtual;
+    }
+
+    // Getters and Setters
+    /** Versão a ser enviada pelo cliente na próxima sincronização */
+    public long getVersaoAtual() {
+        return versaoAtual;
+    }
+
+    public void setVersaoAtual(long versaoAtual) {
+        this.versaoAtual = versaoAtual;
+    }
+
+    /** Registros criados ou alterados depois da versão pedida */
+    public List<T> getAlterados() {
+        return alterados;
+    }
+
+    public void setAlterados(List<T> alterados) {
+        this.alterados = alterados;
+    }
+
+    /** IDs dos registros excluídos depois da versão pedida */
+    public List<Integer> getIdsExcluidos() {
+        return idsExcluidos;
+    }
+
+    public void setIdsExcluidos(List<Integer> idsExcluidos) {
+        this.idsExcluidos = idsExcluidos;
+    }
+
+    @Override
+    public String toString() {
+        return "AlteracoesSync{" +
+                "versaoAtual=" + versaoAtual +
+                ", alterados=" + alterados.size() +
+                ", idsExcluidos=" + idsExcluidos.size() +
+                '}';
+    }
+}
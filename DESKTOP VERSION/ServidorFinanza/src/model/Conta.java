@@ -13,6 +13,9 @@ public class Conta {
     private int idUsuario;
     private Timestamp dataCriacao;
     
+    /** Saldo inicial + movimentações; coluna saldo_atual, mantida pelo servidor a cada movimentação */
+    private double saldoAtual;
+    
     public enum TipoConta {
         CORRENTE("corrente"),
         POUPANCA("poupanca"), 
@@ -77,6 +80,9 @@ public class Conta {
     public Timestamp getDataCriacao() { return dataCriacao; }
     public void setDataCriacao(Timestamp dataCriacao) { this.dataCriacao = dataCriacao; }
     
+    public double getSaldoAtual() { return saldoAtual; }
+    public void setSaldoAtual(double saldoAtual) { this.saldoAtual = saldoAtual; }
+    
     @Override
     public String toString() {
         return "Conta{" +
@@ -0,0 +1,64 @@
+package model;
+
+/**
+ * Classe modelo com os totais exibidos no dashboard de um usuário
+ */
+public class ResumoDashboard {
+    private double saldoTotal;
+    private double receitasMes;
+    private double despesasMes;
+    private int numTransacoes;
+
+    // Constructors
+    public ResumoDashboard() {}
+
+    public ResumoDashboard(double saldoTotal, double receitasMes, double despesasMes, int numTransacoes) {
+        this.saldoTotal = saldoTotal;
+        this.receitasMes = receitasMes;
+        this.despesasMes = despesasMes;
+        this.numTransacoes = numTransacoes;
+    }
+
+    // Getters and Setters
+    public double getSaldoTotal() {
+        return saldoTotal;
+    }
+
+    public void setSaldoTotal(double saldoTotal) {
+        this.saldoTotal = saldoTotal;
+    }
+
+    public double getReceitasMes() {
+        return receitasMes;
+    }
+
+    public void setReceitasMes(double receitasMes) {
+        this.receitasMes = receitasMes;
+    }
+
+    public double getDespesasMes() {
+        return despesasMes;
+    }
+
+    public void setDespesasMes(double despesasMes) {
+        this.despesasMes = despesasMes;
+    }
+
+    public int getNumTransacoes() {
+        return numTransacoes;
+    }
+
+    public void setNumTransacoes(int numTransacoes) {
+        this.numTransacoes = numTransacoes;
+    }
+
+    @Override
+    public String toString() {
+        return "ResumoDashboard{" +
+                "saldoTotal=" + saldoTotal +
+                ", receitasMes=" + receitasMes +
+                ", despesasMes=" + despesasMes +
+                ", numTransacoes=" + numTransacoes +
+                '}';
+    }
+}
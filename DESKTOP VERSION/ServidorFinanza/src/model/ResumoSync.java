@@ -0,0 +1,48 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe modelo com o estado de sincronização de um usuário:
+ * versão atual e entidades alteradas desde a versão do cliente
+ */
+public class ResumoSync {
+    private long versaoAtual;
+    private List<String> entidadesAlteradas;
+
+    // Constructors
+    public ResumoSync() {
+        this.entidadesAlteradas = new ArrayList<>();
+    }
+
+    public ResumoSync(long versaoAtual, List<String> entidadesAlteradas) {
+        this.versaoAtual = versaoAtual;
+        this.entidadesAlteradas = entidadesAlteradas;
+    }
+
+    // Getters and Setters
+    public long getVersaoAtual() {
+        return versaoAtual;
+    }
+
+    public void setVersaoAtual(long versaoAtual) {
+        this.versaoAtual = versaoAtual;
+    }
+
+    public List<String> getEntidadesAlteradas() {
+        return entidadesAlteradas;
+    }
+
+    public void setEntidadesAlteradas(List<String> entidadesAlteradas) {
+        this.entidadesAlteradas = entidadesAlteradas;
+    }
+
+    @Override
+    public String toString() {
+        return "ResumoSync{" +
+                "versaoAtual=" + versaoAtual +
+                ", entidadesAlteradas=" + entidadesAlteradas +
+                '}';
+    }
+}
@@ -0,0 +1,420 @@
+package server;
+
+import model.Categoria;
+import model.Conta;
+import model.Movimentacao;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formato binário do protocolo Finanza (alternativa ao texto com | ; ,)
+ *
+ * Negociado por conexão com a linha de texto "SET_FORMAT|binary" (sem ID de
+ * requisição); depois do "OK|binary" as duas pontas passam a trocar frames:
+ *
+ *   frame      = tamanho (varint) + payload
+ *   requisição = idRequisicao (varint) + comando (string) + nArgs (varint) + args (string...)
+ *   resposta   = idRequisicao (varint) + status (string) + tipoCorpo (byte) + corpo
+ *
+ * Tipos de campo:
+ * - varint: inteiro sem sinal em 7 bits por byte (LEB128); IDs e contagens
+ * - zigzag: inteiro com sinal em varint; centavos e datas
+ * - centavos: valor monetário * 100 como zigzag (sem ponto flutuante na rede)
+ * - data: dias desde 1970-01-01 (epoch day) como zigzag
+ * - string: tamanho em bytes (varint) + UTF-8; pode conter | ; , sem escape
+ *
+ * Corpos:
+ * - CORPO_TEXTO: string com os dados no mesmo formato da resposta de texto
+ * - CORPO_MOVIMENTACOES: n + (id, centavos, data, descricao, tipo, idConta, idCategoria)*
+ * - CORPO_CONTAS: n + (id, nome, tipo, saldoInicial centavos, saldoAtual centavos)*
+ * - CORPO_CATEGORIAS: n + (id, nome, tipo)*
+ * - CORPO_COMPRIMIDO: tipoOriginal (byte) + tamanhoOriginal (varint) + corpo
+ *   original comprimido com deflate (após SET_COMPRESSION, acima do limiar)
+ *
+ * As requisições binárias sempre têm ID e são atendidas como as requisições
+ * com ID do texto (em paralelo, respostas fora de ordem).
+ */
+public final class BinaryProtocol {
+
+    /** Valor de SET_FORMAT que ativa este formato */
+    public static final String FORMATO_BINARIO = "binary";
+    public static final String FORMATO_TEXTO = "text";
+
+    /** Tamanho máximo de um frame */
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    // Tipos de corpo da resposta
+    public static final int CORPO_TEXTO = 0;
+    public static final int CORPO_MOVIMENTACOES = 1;
+    public static final int CORPO_CONTAS = 2;
+    public static final int CORPO_CATEGORIAS = 3;
+    public static final int CORPO_COMPRIMIDO = 4;
+
+    private BinaryProtocol() {}
+
+    /**
+     * Requisição decodificada de um frame
+     */
+    public static final class Requisicao {
+        private final long id;
+        private final String[] partes;
+
+        Requisicao(long id, String[] partes) {
+            this.id = id;
+            this.partes = partes;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /** Comando seguido dos argumentos, como Protocol.parseCommand() */
+        public String[] getPartes() {
+            return partes;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " " + String.join("|", partes);
+        }
+    }
+
+    // ========== FRAMES ==========
+
+    /**
+     * Lê um frame completo do stream
+     * @return payload, ou null se o stream terminar entre frames
+     * @throws IOException se o stream terminar no meio do frame ou o tamanho passar do limite
+     */
+    public static byte[] lerFrame(InputStream in, int maxBytes) throws IOException {
+        int tamanho = 0;
+        for (int deslocamento = 0; ; deslocamento += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (deslocamento == 0) {
+                    return null;
+                }
+                throw new EOFException("Conexão encerrada no meio do frame");
+            }
+            if (deslocamento > 28) {
+                throw new IOException("Tamanho de frame inválido");
+            }
+            tamanho |= (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (tamanho < 0 || tamanho > maxBytes) {
+            throw new IOException("Frame acima de " + maxBytes + " bytes");
+        }
+        byte[] payload = new byte[tamanho];
+        int lidos = 0;
+        while (lidos < tamanho) {
+            int n = in.read(payload, lidos, tamanho - lidos);
+            if (n < 0) {
+                throw new EOFException("Conexão encerrada no meio do frame");
+            }
+            lidos += n;
+        }
+        return payload;
+    }
+
+    /**
+     * Escreve um frame (tamanho + payload); o flush fica a cargo do chamador
+     */
+    public static void escreverFrame(OutputStream out, byte[] payload) throws IOException {
+        Escritor cabecalho = new Escritor(5);
+        cabecalho.varint(payload.length);
+        out.write(cabecalho.buffer, 0, cabecalho.tamanho);
+        out.write(payload);
+    }
+
+    // ========== REQUISIÇÕES ==========
+
+    /**
+     * Decodifica o payload de uma requisição
+     * @throws IllegalArgumentException se o payload estiver malformado
+     */
+    public static Requisicao decodificarRequisicao(byte[] payload) {
+        Leitor leitor = new Leitor(payload);
+        long id = leitor.varlong();
+        String comando = leitor.string();
+        int nArgs = leitor.varint();
+        if (nArgs > payload.length) {
+            throw new IllegalArgumentException("Número de argumentos inválido: " + nArgs);
+        }
+        String[] partes = new String[nArgs + 1];
+        partes[0] = comando;
+        for (int i = 1; i <= nArgs; i++) {
+            partes[i] = leitor.string();
+        }
+        return new Requisicao(id, partes);
+    }
+
+    // ========== RESPOSTAS ==========
+
+    /**
+     * Resposta genérica a partir da resposta de texto "STATUS|dados"
+     */
+    public static byte[] respostaTexto(long idRequisicao, String resposta) {
+        int fimStatus = resposta.indexOf(Protocol.SEPARATOR);
+        String status = fimStatus >= 0 ? resposta.substring(0, fimStatus) : resposta;
+        String dados = fimStatus >= 0 ? resposta.substring(fimStatus + 1) : "";
+
+        Escritor escritor = new Escritor(16 + resposta.length());
+        cabecalhoResposta(escritor, idRequisicao, status, CORPO_TEXTO);
+        escritor.string(dados);
+        return escritor.toByteArray();
+    }
+
+    /**
+     * Lista de movimentações com campos tipados (registros sem tipo ou data são ignorados)
+     */
+    public static byte[] respostaMovimentacoes(long idRequisicao, List<Movimentacao> movimentacoes) {
+        Escritor escritor = new Escritor(16 + movimentacoes.size() * 32);
+        cabecalhoResposta(escritor, idRequisicao, Protocol.STATUS_OK, CORPO_MOVIMENTACOES);
+        escreverMovimentacoes(escritor, movimentacoes);
+        return escritor.toByteArray();
+    }
+
+    /**
+     * Corpo CORPO_MOVIMENTACOES (separado para o benchmark de codec)
+     */
+    public static void escreverMovimentacoes(Escritor escritor, List<Movimentacao> movimentacoes) {
+        int validas = 0;
+        for (Movimentacao mov : movimentacoes) {
+            if (isMovimentacaoValida(mov)) {
+                validas++;
+            }
+        }
+        escritor.varint(validas);
+        for (Movimentacao mov : movimentacoes) {
+            if (!isMovimentacaoValida(mov)) {
+                continue;
+            }
+            escritor.varint(mov.getId());
+            escritor.centavos(mov.getValor());
+            escritor.data(mov.getData());
+            escritor.string(mov.getDescricao() != null ? mov.getDescricao() : "");
+            escritor.string(mov.getTipo().getValor());
+            escritor.varint(mov.getIdConta());
+            escritor.varint(mov.getIdCategoria());
+        }
+    }
+
+    /**
+     * Lista de contas com saldos em centavos
+     */
+    public static byte[] respostaContas(long idRequisicao, List<Conta> contas) {
+        Escritor escritor = new Escritor(16 + contas.size() * 32);
+        cabecalhoResposta(escritor, idRequisicao, Protocol.STATUS_OK, CORPO_CONTAS);
+        escritor.varint(contas.size());
+        for (Conta conta : contas) {
+            escritor.varint(conta.getId());
+            escritor.string(conta.getNome());
+            escritor.string(conta.getTipo().getValor());
+            escritor.centavos(conta.getSaldoInicial());
+            escritor.centavos(conta.getSaldoAtual());
+        }
+        return escritor.toByteArray();
+    }
+
+    /**
+     * Lista de categorias
+     */
+    public static byte[] respostaCategorias(long idRequisicao, List<Categoria> categorias) {
+        Escritor escritor = new Escritor(16 + categorias.size() * 24);
+        cabecalhoResposta(escritor, idRequisicao, Protocol.STATUS_OK, CORPO_CATEGORIAS);
+        escritor.varint(categorias.size());
+        for (Categoria categoria : categorias) {
+            escritor.varint(categoria.getId());
+            escritor.string(categoria.getNome());
+            escritor.string(categoria.getTipo().getValor());
+        }
+        return escritor.toByteArray();
+    }
+
+    /**
+     * Troca o corpo de uma resposta já codificada pela versão comprimida
+     * @return payload com CORPO_COMPRIMIDO, ou o original se não diminuir
+     */
+    static byte[] comprimirResposta(byte[] payload, ResponseCompressor compressor) {
+        Leitor leitor = new Leitor(payload);
+        long idRequisicao = leitor.varlong();
+        String status = leitor.string();
+        int tipoCorpo = leitor.byte_();
+        int inicioCorpo = leitor.posicao;
+        int tamanhoCorpo = payload.length - inicioCorpo;
+
+        byte[] comprimido = compressor.comprimir(payload, inicioCorpo, tamanhoCorpo);
+        // null: conexão encerrada com a resposta em andamento
+        if (comprimido == null || comprimido.length + 6 >= tamanhoCorpo) {
+            return payload;
+        }
+        Escritor escritor = new Escritor(inicioCorpo + 6 + comprimido.length);
+        cabecalhoResposta(escritor, idRequisicao, status, CORPO_COMPRIMIDO);
+        escritor.byte_(tipoCorpo);
+        escritor.varint(tamanhoCorpo);
+        escritor.bytes(comprimido);
+        return escritor.toByteArray();
+    }
+
+    private static void cabecalhoResposta(Escritor escritor, long idRequisicao, String status, int tipoCorpo) {
+        escritor.varlong(idRequisicao);
+        escritor.string(status);
+        escritor.byte_(tipoCorpo);
+    }
+
+    private static boolean isMovimentacaoValida(Movimentacao mov) {
+        return mov != null && mov.getTipo() != null && mov.getData() != null;
+    }
+
+    // ========== CAMPOS ==========
+
+    /**
+     * Escreve campos tipados em um array de bytes que cresce conforme necessário
+     */
+    public static final class Escritor {
+        private byte[] buffer;
+        private int tamanho;
+
+        public Escritor(int capacidadeInicial) {
+            this.buffer = new byte[Math.max(16, capacidadeInicial)];
+        }
+
+        public void byte_(int valor) {
+            garantir(1);
+            buffer[tamanho++] = (byte) valor;
+        }
+
+        public void varint(int valor) {
+            varlong(valor & 0xFFFFFFFFL);
+        }
+
+        public void varlong(long valor) {
+            garantir(10);
+            while ((valor & ~0x7FL) != 0) {
+                buffer[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            buffer[tamanho++] = (byte) valor;
+        }
+
+        public void zigzag(long valor) {
+            varlong((valor << 1) ^ (valor >> 63));
+        }
+
+        public void centavos(double valor) {
+            zigzag(Math.round(valor * 100));
+        }
+
+        public void data(Date data) {
+            zigzag(data.toLocalDate().toEpochDay());
+        }
+
+        public void string(String valor) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            bytes(bytes);
+        }
+
+        /** Bytes sem tamanho (o leitor precisa saber onde terminam) */
+        public void bytes(byte[] bytes) {
+            garantir(bytes.length);
+            System.arraycopy(bytes, 0, buffer, tamanho, bytes.length);
+            tamanho += bytes.length;
+        }
+
+        public int tamanho() {
+            return tamanho;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, tamanho);
+        }
+
+        private void garantir(int extra) {
+            if (tamanho + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, tamanho + extra));
+            }
+        }
+    }
+
+    /**
+     * Lê campos tipados de um payload
+     *
+     * Payload truncado ou malformado gera IllegalArgumentException.
+     */
+    public static final class Leitor {
+        private final byte[] buffer;
+        private int posicao;
+
+        public Leitor(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        public int byte_() {
+            exigir(1);
+            return buffer[posicao++] & 0xFF;
+        }
+
+        public int varint() {
+            long valor = varlong();
+            if (valor > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Inteiro fora do intervalo: " + valor);
+            }
+            return (int) valor;
+        }
+
+        public long varlong() {
+            long valor = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                int b = byte_();
+                valor |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IllegalArgumentException("Varint malformado");
+        }
+
+        public long zigzag() {
+            long valor = varlong();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        public long centavos() {
+            return zigzag();
+        }
+
+        public Date data() {
+            return Date.valueOf(LocalDate.ofEpochDay(zigzag()));
+        }
+
+        public String string() {
+            int n = varint();
+            exigir(n);
+            String valor = new String(buffer, posicao, n, StandardCharsets.UTF_8);
+            posicao += n;
+            return valor;
+        }
+
+        public boolean temMais() {
+            return posicao < buffer.length;
+        }
+
+        private void exigir(int n) {
+            if (n > buffer.length - posicao) {
+                throw new IllegalArgumentException("Payload truncado");
+            }
+        }
+    }
+}
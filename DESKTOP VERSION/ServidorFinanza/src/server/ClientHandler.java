@@ -2,44 +2,66 @@ package server;
 
 import dao.*;
 import model.*;
+import util.PasswordHasher;
 import util.SecurityUtil;
 
 import java.io.*;
 import java.net.Socket;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * ClientHandler - Manipulador de Clientes Conectados ao Servidor
  * 
- * Esta classe extends Thread e é responsável por processar todos os comandos
+ * Esta classe implementa Runnable e é responsável por processar todos os comandos
  * recebidos de um cliente específico (mobile ou desktop) conectado ao servidor.
  * 
  * Funcionalidades:
- * - Executar em thread separada para cada cliente conectado
+ * - Executar em um worker do ConnectionExecutor para cada cliente conectado
  * - Receber comandos via Socket TCP/IP
  * - Processar 40+ tipos de comandos diferentes
- * - Interagir com banco de dados MySQL via DAOs
+ * - Interagir com banco de dados MySQL via repositórios (DAOs)
  * - Enviar respostas formatadas de volta ao cliente
  * - Manter sessão do usuário durante conexão
  * - Gerenciar autenticação e autorização
  * 
  * Arquitetura:
  * - Uma instância de ClientHandler por cliente conectado
- * - Cada instância roda em thread própria
+ * - Cada instância roda em um worker do ConnectionExecutor
  * - Comunicação via BufferedReader (entrada) e PrintWriter (saída)
  * - Protocolo de texto delimitado por pipes (|)
+ * - Requisições com ID ("#id|COMANDO|...") são executadas no pool de
+ *   pipelining e respondidas fora de ordem; as demais, em ordem
+ * - Respostas grandes comprimidas com deflate após SET_COMPRESSION
+ * - Após SUBSCRIBE, alterações feitas por outras conexões chegam como
+ *   "#0|NOTIFY|..." a qualquer momento (NotificationHub)
  * 
  * Comandos suportados (40+):
- * - Autenticação: LOGIN, REGISTER, LOGOUT, RESET_PASSWORD, CHANGE_PASSWORD
+ * - Autenticação: LOGIN, REGISTER, LOGOUT, RESUME, RESET_PASSWORD, CHANGE_PASSWORD
  * - Dashboard: GET_DASHBOARD
  * - Contas: LIST, ADD, UPDATE, DELETE
  * - Categorias: LIST, ADD, UPDATE, DELETE
  * - Movimentações: LIST, ADD, UPDATE, DELETE (com filtros)
+ * - Sincronização: INCREMENTAL_SYNC, LIST_CHANGES_SINCE (por versão), BULK_UPLOAD
  * - Perfil: GET, UPDATE
- * - Admin: Gerenciamento completo de usuários e dados
+ * - Admin: Gerenciamento completo de usuários e dados, STATS (métricas)
+ * - Notificações: SUBSCRIBE
  * 
  * Fluxo de processamento:
  * 1. Cliente conecta → Servidor cria ClientHandler
@@ -47,7 +69,7 @@ import java.util.List;
  * 3. Cliente envia comando → ClientHandler recebe
  * 4. processarComando() → Identifica tipo de comando
  * 5. processar<TipoComando>() → Executa lógica específica
- * 6. Interage com DAO → Acessa banco MySQL
+ * 6. Interage com repositório → Acessa banco MySQL (ou memória no modo de teste)
  * 7. Formata resposta via Protocol
  * 8. Envia resposta ao cliente
  * 9. Volta ao passo 3 (loop)
@@ -68,44 +90,89 @@ import java.util.List;
  * - Tratamento de exceções para evitar vazamento de informações
  * - Controle de sessão por conexão
  * 
+ * Métricas:
+ * - Cada comando atendido (texto, streaming ou frame binário) é medido
+ *   em ServerMetrics: latência, status, tamanho da resposta e tempo de banco
+ * 
  * Modo de teste:
- * - testMode=true: Simula respostas sem acessar banco
- * - Útil para testes automatizados
+ * - Recebe Repositorios.memoria(): mesma lógica dos comandos, dados em memória
+ * - Útil para testes automatizados e de carga sem banco
  * 
  * @author Finanza Team
  * @version 1.0
  * @since 2024
  */
-public class ClientHandler extends Thread {
-    /** Formato padrão para datas (dd/MM/yyyy) */
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yyyy");
+public class ClientHandler implements Runnable, NotificationHub.Inscrito {
+    /** Formato padrão para datas (dd/MM/yyyy), um por thread (SimpleDateFormat não é thread-safe) */
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat("dd/MM/yyyy"));
     
     /** Socket de comunicação com o cliente */
     private Socket clientSocket;
     
-    /** Stream de entrada para receber comandos do cliente */
-    private BufferedReader input;
+    /** Stream de entrada para receber comandos do cliente (linhas de texto ou frames binários) */
+    private InputStream input;
     
     /** Stream de saída para enviar respostas ao cliente */
     private PrintWriter output;
     
-    /** Flag que indica se está em modo de teste (sem banco) */
-    private boolean testMode;
+    /** Bytes sob o output, para os corpos comprimidos (escritos após output.flush()) */
+    private OutputStream saidaBytes;
+    
+    /** Saída dos frames depois de SET_FORMAT|binary (criada em atenderFrames()) */
+    private volatile OutputStream saidaBinaria;
+    
+    /** Saída das notificações no NioFrontEnd (bytes já no formato da sessão); null no front end bloqueante */
+    private volatile Predicate<byte[]> saidaNotificacoes;
+    
+    /** Trava que mantém cada resposta inteira na saída quando há requisições em paralelo */
+    private final ReentrantLock saidaLock = new ReentrantLock();
+    
+    /**
+     * Espera máxima de uma notificação pela trava de saída: uma listagem em
+     * streaming ou um cliente lento não seguram as threads de entrega do
+     * NotificationHub (a notificação é descartada, como no NioFrontEnd)
+     */
+    private static final long ESPERA_NOTIFICACAO_MS = 100;
+    
+    /** Pool que executa as requisições com ID (null = executa na própria thread da conexão) */
+    private ExecutorService pipeline;
     
-    /** DAO para acesso à tabela de usuários */
-    private UsuarioDAO usuarioDAO;
+    /** Limita as requisições com ID em voo nesta conexão (Protocol.MAX_IN_FLIGHT) */
+    private final Semaphore emVoo = new Semaphore(Protocol.MAX_IN_FLIGHT);
     
-    /** DAO para acesso à tabela de contas */
-    private ContaDAO contaDAO;
+    /** Acesso aos usuários (banco ou memória, conforme Repositorios) */
+    private UsuarioRepositorio usuarioDAO;
     
-    /** DAO para acesso à tabela de categorias */
-    private CategoriaDAO categoriaDAO;
+    /** Acesso às contas */
+    private ContaRepositorio contaDAO;
     
-    /** DAO para acesso à tabela de movimentações */
-    private MovimentacaoDAO movimentacaoDAO;
+    /** Acesso às categorias */
+    private CategoriaRepositorio categoriaDAO;
     
-    /** Usuário atualmente autenticado nesta conexão */
-    private Usuario usuarioLogado;
+    /** Acesso às movimentações */
+    private MovimentacaoRepositorio movimentacaoDAO;
+    
+    /** Totais agregados do dashboard */
+    private DashboardRepositorio dashboardDAO;
+    
+    /** Estado da sincronização incremental */
+    private SincronizacaoRepositorio sincronizacaoDAO;
+    
+    /** Conexão negociada para o formato binário (SET_FORMAT|binary) */
+    private volatile boolean formatoBinario;
+    
+    /** Compressão das respostas grandes (desativada até SET_COMPRESSION) */
+    private final ResponseCompressor compressor = new ResponseCompressor();
+    
+    /** Usuário atualmente autenticado nesta conexão (lido por requisições em paralelo) */
+    private volatile Usuario usuarioLogado;
+    
+    /** Token da sessão desta conexão (SessionStore), encerrado no LOGOUT */
+    private volatile String tokenSessao;
+    
+    /** Usuário inscrito em NotificationHub por esta conexão (0 = sem inscrição) */
+    private volatile int idInscrito;
     
     /**
      * Construtor do ClientHandler
@@ -113,37 +180,56 @@ public class ClientHandler extends Thread {
      * Inicializa um manipulador para processar comandos de um cliente específico.
      * 
      * @param clientSocket Socket de comunicação com o cliente conectado
-     * @param testMode true para modo de teste (sem banco), false para produção
-     * 
-     * Modo de teste:
-     * - Desabilita acesso ao banco de dados
-     * - Retorna respostas simuladas
-     * - Útil para testes unitários e integração
+     * @param repositorios acesso aos dados: Repositorios.jdbc() em produção,
+     *                     Repositorios.memoria() no modo de teste
      * 
      * Inicialização:
      * - Armazena socket do cliente
-     * - Cria instâncias dos DAOs para acesso ao banco
+     * - Guarda os repositórios (compartilhados por todas as conexões)
      * - Prepara ambiente para processamento de comandos
      */
-    public ClientHandler(Socket clientSocket, boolean testMode) {
+    public ClientHandler(Socket clientSocket, Repositorios repositorios) {
+        this(repositorios);
+        
         // Armazena socket para comunicação posterior
         this.clientSocket = clientSocket;
-        
-        // Define modo de operação (teste ou produção)
-        this.testMode = testMode;
-        
-        // Inicializa DAOs para acesso ao banco de dados
-        // Cada DAO gerencia uma tabela específica
-        this.usuarioDAO = new UsuarioDAO();         // Gerencia tabela 'usuario'
-        this.contaDAO = new ContaDAO();             // Gerencia tabela 'conta'
-        this.categoriaDAO = new CategoriaDAO();     // Gerencia tabela 'categoria'
-        this.movimentacaoDAO = new MovimentacaoDAO(); // Gerencia tabela 'movimentacao'
     }
     
     /**
-     * Método principal da thread - Loop de processamento de comandos
+     * Construtor com pool de pipelining
+     * 
+     * @param clientSocket Socket de comunicação com o cliente conectado
+     * @param repositorios acesso aos dados (banco ou memória)
+     * @param pipeline pool compartilhado que executa as requisições com ID
+     */
+    public ClientHandler(Socket clientSocket, Repositorios repositorios, ExecutorService pipeline) {
+        this(clientSocket, repositorios);
+        this.pipeline = pipeline;
+    }
+    
+    /**
+     * Construtor sem socket, usado pelo NioFrontEnd
+     * 
+     * Mantém apenas o estado da sessão (usuário logado) e os repositórios;
+     * a leitura e escrita na rede ficam a cargo do front end NIO,
+     * que entrega cada linha completa via atenderComando().
+     * 
+     * @param repositorios acesso aos dados (banco ou memória)
+     */
+    ClientHandler(Repositorios repositorios) {
+        // Cada repositório cuida de uma entidade (tabela no banco)
+        this.usuarioDAO = repositorios.getUsuarios();           // 'usuario'
+        this.contaDAO = repositorios.getContas();               // 'conta'
+        this.categoriaDAO = repositorios.getCategorias();       // 'categoria'
+        this.movimentacaoDAO = repositorios.getMovimentacoes(); // 'movimentacao'
+        this.dashboardDAO = repositorios.getDashboard();        // Totais do dashboard (consulta única)
+        this.sincronizacaoDAO = repositorios.getSincronizacao(); // Versões da sincronização incremental
+    }
+    
+    /**
+     * Método principal do handler - Loop de processamento de comandos
      * 
-     * Este método é executado quando a thread é iniciada (start()).
+     * Este método é executado pelo worker do ConnectionExecutor.
      * Implementa o loop principal de comunicação com o cliente.
      * 
      * Fluxo de execução:
@@ -175,57 +261,82 @@ public class ClientHandler extends Thread {
      * - Finally: Sempre fecha conexão, mesmo se houver exceção
      * 
      * Thread:
-     * - Cada cliente tem sua própria thread
-     * - Thread morre quando cliente desconecta
+     * - Cada cliente ocupa um worker (thread do pool ou virtual thread)
+     * - Worker é liberado quando cliente desconecta
      * - Servidor continua aceitando novos clientes
      */
     @Override
     public void run() {
         try {
             // ========== FASE 1: INICIALIZAÇÃO DOS STREAMS ==========
-            // Cria BufferedReader para ler comandos do cliente
-            // InputStreamReader converte bytes em caracteres (UTF-8)
-            // BufferedReader adiciona buffering para performance
-            input = new BufferedReader(
-                new InputStreamReader(clientSocket.getInputStream())
-            );
+            // Entrada em bytes com buffer: as linhas de texto são decodificadas
+            // em UTF-8 por lerLinha() e, após SET_FORMAT|binary, o mesmo stream
+            // passa a ser lido em frames (sem perder bytes já bufferizados)
+            input = new BufferedInputStream(clientSocket.getInputStream());
             
             // Cria PrintWriter para enviar respostas ao cliente
             // true = auto-flush (envia imediatamente após println)
-            output = new PrintWriter(clientSocket.getOutputStream(), true);
+            // Os bytes passam por saidaBytes, usado também pelas respostas comprimidas
+            saidaBytes = new BufferedOutputStream(clientSocket.getOutputStream());
+            output = new PrintWriter(new OutputStreamWriter(saidaBytes, StandardCharsets.UTF_8), true);
             
             // Obtém endereço IP e porta do cliente para log
             String clientAddress = clientSocket.getRemoteSocketAddress().toString();
-            System.out.println("✓ Cliente conectado: " + clientAddress);
+            ServerLog.info("✓ Cliente conectado: " + clientAddress);
             
             // ========== FASE 2: LOOP DE PROCESSAMENTO ==========
             String comando;
             // Loop infinito que só para quando cliente desconectar
-            while ((comando = input.readLine()) != null) {
-                // readLine() BLOQUEIA aqui esperando cliente enviar comando
+            while ((comando = lerLinha(input)) != null) {
+                // lerLinha() BLOQUEIA aqui esperando cliente enviar comando
                 // Retorna null quando cliente fecha conexão
                 // Retorna String com o comando quando cliente envia
                 
-                // Log do comando recebido
-                System.out.println("➤ Comando recebido: " + comando);
-                
-                // Processa o comando e obtém resposta
-                // processarComando() faz parse e executa lógica apropriada
-                String resposta = processarComando(comando);
-                
-                // Log da resposta que será enviada
-                System.out.println("← Resposta enviada: " + resposta);
+                // Requisição com ID: vai para o pool de pipelining e a leitura
+                // continua; a resposta sai com o mesmo ID quando ficar pronta
+                String requestId = Protocol.extractRequestId(comando);
+                if (requestId != null) {
+                    despacharRequisicao(requestId, Protocol.stripRequestId(comando, requestId));
+                    continue;
+                }
                 
-                // Envia resposta de volta ao cliente
-                // println adiciona \n no final
-                // auto-flush garante envio imediato
-                output.println(resposta);
+                // Linha sem ID (clientes antigos): espera as requisições em voo
+                // terminarem e responde na ordem, como sempre
+                emVoo.acquireUninterruptibly(Protocol.MAX_IN_FLIGHT);
+                try {
+                    // Negociação de formato: após OK|binary a conexão passa a frames
+                    if (isNegociacaoFormato(comando)) {
+                        saidaLock.lock();
+                        try {
+                            output.println(negociarFormato(comando));
+                        } finally {
+                            saidaLock.unlock();
+                        }
+                        if (formatoBinario) {
+                            break;
+                        }
+                        continue;
+                    }
+                    
+                    // Processa o comando e escreve a resposta no PrintWriter
+                    // (atenderComando() registra o log e delega para processarComando();
+                    // listagens grandes do admin são escritas em streaming e
+                    // respostas acima do limiar saem comprimidas, se negociado)
+                    responderTexto("", comando);
+                } finally {
+                    emVoo.release(Protocol.MAX_IN_FLIGHT);
+                }
                 
                 // Volta ao início do loop para próximo comando
             }
             
-            // Se chegou aqui, cliente desconectou (readLine retornou null)
-            System.out.println("✗ Cliente desconectado: " + clientAddress);
+            // Formato binário negociado: o restante da conexão é em frames
+            if (formatoBinario) {
+                atenderFrames();
+            }
+            
+            // Se chegou aqui, cliente desconectou (lerLinha retornou null)
+            ServerLog.info("✗ Cliente desconectado: " + clientAddress);
             
         } catch (IOException e) {
             // Erro de I/O durante comunicação
@@ -233,7 +344,7 @@ public class ClientHandler extends Thread {
             // - Cliente desconectou abruptamente
             // - Timeout de rede
             // - Perda de conexão
-            System.err.println("✗ Erro na comunicação com cliente: " + e.getMessage());
+            ServerLog.erro("✗ Erro na comunicação com cliente: " + e.getMessage());
             
         } finally {
             // ========== FASE 3: LIMPEZA E ENCERRAMENTO ==========
@@ -243,6 +354,451 @@ public class ClientHandler extends Thread {
         }
     }
     
+    /**
+     * Lê uma linha do protocolo de texto (UTF-8, terminada por '\n' ou "\r\n")
+     * 
+     * Lê byte a byte do stream bufferizado para não consumir nada além da
+     * linha: depois da negociação de formato o restante são frames binários.
+     * 
+     * @return linha sem o terminador, ou null se o cliente desconectou
+     */
+    private static String lerLinha(InputStream in) throws IOException {
+        ByteArrayOutputStream linha = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return linha.size() > 0 ? linha.toString(StandardCharsets.UTF_8.name()) : null;
+            }
+            linha.write(b);
+        }
+        byte[] bytes = linha.toByteArray();
+        int tamanho = bytes.length;
+        if (tamanho > 0 && bytes[tamanho - 1] == '\r') {
+            tamanho--;
+        }
+        return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Loop do formato binário: cada frame é uma requisição com ID, atendida
+     * no pool de pipelining como as linhas "#id|..." do texto
+     */
+    private void atenderFrames() throws IOException {
+        OutputStream saidaBinaria = new BufferedOutputStream(clientSocket.getOutputStream());
+        this.saidaBinaria = saidaBinaria;
+        byte[] frame;
+        while ((frame = BinaryProtocol.lerFrame(input, BinaryProtocol.MAX_FRAME_BYTES)) != null) {
+            byte[] payload = frame;
+            emVoo.acquireUninterruptibly();
+            Runnable tarefa = () -> {
+                try {
+                    byte[] resposta = atenderFrame(payload);
+                    saidaLock.lock();
+                    try {
+                        BinaryProtocol.escreverFrame(saidaBinaria, resposta);
+                        saidaBinaria.flush();
+                    } finally {
+                        saidaLock.unlock();
+                    }
+                } catch (IOException e) {
+                    ServerLog.erro("✗ Erro ao enviar resposta binária: " + e.getMessage());
+                } finally {
+                    emVoo.release();
+                }
+            };
+            if (pipeline == null) {
+                tarefa.run();
+                continue;
+            }
+            try {
+                pipeline.execute(tarefa);
+            } catch (RejectedExecutionException e) {
+                tarefa.run();
+            }
+        }
+    }
+    
+    /**
+     * Verifica se a linha (sem ID) é a negociação de formato SET_FORMAT
+     */
+    static boolean isNegociacaoFormato(String linha) {
+        return Protocol.CMD_SET_FORMAT.equals(tipoComando(linha));
+    }
+    
+    /**
+     * Atende SET_FORMAT|formato
+     * 
+     * Chamado pelos front ends apenas para linhas sem ID, com nenhuma outra
+     * requisição em voo; depois de responder OK|binary o front end passa a
+     * ler e escrever frames (isFormatoBinario()).
+     * 
+     * @param linha linha recebida
+     * @return resposta de texto
+     */
+    String negociarFormato(String linha) {
+        String[] partes = Protocol.parseCommand(linha);
+        String resposta;
+        if (formatoBinario) {
+            resposta = Protocol.createErrorResponse("Formato já negociado");
+        } else if (idInscrito != 0) {
+            // Notificações já podem estar a caminho no formato atual
+            resposta = Protocol.createErrorResponse("Formato deve ser negociado antes de SUBSCRIBE");
+        } else if (partes.length < 2) {
+            resposta = Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Formato não informado");
+        } else if (BinaryProtocol.FORMATO_BINARIO.equalsIgnoreCase(partes[1].trim())) {
+            formatoBinario = true;
+            resposta = Protocol.createSuccessResponse(BinaryProtocol.FORMATO_BINARIO);
+        } else if (BinaryProtocol.FORMATO_TEXTO.equalsIgnoreCase(partes[1].trim())) {
+            resposta = Protocol.createSuccessResponse(BinaryProtocol.FORMATO_TEXTO);
+        } else {
+            resposta = Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Formato desconhecido: " + partes[1]);
+        }
+        ServerLog.requisicao(Protocol.CMD_SET_FORMAT, linha, resposta);
+        return resposta;
+    }
+    
+    /** Indica se a conexão já negociou o formato binário */
+    boolean isFormatoBinario() {
+        return formatoBinario;
+    }
+    
+    /**
+     * Processa SET_COMPRESSION|algoritmo[|limiarBytes]
+     * 
+     * Aceito a qualquer momento, com ou sem ID: cada resposta decide no
+     * momento da escrita se vai comprimida, e o cliente que pediu a compressão
+     * aceita os dois formatos.
+     * 
+     * @return OK|deflate|limiar, OK|none ou INVALID_DATA
+     */
+    private String processarSetCompression(String[] partes) {
+        if (partes.length < 2) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Algoritmo não informado");
+        }
+        String algoritmo = partes[1].trim();
+        if (ResponseCompressor.ALGORITMO_NENHUM.equalsIgnoreCase(algoritmo)) {
+            compressor.desativar();
+            return Protocol.createSuccessResponse(ResponseCompressor.ALGORITMO_NENHUM);
+        }
+        if (!ResponseCompressor.ALGORITMO_DEFLATE.equalsIgnoreCase(algoritmo)) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Algoritmo não suportado: " + algoritmo);
+        }
+        
+        int limiar = ResponseCompressor.LIMIAR_PADRAO;
+        if (partes.length > 2 && !partes[2].trim().isEmpty()) {
+            try {
+                limiar = Integer.parseInt(partes[2].trim());
+            } catch (NumberFormatException e) {
+                return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Limiar inválido: " + partes[2]);
+            }
+        }
+        limiar = compressor.ativar(limiar);
+        return Protocol.createSuccessResponse(ResponseCompressor.ALGORITMO_DEFLATE + Protocol.SEPARATOR + limiar);
+    }
+    
+    /**
+     * Atende um frame binário e devolve o payload da resposta
+     * 
+     * LIST_MOVIMENTACOES, LIST_CONTAS e LIST_CATEGORIAS respondem com corpo
+     * tipado (centavos, epoch day, strings sem escape); os demais comandos
+     * passam pelo mesmo roteamento do texto e a resposta vai como CORPO_TEXTO.
+     * Os argumentos chegam já separados, então podem conter | ; , livremente.
+     * 
+     * @param payload payload do frame recebido
+     * @return payload do frame de resposta
+     */
+    byte[] atenderFrame(byte[] payload) {
+        BinaryProtocol.Requisicao requisicao;
+        try {
+            requisicao = BinaryProtocol.decodificarRequisicao(payload);
+        } catch (IllegalArgumentException e) {
+            ServerLog.aviso("✗ Frame inválido: " + e.getMessage());
+            return BinaryProtocol.respostaTexto(0, Protocol.createErrorResponse("Frame inválido"));
+        }
+        String tipo = requisicao.getPartes()[0];
+        ServerMetrics.Medicao medicao = ServerMetrics.getInstance().iniciar(tipo);
+        
+        byte[] tipada = responderListagemTipada(requisicao);
+        if (tipada != null) {
+            medicao.finalizar(true, tipada.length);
+            ServerLog.requisicao(tipo, requisicao, tipada.length + " bytes (binário)", true);
+            return comprimirFrame(tipada);
+        }
+        
+        String resposta = Protocol.CMD_SET_FORMAT.equals(tipo)
+                ? Protocol.createErrorResponse("Formato já negociado")
+                : processarPartes(requisicao.getPartes());
+        medicao.finalizar(resposta);
+        ServerLog.requisicao(tipo, requisicao, resposta);
+        return comprimirFrame(BinaryProtocol.respostaTexto(requisicao.getId(), resposta));
+    }
+    
+    /**
+     * Comprime o corpo da resposta binária se a compressão foi negociada
+     * e o payload passa do limiar
+     */
+    private byte[] comprimirFrame(byte[] payload) {
+        if (!compressor.isAtiva() || payload.length <= compressor.getLimiar()) {
+            return payload;
+        }
+        return BinaryProtocol.comprimirResposta(payload, compressor);
+    }
+    
+    /**
+     * Compressão desta conexão (usada pelo NioFrontEnd ao escrever respostas de texto)
+     */
+    ResponseCompressor getCompressor() {
+        return compressor;
+    }
+    
+    /**
+     * Listagens com corpo tipado no formato binário
+     * @return payload da resposta, ou null para seguir pelo roteamento de texto
+     *         (comando sem versão tipada, usuário não logado ou erro de banco)
+     */
+    private byte[] responderListagemTipada(BinaryProtocol.Requisicao requisicao) {
+        Usuario usuario = usuarioLogado;
+        if (usuario == null) {
+            return null;
+        }
+        long id = requisicao.getId();
+        try {
+            switch (requisicao.getPartes()[0]) {
+                case Protocol.CMD_LIST_MOVIMENTACOES:
+                    return BinaryProtocol.respostaMovimentacoes(id, movimentacaoDAO.listarPorUsuario(usuario.getId()));
+                case Protocol.CMD_LIST_CONTAS:
+                    // Saldo atual já vem na listagem (coluna saldo_atual)
+                    return BinaryProtocol.respostaContas(id, contaDAO.listarPorUsuario(usuario.getId()));
+                case Protocol.CMD_LIST_CATEGORIAS:
+                    return BinaryProtocol.respostaCategorias(id, categoriaDAO.listarPorUsuario(usuario.getId()));
+                default:
+                    return null;
+            }
+        } catch (RuntimeException e) {
+            ServerLog.erro("Erro na listagem binária: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Executa uma requisição com ID no pool de pipelining
+     * 
+     * Com MAX_IN_FLIGHT requisições em voo a leitura da conexão espera
+     * (contrapressão). A resposta é calculada fora da trava de saída e escrita
+     * de uma vez, com o prefixo "#id|"; só as listagens em streaming seguram a
+     * trava enquanto escrevem.
+     * 
+     * @param requestId ID escolhido pelo cliente
+     * @param comando linha sem o prefixo de ID
+     */
+    private void despacharRequisicao(String requestId, String comando) {
+        emVoo.acquireUninterruptibly();
+        Runnable tarefa = () -> {
+            try {
+                responderRequisicao(requestId, comando);
+            } finally {
+                emVoo.release();
+            }
+        };
+        if (pipeline == null) {
+            tarefa.run();
+            return;
+        }
+        try {
+            pipeline.execute(tarefa);
+        } catch (RejectedExecutionException e) {
+            // Pool encerrado (servidor parando): atende na thread da conexão
+            tarefa.run();
+        }
+    }
+    
+    private void responderRequisicao(String requestId, String comando) {
+        try {
+            responderTexto(Protocol.responsePrefix(requestId), comando);
+        } catch (IOException | RuntimeException e) {
+            ServerLog.erro("✗ Erro ao atender requisição #" + requestId + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Atende um comando de texto e escreve a resposta após o prefixo
+     * ("" ou "#id|"), terminada por '\n'
+     * 
+     * Com a compressão negociada a resposta é montada fora da trava de saída
+     * (ResponseCompressor.Resposta comprime a partir do limiar, inclusive nas
+     * listagens em streaming) e, se comprimida, sai como a linha
+     * "COMPRESSED|tamanho|tamanhoOriginal" seguida dos bytes, sem '\n'.
+     */
+    private void responderTexto(String prefixo, String comando) throws IOException {
+        if (compressor.isAtiva()) {
+            ResponseCompressor.Resposta resposta = compressor.novaResposta();
+            try {
+                atenderComando(comando, resposta);
+            } catch (RespostaInterrompidaException e) {
+                interromperConexao();
+                throw e;
+            } finally {
+                resposta.finalizar();
+            }
+            saidaLock.lock();
+            try {
+                output.write(prefixo);
+                if (resposta.isComprimida()) {
+                    output.println(resposta.getCabecalho());
+                    saidaBytes.write(resposta.getBytes());
+                    saidaBytes.flush();
+                } else {
+                    output.write(resposta.getTexto());
+                    output.println();
+                }
+            } finally {
+                saidaLock.unlock();
+            }
+            return;
+        }
+        
+        if (isListagemStreaming(tipoComando(comando))) {
+            saidaLock.lock();
+            try {
+                output.write(prefixo);
+                atenderComando(comando, output);
+                output.println();
+            } catch (RespostaInterrompidaException e) {
+                // Ainda com a trava: nenhuma outra resposta entra depois da
+                // linha cortada antes do socket fechar
+                interromperConexao();
+                throw e;
+            } finally {
+                saidaLock.unlock();
+            }
+            return;
+        }
+        String resposta = atenderComando(comando);
+        saidaLock.lock();
+        try {
+            output.write(prefixo);
+            output.write(resposta);
+            output.println();
+        } finally {
+            saidaLock.unlock();
+        }
+    }
+    
+    /**
+     * Atende um comando completo recebido do cliente
+     * 
+     * Ponto de entrada comum aos front ends do servidor: o loop bloqueante
+     * de run() e o NioFrontEnd (que chama este método a partir dos workers).
+     * Registra o comando e a resposta no log (ServerLog, assíncrono e com
+     * amostragem), mede em ServerMetrics e delega para processarComando().
+     * 
+     * @param comando linha recebida, sem o terminador
+     * @return resposta a ser enviada ao cliente (sem o terminador)
+     */
+    String atenderComando(String comando) {
+        String tipo = tipoComando(comando);
+        ServerMetrics.Medicao medicao = ServerMetrics.getInstance().iniciar(tipo);
+        
+        // processarComando() faz parse e executa lógica apropriada
+        String resposta = processarComando(comando);
+        medicao.finalizar(resposta);
+        
+        // Comando e resposta (truncados) vão para a fila do log; a
+        // gravação acontece fora da thread que atende a requisição
+        ServerLog.requisicao(tipo, comando, resposta);
+        return resposta;
+    }
+    
+    /**
+     * Atende um comando escrevendo a resposta diretamente no writer
+     * 
+     * As listagens completas do admin (ADMIN_LIST_ALL_*) são transmitidas do
+     * ResultSet para o writer registro a registro, sem montar a resposta
+     * inteira em memória; os demais comandos passam por atenderComando(String).
+     * O terminador de linha e o flush ficam a cargo do chamador.
+     * 
+     * @param comando linha recebida, sem o terminador
+     * @param saida destino da resposta
+     * @throws IOException se a escrita falhar (cliente desconectou)
+     */
+    void atenderComando(String comando, Writer saida) throws IOException {
+        String tipo = tipoComando(comando);
+        if (!isListagemStreaming(tipo)) {
+            saida.write(atenderComando(comando));
+            return;
+        }
+        
+        ServerMetrics.Medicao medicao = ServerMetrics.getInstance().iniciar(tipo);
+        EscritorContador contador = new EscritorContador(saida);
+        int registros = -1;
+        try {
+            registros = transmitirListagemAdmin(tipo, contador);
+        } finally {
+            medicao.finalizar(registros >= 0, contador.caracteres);
+            ServerLog.requisicao(tipo, comando,
+                    registros >= 0 ? registros + " registros (streaming)" : "erro (streaming)", registros >= 0);
+        }
+    }
+    
+    /**
+     * Listagem em streaming que falhou no banco depois de enviar registros
+     * 
+     * A linha já começou com OK e não há como transformá-la em erro: quem
+     * escreve a resposta fecha a conexão em vez de terminar a linha, e o
+     * cliente vê a queda (não uma lista incompleta tomada por completa).
+     */
+    static final class RespostaInterrompidaException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        RespostaInterrompidaException(String mensagem) {
+            super(mensagem);
+        }
+    }
+    
+    /**
+     * Fecha o socket do front end bloqueante (a thread da conexão sai do
+     * loop de leitura e faz o restante do encerramento)
+     */
+    private void interromperConexao() {
+        if (clientSocket == null) {
+            return;
+        }
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            // Já fechado
+        }
+    }
+    
+    /**
+     * Writer que conta os caracteres repassados (tamanho das respostas em streaming)
+     */
+    private static final class EscritorContador extends FilterWriter {
+        private long caracteres;
+        
+        EscritorContador(Writer saida) {
+            super(saida);
+        }
+        
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            caracteres++;
+        }
+        
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            caracteres += len;
+        }
+        
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            caracteres += len;
+        }
+    }
+    
     /**
      * Processa comando recebido do cliente
      * 
@@ -274,8 +830,8 @@ public class ClientHandler extends Thread {
      * 
      * Categorias de comandos (40+):
      * 
-     * ┌─ AUTENTICAÇÃO (5 comandos) ────────────────┐
-     * │ LOGIN, REGISTER, LOGOUT,                    │
+     * ┌─ AUTENTICAÇÃO (6 comandos) ────────────────┐
+     * │ LOGIN, REGISTER, LOGOUT, RESUME,            │
      * │ RESET_PASSWORD, CHANGE_PASSWORD             │
      * └─────────────────────────────────────────────┘
      * 
@@ -294,14 +850,22 @@ public class ClientHandler extends Thread {
      * │ DELETE_CATEGORIA                            │
      * └─────────────────────────────────────────────┘
      * 
-     * ┌─ MOVIMENTAÇÕES (6 comandos) ───────────────┐
+     * ┌─ MOVIMENTAÇÕES (9 comandos) ───────────────┐
      * │ LIST_MOVIMENTACOES,                         │
      * │ LIST_MOVIMENTACOES_PERIODO,                 │
      * │ LIST_MOVIMENTACOES_CONTA,                   │
+     * │ LIST_MOVIMENTACOES_PAGE,                    │
+     * │ LIST_MOVIMENTACOES_PERIODO_PAGE,            │
+     * │ LIST_MOVIMENTACOES_CONTA_PAGE,              │
      * │ ADD_MOVIMENTACAO, UPDATE_MOVIMENTACAO,      │
      * │ DELETE_MOVIMENTACAO                         │
      * └─────────────────────────────────────────────┘
      * 
+     * ┌─ SINCRONIZAÇÃO (3 comandos) ───────────────┐
+     * │ INCREMENTAL_SYNC, LIST_CHANGES_SINCE,       │
+     * │ BULK_UPLOAD                                 │
+     * └─────────────────────────────────────────────┘
+     * 
      * ┌─ PERFIL (2 comandos) ──────────────────────┐
      * │ GET_PERFIL, UPDATE_PERFIL                   │
      * └─────────────────────────────────────────────┘
@@ -311,13 +875,14 @@ public class ClientHandler extends Thread {
      * │ UPDATE_USER_PASSWORD, DELETE_USER           │
      * └─────────────────────────────────────────────┘
      * 
-     * ┌─ ADMIN - Dados (12 comandos) ──────────────┐
+     * ┌─ ADMIN - Dados (13 comandos) ──────────────┐
      * │ ADMIN_LIST_CONTAS_USER,                     │
      * │ ADMIN_LIST_CATEGORIAS_USER,                 │
      * │ ADMIN_LIST_MOVIMENTACOES_USER,              │
      * │ ADMIN_LIST_ALL_CONTAS,                      │
      * │ ADMIN_LIST_ALL_CATEGORIAS,                  │
      * │ ADMIN_LIST_ALL_MOVIMENTACOES,               │
+     * │ ADMIN_LIST_MOVIMENTACOES_PAGE,              │
      * │ ADMIN_DELETE_CONTA,                         │
      * │ ADMIN_DELETE_CATEGORIA,                     │
      * │ ADMIN_DELETE_MOVIMENTACAO,                  │
@@ -326,6 +891,14 @@ public class ClientHandler extends Thread {
      * │ ADMIN_UPDATE_MOVIMENTACAO                   │
      * └─────────────────────────────────────────────┘
      * 
+     * ┌─ ADMIN - Métricas (1 comando) ─────────────┐
+     * │ STATS                                       │
+     * └─────────────────────────────────────────────┘
+     * 
+     * ┌─ NOTIFICAÇÕES (1 comando) ─────────────────┐
+     * │ SUBSCRIBE                                   │
+     * └─────────────────────────────────────────────┘
+     * 
      * Exemplos de comandos:
      * - "LOGIN|joao@gmail.com|senha_hash"
      * - "ADD_CONTA|Nubank|corrente|1000.00|1"
@@ -348,6 +921,39 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Comando inválido");
         }
         
+        return processarPartes(partes);
+    }
+    
+    /**
+     * Atende um comando já separado em partes (texto ou frame binário)
+     * 
+     * Comandos que alteram dados versionados, se responderem OK, geram a
+     * notificação para as outras conexões inscritas do dono dos dados; o
+     * dono e a versão vêm de UltimaEscrita, registrados na mesma thread.
+     * 
+     * @param partes comando seguido dos parâmetros
+     * @return String com resposta no formato "STATUS|dados" ou "ERROR|mensagem"
+     */
+    private String processarPartes(String[] partes) {
+        String[] alteracao = alteracaoDoComando(partes[0]);
+        if (alteracao == null) {
+            return rotearPartes(partes);
+        }
+        UltimaEscrita.limpar();
+        String resposta = rotearPartes(partes);
+        if (resposta.startsWith(Protocol.STATUS_OK + Protocol.SEPARATOR) || resposta.equals(Protocol.STATUS_OK)) {
+            notificarAlteracao(partes, alteracao, resposta);
+        }
+        return resposta;
+    }
+    
+    /**
+     * Roteia um comando já separado em partes para o método que o atende
+     * 
+     * @param partes comando seguido dos parâmetros
+     * @return String com resposta no formato "STATUS|dados" ou "ERROR|mensagem"
+     */
+    private String rotearPartes(String[] partes) {
         // Obtém tipo do comando (sempre primeiro elemento)
         String cmd = partes[0];
         
@@ -365,6 +971,9 @@ public class ClientHandler extends Thread {
                 case Protocol.CMD_LOGOUT:
                     return processarLogout();  // Logout: Limpa sessão
                     
+                case Protocol.CMD_RESUME:
+                    return processarResume(partes);  // Reconexão: Retoma sessão pelo token
+                    
                 case Protocol.CMD_RESET_PASSWORD:
                     return processarResetSenha(partes);  // Reset: Envia email
                     
@@ -404,6 +1013,12 @@ public class ClientHandler extends Thread {
                     return processarListMovimentacoesPeriodo(partes);  // Por período
                 case Protocol.CMD_LIST_MOVIMENTACOES_CONTA:
                     return processarListMovimentacoesConta(partes);  // Por conta
+                case Protocol.CMD_LIST_MOVIMENTACOES_PAGE:
+                    return processarListMovimentacoesPage(partes);  // Paginada (keyset)
+                case Protocol.CMD_LIST_MOVIMENTACOES_PERIODO_PAGE:
+                    return processarListMovimentacoesPeriodoPage(partes);  // Período paginado
+                case Protocol.CMD_LIST_MOVIMENTACOES_CONTA_PAGE:
+                    return processarListMovimentacoesContaPage(partes);  // Conta paginada
                 case Protocol.CMD_ADD_MOVIMENTACAO:
                     return processarAddMovimentacao(partes);  // Adiciona
                 case Protocol.CMD_UPDATE_MOVIMENTACAO:
@@ -411,6 +1026,14 @@ public class ClientHandler extends Thread {
                 case Protocol.CMD_DELETE_MOVIMENTACAO:
                     return processarDeleteMovimentacao(partes);  // Remove
                     
+                // ────────── SINCRONIZAÇÃO INCREMENTAL ──────────
+                case Protocol.CMD_INCREMENTAL_SYNC:
+                    return processarIncrementalSync(partes);  // Entidades alteradas
+                case Protocol.CMD_LIST_CHANGES_SINCE:
+                    return processarListChangesSince(partes);  // Alterações de uma entidade
+                case Protocol.CMD_BULK_UPLOAD:
+                    return processarBulkUpload(partes);  // Vários registros de uma vez
+                    
                 // ────────── PERFIL ──────────
                 case Protocol.CMD_GET_PERFIL:
                     return processarGetPerfil();  // Busca dados do usuário
@@ -440,6 +1063,8 @@ public class ClientHandler extends Thread {
                     return processarAdminListAllCategorias();  // Todas categorias
                 case Protocol.CMD_ADMIN_LIST_ALL_MOVIMENTACOES:
                     return processarAdminListAllMovimentacoes();  // Todas movimentações
+                case Protocol.CMD_ADMIN_LIST_MOVIMENTACOES_PAGE:
+                    return processarAdminListMovimentacoesPage(partes);  // Página da tabela
                 case Protocol.CMD_ADMIN_DELETE_CONTA:
                     return processarAdminDeleteConta(partes);  // Remove conta usuário
                 case Protocol.CMD_ADMIN_DELETE_CATEGORIA:
@@ -453,17 +1078,37 @@ public class ClientHandler extends Thread {
                 case Protocol.CMD_ADMIN_UPDATE_MOVIMENTACAO:
                     return processarAdminUpdateMovimentacao(partes);  // Atualiza movimentação
                     
+                // ────────── ADMIN - Métricas do servidor ──────────
+                case Protocol.CMD_STATS:
+                    return processarStats();  // Contadores e latências por comando
+                    
+                // ────────── NOTIFICAÇÕES ──────────
+                case Protocol.CMD_SUBSCRIBE:
+                    return processarSubscribe(partes);  // Alterações de outras conexões
+                    
+                // ────────── FORMATO E COMPRESSÃO ──────────
+                case Protocol.CMD_SET_FORMAT:
+                    // Só é aceito sem ID de requisição (tratado pelo front end)
+                    return Protocol.createErrorResponse("SET_FORMAT deve ser enviado sem ID de requisição");
+                    
+                case Protocol.CMD_SET_COMPRESSION:
+                    return processarSetCompression(partes);
+                    
                 // ────────── DEFAULT (Comando desconhecido) ──────────
                 default:
                     return Protocol.createErrorResponse("Comando não reconhecido: " + cmd);
             }
             
+        } catch (PasswordHasher.SobrecargaException e) {
+            // Executor de hash de senhas saturado: falha rápida, o cliente tenta de novo
+            ServerLog.aviso("⚠ " + cmd + " recusado: " + e.getMessage());
+            return Protocol.createErrorResponse("Servidor ocupado, tente novamente");
+            
         } catch (Exception e) {
             // ========== FASE 4: TRATAMENTO DE EXCEÇÕES ==========
             // Captura qualquer exceção não tratada pelos métodos específicos
             // Log completo no servidor para debug
-            System.err.println("✗ Erro ao processar comando '" + cmd + "': " + e.getMessage());
-            e.printStackTrace();  // Stack trace para debug
+            ServerLog.erro("✗ Erro ao processar comando '" + cmd + "': " + e.getMessage(), e);
             
             // Retorna erro genérico sem expor detalhes internos
             // Segurança: Não vazar informações do sistema para cliente
@@ -493,16 +1138,6 @@ public class ClientHandler extends Thread {
             return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Email inválido");
         }
         
-        // Modo de teste - sempre retorna sucesso
-        if (testMode) {
-            usuarioLogado = new Usuario(1, "Usuário Teste", email, "", Usuario.TIPO_USUARIO);
-            String userData = usuarioLogado.getId() + Protocol.FIELD_SEPARATOR + 
-                             usuarioLogado.getNome() + Protocol.FIELD_SEPARATOR + 
-                             usuarioLogado.getEmail() + Protocol.FIELD_SEPARATOR + 
-                             usuarioLogado.getTipoUsuario();
-            return Protocol.createSuccessResponse(userData);
-        }
-        
         // Autenticação real
         Usuario usuario = usuarioDAO.autenticar(email, senha);
         if (usuario != null) {
@@ -518,11 +1153,7 @@ public class ClientHandler extends Thread {
             }
             
             usuarioLogado = usuario;
-            String userData = usuario.getId() + Protocol.FIELD_SEPARATOR + 
-                             usuario.getNome() + Protocol.FIELD_SEPARATOR + 
-                             usuario.getEmail() + Protocol.FIELD_SEPARATOR + 
-                             usuario.getTipoUsuario();
-            return Protocol.createSuccessResponse(userData);
+            return Protocol.createSuccessResponse(dadosSessao(usuario, iniciarSessao(usuario, tipoCliente)));
         } else {
             return Protocol.createResponse(Protocol.STATUS_INVALID_CREDENTIALS, "Email ou senha inválidos");
         }
@@ -560,16 +1191,6 @@ public class ClientHandler extends Thread {
         // Desktop (admin) cria administradores, Mobile cria usuários comuns
         String tipoUsuario = "admin".equals(tipoCliente) ? Usuario.TIPO_ADMIN : Usuario.TIPO_USUARIO;
         
-        // Modo de teste
-        if (testMode) {
-            usuarioLogado = new Usuario(1, nome, email, "", tipoUsuario);
-            String userData = usuarioLogado.getId() + Protocol.FIELD_SEPARATOR + 
-                             usuarioLogado.getNome() + Protocol.FIELD_SEPARATOR + 
-                             usuarioLogado.getEmail() + Protocol.FIELD_SEPARATOR + 
-                             usuarioLogado.getTipoUsuario();
-            return Protocol.createSuccessResponse(userData);
-        }
-        
         // Verifica se email já existe
         if (usuarioDAO.buscarPorEmail(email) != null) {
             return Protocol.createResponse(Protocol.STATUS_USER_EXISTS, "Email já cadastrado");
@@ -581,11 +1202,7 @@ public class ClientHandler extends Thread {
         
         if (usuarioDAO.inserir(novoUsuario)) {
             usuarioLogado = novoUsuario;
-            String userData = novoUsuario.getId() + Protocol.FIELD_SEPARATOR + 
-                             novoUsuario.getNome() + Protocol.FIELD_SEPARATOR + 
-                             novoUsuario.getEmail() + Protocol.FIELD_SEPARATOR + 
-                             novoUsuario.getTipoUsuario();
-            return Protocol.createSuccessResponse(userData);
+            return Protocol.createSuccessResponse(dadosSessao(novoUsuario, iniciarSessao(novoUsuario, tipoCliente)));
         } else {
             return Protocol.createErrorResponse("Erro ao criar usuário");
         }
@@ -595,10 +1212,82 @@ public class ClientHandler extends Thread {
      * Processa comando de logout
      */
     private String processarLogout() {
+        cancelarNotificacoes();
         usuarioLogado = null;
+        String token = tokenSessao;
+        tokenSessao = null;
+        if (token != null) {
+            SessionStore.getInstance().encerrar(token);
+        }
         return Protocol.createSuccessResponse("Logout realizado");
     }
     
+    /**
+     * Processa retomada de sessão em uma nova conexão
+     * 
+     * RESUME|token|tipoCliente → OK|id;nome;email;tipo;token
+     * 
+     * O usuário vem da sessão em memória (sem consulta ao banco nem
+     * verificação de senha). Se o token for inválido ou tiver expirado,
+     * responde INVALID_CREDENTIALS e o cliente deve fazer LOGIN. O token só
+     * vale para o tipo de cliente ("admin" ou "mobile") que fez o login.
+     * 
+     * Como no login, a sessão que esta conexão já tinha é encerrada.
+     */
+    private String processarResume(String[] partes) {
+        if (partes.length < 3 || partes[1].isEmpty() || partes[2].isEmpty()) {
+            return Protocol.createErrorResponse("Token de sessão e tipo de cliente são obrigatórios");
+        }
+        String token = partes[1];
+        
+        SessionStore sessoes = SessionStore.getInstance();
+        SessionStore.Sessao sessao = sessoes.retomar(token);
+        if (sessao == null) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_CREDENTIALS, "Sessão expirada ou inválida");
+        }
+        if (!partes[2].equals(sessao.getTipoCliente())) {
+            return Protocol.createResponse(Protocol.STATUS_ACCESS_DENIED, "Sessão pertence a outro tipo de cliente");
+        }
+        
+        cancelarNotificacoes();
+        String anterior = tokenSessao;
+        if (anterior != null && !anterior.equals(token)) {
+            sessoes.encerrar(anterior);
+        }
+        usuarioLogado = sessao.getUsuario();
+        tokenSessao = token;
+        return Protocol.createSuccessResponse(dadosSessao(sessao.getUsuario(), token));
+    }
+    
+    /**
+     * Cria a sessão do login (encerrando a anterior desta conexão, se houver,
+     * e a inscrição nas notificações, que o cliente refaz após o login)
+     * @return token da sessão, ou null com as sessões desativadas
+     */
+    private String iniciarSessao(Usuario usuario, String tipoCliente) {
+        cancelarNotificacoes();
+        SessionStore sessoes = SessionStore.getInstance();
+        String anterior = tokenSessao;
+        if (anterior != null) {
+            sessoes.encerrar(anterior);
+        }
+        String token = sessoes.criar(usuario, tipoCliente);
+        tokenSessao = token;
+        return token;
+    }
+    
+    /**
+     * Dados do usuário na resposta de LOGIN, REGISTER e RESUME:
+     * id;nome;email;tipo[;token]
+     */
+    private static String dadosSessao(Usuario usuario, String token) {
+        String userData = usuario.getId() + Protocol.FIELD_SEPARATOR + 
+                         usuario.getNome() + Protocol.FIELD_SEPARATOR + 
+                         usuario.getEmail() + Protocol.FIELD_SEPARATOR + 
+                         usuario.getTipoUsuario();
+        return token != null ? userData + Protocol.FIELD_SEPARATOR + token : userData;
+    }
+    
     /**
      * Processa reset de senha por email
      */
@@ -613,11 +1302,6 @@ public class ClientHandler extends Thread {
             return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Email inválido");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Reset de senha enviado por email (modo teste)");
-        }
-        
         // Verifica se usuário existe
         Usuario usuario = usuarioDAO.buscarPorEmail(email);
         if (usuario == null) {
@@ -630,6 +1314,7 @@ public class ClientHandler extends Thread {
         String novaSenhaTemp = gerarSenhaTemporaria();
         
         if (usuarioDAO.atualizarSenha(usuario.getId(), novaSenhaTemp)) {
+            SessionStore.getInstance().encerrarDoUsuario(usuario.getId());
             // Em uma implementação real, enviaria por email
             // Para teste, retornamos a nova senha
             return Protocol.createSuccessResponse("Nova senha temporária: " + novaSenhaTemp);
@@ -657,11 +1342,6 @@ public class ClientHandler extends Thread {
             return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Nova senha deve ter pelo menos 6 caracteres");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Senha alterada com sucesso (modo teste)");
-        }
-        
         // Verifica senha atual
         Usuario usuario = usuarioDAO.autenticar(usuarioLogado.getEmail(), senhaAtual);
         if (usuario == null) {
@@ -670,6 +1350,8 @@ public class ClientHandler extends Thread {
         
         // Atualiza senha
         if (usuarioDAO.atualizarSenha(usuarioLogado.getId(), novaSenha)) {
+            // Derruba as sessões dos outros dispositivos; a desta conexão continua
+            SessionStore.getInstance().encerrarDoUsuario(usuarioLogado.getId(), tokenSessao);
             return Protocol.createSuccessResponse("Senha alterada com sucesso");
         } else {
             return Protocol.createErrorResponse("Erro ao alterar senha");
@@ -693,38 +1375,24 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Usuário não está logado");
         }
         
-        // Modo de teste - retorna dados fictícios
-        if (testMode) {
-            String dashboardData = "1500.50" + Protocol.FIELD_SEPARATOR + 
-                                 "800.00" + Protocol.FIELD_SEPARATOR + 
-                                 "300.00" + Protocol.FIELD_SEPARATOR + 
-                                 "15";
-            return Protocol.createSuccessResponse(dashboardData);
-        }
-        
         try {
-            // Calcular dados reais do dashboard usando DAOs
-            
-            // 1. Calcular saldo total de todas as contas
-            double saldoTotal = 0.0;
-            List<Conta> contas = contaDAO.listarPorUsuario(usuarioLogado.getId());
-            for (Conta conta : contas) {
-                saldoTotal += contaDAO.calcularSaldoAtual(conta.getId());
-            }
-            
-            // 2. Calcular receitas e despesas do mês atual
+            // Calcular dados reais do dashboard em uma única consulta agregada:
+            // saldo total de todas as contas, receitas e despesas do mês atual
+            // e total de transações
             LocalDate hoje = LocalDate.now();
             LocalDate inicioMes = hoje.withDayOfMonth(1);
             LocalDate fimMes = hoje.withDayOfMonth(hoje.lengthOfMonth());
             
-            Date dataInicio = Date.valueOf(inicioMes);
-            Date dataFim = Date.valueOf(fimMes);
+            ResumoDashboard resumo = dashboardDAO.calcularResumo(usuarioLogado.getId(),
+                    Date.valueOf(inicioMes), Date.valueOf(fimMes));
+            if (resumo == null) {
+                resumo = new ResumoDashboard();
+            }
             
-            double receitasMes = movimentacaoDAO.calcularTotalReceitas(usuarioLogado.getId(), dataInicio, dataFim);
-            double despesasMes = movimentacaoDAO.calcularTotalDespesas(usuarioLogado.getId(), dataInicio, dataFim);
-            
-            // 3. Contar total de transações
-            int numTransacoes = movimentacaoDAO.contarMovimentacoes(usuarioLogado.getId());
+            double saldoTotal = resumo.getSaldoTotal();
+            double receitasMes = resumo.getReceitasMes();
+            double despesasMes = resumo.getDespesasMes();
+            int numTransacoes = resumo.getNumTransacoes();
             
             // Formatar os dados usando vírgula como separador decimal (formato brasileiro)
             String saldoTotalStr = String.format("%.2f", saldoTotal).replace(".", ",");
@@ -739,8 +1407,7 @@ public class ClientHandler extends Thread {
             return Protocol.createSuccessResponse(dashboardData);
             
         } catch (Exception e) {
-            System.err.println("Erro ao calcular dados do dashboard: " + e.getMessage());
-            e.printStackTrace();
+            ServerLog.erro("Erro ao calcular dados do dashboard: " + e.getMessage(), e);
             // Em caso de erro, retornar zeros
             return Protocol.createSuccessResponse("0,00" + Protocol.FIELD_SEPARATOR + 
                                                 "0,00" + Protocol.FIELD_SEPARATOR + 
@@ -758,13 +1425,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Usuário não está logado");
         }
         
-        // Modo de teste - retorna dados fictícios
-        if (testMode) {
-            String contas = "1" + Protocol.FIELD_SEPARATOR + "Banco Principal" + Protocol.FIELD_SEPARATOR + "1500.50" + "|" +
-                           "2" + Protocol.FIELD_SEPARATOR + "Poupança" + Protocol.FIELD_SEPARATOR + "500.00";
-            return Protocol.createSuccessResponse(contas);
-        }
-        
         try {
             // Buscar contas reais do banco de dados
             List<Conta> contas = contaDAO.listarPorUsuario(usuarioLogado.getId());
@@ -776,33 +1436,38 @@ public class ClientHandler extends Thread {
             StringBuilder contasData = new StringBuilder();
             for (int i = 0; i < contas.size(); i++) {
                 Conta conta = contas.get(i);
-                double saldoAtual = contaDAO.calcularSaldoAtual(conta.getId());
                 
                 if (i > 0) {
                     contasData.append(Protocol.FIELD_SEPARATOR);
                 }
                 
-                // Formato: id,nome,tipo,saldo_inicial_formatado,saldo_atual_formatado
-                // Usar vírgula como separador decimal brasileiro
-                String saldoInicialStr = String.format("%.2f", conta.getSaldoInicial()).replace(".", ",");
-                String saldoAtualStr = String.format("%.2f", saldoAtual).replace(".", ",");
-                
-                contasData.append(conta.getId()).append(",")
-                         .append(conta.getNome()).append(",")
-                         .append(conta.getTipo().getValor()).append(",")
-                         .append(saldoInicialStr).append(",")
-                         .append(saldoAtualStr);
+                formatarConta(contasData, conta);
             }
             
             return Protocol.createSuccessResponse(contasData.toString());
             
         } catch (Exception e) {
-            System.err.println("Erro ao listar contas: " + e.getMessage());
-            e.printStackTrace();
+            ServerLog.erro("Erro ao listar contas: " + e.getMessage(), e);
             return Protocol.createErrorResponse("Erro ao carregar contas");
         }
     }
     
+    /**
+     * Formata uma conta no formato de LIST_CONTAS:
+     * id,nome,tipo,saldo_inicial_formatado,saldo_atual_formatado
+     */
+    private void formatarConta(StringBuilder destino, Conta conta) {
+        // Usar vírgula como separador decimal brasileiro
+        String saldoInicialStr = String.format("%.2f", conta.getSaldoInicial()).replace(".", ",");
+        String saldoAtualStr = String.format("%.2f", conta.getSaldoAtual()).replace(".", ",");
+        
+        destino.append(conta.getId()).append(",")
+               .append(conta.getNome()).append(",")
+               .append(conta.getTipo().getValor()).append(",")
+               .append(saldoInicialStr).append(",")
+               .append(saldoAtualStr);
+    }
+    
     /**
      * Processa comando ADD_CONTA
      */
@@ -815,11 +1480,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Parâmetros insuficientes para adicionar conta");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Conta adicionada com sucesso (modo teste)");
-        }
-        
         try {
             String nome = partes[1];
             String tipoStr = partes[2];
@@ -847,7 +1507,7 @@ public class ClientHandler extends Thread {
         } catch (NumberFormatException e) {
             return Protocol.createErrorResponse("Saldo inicial inválido");
         } catch (Exception e) {
-            System.err.println("Erro ao adicionar conta: " + e.getMessage());
+            ServerLog.erro("Erro ao adicionar conta: " + e.getMessage());
             return Protocol.createErrorResponse("Erro interno do servidor");
         }
     }
@@ -864,11 +1524,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Parâmetros insuficientes para atualizar conta");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Conta atualizada com sucesso (modo teste)");
-        }
-        
         try {
             int id = Integer.parseInt(partes[1]);
             String nome = partes[2];
@@ -913,11 +1568,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("ID da conta é obrigatório");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Conta removida com sucesso (modo teste)");
-        }
-        
         try {
             int id = Integer.parseInt(partes[1]);
             
@@ -947,13 +1597,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Usuário não está logado");
         }
         
-        // Modo de teste - retorna dados fictícios
-        if (testMode) {
-            String categorias = "1" + Protocol.FIELD_SEPARATOR + "Alimentação" + Protocol.FIELD_SEPARATOR + "DESPESA" + "|" +
-                               "2" + Protocol.FIELD_SEPARATOR + "Salário" + Protocol.FIELD_SEPARATOR + "RECEITA";
-            return Protocol.createSuccessResponse(categorias);
-        }
-        
         try {
             // Buscar categorias reais do banco de dados
             List<Categoria> categorias = categoriaDAO.listarPorUsuario(usuarioLogado.getId());
@@ -979,8 +1622,7 @@ public class ClientHandler extends Thread {
             return Protocol.createSuccessResponse(categoriasData.toString());
             
         } catch (Exception e) {
-            System.err.println("Erro ao listar categorias: " + e.getMessage());
-            e.printStackTrace();
+            ServerLog.erro("Erro ao listar categorias: " + e.getMessage(), e);
             return Protocol.createErrorResponse("Erro ao carregar categorias");
         }
     }
@@ -997,18 +1639,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Tipo da categoria é obrigatório");
         }
         
-        // Modo de teste
-        if (testMode) {
-            String tipo = partes[1];
-            if ("receita".equalsIgnoreCase(tipo)) {
-                return Protocol.createSuccessResponse("2,Salário,receita");
-            } else if ("despesa".equalsIgnoreCase(tipo)) {
-                return Protocol.createSuccessResponse("1,Alimentação,despesa");
-            } else {
-                return Protocol.createErrorResponse("Tipo de categoria inválido");
-            }
-        }
-        
         try {
             // Parse do tipo da categoria
             String tipoStr = partes[1];
@@ -1040,8 +1670,7 @@ public class ClientHandler extends Thread {
         } catch (IllegalArgumentException e) {
             return Protocol.createErrorResponse("Tipo de categoria inválido: " + e.getMessage());
         } catch (Exception e) {
-            System.err.println("Erro ao listar categorias por tipo: " + e.getMessage());
-            e.printStackTrace();
+            ServerLog.erro("Erro ao listar categorias por tipo: " + e.getMessage(), e);
             return Protocol.createErrorResponse("Erro ao carregar categorias");
         }
     }
@@ -1058,11 +1687,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Parâmetros insuficientes para adicionar categoria");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Categoria adicionada com sucesso (modo teste)");
-        }
-        
         try {
             String nome = partes[1];
             String tipoStr = partes[2];
@@ -1086,7 +1710,7 @@ public class ClientHandler extends Thread {
             }
             
         } catch (Exception e) {
-            System.err.println("Erro ao adicionar categoria: " + e.getMessage());
+            ServerLog.erro("Erro ao adicionar categoria: " + e.getMessage());
             return Protocol.createErrorResponse("Erro interno do servidor");
         }
     }
@@ -1103,11 +1727,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Parâmetros insuficientes para atualizar categoria");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Categoria atualizada com sucesso (modo teste)");
-        }
-        
         try {
             int id = Integer.parseInt(partes[1]);
             String nome = partes[2];
@@ -1150,11 +1769,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("ID da categoria é obrigatório");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Categoria removida com sucesso (modo teste)");
-        }
-        
         try {
             int id = Integer.parseInt(partes[1]);
             
@@ -1185,14 +1799,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Usuário não está logado");
         }
 
-        // Modo de teste - retorna dados fictícios
-        if (testMode) {
-            String movimentacoes = "1,100,50,2024-01-01,Supermercado,despesa,1,1" + Protocol.FIELD_SEPARATOR +
-                                   "2,800,00,2024-01-01,Salário,receita,1,2" + Protocol.FIELD_SEPARATOR +
-                                   "3,50,25,2024-01-02,Teste,invalid_type,1,3";
-            return Protocol.createSuccessResponse(movimentacoes);
-        }
-
         try {
             List<Movimentacao> movimentacoes = movimentacaoDAO.listarPorUsuario(usuarioLogado.getId());
 
@@ -1200,58 +1806,66 @@ public class ClientHandler extends Thread {
                 return Protocol.createSuccessResponse("");
             }
 
-            StringBuilder movimentacoesData = new StringBuilder();
-            boolean firstItem = true;
-            for (int i = 0; i < movimentacoes.size(); i++) {
-                Movimentacao mov = movimentacoes.get(i);
+            return Protocol.createSuccessResponse(formatarMovimentacoes(movimentacoes));
 
-                // Validação: movimentação nula
-                if (mov == null) {
-                    System.err.println("Movimentação nula encontrada na posição " + i + " da lista.");
-                    continue;
-                }
-                // Validação: tipo nulo
-                if (mov.getTipo() == null) {
-                    System.err.println("Movimentação com tipo nulo (ID: " + mov.getId() + ")");
-                    continue;
-                }
-                // Validação: valor nulo ou mal formatado
-                // Use US locale to ensure dot as decimal separator
-                String valorStr = String.format(java.util.Locale.US, "%.2f", mov.getValor());
-                String[] valorParts = valorStr.split("\\.");
-                if (valorParts.length < 2) {
-                    System.err.println("Valor mal formatado para movimentação ID: " + mov.getId() + " - valor: " + valorStr);
-                    continue;
-                }
-                String valorInteiro = valorParts[0];
-                String valorDecimal = valorParts[1];
-
-                if (!firstItem) {
-                    movimentacoesData.append(Protocol.FIELD_SEPARATOR);
-                }
-                firstItem = false;
-                
-                String descricao = mov.getDescricao() != null ? mov.getDescricao() : "";
-                int idConta = mov.getIdConta();
-                int idCategoria = mov.getIdCategoria();
+        } catch (Exception e) {
+            ServerLog.erro("Erro ao listar movimentações: " + e.getMessage(), e);
+            return Protocol.createErrorResponse("Erro ao carregar movimentações");
+        }
+    }
+    
+    /**
+     * Formata movimentações no formato de LIST_MOVIMENTACOES:
+     * id,valorInteiro,valorDecimal,data,descricao,tipo,idConta,idCategoria
+     * separadas por ';'. Registros inválidos são ignorados (com log).
+     * Visível no pacote para os benchmarks JMH (benchmark/jmh).
+     */
+    static String formatarMovimentacoes(List<Movimentacao> movimentacoes) {
+        StringBuilder movimentacoesData = new StringBuilder();
+        boolean firstItem = true;
+        for (int i = 0; i < movimentacoes.size(); i++) {
+            Movimentacao mov = movimentacoes.get(i);
 
-                movimentacoesData.append(mov.getId()).append(",")
-                                 .append(valorInteiro).append(",")
-                                 .append(valorDecimal).append(",")
-                                 .append(mov.getData().toString()).append(",")
-                                 .append(descricao).append(",")
-                                 .append(mov.getTipo().getValor()).append(",")
-                                 .append(idConta).append(",")
-                                 .append(idCategoria);
+            // Validação: movimentação nula
+            if (mov == null) {
+                ServerLog.aviso("Movimentação nula encontrada na posição " + i + " da lista.");
+                continue;
+            }
+            // Validação: tipo nulo
+            if (mov.getTipo() == null) {
+                ServerLog.aviso("Movimentação com tipo nulo (ID: " + mov.getId() + ")");
+                continue;
             }
+            // Validação: valor nulo ou mal formatado
+            // Use US locale to ensure dot as decimal separator
+            String valorStr = String.format(java.util.Locale.US, "%.2f", mov.getValor());
+            String[] valorParts = valorStr.split("\\.");
+            if (valorParts.length < 2) {
+                ServerLog.aviso("Valor mal formatado para movimentação ID: " + mov.getId() + " - valor: " + valorStr);
+                continue;
+            }
+            String valorInteiro = valorParts[0];
+            String valorDecimal = valorParts[1];
 
-            return Protocol.createSuccessResponse(movimentacoesData.toString());
+            if (!firstItem) {
+                movimentacoesData.append(Protocol.FIELD_SEPARATOR);
+            }
+            firstItem = false;
+            
+            String descricao = mov.getDescricao() != null ? mov.getDescricao() : "";
+            int idConta = mov.getIdConta();
+            int idCategoria = mov.getIdCategoria();
 
-        } catch (Exception e) {
-            System.err.println("Erro ao listar movimentações: " + e.getMessage());
-            e.printStackTrace();
-            return Protocol.createErrorResponse("Erro ao carregar movimentações");
-        }
+            movimentacoesData.append(mov.getId()).append(",")
+                             .append(valorInteiro).append(",")
+                             .append(valorDecimal).append(",")
+                             .append(mov.getData().toString()).append(",")
+                             .append(descricao).append(",")
+                             .append(mov.getTipo().getValor()).append(",")
+                             .append(idConta).append(",")
+                             .append(idCategoria);
+        }
+        return movimentacoesData.toString();
     }
     
     /**
@@ -1266,12 +1880,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Data início e fim são obrigatórias");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1" + Protocol.FIELD_SEPARATOR + "100.50" + Protocol.FIELD_SEPARATOR + "DESPESA" + 
-                                                 Protocol.FIELD_SEPARATOR + "Supermercado" + Protocol.FIELD_SEPARATOR + partes[1]);
-        }
-        
         // TODO: Implementar busca real no banco de dados
         return Protocol.createSuccessResponse("");
     }
@@ -1288,16 +1896,130 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("ID da conta é obrigatório");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1" + Protocol.FIELD_SEPARATOR + "100.50" + Protocol.FIELD_SEPARATOR + "DESPESA" + 
-                                                 Protocol.FIELD_SEPARATOR + "Supermercado" + Protocol.FIELD_SEPARATOR + "2024-01-01");
-        }
-        
         // TODO: Implementar busca real no banco de dados
         return Protocol.createSuccessResponse("");
     }
     
+    // ========== MOVIMENTAÇÕES PAGINADAS (KEYSET) ==========
+    
+    /**
+     * Processa comando LIST_MOVIMENTACOES_PAGE|limite|cursor
+     * 
+     * Resposta: OK|proximoCursor|mov;mov;... (proximoCursor vazio na última página)
+     */
+    private String processarListMovimentacoesPage(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 2) {
+            return Protocol.createErrorResponse("Tamanho da página é obrigatório");
+        }
+        
+        return responderPaginaMovimentacoes(null, null, null, partes[1], parametro(partes, 2));
+    }
+    
+    /**
+     * Processa comando LIST_MOVIMENTACOES_PERIODO_PAGE|dataInicio|dataFim|limite|cursor
+     */
+    private String processarListMovimentacoesPeriodoPage(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 4) {
+            return Protocol.createErrorResponse("Data início, data fim e tamanho da página são obrigatórios");
+        }
+        
+        Date dataInicio;
+        Date dataFim;
+        try {
+            dataInicio = Date.valueOf(partes[1].trim());
+            dataFim = Date.valueOf(partes[2].trim());
+        } catch (IllegalArgumentException e) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Datas devem estar no formato yyyy-MM-dd");
+        }
+        
+        return responderPaginaMovimentacoes(null, dataInicio, dataFim, partes[3], parametro(partes, 4));
+    }
+    
+    /**
+     * Processa comando LIST_MOVIMENTACOES_CONTA_PAGE|idConta|limite|cursor
+     */
+    private String processarListMovimentacoesContaPage(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 3) {
+            return Protocol.createErrorResponse("ID da conta e tamanho da página são obrigatórios");
+        }
+        
+        int idConta;
+        try {
+            idConta = Integer.parseInt(partes[1].trim());
+        } catch (NumberFormatException e) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "ID da conta inválido");
+        }
+        
+        return responderPaginaMovimentacoes(idConta, null, null, partes[2], parametro(partes, 3));
+    }
+    
+    /**
+     * Busca uma página de movimentações do usuário logado e monta a resposta
+     * 
+     * Pede uma linha a mais que o limite para saber se existe próxima página
+     * sem precisar de COUNT(*).
+     */
+    private String responderPaginaMovimentacoes(Integer idConta, Date dataInicio, Date dataFim,
+                                                String limiteStr, String cursorToken) {
+        int limite;
+        try {
+            limite = Integer.parseInt(limiteStr.trim());
+        } catch (NumberFormatException e) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Tamanho da página inválido");
+        }
+        if (limite < 1 || limite > Protocol.MAX_PAGE_SIZE) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA,
+                    "Tamanho da página deve estar entre 1 e " + Protocol.MAX_PAGE_SIZE);
+        }
+        
+        CursorMovimentacao apos = null;
+        if (cursorToken != null && !cursorToken.trim().isEmpty()) {
+            try {
+                apos = CursorMovimentacao.fromToken(cursorToken.trim());
+            } catch (IllegalArgumentException e) {
+                return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Cursor inválido");
+            }
+        }
+        
+        try {
+            List<Movimentacao> movimentacoes = movimentacaoDAO.listarPagina(usuarioLogado.getId(),
+                    idConta, dataInicio, dataFim, apos, limite + 1);
+            
+            String proximoCursor = "";
+            if (movimentacoes.size() > limite) {
+                movimentacoes = movimentacoes.subList(0, limite);
+                Movimentacao ultima = movimentacoes.get(limite - 1);
+                proximoCursor = new CursorMovimentacao(ultima.getData(), ultima.getId()).toToken();
+            }
+            
+            return Protocol.createSuccessResponse(proximoCursor + Protocol.SEPARATOR +
+                    formatarMovimentacoes(movimentacoes));
+            
+        } catch (Exception e) {
+            ServerLog.erro("Erro ao listar página de movimentações: " + e.getMessage(), e);
+            return Protocol.createErrorResponse("Erro ao carregar movimentações");
+        }
+    }
+    
+    /**
+     * Retorna o parâmetro opcional na posição indicada ou null se ausente
+     */
+    private static String parametro(String[] partes, int indice) {
+        return partes.length > indice ? partes[indice] : null;
+    }
+    
     /**
      * Processa comando ADD_MOVIMENTACAO
      */
@@ -1310,11 +2032,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Parâmetros insuficientes para adicionar movimentação");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Movimentação adicionada com sucesso (modo teste)");
-        }
-        
         try {
             double valor = Double.parseDouble(partes[1]);
             Date data = Date.valueOf(partes[2]);
@@ -1350,7 +2067,7 @@ public class ClientHandler extends Thread {
         } catch (IllegalArgumentException e) {
             return Protocol.createErrorResponse("Data inválida");
         } catch (Exception e) {
-            System.err.println("Erro ao adicionar movimentação: " + e.getMessage());
+            ServerLog.erro("Erro ao adicionar movimentação: " + e.getMessage());
             return Protocol.createErrorResponse("Erro interno do servidor");
         }
     }
@@ -1367,11 +2084,6 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Parâmetros insuficientes para atualizar movimentação");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Movimentação atualizada com sucesso (modo teste)");
-        }
-        
         try {
             int id = Integer.parseInt(partes[1]);
             double valor = Double.parseDouble(partes[2]);
@@ -1415,39 +2127,410 @@ public class ClientHandler extends Thread {
         }
     }
     
-    /**
-     * Processa comando DELETE_MOVIMENTACAO
-     */
-    private String processarDeleteMovimentacao(String[] partes) {
-        if (usuarioLogado == null) {
-            return Protocol.createErrorResponse("Usuário não está logado");
+    /**
+     * Processa comando DELETE_MOVIMENTACAO
+     */
+    private String processarDeleteMovimentacao(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 2) {
+            return Protocol.createErrorResponse("ID da movimentação é obrigatório");
+        }
+        
+        try {
+            int id = Integer.parseInt(partes[1]);
+            
+            // Chamar DAO para remover
+            boolean sucesso = movimentacaoDAO.remover(id, usuarioLogado.getId());
+            
+            if (sucesso) {
+                return Protocol.createSuccessResponse("Movimentação removida com sucesso");
+            } else {
+                return Protocol.createErrorResponse("Erro ao remover movimentação - movimentação não encontrada ou não pertence ao usuário");
+            }
+            
+        } catch (NumberFormatException e) {
+            return Protocol.createErrorResponse("ID da movimentação deve ser um número válido");
+        } catch (Exception e) {
+            return Protocol.createErrorResponse("Erro interno: " + e.getMessage());
+        }
+    }
+    
+    // ========== SINCRONIZAÇÃO INCREMENTAL ==========
+    
+    /**
+     * Processa comando INCREMENTAL_SYNC|versao
+     * 
+     * Consulta barata para o início da sincronização. Resposta:
+     * OK|versaoAtual|entidade,entidade,... (entidades com alterações desde a
+     * versão informada, na ordem de aplicação: categoria, conta, movimentacao).
+     * O cliente pede LIST_CHANGES_SINCE apenas para essas entidades.
+     */
+    private String processarIncrementalSync(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 2) {
+            return Protocol.createErrorResponse("Versão é obrigatória");
+        }
+        
+        long desde;
+        try {
+            desde = Long.parseLong(partes[1].trim());
+        } catch (NumberFormatException e) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Versão inválida");
+        }
+        if (desde < 0) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Versão inválida");
+        }
+        
+        try {
+            ResumoSync resumo = sincronizacaoDAO.resumir(usuarioLogado.getId(), desde);
+            if (resumo == null) {
+                return Protocol.createErrorResponse("Erro ao verificar alterações");
+            }
+            
+            return Protocol.createSuccessResponse(resumo.getVersaoAtual() + Protocol.SEPARATOR +
+                    String.join(",", resumo.getEntidadesAlteradas()));
+            
+        } catch (Exception e) {
+            ServerLog.erro("Erro ao verificar alterações: " + e.getMessage(), e);
+            return Protocol.createErrorResponse("Erro ao verificar alterações");
+        }
+    }
+    
+    /**
+     * Processa comando LIST_CHANGES_SINCE|entidade|versao
+     * 
+     * Entidade: categoria, conta ou movimentacao (aceita plural e "lancamento").
+     * Versão 0 devolve todos os registros. Resposta:
+     * OK|versaoAtual|registro;registro;...|idExcluido,idExcluido,...
+     * 
+     * Os registros usam o mesmo formato de LIST_CATEGORIAS, LIST_CONTAS e
+     * LIST_MOVIMENTACOES. O cliente guarda versaoAtual e a envia na próxima
+     * sincronização, recebendo só o que mudou desde então.
+     */
+    private String processarListChangesSince(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 3) {
+            return Protocol.createErrorResponse("Entidade e versão são obrigatórias");
+        }
+        
+        String entidade = normalizarEntidadeSync(partes[1]);
+        if (entidade == null) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Entidade inválida: " + partes[1]);
+        }
+        
+        long desde;
+        try {
+            desde = Long.parseLong(partes[2].trim());
+        } catch (NumberFormatException e) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Versão inválida");
+        }
+        if (desde < 0) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Versão inválida");
+        }
+        
+        try {
+            int idUsuario = usuarioLogado.getId();
+            AlteracoesSync<?> alteracoes;
+            String registros;
+            
+            switch (entidade) {
+                case "categoria": {
+                    AlteracoesSync<Categoria> categorias = categoriaDAO.listarAlteracoesDesde(idUsuario, desde);
+                    alteracoes = categorias;
+                    registros = categorias == null ? "" : formatarCategorias(categorias.getAlterados());
+                    break;
+                }
+                case "conta": {
+                    AlteracoesSync<Conta> contas = contaDAO.listarAlteracoesDesde(idUsuario, desde);
+                    alteracoes = contas;
+                    StringBuilder contasData = new StringBuilder();
+                    if (contas != null) {
+                        for (Conta conta : contas.getAlterados()) {
+                            if (contasData.length() > 0) {
+                                contasData.append(Protocol.FIELD_SEPARATOR);
+                            }
+                            formatarConta(contasData, conta);
+                        }
+                    }
+                    registros = contasData.toString();
+                    break;
+                }
+                default: {
+                    AlteracoesSync<Movimentacao> movimentacoes = movimentacaoDAO.listarAlteracoesDesde(idUsuario, desde);
+                    alteracoes = movimentacoes;
+                    registros = movimentacoes == null ? "" : formatarMovimentacoes(movimentacoes.getAlterados());
+                    break;
+                }
+            }
+            
+            if (alteracoes == null) {
+                return Protocol.createErrorResponse("Erro ao carregar alterações");
+            }
+            
+            StringBuilder excluidos = new StringBuilder();
+            for (Integer id : alteracoes.getIdsExcluidos()) {
+                if (excluidos.length() > 0) {
+                    excluidos.append(",");
+                }
+                excluidos.append(id);
+            }
+            
+            return Protocol.createSuccessResponse(alteracoes.getVersaoAtual() + Protocol.SEPARATOR +
+                    registros + Protocol.SEPARATOR + excluidos);
+            
+        } catch (Exception e) {
+            ServerLog.erro("Erro ao listar alterações: " + e.getMessage(), e);
+            return Protocol.createErrorResponse("Erro ao carregar alterações");
+        }
+    }
+    
+    /**
+     * Processa comando BULK_UPLOAD|entidade|item;item;...
+     * 
+     * Recebe de uma vez os registros criados offline, valida todos e grava o
+     * lote em uma única transação (JDBC batch). Se algum item for inválido
+     * nada é gravado e a resposta indica o item: INVALID_DATA|Item N: motivo.
+     * Sucesso: OK|id;id;... com o ID do servidor de cada item, na ordem
+     * enviada (itens duplicados recebem o ID do registro já existente).
+     */
+    private String processarBulkUpload(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        
+        if (partes.length < 3) {
+            return Protocol.createErrorResponse("Entidade e itens são obrigatórios");
+        }
+        
+        String entidade = normalizarEntidadeSync(partes[1]);
+        if (entidade == null) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Entidade inválida: " + partes[1]);
+        }
+        
+        String[] itens = Protocol.parseFields(partes[2]);
+        if (itens.length == 0) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Nenhum item enviado");
+        }
+        if (itens.length > Protocol.MAX_BULK_ITEMS) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA,
+                    "Máximo de " + Protocol.MAX_BULK_ITEMS + " itens por lote");
+        }
+        
+        try {
+            switch (entidade) {
+                case "categoria":
+                    return inserirLoteCategorias(itens);
+                case "conta":
+                    return inserirLoteContas(itens);
+                default:
+                    return inserirLoteMovimentacoes(itens);
+            }
+            
+        } catch (IllegalArgumentException e) {
+            // Item inválido: nada foi gravado
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, e.getMessage());
+        } catch (Exception e) {
+            ServerLog.erro("Erro ao processar lote de " + entidade + ": " + e.getMessage(), e);
+            return Protocol.createErrorResponse("Erro interno do servidor");
+        }
+    }
+    
+    private String inserirLoteCategorias(String[] itens) {
+        List<Categoria> categorias = new ArrayList<>(itens.length);
+        for (int i = 0; i < itens.length; i++) {
+            String[] campos = camposItemLote(itens[i], 2, i);
+            try {
+                String nome = campos[0].trim();
+                if (nome.isEmpty()) {
+                    throw new IllegalArgumentException("nome vazio");
+                }
+                Categoria.TipoCategoria tipo = Categoria.TipoCategoria.fromString(campos[1].trim());
+                if (tipo == null) {
+                    throw new IllegalArgumentException("tipo de categoria inválido");
+                }
+                categorias.add(new Categoria(nome, tipo, usuarioLogado.getId()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": número inválido");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        
+        if (!categoriaDAO.inserirLote(usuarioLogado.getId(), categorias)) {
+            return Protocol.createErrorResponse("Erro ao gravar lote de categorias");
+        }
+        
+        StringBuilder ids = new StringBuilder();
+        for (Categoria categoria : categorias) {
+            if (ids.length() > 0) {
+                ids.append(Protocol.FIELD_SEPARATOR);
+            }
+            ids.append(categoria.getId());
+        }
+        return Protocol.createSuccessResponse(ids.toString());
+    }
+    
+    private String inserirLoteContas(String[] itens) {
+        List<Conta> contas = new ArrayList<>(itens.length);
+        for (int i = 0; i < itens.length; i++) {
+            String[] campos = camposItemLote(itens[i], 3, i);
+            try {
+                String nome = campos[0].trim();
+                if (nome.isEmpty()) {
+                    throw new IllegalArgumentException("nome vazio");
+                }
+                Conta.TipoConta tipo = Conta.TipoConta.fromString(campos[1].trim());
+                double saldoInicial = Double.parseDouble(campos[2].trim());
+                if (!Double.isFinite(saldoInicial)) {
+                    throw new IllegalArgumentException("saldo inicial inválido");
+                }
+                contas.add(new Conta(nome, tipo, saldoInicial, usuarioLogado.getId()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": número inválido");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        
+        if (!contaDAO.inserirLote(usuarioLogado.getId(), contas)) {
+            return Protocol.createErrorResponse("Erro ao gravar lote de contas");
+        }
+        
+        StringBuilder ids = new StringBuilder();
+        for (Conta conta : contas) {
+            if (ids.length() > 0) {
+                ids.append(Protocol.FIELD_SEPARATOR);
+            }
+            ids.append(conta.getId());
+        }
+        return Protocol.createSuccessResponse(ids.toString());
+    }
+    
+    private String inserirLoteMovimentacoes(String[] itens) {
+        // Contas e categorias do usuário (duas consultas para o lote inteiro)
+        Set<Integer> idsContas = new HashSet<>();
+        Set<Integer> idsCategorias = new HashSet<>();
+        for (Conta conta : contaDAO.listarPorUsuario(usuarioLogado.getId())) {
+            idsContas.add(conta.getId());
+        }
+        for (Categoria categoria : categoriaDAO.listarPorUsuario(usuarioLogado.getId())) {
+            idsCategorias.add(categoria.getId());
+        }
+        
+        List<Movimentacao> movimentacoes = new ArrayList<>(itens.length);
+        for (int i = 0; i < itens.length; i++) {
+            String[] campos = camposItemLote(itens[i], 6, i);
+            try {
+                double valor = Double.parseDouble(campos[0].trim());
+                if (!Double.isFinite(valor)) {
+                    throw new IllegalArgumentException("valor inválido");
+                }
+                Date data;
+                try {
+                    data = Date.valueOf(campos[1].trim());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("data inválida (use yyyy-MM-dd)");
+                }
+                String descricao = campos[2];
+                Movimentacao.TipoMovimentacao tipo = Movimentacao.TipoMovimentacao.fromString(campos[3].trim());
+                if (tipo == null) {
+                    throw new IllegalArgumentException("tipo de movimentação inválido");
+                }
+                int idConta = Integer.parseInt(campos[4].trim());
+                int idCategoria = Integer.parseInt(campos[5].trim());
+                if (!idsContas.contains(idConta)) {
+                    throw new IllegalArgumentException("conta " + idConta + " não encontrada");
+                }
+                if (!idsCategorias.contains(idCategoria)) {
+                    throw new IllegalArgumentException("categoria " + idCategoria + " não encontrada");
+                }
+                movimentacoes.add(new Movimentacao(valor, data, descricao, tipo, idConta, idCategoria,
+                        usuarioLogado.getId()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": número inválido");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Item " + (i + 1) + ": " + e.getMessage());
+            }
         }
         
-        if (partes.length < 2) {
-            return Protocol.createErrorResponse("ID da movimentação é obrigatório");
+        if (!movimentacaoDAO.inserirLote(usuarioLogado.getId(), movimentacoes)) {
+            return Protocol.createErrorResponse("Erro ao gravar lote de movimentações");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Movimentação removida com sucesso (modo teste)");
+        StringBuilder ids = new StringBuilder();
+        for (Movimentacao mov : movimentacoes) {
+            if (ids.length() > 0) {
+                ids.append(Protocol.FIELD_SEPARATOR);
+            }
+            ids.append(mov.getId());
+        }
+        return Protocol.createSuccessResponse(ids.toString());
+    }
+    
+    /**
+     * Separa e decodifica (URL encoding UTF-8) os campos de um item do lote
+     * @throws IllegalArgumentException se o número de campos estiver errado
+     */
+    private static String[] camposItemLote(String item, int quantidade, int indice) {
+        String[] campos = item.split(",", -1);
+        if (campos.length != quantidade) {
+            throw new IllegalArgumentException("Item " + (indice + 1) + ": esperados " + quantidade +
+                    " campos, recebidos " + campos.length);
         }
-        
         try {
-            int id = Integer.parseInt(partes[1]);
-            
-            // Chamar DAO para remover
-            boolean sucesso = movimentacaoDAO.remover(id, usuarioLogado.getId());
-            
-            if (sucesso) {
-                return Protocol.createSuccessResponse("Movimentação removida com sucesso");
-            } else {
-                return Protocol.createErrorResponse("Erro ao remover movimentação - movimentação não encontrada ou não pertence ao usuário");
+            for (int i = 0; i < campos.length; i++) {
+                campos[i] = URLDecoder.decode(campos[i], StandardCharsets.UTF_8);
             }
-            
-        } catch (NumberFormatException e) {
-            return Protocol.createErrorResponse("ID da movimentação deve ser um número válido");
-        } catch (Exception e) {
-            return Protocol.createErrorResponse("Erro interno: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Item " + (indice + 1) + ": codificação inválida");
+        }
+        return campos;
+    }
+    
+    /**
+     * Formata categorias no formato de LIST_CATEGORIAS (id,nome,tipo separadas por ';')
+     */
+    private String formatarCategorias(List<Categoria> categorias) {
+        StringBuilder categoriasData = new StringBuilder();
+        for (Categoria categoria : categorias) {
+            if (categoriasData.length() > 0) {
+                categoriasData.append(Protocol.FIELD_SEPARATOR);
+            }
+            categoriasData.append(categoria.getId()).append(",")
+                         .append(categoria.getNome()).append(",")
+                         .append(categoria.getTipo().getValor());
+        }
+        return categoriasData.toString();
+    }
+    
+    /**
+     * Converte o nome da entidade recebido do cliente para o nome interno
+     * @return "categoria", "conta", "movimentacao" ou null se desconhecida
+     */
+    private static String normalizarEntidadeSync(String nome) {
+        switch (nome.trim().toLowerCase()) {
+            case "categoria":
+            case "categorias":
+                return "categoria";
+            case "conta":
+            case "contas":
+                return "conta";
+            case "movimentacao":
+            case "movimentacoes":
+            case "lancamento":
+            case "lancamentos":
+                return "movimentacao";
+            default:
+                return null;
         }
     }
     
@@ -1488,17 +2571,25 @@ public class ClientHandler extends Thread {
             return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Nome e email são obrigatórios");
         }
         
-        // Modo de teste
-        if (testMode) {
-            usuarioLogado.setNome(novoNome);
-            usuarioLogado.setEmail(novoEmail);
-            return Protocol.createSuccessResponse("Perfil atualizado com sucesso (modo teste)");
-        }
-        
         // TODO: Implementar atualização real no banco de dados
         return Protocol.createSuccessResponse("Perfil atualizado com sucesso");
     }
     
+    /**
+     * Métricas do servidor (comando admin): medidores e, por comando,
+     * requisições, erros, latências, tamanho da resposta e tempo de banco
+     */
+    private String processarStats() {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não autenticado");
+        }
+        if (!usuarioLogado.isAdmin()) {
+            return Protocol.createResponse(Protocol.STATUS_ACCESS_DENIED,
+                "Acesso negado. Apenas administradores podem consultar as métricas.");
+        }
+        return Protocol.createSuccessResponse(ServerMetrics.getInstance().formatarStats());
+    }
+    
     /**
      * Lista todos os usuários (comando admin)
      */
@@ -1507,22 +2598,13 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Usuário não autenticado");
         }
         
-        // Modo de teste
-        if (testMode) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("1,Admin Teste,admin@test.com,2025-01-01 00:00:00")
-              .append(Protocol.FIELD_SEPARATOR)
-              .append("2,Usuario Teste,user@test.com,2025-01-01 00:00:00");
-            return Protocol.createSuccessResponse(sb.toString());
-        }
-        
         // Listar todos os usuários
         List<Usuario> usuarios = usuarioDAO.listarTodos();
         
-        System.out.println("processarListUsers - Total de usuários retornados do DAO: " + usuarios.size());
+        ServerLog.debug("processarListUsers - Total de usuários retornados do DAO: " + usuarios.size());
         
         if (usuarios.isEmpty()) {
-            System.out.println("processarListUsers - Nenhum usuário encontrado, retornando resposta vazia");
+            ServerLog.debug("processarListUsers - Nenhum usuário encontrado, retornando resposta vazia");
             return Protocol.createSuccessResponse("");
         }
         
@@ -1538,9 +2620,7 @@ public class ClientHandler extends Thread {
               .append(u.getDataCriacao() != null ? u.getDataCriacao().toString() : "");
         }
         
-        String response = Protocol.createSuccessResponse(sb.toString());
-        System.out.println("processarListUsers - Resposta gerada: " + response);
-        return response;
+        return Protocol.createSuccessResponse(sb.toString());
     }
     
     /**
@@ -1568,11 +2648,6 @@ public class ClientHandler extends Thread {
             return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Email inválido");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Usuário atualizado com sucesso (modo teste)");
-        }
-        
         // Buscar usuário
         Usuario usuario = usuarioDAO.buscarPorId(userId);
         if (usuario == null) {
@@ -1584,6 +2659,8 @@ public class ClientHandler extends Thread {
         usuario.setEmail(novoEmail);
         
         if (usuarioDAO.atualizar(usuario)) {
+            // Sessões guardam o usuário antigo: o cliente refaz o login
+            SessionStore.getInstance().encerrarDoUsuario(userId);
             return Protocol.createSuccessResponse("Usuário atualizado com sucesso");
         } else {
             return Protocol.createErrorResponse("Erro ao atualizar usuário");
@@ -1610,13 +2687,9 @@ public class ClientHandler extends Thread {
             return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Senha deve ter no mínimo 6 caracteres");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Senha atualizada com sucesso (modo teste)");
-        }
-        
         // Atualizar senha
         if (usuarioDAO.atualizarSenha(userId, novaSenha)) {
+            SessionStore.getInstance().encerrarDoUsuario(userId);
             return Protocol.createSuccessResponse("Senha atualizada com sucesso");
         } else {
             return Protocol.createErrorResponse("Erro ao atualizar senha");
@@ -1642,13 +2715,9 @@ public class ClientHandler extends Thread {
             return Protocol.createErrorResponse("Não é possível excluir o próprio usuário logado");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Usuário excluído com sucesso (modo teste)");
-        }
-        
         // Excluir usuário
         if (usuarioDAO.excluir(userId)) {
+            SessionStore.getInstance().encerrarDoUsuario(userId);
             return Protocol.createSuccessResponse("Usuário excluído com sucesso");
         } else {
             return Protocol.createErrorResponse("Erro ao excluir usuário");
@@ -1671,11 +2740,6 @@ public class ClientHandler extends Thread {
         
         int userId = Integer.parseInt(partes[1]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1,Conta Teste,1000.00,Usuario Teste,2025-01-01 00:00:00");
-        }
-        
         // Buscar contas do usuário
         List<Conta> contas = contaDAO.listarPorUsuario(userId);
         
@@ -1697,7 +2761,7 @@ public class ClientHandler extends Thread {
               .append(c.getNome()).append(",")
               .append(c.getSaldoInicial()).append(",")
               .append(nomeUsuario).append(",")
-              .append(c.getDataCriacao() != null ? DATE_FORMAT.format(c.getDataCriacao()) : "N/A");
+              .append(c.getDataCriacao() != null ? DATE_FORMAT.get().format(c.getDataCriacao()) : "N/A");
         }
         
         return Protocol.createSuccessResponse(sb.toString());
@@ -1717,11 +2781,6 @@ public class ClientHandler extends Thread {
         
         int userId = Integer.parseInt(partes[1]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1;Alimentação;despesa;Usuario Teste");
-        }
-        
         // Buscar categorias do usuário
         List<Categoria> categorias = categoriaDAO.listarPorUsuario(userId);
         
@@ -1743,7 +2802,7 @@ public class ClientHandler extends Thread {
               .append(cat.getNome()).append(",")
               .append(cat.getTipo()).append(",")
               .append(nomeUsuario).append(",")
-              .append(cat.getDataCriacao() != null ? DATE_FORMAT.format(cat.getDataCriacao()) : "N/A");
+              .append(cat.getDataCriacao() != null ? DATE_FORMAT.get().format(cat.getDataCriacao()) : "N/A");
         }
         
         return Protocol.createSuccessResponse(sb.toString());
@@ -1763,11 +2822,6 @@ public class ClientHandler extends Thread {
         
         int userId = Integer.parseInt(partes[1]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1;Usuario Teste;100.00;2024-01-01;Teste;despesa;Conta Teste;Categoria Teste");
-        }
-        
         // Buscar movimentações do usuário
         List<Movimentacao> movimentacoes = movimentacaoDAO.listarPorUsuario(userId);
         
@@ -1802,7 +2856,7 @@ public class ClientHandler extends Thread {
               .append(m.getTipo()).append(",")
               .append(nomeConta).append(",")
               .append(nomeCategoria).append(",")
-              .append(m.getDataCriacao() != null ? DATE_FORMAT.format(m.getDataCriacao()) : "N/A");
+              .append(m.getDataCriacao() != null ? DATE_FORMAT.get().format(m.getDataCriacao()) : "N/A");
         }
         
         return Protocol.createSuccessResponse(sb.toString());
@@ -1825,11 +2879,6 @@ public class ClientHandler extends Thread {
         String novoTipo = partes[3];
         double novoSaldo = Double.parseDouble(partes[4]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Conta atualizada com sucesso (modo teste)");
-        }
-        
         // Buscar e atualizar conta
         Conta conta = contaDAO.buscarPorId(contaId);
         if (conta == null) {
@@ -1863,11 +2912,6 @@ public class ClientHandler extends Thread {
         String novoNome = partes[2];
         String novoTipo = partes[3];
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Categoria atualizada com sucesso (modo teste)");
-        }
-        
         // Buscar e atualizar categoria
         Categoria categoria = categoriaDAO.buscarPorId(categoriaId);
         if (categoria == null) {
@@ -1904,11 +2948,6 @@ public class ClientHandler extends Thread {
         int novoIdConta = Integer.parseInt(partes[6]);
         int novoIdCategoria = Integer.parseInt(partes[7]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Movimentação atualizada com sucesso (modo teste)");
-        }
-        
         // Buscar e atualizar movimentação
         Movimentacao movimentacao = movimentacaoDAO.buscarPorId(movimentacaoId);
         if (movimentacao == null) {
@@ -1943,11 +2982,6 @@ public class ClientHandler extends Thread {
         
         int contaId = Integer.parseInt(partes[1]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Conta excluída com sucesso (modo teste)");
-        }
-        
         if (contaDAO.excluir(contaId)) {
             return Protocol.createSuccessResponse("Conta excluída com sucesso");
         } else {
@@ -1969,11 +3003,6 @@ public class ClientHandler extends Thread {
         
         int categoriaId = Integer.parseInt(partes[1]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Categoria excluída com sucesso (modo teste)");
-        }
-        
         if (categoriaDAO.excluir(categoriaId)) {
             return Protocol.createSuccessResponse("Categoria excluída com sucesso");
         } else {
@@ -1995,11 +3024,6 @@ public class ClientHandler extends Thread {
         
         int movimentacaoId = Integer.parseInt(partes[1]);
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("Movimentação excluída com sucesso (modo teste)");
-        }
-        
         if (movimentacaoDAO.excluir(movimentacaoId)) {
             return Protocol.createSuccessResponse("Movimentação excluída com sucesso");
         } else {
@@ -2008,164 +3032,468 @@ public class ClientHandler extends Thread {
     }
     
     /**
-     * Lista todas as contas de todos os usuários (comando admin) - OTIMIZADO
+     * Lista todas as contas de todos os usuários (comando admin)
      */
     private String processarAdminListAllContas() {
         if (usuarioLogado == null) {
             return Protocol.createErrorResponse("Usuário não autenticado");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1,Conta Teste,1000.00,Usuario Teste,2025-01-01 00:00:00");
+        StringWriter resposta = new StringWriter();
+        try {
+            transmitirTodasContas(resposta);
+        } catch (IOException e) {
+            // StringWriter não lança IOException
+        }
+        return resposta.toString();
+    }
+    
+    /**
+     * Lista todas as categorias de todos os usuários (comando admin)
+     */
+    private String processarAdminListAllCategorias() {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não autenticado");
         }
         
+        StringWriter resposta = new StringWriter();
         try {
-            // Buscar todos os usuários e suas contas de forma otimizada
-            List<Usuario> usuarios = usuarioDAO.listarTodos();
-            
-            if (usuarios.isEmpty()) {
-                return Protocol.createSuccessResponse("");
-            }
-            
-            StringBuilder sb = new StringBuilder();
-            boolean first = true;
-            
-            for (Usuario usuario : usuarios) {
-                List<Conta> contas = contaDAO.listarPorUsuario(usuario.getId());
-                
-                for (Conta c : contas) {
-                    if (!first) {
-                        sb.append(Protocol.FIELD_SEPARATOR);
-                    }
-                    first = false;
-                    
-                    sb.append(c.getId()).append(",")
-                      .append(c.getNome()).append(",")
-                      .append(c.getSaldoInicial()).append(",")
-                      .append(usuario.getNome()).append(",")
-                      .append(c.getDataCriacao() != null ? DATE_FORMAT.format(c.getDataCriacao()) : "N/A");
-                }
-            }
-            
-            return Protocol.createSuccessResponse(sb.toString());
-            
-        } catch (Exception e) {
-            System.err.println("Erro ao listar todas as contas: " + e.getMessage());
-            e.printStackTrace();
-            return Protocol.createErrorResponse("Erro ao listar contas");
+            transmitirTodasCategorias(resposta);
+        } catch (IOException e) {
+            // StringWriter não lança IOException
         }
+        return resposta.toString();
     }
     
     /**
-     * Lista todas as categorias de todos os usuários (comando admin) - OTIMIZADO
+     * Lista todas as movimentações de todos os usuários (comando admin)
      */
-    private String processarAdminListAllCategorias() {
+    private String processarAdminListAllMovimentacoes() {
         if (usuarioLogado == null) {
             return Protocol.createErrorResponse("Usuário não autenticado");
         }
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1;Alimentação;despesa;Usuario Teste");
+        StringWriter resposta = new StringWriter();
+        try {
+            transmitirTodasMovimentacoes(resposta);
+        } catch (IOException e) {
+            // StringWriter não lança IOException
+        }
+        return resposta.toString();
+    }
+    
+    /**
+     * Página da tabela de movimentações do admin (comando admin)
+     * ADMIN_LIST_MOVIMENTACOES_PAGE|idUsuario|busca|ordem|deslocamento|limite
+     * 
+     * A tabela do painel busca só as páginas que aparecem na rolagem, com
+     * filtro e ordem aplicados aqui; o total (para o tamanho da barra de
+     * rolagem) só é contado na primeira página de cada consulta.
+     * Resposta: OK|total|mov;mov;... (total -1 fora da primeira página)
+     */
+    private String processarAdminListMovimentacoesPage(String[] partes) {
+        if (usuarioLogado == null) {
+            return Protocol.createErrorResponse("Usuário não autenticado");
+        }
+        if (!usuarioLogado.isAdmin()) {
+            return Protocol.createResponse(Protocol.STATUS_ACCESS_DENIED,
+                "Acesso negado. Apenas administradores podem listar movimentações de todos os usuários.");
+        }
+        if (partes.length < 6) {
+            return Protocol.createErrorResponse("Parâmetros insuficientes");
         }
         
+        Integer idUsuario;
+        String busca;
+        OrdemMovimentacao ordem;
+        int deslocamento;
+        int limite;
         try {
-            // Buscar todos os usuários e suas categorias de forma otimizada
-            List<Usuario> usuarios = usuarioDAO.listarTodos();
-            
-            if (usuarios.isEmpty()) {
-                return Protocol.createSuccessResponse("");
+            int id = Integer.parseInt(partes[1].trim());
+            idUsuario = id > 0 ? id : null;
+            busca = URLDecoder.decode(partes[2], StandardCharsets.UTF_8).trim();
+            ordem = OrdemMovimentacao.fromToken(partes[3]);
+            deslocamento = Integer.parseInt(partes[4].trim());
+            limite = Integer.parseInt(partes[5].trim());
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException, codificação ou ordem inválida
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Parâmetros da página inválidos");
+        }
+        if (deslocamento < 0) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Deslocamento inválido");
+        }
+        if (limite < 1 || limite > Protocol.MAX_PAGE_SIZE) {
+            return Protocol.createResponse(Protocol.STATUS_INVALID_DATA,
+                    "Tamanho da página deve estar entre 1 e " + Protocol.MAX_PAGE_SIZE);
+        }
+        
+        int total = -1;
+        if (deslocamento == 0) {
+            total = movimentacaoDAO.contarComNomes(idUsuario, busca);
+            if (total < 0) {
+                return Protocol.createErrorResponse("Erro ao listar movimentações");
             }
-            
-            StringBuilder sb = new StringBuilder();
-            boolean first = true;
-            
-            for (Usuario usuario : usuarios) {
-                List<Categoria> categorias = categoriaDAO.listarPorUsuario(usuario.getId());
-                
-                for (Categoria cat : categorias) {
-                    if (!first) {
-                        sb.append(Protocol.FIELD_SEPARATOR);
-                    }
-                    first = false;
-                    
-                    sb.append(cat.getId()).append(",")
-                      .append(cat.getNome()).append(",")
-                      .append(cat.getTipo()).append(",")
-                      .append(usuario.getNome()).append(",")
-                      .append(cat.getDataCriacao() != null ? DATE_FORMAT.format(cat.getDataCriacao()) : "N/A");
+        }
+        
+        StringBuilder sb = new StringBuilder(limite * 96);
+        boolean sucesso;
+        try {
+            sucesso = movimentacaoDAO.percorrerPaginaComNomes(idUsuario, busca, ordem, deslocamento, limite,
+                    (m, nomeUsuario, nomeConta, nomeCategoria) -> {
+                        if (sb.length() > 0) {
+                            sb.append(Protocol.FIELD_SEPARATOR);
+                        }
+                        sb.append(m.getId()).append(',')
+                          .append(codificarCampo(nomeUsuario)).append(',')
+                          .append(String.format(Locale.US, "%.2f", m.getValor())).append(',')
+                          .append(m.getData()).append(',')
+                          .append(codificarCampo(m.getDescricao())).append(',')
+                          .append(m.getTipo().getValor()).append(',')
+                          .append(codificarCampo(nomeConta != null ? nomeConta : "Conta ID " + m.getIdConta())).append(',')
+                          .append(codificarCampo(nomeCategoria != null ? nomeCategoria : "Categoria ID " + m.getIdCategoria())).append(',')
+                          .append(m.getIdConta()).append(',')
+                          .append(m.getIdCategoria());
+                    });
+        } catch (IOException e) {
+            // StringBuilder não lança IOException
+            sucesso = false;
+        }
+        if (!sucesso) {
+            return Protocol.createErrorResponse("Erro ao listar movimentações");
+        }
+        return Protocol.createSuccessResponse(total + Protocol.SEPARATOR + sb);
+    }
+    
+    /**
+     * Codifica um campo de texto (URL encoding UTF-8) para que | ; , não
+     * quebrem a resposta; null vira vazio
+     */
+    private static String codificarCampo(String texto) {
+        return texto != null ? URLEncoder.encode(texto, StandardCharsets.UTF_8) : "";
+    }
+    
+    // ========== NOTIFICAÇÕES DE ALTERAÇÕES ==========
+    
+    /**
+     * Processa SUBSCRIBE[|escopo]
+     * 
+     * usuario (padrão): alterações do próprio usuário feitas por outras
+     * conexões; todos: de todos os usuários (apenas admin); off: cancela.
+     * A inscrição vale até LOGOUT, novo login ou o fim da conexão.
+     */
+    private String processarSubscribe(String[] partes) {
+        Usuario usuario = usuarioLogado;
+        if (usuario == null) {
+            return Protocol.createErrorResponse("Usuário não está logado");
+        }
+        NotificationHub hub = NotificationHub.getInstance();
+        if (!hub.isAtivo()) {
+            return Protocol.createErrorResponse("Notificações desativadas no servidor");
+        }
+        
+        String escopo = partes.length > 1 && !partes[1].trim().isEmpty()
+                ? partes[1].trim().toLowerCase(Locale.ROOT) : NotificationHub.ESCOPO_USUARIO;
+        switch (escopo) {
+            case NotificationHub.ESCOPO_OFF:
+                cancelarNotificacoes();
+                return Protocol.createSuccessResponse(NotificationHub.ESCOPO_OFF);
+            case NotificationHub.ESCOPO_USUARIO:
+                break;
+            case NotificationHub.ESCOPO_TODOS:
+                if (!usuario.isAdmin()) {
+                    return Protocol.createResponse(Protocol.STATUS_ACCESS_DENIED,
+                        "Apenas administradores recebem as alterações de todos os usuários");
                 }
+                break;
+            default:
+                return Protocol.createResponse(Protocol.STATUS_INVALID_DATA, "Escopo desconhecido: " + partes[1]);
+        }
+        
+        int anterior = idInscrito;
+        if (anterior != 0 && anterior != usuario.getId()) {
+            hub.cancelar(this, anterior);
+        }
+        hub.inscrever(this, usuario.getId(), NotificationHub.ESCOPO_TODOS.equals(escopo));
+        idInscrito = usuario.getId();
+        return Protocol.createSuccessResponse(escopo);
+    }
+    
+    /**
+     * Retira esta conexão do NotificationHub (também chamado pelo NioFrontEnd ao fechar a sessão)
+     */
+    void cancelarNotificacoes() {
+        int id = idInscrito;
+        if (id != 0) {
+            idInscrito = 0;
+            NotificationHub.getInstance().cancelar(this, id);
+        }
+    }
+    
+    /**
+     * Define a saída das notificações de uma sessão do NioFrontEnd
+     * @param saida recebe a notificação já codificada e devolve false se descartou
+     */
+    void setSaidaNotificacoes(Predicate<byte[]> saida) {
+        this.saidaNotificacoes = saida;
+    }
+    
+    /**
+     * Escreve uma notificação na conexão, fora de qualquer resposta
+     * 
+     * Chamado pelas threads de entrega do NotificationHub. No texto sai como
+     * "#0|NOTIFY|..." e no binário como frame com ID 0; sob a trava de saída,
+     * para não se misturar com uma resposta em andamento. Se a trava não
+     * vier em ESPERA_NOTIFICACAO_MS (listagem em streaming, cliente lento
+     * consumindo a saída), a notificação é descartada em vez de prender a
+     * thread de entrega, que atende todas as conexões.
+     */
+    @Override
+    public boolean enviarNotificacao(String notificacao) {
+        Predicate<byte[]> nio = saidaNotificacoes;
+        if (nio != null) {
+            return nio.test(codificarNotificacao(notificacao));
+        }
+        try {
+            if (!saidaLock.tryLock(ESPERA_NOTIFICACAO_MS, TimeUnit.MILLISECONDS)) {
+                return false;
             }
-            
-            return Protocol.createSuccessResponse(sb.toString());
-            
-        } catch (Exception e) {
-            System.err.println("Erro ao listar todas as categorias: " + e.getMessage());
-            e.printStackTrace();
-            return Protocol.createErrorResponse("Erro ao listar categorias");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            OutputStream saida = formatoBinario ? saidaBinaria : saidaBytes;
+            if (saida == null || clientSocket.isClosed()) {
+                return false;
+            }
+            saida.write(codificarNotificacao(notificacao));
+            saida.flush();
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            saidaLock.unlock();
+        }
+    }
+    
+    private byte[] codificarNotificacao(String notificacao) {
+        if (!formatoBinario) {
+            String linha = Protocol.responsePrefix(Protocol.NOTIFY_REQUEST_ID) + notificacao + "\n";
+            return linha.getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(64);
+        try {
+            BinaryProtocol.escreverFrame(frame, BinaryProtocol.respostaTexto(0, notificacao));
+        } catch (IOException e) {
+            // ByteArrayOutputStream não lança IOException
         }
+        return frame.toByteArray();
     }
     
     /**
-     * Lista todas as movimentações de todos os usuários (comando admin) - OTIMIZADO
+     * Entidade e operação notificadas de um comando
+     * @return {entidade, operacao}, ou null se o comando não altera dados versionados
+     *         (no BULK_UPLOAD a entidade vem do parâmetro)
      */
-    private String processarAdminListAllMovimentacoes() {
+    private static String[] alteracaoDoComando(String cmd) {
+        switch (cmd) {
+            case Protocol.CMD_ADD_CONTA:
+                return new String[] {"conta", "ADD"};
+            case Protocol.CMD_UPDATE_CONTA:
+            case Protocol.CMD_ADMIN_UPDATE_CONTA:
+                return new String[] {"conta", "UPDATE"};
+            case Protocol.CMD_DELETE_CONTA:
+            case Protocol.CMD_ADMIN_DELETE_CONTA:
+                return new String[] {"conta", "DELETE"};
+            case Protocol.CMD_ADD_CATEGORIA:
+                return new String[] {"categoria", "ADD"};
+            case Protocol.CMD_UPDATE_CATEGORIA:
+            case Protocol.CMD_ADMIN_UPDATE_CATEGORIA:
+                return new String[] {"categoria", "UPDATE"};
+            case Protocol.CMD_DELETE_CATEGORIA:
+            case Protocol.CMD_ADMIN_DELETE_CATEGORIA:
+                return new String[] {"categoria", "DELETE"};
+            case Protocol.CMD_ADD_MOVIMENTACAO:
+                return new String[] {"movimentacao", "ADD"};
+            case Protocol.CMD_UPDATE_MOVIMENTACAO:
+            case Protocol.CMD_ADMIN_UPDATE_MOVIMENTACAO:
+                return new String[] {"movimentacao", "UPDATE"};
+            case Protocol.CMD_DELETE_MOVIMENTACAO:
+            case Protocol.CMD_ADMIN_DELETE_MOVIMENTACAO:
+                return new String[] {"movimentacao", "DELETE"};
+            case Protocol.CMD_BULK_UPLOAD:
+                return new String[] {null, "BULK"};
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Publica a alteração de um comando que respondeu OK
+     * 
+     * O id do registro vem da resposta (ADD) ou do primeiro parâmetro
+     * (UPDATE, DELETE e ADMIN_*); o lote vai com id 0. Sem escrita
+     * registrada em UltimaEscrita nada foi gravado e nada é publicado.
+     */
+    private void notificarAlteracao(String[] partes, String[] alteracao, String resposta) {
+        int idUsuario = UltimaEscrita.getIdUsuario();
+        if (idUsuario == 0) {
+            return;
+        }
+        String entidade = alteracao[0];
+        String operacao = alteracao[1];
+        int idRegistro = 0;
+        try {
+            if (entidade == null) {
+                entidade = normalizarEntidadeSync(partes[1]);
+            } else if ("ADD".equals(operacao)) {
+                idRegistro = Integer.parseInt(resposta.substring(Protocol.STATUS_OK.length() + 1).trim());
+            } else {
+                idRegistro = Integer.parseInt(partes[1].trim());
+            }
+        } catch (RuntimeException e) {
+            // Resposta ou parâmetro fora do formato: notifica sem o id
+        }
+        if (entidade != null) {
+            NotificationHub.getInstance().publicar(this, idUsuario, entidade, operacao,
+                    idRegistro, UltimaEscrita.getVersao());
+        }
+    }
+    
+    // ========== LISTAGENS ADMIN EM STREAMING ==========
+    
+    /**
+     * Tipo do comando (texto antes do primeiro separador)
+     */
+    private static String tipoComando(String comando) {
+        int fimTipo = comando.indexOf(Protocol.SEPARATOR);
+        return (fimTipo >= 0 ? comando.substring(0, fimTipo) : comando).trim();
+    }
+    
+    /**
+     * Verifica se o comando é uma listagem completa do admin que deve ser
+     * transmitida em streaming (apenas com usuário autenticado; sem login
+     * o processamento normal responde)
+     */
+    private boolean isListagemStreaming(String tipo) {
         if (usuarioLogado == null) {
-            return Protocol.createErrorResponse("Usuário não autenticado");
+            return false;
         }
+        return Protocol.CMD_ADMIN_LIST_ALL_CONTAS.equals(tipo)
+                || Protocol.CMD_ADMIN_LIST_ALL_CATEGORIAS.equals(tipo)
+                || Protocol.CMD_ADMIN_LIST_ALL_MOVIMENTACOES.equals(tipo);
+    }
+    
+    /**
+     * Transmite uma listagem completa do admin para o writer
+     * @return número de registros enviados, ou -1 se o banco falhou
+     */
+    private int transmitirListagemAdmin(String tipo, Writer saida) throws IOException {
+        switch (tipo) {
+            case Protocol.CMD_ADMIN_LIST_ALL_CONTAS:
+                return transmitirTodasContas(saida);
+            case Protocol.CMD_ADMIN_LIST_ALL_CATEGORIAS:
+                return transmitirTodasCategorias(saida);
+            default:
+                return transmitirTodasMovimentacoes(saida);
+        }
+    }
+    
+    /**
+     * Escreve todas as contas: id,nome,saldoInicial,nomeUsuario,dataCriacao
+     */
+    private int transmitirTodasContas(Writer saida) throws IOException {
+        RespostaStreaming resposta = new RespostaStreaming(saida);
+        boolean sucesso = contaDAO.percorrerTodasComUsuario((c, nomeUsuario) ->
+                resposta.proximoRegistro().write(c.getId() + "," +
+                        c.getNome() + "," +
+                        c.getSaldoInicial() + "," +
+                        nomeUsuario + "," +
+                        formatarDataCriacao(c.getDataCriacao())));
+        return resposta.finalizar(sucesso, "Erro ao listar contas");
+    }
+    
+    /**
+     * Escreve todas as categorias: id,nome,tipo,nomeUsuario,dataCriacao
+     */
+    private int transmitirTodasCategorias(Writer saida) throws IOException {
+        RespostaStreaming resposta = new RespostaStreaming(saida);
+        boolean sucesso = categoriaDAO.percorrerTodasComUsuario((cat, nomeUsuario) ->
+                resposta.proximoRegistro().write(cat.getId() + "," +
+                        cat.getNome() + "," +
+                        cat.getTipo() + "," +
+                        nomeUsuario + "," +
+                        formatarDataCriacao(cat.getDataCriacao())));
+        return resposta.finalizar(sucesso, "Erro ao listar categorias");
+    }
+    
+    /**
+     * Escreve todas as movimentações:
+     * id,nomeUsuario,valor,data,descricao,tipo,nomeConta,nomeCategoria,dataCriacao
+     */
+    private int transmitirTodasMovimentacoes(Writer saida) throws IOException {
+        RespostaStreaming resposta = new RespostaStreaming(saida);
+        boolean sucesso = movimentacaoDAO.percorrerTodasComNomes((m, nomeUsuario, nomeConta, nomeCategoria) ->
+                resposta.proximoRegistro().write(m.getId() + "," +
+                        nomeUsuario + "," +
+                        m.getValor() + "," +
+                        m.getData() + "," +
+                        (m.getDescricao() != null ? m.getDescricao() : "") + "," +
+                        m.getTipo() + "," +
+                        (nomeConta != null ? nomeConta : "Conta ID " + m.getIdConta()) + "," +
+                        (nomeCategoria != null ? nomeCategoria : "Categoria ID " + m.getIdCategoria()) + "," +
+                        formatarDataCriacao(m.getDataCriacao())));
+        return resposta.finalizar(sucesso, "Erro ao listar movimentações");
+    }
+    
+    private static String formatarDataCriacao(Timestamp dataCriacao) {
+        return dataCriacao != null ? DATE_FORMAT.get().format(dataCriacao) : "N/A";
+    }
+    
+    /**
+     * Resposta "OK|reg;reg;..." escrita registro a registro
+     * 
+     * O status só é escrito junto com o primeiro registro, então um erro de
+     * banco antes de qualquer linha ainda vira uma resposta ERROR. Depois que
+     * registros foram enviados, o erro é registrado e finalizar() lança
+     * RespostaInterrompidaException: a linha não é terminada e a conexão é
+     * fechada.
+     */
+    private static final class RespostaStreaming {
+        private final Writer saida;
+        private int registros;
         
-        // Modo de teste
-        if (testMode) {
-            return Protocol.createSuccessResponse("1;Usuario Teste;100.00;2024-01-01;Teste;despesa;Conta Teste;Categoria Teste");
+        RespostaStreaming(Writer saida) {
+            this.saida = saida;
         }
         
-        try {
-            // Buscar todos os usuários e suas movimentações de forma otimizada
-            List<Usuario> usuarios = usuarioDAO.listarTodos();
-            
-            if (usuarios.isEmpty()) {
-                return Protocol.createSuccessResponse("");
+        /** Escreve o prefixo do próximo registro e devolve o writer */
+        Writer proximoRegistro() throws IOException {
+            if (registros == 0) {
+                saida.write(Protocol.STATUS_OK + Protocol.SEPARATOR);
+            } else {
+                saida.write(Protocol.FIELD_SEPARATOR);
             }
-            
-            StringBuilder sb = new StringBuilder();
-            boolean first = true;
-            
-            for (Usuario usuario : usuarios) {
-                List<Movimentacao> movimentacoes = movimentacaoDAO.listarPorUsuario(usuario.getId());
-                
-                for (Movimentacao m : movimentacoes) {
-                    // Buscar nome da conta
-                    Conta conta = contaDAO.buscarPorId(m.getIdConta());
-                    String nomeConta = conta != null ? conta.getNome() : "Conta ID " + m.getIdConta();
-                    
-                    // Buscar nome da categoria
-                    Categoria categoria = categoriaDAO.buscarPorId(m.getIdCategoria());
-                    String nomeCategoria = categoria != null ? categoria.getNome() : "Categoria ID " + m.getIdCategoria();
-                    
-                    if (!first) {
-                        sb.append(Protocol.FIELD_SEPARATOR);
-                    }
-                    first = false;
-                    
-                    sb.append(m.getId()).append(",")
-                      .append(usuario.getNome()).append(",")
-                      .append(m.getValor()).append(",")
-                      .append(m.getData()).append(",")
-                      .append(m.getDescricao() != null ? m.getDescricao() : "").append(",")
-                      .append(m.getTipo()).append(",")
-                      .append(nomeConta).append(",")
-                      .append(nomeCategoria).append(",")
-                      .append(m.getDataCriacao() != null ? DATE_FORMAT.format(m.getDataCriacao()) : "N/A");
-                }
+            registros++;
+            return saida;
+        }
+        
+        /**
+         * Completa a resposta
+         * @return número de registros enviados, ou -1 se o banco falhou
+         * @throws RespostaInterrompidaException se o banco falhou depois do
+         *         primeiro registro
+         */
+        int finalizar(boolean sucesso, String mensagemErro) throws IOException {
+            if (registros == 0) {
+                saida.write(sucesso ? Protocol.createSuccessResponse("")
+                                    : Protocol.createErrorResponse(mensagemErro));
+            } else if (!sucesso) {
+                ServerLog.erro("✗ " + mensagemErro + ": resposta interrompida após " + registros
+                        + " registros, encerrando a conexão");
+                throw new RespostaInterrompidaException(mensagemErro);
             }
-            
-            return Protocol.createSuccessResponse(sb.toString());
-            
-        } catch (Exception e) {
-            System.err.println("Erro ao listar todas as movimentações: " + e.getMessage());
-            e.printStackTrace();
-            return Protocol.createErrorResponse("Erro ao listar movimentações");
+            return sucesso ? registros : -1;
         }
     }
     
@@ -2173,13 +3501,15 @@ public class ClientHandler extends Thread {
      * Fecha conexão com cliente
      */
     private void fecharConexao() {
+        cancelarNotificacoes();
+        compressor.encerrar();
         try {
             if (input != null) input.close();
             if (output != null) output.close();
             if (clientSocket != null) clientSocket.close();
-            System.out.println("Conexão com cliente encerrada");
+            ServerLog.info("Conexão com cliente encerrada");
         } catch (IOException e) {
-            System.err.println("Erro ao fechar conexão: " + e.getMessage());
+            ServerLog.erro("Erro ao fechar conexão: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
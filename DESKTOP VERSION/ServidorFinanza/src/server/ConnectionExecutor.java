@@ -0,0 +1,193 @@
+package server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConnectionExecutor - Execução das conexões de clientes
+ *
+ * Substitui o antigo modelo "uma thread nova por cliente" por um executor
+ * com admissão controlada. Dois modos estão disponíveis:
+ *
+ * - POOL: pool fixo de threads de plataforma com fila limitada. Quando todos
+ *   os workers estão ocupados a conexão espera na fila; com a fila cheia a
+ *   conexão é rejeitada.
+ * - VIRTUAL: uma virtual thread por conexão (JDK 21+), limitada pelo número
+ *   máximo de conexões simultâneas. Adequado para milhares de celulares
+ *   conectados e ociosos.
+ *
+ * Métricas de admissão (ativas, enfileiradas, rejeitadas, aceitas) ficam
+ * disponíveis para dimensionar o servidor.
+ */
+public class ConnectionExecutor {
+
+    /** Modos de execução suportados */
+    public enum Mode {
+        POOL("pool"),
+        VIRTUAL("virtual");
+
+        private final String valor;
+
+        Mode(String valor) {
+            this.valor = valor;
+        }
+
+        public String getValor() {
+            return valor;
+        }
+
+        public static Mode fromString(String modo) {
+            for (Mode m : Mode.values()) {
+                if (m.getValor().equalsIgnoreCase(modo)) {
+                    return m;
+                }
+            }
+            throw new IllegalArgumentException("Modo de execução inválido: " + modo);
+        }
+    }
+
+    private final Mode mode;
+    private final ExecutorService executor;
+
+    /** Limita conexões simultâneas no modo VIRTUAL (null no modo POOL) */
+    private final Semaphore limiter;
+
+    private final int maxConnections;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private ConnectionExecutor(Mode mode, ExecutorService executor, Semaphore limiter, int maxConnections) {
+        this.mode = mode;
+        this.executor = executor;
+        this.limiter = limiter;
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Cria o executor no modo pedido
+     *
+     * Se o modo VIRTUAL for pedido em uma JVM sem virtual threads,
+     * cai para o modo POOL com aviso no log.
+     *
+     * @param mode modo de execução
+     * @param maxWorkers threads do pool (POOL) ou conexões simultâneas (VIRTUAL)
+     * @param queueCapacity conexões que podem aguardar um worker livre (apenas POOL)
+     * @return executor pronto para receber conexões
+     */
+    public static ConnectionExecutor create(Mode mode, int maxWorkers, int queueCapacity) {
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                return new ConnectionExecutor(Mode.VIRTUAL, virtual, new Semaphore(maxWorkers), maxWorkers);
+            }
+            System.err.println("⚠ Virtual threads indisponíveis nesta JVM (requer JDK 21+), usando modo pool");
+        }
+
+        AtomicInteger contador = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                maxWorkers, maxWorkers,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "finanza-worker-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return new ConnectionExecutor(Mode.POOL, pool, null, maxWorkers);
+    }
+
+    /**
+     * Obtém Executors.newVirtualThreadPerTaskExecutor() via reflexão,
+     * mantendo o projeto compilável em JDKs sem virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Submete o processamento de uma conexão
+     *
+     * @param handler tarefa que atende o cliente até ele desconectar
+     * @return true se admitida, false se rejeitada (servidor saturado)
+     */
+    public boolean submit(Runnable handler) {
+        if (limiter != null && !limiter.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+
+        Runnable tracked = () -> {
+            active.incrementAndGet();
+            try {
+                handler.run();
+            } finally {
+                active.decrementAndGet();
+                if (limiter != null) {
+                    limiter.release();
+                }
+            }
+        };
+
+        try {
+            executor.execute(tracked);
+            accepted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (limiter != null) {
+                limiter.release();
+            }
+            rejected.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Interrompe os workers e impede novas conexões
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ========== MÉTRICAS DE ADMISSÃO ==========
+
+    public Mode getMode() { return mode; }
+    public int getMaxConnections() { return maxConnections; }
+
+    /** Conexões sendo atendidas agora */
+    public int getActiveCount() { return active.get(); }
+
+    /** Conexões aceitas aguardando um worker livre (sempre 0 no modo VIRTUAL) */
+    public int getQueuedCount() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    /** Total de conexões admitidas desde o início */
+    public long getAcceptedCount() { return accepted.sum(); }
+
+    /** Total de conexões rejeitadas por saturação */
+    public long getRejectedCount() { return rejected.sum(); }
+
+    /**
+     * Resumo das métricas de admissão para log
+     */
+    public String getStatistics() {
+        return "modo=" + mode.getValor() + ", ativas=" + getActiveCount() + "/" + maxConnections +
+               ", enfileiradas=" + getQueuedCount() + ", aceitas=" + getAcceptedCount() +
+               ", rejeitadas=" + getRejectedCount();
+    }
+}
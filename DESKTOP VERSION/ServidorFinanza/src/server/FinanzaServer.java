@@ -1,10 +1,23 @@
 package server;
 
+import dao.CategoriaDAO;
+import dao.ContaDAO;
+import dao.Repositorios;
 import util.DatabaseUtil;
+import util.PasswordHasher;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * FinanzaServer - Servidor Principal do Sistema Finanza
@@ -15,13 +28,17 @@ import java.net.Socket;
  * Funcionalidades:
  * - Escuta conexões na porta 8080
  * - Aceita múltiplos clientes simultaneamente
- * - Cria uma thread ClientHandler para cada cliente conectado
+ * - Executa cada ClientHandler em um ConnectionExecutor limitado
+ *   (pool de threads ou virtual threads)
  * - Valida conexão com banco de dados MySQL antes de iniciar
  * - Suporta modo de teste (sem banco de dados)
  * - Inicializa tabelas do banco automaticamente
+ * - Registra os medidores de conexões e threads em ServerMetrics
+ * - Log das requisições assíncrono (ServerLog), fora do caminho da resposta
  * 
  * Arquitetura:
- * - Servidor aceita conexão → Cria nova thread ClientHandler
+ * - Servidor aceita conexão → Submete ClientHandler ao ConnectionExecutor
+ * - Se o executor estiver saturado, a conexão é rejeitada com erro
  * - ClientHandler processa comandos do cliente
  * - Múltiplos clientes podem estar conectados ao mesmo tempo
  * 
@@ -35,7 +52,7 @@ import java.net.Socket;
  * 2. Inicializa tabelas do banco
  * 3. Cria ServerSocket na porta 8080
  * 4. Entra em loop esperando conexões
- * 5. Para cada conexão, cria nova thread ClientHandler
+ * 5. Para cada conexão, submete um ClientHandler ao executor
  * 
  * @author Finanza Team
  * @version 1.0
@@ -51,9 +68,36 @@ public class FinanzaServer {
     /** Flag que indica se servidor está em execução */
     private boolean running;
     
-    /** Flag que indica se está em modo de teste (sem banco de dados) */
+    /** Flag que indica se está em modo de teste (dados em memória, sem banco) */
     private boolean testMode;
     
+    /** Acesso aos dados compartilhado pelas conexões (DAOs ou BancoMemoria) */
+    private Repositorios repositorios;
+    
+    /** Configuração de execução das conexões (modo, workers, filas) */
+    private ServerConfig config;
+    
+    /** Executor que atende as conexões dos clientes */
+    private ConnectionExecutor connectionExecutor;
+    
+    /** Front end não bloqueante (quando configurado com --frontend=nio) */
+    private NioFrontEnd nioFrontEnd;
+    
+    /** Pool compartilhado das requisições com ID (pipelining) no front end bloqueante */
+    private ExecutorService pipelineExecutor;
+    
+    /** Conferência periódica dos saldos das contas (fora do modo de teste) */
+    private ScheduledExecutorService reconciliacao;
+    
+    /** Intervalo mínimo entre dois avisos de conexão recusada */
+    private static final long INTERVALO_AVISO_RECUSA_MS = 1000;
+    
+    /** Instante (nanoTime) do último aviso de recusa; só a thread do accept usa */
+    private long ultimoAvisoRecusa = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(INTERVALO_AVISO_RECUSA_MS);
+    
+    /** Recusas desde o último aviso, que não geraram registro próprio */
+    private int recusasSemAviso;
+    
     /**
      * Construtor padrão - inicializa servidor em modo produção
      * 
@@ -69,15 +113,34 @@ public class FinanzaServer {
     /**
      * Construtor com modo de teste
      * 
-     * @param testMode true para modo de teste (sem banco), false para produção
+     * @param testMode true para modo de teste (dados em memória), false para produção
      *                 
+     * No modo de teste os comandos rodam a mesma lógica de produção sobre um
+     * banco em memória (BancoMemoria), vazio a cada inicialização.
+     * 
      * Modo de teste é útil para:
      * - Testes unitários e integração
      * - Desenvolvimento sem banco configurado
      * - Validação de protocolo de comunicação
      */
     public FinanzaServer(boolean testMode) {
-        this.testMode = testMode;
+        this(configPadrao(testMode));
+    }
+    
+    /**
+     * Construtor com configuração completa
+     * 
+     * @param config configuração de inicialização (modo de teste, execução, filas)
+     */
+    public FinanzaServer(ServerConfig config) {
+        this.config = config;
+        this.testMode = config.isTestMode();
+    }
+    
+    private static ServerConfig configPadrao(boolean testMode) {
+        ServerConfig config = new ServerConfig();
+        config.setTestMode(testMode);
+        return config;
     }
     
     /**
@@ -103,8 +166,9 @@ public class FinanzaServer {
      * 
      * 4. LOOP PRINCIPAL (aceitar conexões)
      *    - Bloqueia esperando cliente conectar (.accept())
-     *    - Quando cliente conecta, cria nova thread ClientHandler
+     *    - Quando cliente conecta, submete ClientHandler ao executor
      *    - ClientHandler processa comandos do cliente em paralelo
+     *    - Executor saturado (fila cheia / limite atingido): conexão recusada
      *    - Volta a esperar próximo cliente
      * 
      * 5. ENCERRAMENTO
@@ -119,22 +183,33 @@ public class FinanzaServer {
      * 
      * Modo de teste:
      * - Pula validação e inicialização do banco
+     * - Dados em memória (Repositorios.memoria()), perdidos ao encerrar
      * - Útil para testes sem MySQL configurado
      */
     public void start() {
+        ServerLog.configurar(config.getLogLevel(), config.getLogFile());
+        if (config.getLogFile() != null) {
+            System.out.println("✓ Log do servidor em " + config.getLogFile());
+        }
         try {
             // ========== FASE 1: VALIDAÇÃO DO BANCO DE DADOS ==========
             // Testa conexão com banco de dados apenas se não estiver em modo de teste
             if (!testMode) {
-                // Tenta conectar ao MySQL e executar query de teste
+                // Tenta conectar ao banco (MySQL ou H2 embutido) e executar query de teste
+                DatabaseUtil.setDialeto(config.getDialeto());
                 if (!DatabaseUtil.testConnection()) {
                     System.err.println("Erro: Não foi possível conectar ao banco de dados");
-                    System.err.println("Verifique se o MySQL está rodando e se o banco 'finanza_db' existe");
-                    System.err.println("\nPara criar o banco, execute:");
-                    System.err.println("  mysql -u root -p < database/script_inicial.sql");
+                    if (config.getDialeto().isEmbutido()) {
+                        System.err.println("Verifique se o driver do H2 está no classpath e se o arquivo " +
+                                           "do banco não está aberto por outro processo");
+                    } else {
+                        System.err.println("Verifique se o MySQL está rodando e se o banco 'finanza_db' existe");
+                        System.err.println("\nPara criar o banco, execute:");
+                        System.err.println("  mysql -u root -p < database/script_inicial.sql");
+                    }
                     return; // Encerra execução se não conectar
                 }
-                System.out.println("✓ Conexão com banco de dados OK");
+                System.out.println("✓ Conexão com banco de dados OK (" + config.getDialeto().getValor() + ")");
                 
                 // ========== FASE 2: INICIALIZAÇÃO DO BANCO ==========
                 // Inicializa as tabelas do banco de dados
@@ -143,17 +218,49 @@ public class FinanzaServer {
                 // - Cria índices para performance
                 DatabaseUtil.initializeDatabase();
                 System.out.println("✓ Banco de dados inicializado");
+                
+                iniciarReconciliacao(config.getReconcileMinutes());
+                repositorios = Repositorios.jdbc();
             } else {
-                // Modo de teste ativado - pula validações de banco
-                System.out.println("⚠ Servidor iniciado em MODO DE TESTE (sem banco de dados)");
+                // Modo de teste ativado - pula validações de banco, dados em memória
+                repositorios = Repositorios.memoria();
+                System.out.println("⚠ Servidor iniciado em MODO DE TESTE (dados em memória, sem banco de dados)");
+            }
+            
+            // Calibra as iterações do hash de senhas antes de aceitar conexões
+            PasswordHasher hasher = PasswordHasher.getInstance();
+            System.out.println("✓ Hash de senhas: PBKDF2 com " + hasher.getIteracoes() +
+                               " iterações em " + hasher.getThreads() + " threads");
+            
+            // ========== FASE 3 (ALTERNATIVA): FRONT END NIO ==========
+            // Um selector atende todas as conexões e só as linhas completas
+            // ocupam os workers; o loop abaixo não é usado neste modo
+            if (config.isNioFrontEnd()) {
+                nioFrontEnd = new NioFrontEnd(PORT, config.getAcceptBacklog(),
+                        config.getNioWorkers(), config.getMaxLineBytes(), repositorios);
+                running = true;
+                registrarMedidores();
+                System.out.println("✓ Front end NIO com " + config.getNioWorkers() + " workers");
+                System.out.println("\n╔═══════════════════════════════════════════╗");
+                System.out.println("║  Servidor Finanza iniciado na porta " + PORT + "  ║");
+                System.out.println("║  Aguardando conexões de clientes (NIO)... ║");
+                System.out.println("╚═══════════════════════════════════════════╝\n");
+                nioFrontEnd.run();
+                return;
             }
             
             // ========== FASE 3: ABERTURA DO SERVIDOR ==========
             // Cria ServerSocket que escuta na porta 8080
             // - Porta 8080: Padrão para aplicações web/custom
             // - Se porta já estiver em uso, lança exception
-            serverSocket = new ServerSocket(PORT);
+            // O backlog limita conexões aguardando accept() no sistema operacional
+            serverSocket = new ServerSocket(PORT, config.getAcceptBacklog());
+            connectionExecutor = ConnectionExecutor.create(
+                config.getExecutionMode(), config.getMaxWorkers(), config.getQueueCapacity());
+            pipelineExecutor = criarPipelineExecutor(config.getPipelineWorkers());
             running = true; // Marca como em execução
+            registrarMedidores();
+            System.out.println("✓ Execução de conexões: " + connectionExecutor.getStatistics());
             
             System.out.println("\n╔═══════════════════════════════════════════╗");
             System.out.println("║  Servidor Finanza iniciado na porta " + PORT + "  ║");
@@ -168,22 +275,24 @@ public class FinanzaServer {
                     // Quando cliente conecta, retorna Socket do cliente
                     Socket clientSocket = serverSocket.accept();
                     
-                    // Obtém endereço do cliente para log
+                    // Endereço do cliente para o aviso de recusa; a conexão
+                    // aceita é registrada pelo próprio ClientHandler (ServerLog)
                     String clientAddress = clientSocket.getRemoteSocketAddress().toString();
-                    System.out.println("➤ Cliente conectado: " + clientAddress);
                     
-                    // Cria nova thread para processar este cliente
-                    // ClientHandler extends Thread, então .start() inicia a thread
+                    // Submete o cliente ao executor
                     // Cliente é processado em paralelo, servidor volta a aceitar novos
-                    ClientHandler clientHandler = new ClientHandler(clientSocket, testMode);
-                    clientHandler.start();
+                    // Se o executor estiver saturado, a conexão é recusada
+                    ClientHandler clientHandler = new ClientHandler(clientSocket, repositorios, pipelineExecutor);
+                    if (!connectionExecutor.submit(clientHandler)) {
+                        rejeitarConexao(clientSocket, clientAddress);
+                    }
                     
                 } catch (IOException e) {
                     // Erro ao aceitar conexão
                     // Se servidor ainda está running, foi erro temporário
                     // Se não está running, foi por causa do stop()
                     if (running) {
-                        System.err.println("✗ Erro ao aceitar conexão: " + e.getMessage());
+                        ServerLog.erro("✗ Erro ao aceitar conexão: " + e.getMessage());
                     }
                 }
             }
@@ -203,6 +312,155 @@ public class FinanzaServer {
         }
     }
     
+    /**
+     * Recusa uma conexão quando o executor está saturado
+     * 
+     * Envia uma resposta de erro no formato do protocolo para que o cliente
+     * saiba que deve tentar novamente mais tarde, e fecha o socket.
+     * 
+     * Sob saturação as recusas chegam em rajada: vai para o ServerLog no
+     * máximo um aviso por segundo, com o número de recusas omitidas desde o
+     * anterior (o total fica em ConnectionExecutor, no STATS).
+     * 
+     * @param clientSocket socket do cliente recusado
+     * @param clientAddress endereço do cliente para log
+     */
+    private void rejeitarConexao(Socket clientSocket, String clientAddress) {
+        long agora = System.nanoTime();
+        if (agora - ultimoAvisoRecusa >= TimeUnit.MILLISECONDS.toNanos(INTERVALO_AVISO_RECUSA_MS)) {
+            ServerLog.aviso("✗ Conexão recusada (servidor saturado): " + clientAddress +
+                            (recusasSemAviso > 0 ? " (+" + recusasSemAviso + " recusadas desde o último aviso)" : "") +
+                            " - " + connectionExecutor.getStatistics());
+            ultimoAvisoRecusa = agora;
+            recusasSemAviso = 0;
+        } else {
+            recusasSemAviso++;
+        }
+        try {
+            OutputStream out = clientSocket.getOutputStream();
+            out.write((Protocol.createErrorResponse("Servidor ocupado, tente novamente") + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            // Cliente já desconectou, nada a fazer
+        } finally {
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                // Ignorar
+            }
+        }
+    }
+    
+    /**
+     * Cria o pool que executa as requisições com ID de todas as conexões
+     * 
+     * A thread da conexão continua lendo enquanto as requisições rodam aqui;
+     * cada conexão tem no máximo Protocol.MAX_IN_FLIGHT requisições em voo.
+     * 
+     * @param workers número de threads
+     * @return pool de threads daemon
+     */
+    private static ExecutorService criarPipelineExecutor(int workers) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "finanza-pipeline-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Registra os medidores do servidor em ServerMetrics e publica no JMX
+     * 
+     * Os medidores leem os campos na hora da consulta (0 depois do stop()):
+     * - conexoes_ativas / conexoes_enfileiradas: sessões atendidas e aguardando worker
+     * - handlers_ativos: threads executando um ClientHandler (no NIO, workers ocupados)
+     * - pipeline_ativas: requisições com ID em execução
+     * - threads_jvm: threads vivas no processo
+     * - log_pendentes / log_descartados: fila do ServerLog e registros perdidos com ela cheia
+     * - banco_conexoes_ativas / banco_aguardando: pool JDBC (fora do modo de teste)
+     */
+    private void registrarMedidores() {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        if (nioFrontEnd != null) {
+            metrics.registrarMedidor("conexoes_ativas", () -> nioFrontEnd.getOpenSessions());
+            metrics.registrarMedidor("handlers_ativos", () -> nioFrontEnd.getActiveWorkers());
+        } else {
+            metrics.registrarMedidor("conexoes_ativas", () -> {
+                ConnectionExecutor executor = connectionExecutor;
+                return executor != null ? executor.getActiveCount() : 0;
+            });
+            metrics.registrarMedidor("conexoes_enfileiradas", () -> {
+                ConnectionExecutor executor = connectionExecutor;
+                return executor != null ? executor.getQueuedCount() : 0;
+            });
+            // Uma thread (de plataforma ou virtual) por conexão em atendimento
+            metrics.registrarMedidor("handlers_ativos", () -> {
+                ConnectionExecutor executor = connectionExecutor;
+                return executor != null ? executor.getActiveCount() : 0;
+            });
+            metrics.registrarMedidor("pipeline_ativas", () -> {
+                ExecutorService pipeline = pipelineExecutor;
+                return pipeline != null ? ((ThreadPoolExecutor) pipeline).getActiveCount() : 0;
+            });
+        }
+        metrics.registrarMedidor("threads_jvm", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        metrics.registrarMedidor("log_pendentes", ServerLog::getPendentes);
+        metrics.registrarMedidor("log_descartados", ServerLog::getDescartados);
+        metrics.registrarMedidor("sessoes_ativas", () -> SessionStore.getInstance().getSize());
+        metrics.registrarMedidor("sessoes_retomadas", () -> SessionStore.getInstance().getResumedCount());
+        metrics.registrarMedidor("hash_ativos", () -> PasswordHasher.getInstance().getActiveCount());
+        metrics.registrarMedidor("hash_fila", () -> PasswordHasher.getInstance().getQueuedCount());
+        metrics.registrarMedidor("hash_rejeitadas", () -> PasswordHasher.getInstance().getRejectedCount());
+        metrics.registrarMedidor("notificacoes_inscritos", () -> NotificationHub.getInstance().getInscritos());
+        metrics.registrarMedidor("notificacoes_entregues", () -> NotificationHub.getInstance().getDeliveredCount());
+        metrics.registrarMedidor("notificacoes_descartadas", () -> NotificationHub.getInstance().getDroppedCount());
+        if (!testMode) {
+            metrics.registrarMedidor("banco_conexoes_ativas", () -> DatabaseUtil.getPool().getActiveCount());
+            metrics.registrarMedidor("banco_aguardando", () -> DatabaseUtil.getPool().getWaitingCount());
+        }
+        metrics.registrarJmx();
+    }
+    
+    /**
+     * Agenda a conferência do saldo atual das contas com a soma das movimentações
+     * 
+     * O saldo é mantido a cada escrita; a conferência só encontra divergência
+     * se o banco for alterado por fora do servidor, e corrige o saldo.
+     * 
+     * @param minutos intervalo entre conferências (0 desativa)
+     */
+    private void iniciarReconciliacao(long minutos) {
+        if (minutos <= 0) {
+            return;
+        }
+        reconciliacao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "finanza-reconciliacao");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciliacao.scheduleWithFixedDelay(() -> {
+            long inicio = System.nanoTime();
+            int corrigidas = ContaDAO.reconciliarSaldos();
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            if (corrigidas > 0) {
+                System.err.println("⚠ Reconciliação de saldos: " + corrigidas + " conta(s) corrigida(s) em " + ms + "ms");
+            } else if (corrigidas == 0) {
+                System.out.println("✓ Reconciliação de saldos: nenhuma divergência (" + ms + "ms)");
+            }
+        }, minutos, minutos, TimeUnit.MINUTES);
+        System.out.println("✓ Reconciliação de saldos a cada " + minutos + " min");
+    }
+    
+    /**
+     * Obtém o executor de conexões (métricas de admissão)
+     * @return executor ativo ou null se o servidor não foi iniciado
+     */
+    public ConnectionExecutor getConnectionExecutor() {
+        return connectionExecutor;
+    }
+    
     /**
      * Encerra o servidor Finanza
      * 
@@ -216,17 +474,19 @@ public class FinanzaServer {
      * 
      * 2. Fecha o ServerSocket
      *    - Libera a porta 8080
-     *    - Threads ClientHandler existentes continuam executando
      *    - Apenas novas conexões são impedidas
      * 
-     * 3. Exibe mensagem de confirmação
+     * 3. Encerra o executor de conexões
+     *    - Interrompe os workers e registra as métricas de admissão
+     * 
+     * 4. Exibe mensagem de confirmação
      * 
      * Este método é chamado:
      * - Pelo bloco finally de start() (sempre executa)
      * - Manualmente para encerrar servidor (Ctrl+C, etc)
      * 
-     * Nota: As threads ClientHandler ativas não são interrompidas,
-     * elas continuam até terminar o processamento do cliente atual.
+     * Nota: Os workers são interrompidos, mas um ClientHandler bloqueado
+     * em leitura só termina quando o cliente desconectar.
      */
     public void stop() {
         // Marca como não executando - para o loop principal
@@ -244,5 +504,44 @@ public class FinanzaServer {
             // Erro ao fechar socket (raro, mas possível)
             System.err.println("✗ Erro ao encerrar servidor: " + e.getMessage());
         }
+        
+        // Encerra o executor de conexões
+        // Encerra o front end NIO, se estiver em uso
+        if (nioFrontEnd != null) {
+            nioFrontEnd.close();
+        }
+        
+        // stop() pode ser chamado duas vezes (finally + shutdown hook)
+        ConnectionExecutor executor = connectionExecutor;
+        connectionExecutor = null;
+        if (executor != null) {
+            System.out.println("Conexões: " + executor.getStatistics());
+            System.out.println("Sessões: " + SessionStore.getInstance().getStatistics());
+            System.out.println("Hash de senhas: " + PasswordHasher.getInstance().getStatistics());
+            System.out.println("Notificações: " + NotificationHub.getInstance().getStatistics());
+            executor.shutdown();
+        }
+        
+        ExecutorService pipeline = pipelineExecutor;
+        pipelineExecutor = null;
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+        
+        ScheduledExecutorService agendador = reconciliacao;
+        reconciliacao = null;
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+
+        // Fecha as conexões livres do pool do banco de dados
+        if (!testMode) {
+            System.out.println("Cache de contas: " + ContaDAO.getCache().getStatistics());
+            System.out.println("Cache de categorias: " + CategoriaDAO.getCache().getStatistics());
+            DatabaseUtil.shutdown();
+        }
+        
+        // Grava o que ainda estiver na fila do log
+        ServerLog.descarregar(2000);
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas acumuladas de um comando do protocolo
+ *
+ * Contadores em LongAdder e latências em HistogramaLatencia: várias
+ * conexões atualizam o mesmo comando ao mesmo tempo sem disputar trava.
+ * Exposta via STATS e como MBean (MetricaComandoMBean).
+ */
+public class MetricaComando implements MetricaComandoMBean {
+
+    private final String comando;
+    private final LongAdder erros = new LongAdder();
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+    private final LongAdder somaTamanho = new LongAdder();
+    private final AtomicLong maximoTamanho = new AtomicLong();
+    private final LongAdder somaBancoNanos = new LongAdder();
+
+    MetricaComando(String comando) {
+        this.comando = comando;
+    }
+
+    void registrar(long latenciaNanos, boolean sucesso, long tamanho, long bancoNanos) {
+        latencias.registrar(latenciaNanos / 1000);
+        if (!sucesso) {
+            erros.increment();
+        }
+        somaTamanho.add(tamanho);
+        if (tamanho > maximoTamanho.get()) {
+            maximoTamanho.accumulateAndGet(tamanho, Math::max);
+        }
+        somaBancoNanos.add(bancoNanos);
+    }
+
+    public String getComando() {
+        return comando;
+    }
+
+    @Override
+    public long getRequisicoes() {
+        return latencias.getTotal();
+    }
+
+    @Override
+    public long getErros() {
+        return erros.sum();
+    }
+
+    @Override
+    public double getLatenciaMediaMs() {
+        return latencias.getMedia() / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaP50Ms() {
+        return latencias.percentil(50) / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaP95Ms() {
+        return latencias.percentil(95) / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaP99Ms() {
+        return latencias.percentil(99) / 1000.0;
+    }
+
+    @Override
+    public double getLatenciaMaximaMs() {
+        return latencias.getMaximo() / 1000.0;
+    }
+
+    @Override
+    public double getTamanhoMedioResposta() {
+        long n = getRequisicoes();
+        return n == 0 ? 0 : (double) somaTamanho.sum() / n;
+    }
+
+    @Override
+    public long getTamanhoMaximoResposta() {
+        return maximoTamanho.get();
+    }
+
+    @Override
+    public double getTempoBancoMedioMs() {
+        long n = getRequisicoes();
+        return n == 0 ? 0 : somaBancoNanos.sum() / (n * 1_000_000.0);
+    }
+}
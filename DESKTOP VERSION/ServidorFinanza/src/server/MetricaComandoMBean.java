@@ -0,0 +1,32 @@
+package server;
+
+/**
+ * Atributos JMX das métricas de um comando do protocolo
+ * (ObjectName finanza:type=Comando,name=COMANDO)
+ */
+public interface MetricaComandoMBean {
+
+    /** Requisições atendidas desde o início do servidor */
+    long getRequisicoes();
+
+    /** Respostas com status diferente de OK */
+    long getErros();
+
+    double getLatenciaMediaMs();
+
+    double getLatenciaP50Ms();
+
+    double getLatenciaP95Ms();
+
+    double getLatenciaP99Ms();
+
+    double getLatenciaMaximaMs();
+
+    /** Tamanho médio da resposta (caracteres no texto, bytes no binário), antes da compressão */
+    double getTamanhoMedioResposta();
+
+    long getTamanhoMaximoResposta();
+
+    /** Tempo médio com conexão do banco emprestada, incluindo a espera pelo pool */
+    double getTempoBancoMedioMs();
+}
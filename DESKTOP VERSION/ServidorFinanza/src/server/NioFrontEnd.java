@@ -0,0 +1,877 @@
+package server;
+
+import dao.Repositorios;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NioFrontEnd - Front end não bloqueante do servidor Finanza
+ *
+ * Alternativa ao loop bloqueante de ClientHandler.run(): uma única thread
+ * com Selector atende todos os sockets, e apenas as linhas completas do
+ * protocolo ("COMANDO|arg|arg\n") são entregues a um pequeno pool de workers.
+ * Conexões ociosas não ocupam thread nenhuma, apenas a entrada no Selector.
+ *
+ * Arquitetura:
+ * - Thread do selector: accept, leitura, enquadramento por '\n' e escrita
+ * - Workers: executam ClientHandler.atenderComando() e codificam a resposta
+ *   em ByteBuffers diretos do DirectBufferPool
+ * - Linhas sem ID são processadas uma por vez, preservando a ordem das respostas
+ * - Linhas com ID ("#id|COMANDO|...") podem rodar em paralelo, até
+ *   Protocol.MAX_IN_FLIGHT por sessão, e são respondidas fora de ordem
+ *
+ * Escrita:
+ * - A resposta é codificada em blocos à medida que o handler escreve, então
+ *   listagens em streaming começam a ser enviadas antes de terminar
+ * - Cada resposta é enfileirada inteira sob a trava de escrita da sessão, para
+ *   que respostas de requisições paralelas não se misturem
+ * - Se o cliente lê devagar e a sessão acumula MAX_QUEUED_BUFFERS blocos, o
+ *   worker aguarda o selector esvaziar a fila (contrapressão), por no máximo
+ *   ESPERA_CLIENTE_MS: uma listagem em streaming segura uma conexão do pool
+ *   do banco enquanto espera, e um cliente parado não pode prendê-la
+ * - Resposta que não pode ser terminada (cliente parado, listagem
+ *   interrompida por erro do banco) encerra a sessão: a linha cortada nunca
+ *   recebe o '\n', e nada mais entra na fila depois dela
+ *
+ * Leitura:
+ * - Um único buffer direto de leitura é compartilhado (só a thread do
+ *   selector lê), e os bytes de uma linha incompleta ficam no acumulador
+ *   da sessão até o '\n' chegar
+ * - "\r\n" é aceito como terminador, como no BufferedReader.readLine()
+ * - Linhas acima de maxLineBytes encerram a conexão
+ *
+ * Formato binário:
+ * - Depois de "SET_FORMAT|binary" a sessão passa a enquadrar frames
+ *   (tamanho varint + payload, ver BinaryProtocol) em vez de linhas; cada
+ *   frame é uma requisição com ID e a resposta é enfileirada como frame
+ *
+ * Notificações:
+ * - As do NotificationHub entram na fila de escrita da sessão entre duas
+ *   respostas, sob a mesma trava, e são descartadas se a sessão estiver
+ *   com a fila cheia (cliente lento)
+ *
+ * Compressão:
+ * - Com SET_COMPRESSION negociado, as respostas de texto são montadas pelo
+ *   ResponseCompressor (comprimindo a partir do limiar) antes de ir para os
+ *   blocos; frames binários são comprimidos em ClientHandler.atenderFrame()
+ */
+public class NioFrontEnd {
+    /** Tamanho do buffer de leitura compartilhado e dos blocos de escrita */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Máximo de blocos de escrita mantidos no pool */
+    private static final int MAX_POOLED_BUFFERS = 1024;
+
+    /** Blocos aguardando envio por sessão antes do worker esperar o cliente */
+    private static final int MAX_QUEUED_BUFFERS = 64;
+
+    /** Espera máxima do worker por um cliente que não consome a resposta (-Dfinanza.nio.writeTimeoutMs) */
+    private static final long ESPERA_CLIENTE_MS = Long.getLong("finanza.nio.writeTimeoutMs", 30_000L);
+
+    private final int port;
+    private final int backlog;
+    private final Repositorios repositorios;
+    private final int maxLineBytes;
+    private final ExecutorService workers;
+    private final DirectBufferPool bufferPool = new DirectBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /** Sessões com respostas novas aguardando OP_WRITE (preenchida pelos workers) */
+    private final Queue<Session> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /** Sessões que os workers pediram para encerrar (fechadas pelo selector) */
+    private final Queue<Session> pendingCloses = new ConcurrentLinkedQueue<>();
+
+    /** Codificador UTF-8 por worker, reaproveitado entre respostas */
+    private final ThreadLocal<CharsetEncoder> encoders = ThreadLocal.withInitial(() ->
+            StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    /**
+     * @param port porta TCP de escuta
+     * @param backlog fila de aceite do sistema operacional
+     * @param workerCount threads que executam os comandos
+     * @param maxLineBytes tamanho máximo de uma linha de comando
+     * @param repositorios acesso aos dados, compartilhado pelas sessões
+     */
+    public NioFrontEnd(int port, int backlog, int workerCount, int maxLineBytes, Repositorios repositorios) {
+        this.port = port;
+        this.backlog = backlog;
+        this.maxLineBytes = maxLineBytes;
+        this.repositorios = repositorios;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "finanza-nio-worker-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Abre o canal de escuta e executa o loop do selector (bloqueante)
+     *
+     * Só retorna quando close() for chamado ou em erro fatal de I/O.
+     *
+     * @throws IOException se não for possível abrir a porta
+     */
+    public void run() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(port), backlog);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        try {
+            while (running) {
+                selector.select();
+                registrarEscritasPendentes();
+                fecharPendentes();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            aceitar();
+                        } else {
+                            Session session = (Session) key.attachment();
+                            if (key.isReadable()) {
+                                ler(session);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                escrever(session);
+                            }
+                        }
+                    } catch (IOException e) {
+                        Object attachment = key.attachment();
+                        if (attachment instanceof Session) {
+                            fechar((Session) attachment);
+                        }
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // close() chamado durante o select
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Encerra o front end: fecha o canal de escuta, as sessões e os workers
+     */
+    public void close() {
+        running = false;
+        workers.shutdownNow();
+        try {
+            if (selector != null && selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Session) {
+                        fechar((Session) key.attachment());
+                    }
+                }
+                selector.close();
+            }
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            ServerLog.erro("✗ Erro ao encerrar front end NIO: " + e.getMessage());
+        }
+    }
+
+    /** Número de sessões abertas no momento */
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    /** Workers executando um comando no momento */
+    public int getActiveWorkers() {
+        return ((ThreadPoolExecutor) workers).getActiveCount();
+    }
+
+    // ========== THREAD DO SELECTOR ==========
+
+    private void aceitar() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Session session = new Session(channel, new ClientHandler(repositorios));
+            session.handler.setSaidaNotificacoes(bytes -> enfileirarNotificacao(session, bytes));
+            session.key = channel.register(selector, SelectionKey.OP_READ, session);
+            openSessions.incrementAndGet();
+            ServerLog.info("✓ Cliente conectado (NIO): " + channel.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Lê os bytes disponíveis e separa as linhas completas
+     */
+    private void ler(Session session) throws IOException {
+        int lidos;
+        while ((lidos = session.channel.read(readBuffer)) > 0) {
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (session.binario) {
+                    if (!session.acumularFrame(b, maxLineBytes)) {
+                        ServerLog.erro("✗ Frame acima de " + maxLineBytes + " bytes, encerrando sessão");
+                        readBuffer.clear();
+                        fechar(session);
+                        return;
+                    }
+                } else if (b == '\n') {
+                    session.linhaCompleta();
+                } else if (!session.acumular(b, maxLineBytes)) {
+                    ServerLog.erro("✗ Linha acima de " + maxLineBytes + " bytes, encerrando sessão");
+                    readBuffer.clear();
+                    fechar(session);
+                    return;
+                }
+            }
+            readBuffer.clear();
+        }
+        if (lidos < 0) {
+            fechar(session);
+            return;
+        }
+        agendar(session);
+    }
+
+    /**
+     * Envia as respostas enfileiradas; mantém OP_WRITE enquanto o socket não aceitar tudo
+     */
+    private void escrever(Session session) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = session.writeQueue.peek()) != null) {
+            session.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            session.writeQueue.poll();
+            bufferPool.release(buffer);
+            session.bufferEnviado();
+        }
+        session.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Fecha as sessões marcadas pelos workers (ver encerrar())
+     */
+    private void fecharPendentes() {
+        Session session;
+        while ((session = pendingCloses.poll()) != null) {
+            fechar(session);
+        }
+    }
+
+    /**
+     * Pede ao selector que feche a sessão (chamado pelos workers)
+     *
+     * A sessão fica marcada na hora: a resposta em andamento não recebe o
+     * '\n' e nenhuma outra entra na fila de escrita até o fechamento.
+     */
+    private void encerrar(Session session) {
+        if (session.closed || session.encerrando) {
+            return;
+        }
+        session.encerrando = true;
+        pendingCloses.offer(session);
+        selector.wakeup();
+    }
+
+    /**
+     * Ativa OP_WRITE para as sessões que receberam respostas dos workers
+     */
+    private void registrarEscritasPendentes() {
+        Session session;
+        while ((session = pendingWrites.poll()) != null) {
+            if (session.key.isValid()) {
+                try {
+                    escrever(session);
+                } catch (IOException e) {
+                    fechar(session);
+                }
+            }
+        }
+    }
+
+    private void fechar(Session session) {
+        if (session.closed) {
+            return;
+        }
+        session.closed = true;
+        openSessions.decrementAndGet();
+        if (session.key != null) {
+            session.key.cancel();
+        }
+        try {
+            ServerLog.info("✗ Cliente desconectado (NIO): " + session.channel.getRemoteAddress());
+            session.channel.close();
+        } catch (IOException e) {
+            // Canal já fechado
+        }
+        ByteBuffer buffer;
+        while ((buffer = session.writeQueue.poll()) != null) {
+            bufferPool.release(buffer);
+        }
+        session.bufferEnviado();
+        session.handler.cancelarNotificacoes();
+        session.handler.getCompressor().encerrar();
+    }
+
+    // ========== WORKERS ==========
+
+    /**
+     * Submete os próximos comandos da sessão que já podem ser executados
+     *
+     * As linhas saem na ordem de chegada. Uma linha com ID (ou frame binário)
+     * só espera vaga (MAX_IN_FLIGHT); uma linha sem ID espera tudo que está em
+     * andamento terminar e bloqueia as seguintes até ser respondida.
+     */
+    private void agendar(Session session) {
+        while (true) {
+            Object item;
+            synchronized (session) {
+                item = session.pendingLines.peek();
+                if (item == null || session.exclusivo) {
+                    return;
+                }
+                boolean comId = item instanceof byte[] || Protocol.extractRequestId((String) item) != null;
+                if (comId ? session.emAndamento >= Protocol.MAX_IN_FLIGHT : session.emAndamento > 0) {
+                    return;
+                }
+                session.pendingLines.poll();
+                session.emAndamento++;
+                session.exclusivo = !comId;
+            }
+            try {
+                workers.execute(() -> processar(session, item));
+            } catch (RejectedExecutionException e) {
+                // Front end sendo encerrado
+                return;
+            }
+        }
+    }
+
+    private void processar(Session session, Object item) {
+        RespostaWriter resposta = new RespostaWriter(session);
+        try {
+            if (session.closed) {
+                return;
+            }
+            if (item instanceof byte[]) {
+                resposta.binaria = true;
+                resposta.escreverFrame(session.handler.atenderFrame((byte[]) item));
+                return;
+            }
+            String linha = (String) item;
+            if (ClientHandler.isNegociacaoFormato(linha)) {
+                // Linha sem ID (exclusiva): nada mais está em andamento na sessão.
+                // O selector passa a enquadrar frames antes da resposta sair,
+                // e o cliente só envia frames depois de receber o OK
+                resposta.write(session.handler.negociarFormato(linha));
+                if (session.handler.isFormatoBinario()) {
+                    session.binario = true;
+                }
+            } else {
+                String requestId = Protocol.extractRequestId(linha);
+                if (requestId != null) {
+                    resposta.write(Protocol.responsePrefix(requestId));
+                    resposta.iniciada = false;
+                    linha = Protocol.stripRequestId(linha, requestId);
+                }
+                ResponseCompressor compressor = session.handler.getCompressor();
+                if (compressor.isAtiva()) {
+                    responderComprimivel(session, compressor, linha, resposta);
+                } else {
+                    session.handler.atenderComando(linha, resposta);
+                }
+            }
+        } catch (IOException e) {
+            // Resposta incompleta: sessão já encerrada, cliente sem consumir
+            // a saída ou listagem interrompida pelo banco
+            if (!session.closed) {
+                ServerLog.erro("✗ Resposta NIO interrompida, encerrando sessão: " + e.getMessage());
+                encerrar(session);
+            }
+        } catch (RuntimeException e) {
+            ServerLog.erro("✗ Erro no worker NIO: " + e.getMessage());
+            // Frame binário sem resposta não recebe texto (o cliente espera frames)
+            if (!resposta.isIniciada() && !resposta.binaria) {
+                try {
+                    resposta.write(Protocol.createErrorResponse("Erro interno do servidor"));
+                } catch (IOException ignored) {
+                    // Sessão encerrada
+                }
+            }
+        } finally {
+            resposta.finalizar();
+            synchronized (session) {
+                session.emAndamento--;
+                session.exclusivo = false;
+            }
+            agendar(session);
+        }
+    }
+
+    /**
+     * Resposta de texto com a compressão negociada: montada (e comprimida a
+     * partir do limiar) antes de ir para os blocos; se comprimida, sai como a
+     * linha "COMPRESSED|tamanho|tamanhoOriginal" seguida dos bytes, sem '\n'
+     */
+    private void responderComprimivel(Session session, ResponseCompressor compressor,
+                                      String linha, RespostaWriter resposta) throws IOException {
+        ResponseCompressor.Resposta texto = compressor.novaResposta();
+        try {
+            session.handler.atenderComando(linha, texto);
+        } finally {
+            texto.finalizar();
+        }
+        if (texto.isComprimida()) {
+            resposta.write(texto.getCabecalho());
+            resposta.write('\n');
+            resposta.escreverBytes(texto.getBytes());
+        } else {
+            resposta.write(texto.getTexto());
+        }
+    }
+
+    /**
+     * Enfileira uma notificação do NotificationHub (linha "#0|NOTIFY|..." ou
+     * frame com ID 0, já codificado) entre as respostas da sessão
+     *
+     * Roda na thread de entrega do hub, que não pode ficar presa a um cliente
+     * lento: espera pouco pela trava de escrita (uma resposta em andamento) e
+     * descarta se a fila da sessão já estiver no limite da contrapressão.
+     *
+     * @return false se a notificação foi descartada
+     */
+    private boolean enfileirarNotificacao(Session session, byte[] bytes) {
+        if (session.closed || session.encerrando || session.queuedBuffers.get() >= MAX_QUEUED_BUFFERS) {
+            return false;
+        }
+        try {
+            if (!session.escrita.tryLock(100, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            if (session.encerrando) {
+                return false;
+            }
+            int posicao = 0;
+            while (posicao < bytes.length) {
+                ByteBuffer bloco = bufferPool.acquire();
+                int tamanho = Math.min(bloco.remaining(), bytes.length - posicao);
+                bloco.put(bytes, posicao, tamanho);
+                bloco.flip();
+                posicao += tamanho;
+                session.writeQueue.offer(bloco);
+                session.queuedBuffers.incrementAndGet();
+            }
+        } finally {
+            session.escrita.unlock();
+        }
+        pendingWrites.offer(session);
+        selector.wakeup();
+        return true;
+    }
+
+    /**
+     * Writer que codifica a resposta em blocos do pool e os entrega ao selector
+     *
+     * Os caracteres são acumulados em um CharBuffer; ao encher, são codificados
+     * em UTF-8 e cada ByteBuffer completo é enfileirado na sessão. finalizar()
+     * acrescenta o '\n' e envia o restante. Usado por um único worker.
+     *
+     * Respostas binárias usam escreverFrame() e as comprimidas, escreverBytes():
+     * os bytes vão direto para os blocos e finalizar() não acrescenta o '\n'.
+     *
+     * A trava de escrita da sessão é obtida no primeiro bloco enfileirado e
+     * liberada em finalizar(): a resposta é calculada sem a trava e só a
+     * entrega na fila é serializada entre os workers da mesma sessão.
+     */
+    private final class RespostaWriter extends Writer {
+        private final Session session;
+        private final CharsetEncoder encoder = encoders.get();
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer atual;
+        private boolean iniciada;
+        private boolean travada;
+        private boolean binaria;
+
+        RespostaWriter(Session session) {
+            this.session = session;
+            encoder.reset();
+        }
+
+        boolean isIniciada() {
+            return iniciada;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            iniciada |= len > 0;
+            while (len > 0) {
+                int n = Math.min(len, chars.remaining());
+                chars.put(cbuf, off, n);
+                off += n;
+                len -= n;
+                if (!chars.hasRemaining()) {
+                    codificar(false);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            iniciada |= len > 0;
+            while (len > 0) {
+                int n = Math.min(len, chars.remaining());
+                chars.put(str, off, off + n);
+                off += n;
+                len -= n;
+                if (!chars.hasRemaining()) {
+                    codificar(false);
+                }
+            }
+        }
+
+        /**
+         * Escreve um frame binário (tamanho varint + payload) nos blocos
+         */
+        void escreverFrame(byte[] payload) throws IOException {
+            binaria = true;
+            iniciada = true;
+            int tamanho = payload.length;
+            while ((tamanho & ~0x7F) != 0) {
+                escreverByte((tamanho & 0x7F) | 0x80);
+                tamanho >>>= 7;
+            }
+            escreverByte(tamanho);
+            copiar(payload);
+        }
+
+        /**
+         * Escreve bytes já codificados depois do texto escrito até aqui
+         * (corpo de resposta comprimida); a resposta termina sem '\n'
+         */
+        void escreverBytes(byte[] dados) throws IOException {
+            codificar(false);
+            binaria = true;
+            iniciada = true;
+            copiar(dados);
+        }
+
+        private void copiar(byte[] dados) throws IOException {
+            int off = 0;
+            while (off < dados.length) {
+                ByteBuffer destino = buffer();
+                int n = Math.min(destino.remaining(), dados.length - off);
+                destino.put(dados, off, n);
+                off += n;
+                if (!destino.hasRemaining()) {
+                    enfileirarAtual();
+                }
+            }
+        }
+
+        private void escreverByte(int b) throws IOException {
+            ByteBuffer destino = buffer();
+            destino.put((byte) b);
+            if (!destino.hasRemaining()) {
+                enfileirarAtual();
+            }
+        }
+
+        /** Envia os blocos já completos sem terminar a resposta */
+        @Override
+        public void flush() throws IOException {
+            codificar(false);
+            publicar();
+        }
+
+        @Override
+        public void close() {
+            finalizar();
+        }
+
+        /**
+         * Termina a resposta com '\n' e entrega o restante ao selector
+         */
+        void finalizar() {
+            if (session.closed || session.encerrando) {
+                if (atual != null) {
+                    bufferPool.release(atual);
+                    atual = null;
+                }
+                destravar();
+                return;
+            }
+            try {
+                if (!binaria) {
+                    if (!chars.hasRemaining()) {
+                        codificar(false);
+                    }
+                    chars.put('\n');
+                    codificar(true);
+                    while (encoder.flush(buffer()).isOverflow()) {
+                        enfileirarAtual();
+                    }
+                }
+                if (atual == null) {
+                    // Frame terminou exatamente no fim de um bloco
+                } else if (atual.position() > 0) {
+                    enfileirarAtual();
+                } else {
+                    bufferPool.release(atual);
+                    atual = null;
+                }
+                publicar();
+            } catch (IOException e) {
+                // Sessão encerrada enquanto aguardava espaço na fila
+            } finally {
+                destravar();
+            }
+        }
+
+        private void destravar() {
+            if (travada) {
+                travada = false;
+                session.escrita.unlock();
+            }
+        }
+
+        private void codificar(boolean fim) throws IOException {
+            chars.flip();
+            while (encoder.encode(chars, buffer(), fim).isOverflow()) {
+                enfileirarAtual();
+            }
+            // Pode sobrar metade de um par surrogate para o próximo bloco
+            chars.compact();
+        }
+
+        private ByteBuffer buffer() {
+            if (atual == null) {
+                atual = bufferPool.acquire();
+            }
+            return atual;
+        }
+
+        /**
+         * Enfileira o bloco atual, aguardando se a sessão já tiver blocos demais
+         */
+        private void enfileirarAtual() throws IOException {
+            if (!travada) {
+                session.escrita.lock();
+                travada = true;
+            }
+            if (session.encerrando) {
+                bufferPool.release(atual);
+                atual = null;
+                throw new IOException("Sessão encerrada");
+            }
+            atual.flip();
+            session.writeQueue.offer(atual);
+            atual = null;
+            if (session.queuedBuffers.incrementAndGet() >= MAX_QUEUED_BUFFERS) {
+                publicar();
+                session.aguardarEspaco(MAX_QUEUED_BUFFERS, ESPERA_CLIENTE_MS);
+            }
+        }
+
+        private void publicar() {
+            pendingWrites.offer(session);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Estado de uma conexão no front end NIO
+     */
+    private static final class Session {
+        final SocketChannel channel;
+        final ClientHandler handler;
+        SelectionKey key;
+        volatile boolean closed;
+
+        /** Fechamento pedido por um worker, ainda não feito pelo selector */
+        volatile boolean encerrando;
+
+        /** Bytes da linha em construção (apenas thread do selector) */
+        private byte[] lineBytes = new byte[128];
+        private int lineLength;
+
+        /**
+         * Linhas (String) ou frames binários (byte[]) completos aguardando
+         * worker (guardado por synchronized(this))
+         */
+        final ArrayDeque<Object> pendingLines = new ArrayDeque<>();
+
+        /** Sessão no formato binário: o selector enquadra frames em vez de linhas */
+        volatile boolean binario;
+
+        /** Frame binário em construção (apenas thread do selector) */
+        private int frameTamanho = -1;
+        private int frameVarintDeslocamento;
+        private byte[] frame;
+        private int framePosicao;
+        /** Comandos em execução nos workers */
+        int emAndamento;
+        /** Uma linha sem ID está em execução: nada mais é agendado até ela terminar */
+        boolean exclusivo;
+
+        /** Mantém cada resposta contígua na fila de escrita */
+        final ReentrantLock escrita = new ReentrantLock();
+
+        /** Blocos de resposta codificados aguardando escrita no socket */
+        final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queuedBuffers = new AtomicInteger();
+
+        Session(SocketChannel channel, ClientHandler handler) {
+            this.channel = channel;
+            this.handler = handler;
+        }
+
+        /** Chamado pelo selector ao enviar um bloco (ou ao fechar a sessão) */
+        void bufferEnviado() {
+            if (closed) {
+                queuedBuffers.set(0);
+            } else {
+                queuedBuffers.decrementAndGet();
+            }
+            synchronized (queuedBuffers) {
+                queuedBuffers.notifyAll();
+            }
+        }
+
+        /**
+         * Bloqueia o worker até a fila de escrita ficar abaixo do limite
+         * @throws IOException se a sessão for encerrada durante a espera ou o
+         *         cliente não consumir nada em esperaMaxMs
+         */
+        void aguardarEspaco(int limite, long esperaMaxMs) throws IOException {
+            long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaxMs);
+            synchronized (queuedBuffers) {
+                while (queuedBuffers.get() >= limite && !closed) {
+                    if (System.nanoTime() - prazo >= 0) {
+                        throw new IOException("Cliente não consumiu a resposta em " + esperaMaxMs + " ms");
+                    }
+                    try {
+                        queuedBuffers.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Worker interrompido aguardando o cliente", e);
+                    }
+                }
+            }
+            if (closed) {
+                throw new IOException("Sessão encerrada");
+            }
+        }
+
+        boolean acumular(byte b, int maxLineBytes) {
+            if (lineLength == lineBytes.length) {
+                if (lineLength >= maxLineBytes) {
+                    return false;
+                }
+                byte[] maior = new byte[Math.min(lineBytes.length * 2, maxLineBytes)];
+                System.arraycopy(lineBytes, 0, maior, 0, lineLength);
+                lineBytes = maior;
+            }
+            lineBytes[lineLength++] = b;
+            return true;
+        }
+
+        /**
+         * Acumula um byte do frame binário atual
+         * @return false se o tamanho declarado passar do limite
+         */
+        boolean acumularFrame(byte b, int maxBytes) {
+            if (frame == null) {
+                // Lendo o tamanho (varint)
+                if (frameTamanho < 0) {
+                    frameTamanho = 0;
+                    frameVarintDeslocamento = 0;
+                }
+                if (frameVarintDeslocamento > 28) {
+                    return false;
+                }
+                frameTamanho |= (b & 0x7F) << frameVarintDeslocamento;
+                frameVarintDeslocamento += 7;
+                if ((b & 0x80) != 0) {
+                    return true;
+                }
+                if (frameTamanho < 0 || frameTamanho > maxBytes) {
+                    return false;
+                }
+                frame = new byte[frameTamanho];
+                framePosicao = 0;
+            } else {
+                frame[framePosicao++] = b;
+            }
+            if (framePosicao == frame.length) {
+                synchronized (this) {
+                    pendingLines.add(frame);
+                }
+                frame = null;
+                frameTamanho = -1;
+            }
+            return true;
+        }
+
+        void linhaCompleta() {
+            int length = lineLength;
+            if (length > 0 && lineBytes[length - 1] == '\r') {
+                length--;
+            }
+            String linha = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+            lineLength = 0;
+            synchronized (this) {
+                pendingLines.add(linha);
+            }
+        }
+    }
+}
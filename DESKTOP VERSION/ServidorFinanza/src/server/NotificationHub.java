@@ -0,0 +1,234 @@
+package server;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro das conexões inscritas e envio das notificações de alterações
+ *
+ * Um usuário costuma estar no app Android e, ao mesmo tempo, um admin com o
+ * AdminDashboardView aberto; sem notificação, cada um só descobre o que o
+ * outro alterou repetindo as listagens ou a sincronização completa. Depois
+ * de SUBSCRIBE a conexão entra aqui, e cada ADD/UPDATE/DELETE, BULK_UPLOAD
+ * ou ADMIN_* confirmado gera uma linha curta para as outras conexões do
+ * dono dos dados (e para os admins inscritos em "todos"):
+ *
+ *   #0|NOTIFY|entidade|operacao|id|versao|idUsuario
+ *
+ * A versão é a da sincronização incremental: o cliente que recebe pede
+ * LIST_CHANGES_SINCE a partir da versão que já tem e recebe também os
+ * efeitos em cascata (saldo da conta, movimentações de uma conta excluída).
+ * Por isso as notificações podem ser perdidas sem prejuízo além do atraso:
+ * a próxima traz uma versão maior e a sincronização cobre o intervalo.
+ *
+ * Entrega:
+ * - publicar() só enfileira; a escrita nos sockets acontece em um pool
+ *   pequeno próprio, fora da thread que atendeu o comando
+ * - Fila limitada: cheia, a notificação é descartada e contada
+ * - Conexão ocupada (resposta em andamento, listagem em streaming) por mais
+ *   de 100 ms: a notificação daquela conexão é descartada, sem segurar a
+ *   entrega das demais. No front end bloqueante a escrita em si não tem
+ *   prazo: um cliente que parou de ler pode prender uma thread de entrega
+ *   até o TCP desistir; o NioFrontEnd não tem esse limite
+ * - A conexão que fez a alteração não recebe a própria notificação
+ *
+ * Configuração (-Dfinanza.notify.*): threads e fila; fila 0 desativa.
+ *
+ * Instância única por processo, como o registro de sessões.
+ */
+public final class NotificationHub {
+
+    /** Conexão que recebe notificações (implementado pelo ClientHandler) */
+    interface Inscrito {
+        /**
+         * Escreve a notificação (sem o prefixo de ID nem o terminador)
+         * @return false se a conexão não pôde receber agora (descartada)
+         */
+        boolean enviarNotificacao(String notificacao);
+    }
+
+    /** Escopos de SUBSCRIBE */
+    public static final String ESCOPO_USUARIO = "usuario";
+    public static final String ESCOPO_TODOS = "todos";
+    public static final String ESCOPO_OFF = "off";
+
+    static final int THREADS = Integer.getInteger("finanza.notify.threads", 2);
+    static final int FILA = Integer.getInteger("finanza.notify.fila", 1024);
+
+    private static final NotificationHub INSTANCE = new NotificationHub(THREADS, FILA);
+
+    /** Inscritos por usuário (dono dos dados) */
+    private final Map<Integer, Set<Inscrito>> porUsuario = new ConcurrentHashMap<>();
+
+    /** Admins inscritos nas alterações de todos os usuários */
+    private final Set<Inscrito> todos = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor entrega;
+    private final int capacidadeFila;
+
+    // Métricas
+    private final LongAdder publicadas = new LongAdder();
+    private final LongAdder entregues = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+
+    NotificationHub(int threads, int fila) {
+        this.capacidadeFila = Math.max(0, fila);
+        if (fila <= 0) {
+            this.entrega = null;
+            return;
+        }
+        AtomicInteger contador = new AtomicInteger();
+        this.entrega = new ThreadPoolExecutor(
+                Math.max(1, threads), Math.max(1, threads),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(fila),
+                r -> {
+                    Thread t = new Thread(r, "finanza-notify-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.entrega.allowCoreThreadTimeOut(true);
+    }
+
+    public static NotificationHub getInstance() {
+        return INSTANCE;
+    }
+
+    /** Notificações ativadas (finanza.notify.fila maior que zero) */
+    public boolean isAtivo() {
+        return entrega != null;
+    }
+
+    /**
+     * Inscreve a conexão nas alterações de um usuário
+     * @param todosUsuarios também as alterações de todos os usuários (admin)
+     */
+    void inscrever(Inscrito inscrito, int idUsuario, boolean todosUsuarios) {
+        porUsuario.computeIfAbsent(idUsuario, id -> ConcurrentHashMap.newKeySet()).add(inscrito);
+        if (todosUsuarios) {
+            todos.add(inscrito);
+        } else {
+            todos.remove(inscrito);
+        }
+    }
+
+    /**
+     * Cancela a inscrição (SUBSCRIBE|off, LOGOUT, troca de usuário ou
+     * conexão encerrada)
+     */
+    void cancelar(Inscrito inscrito, int idUsuario) {
+        todos.remove(inscrito);
+        porUsuario.computeIfPresent(idUsuario, (id, inscritos) -> {
+            inscritos.remove(inscrito);
+            return inscritos.isEmpty() ? null : inscritos;
+        });
+    }
+
+    /**
+     * Enfileira a notificação de uma alteração confirmada
+     *
+     * @param origem conexão que fez a alteração (não é notificada)
+     * @param idUsuario dono dos dados alterados
+     * @param entidade conta, categoria ou movimentacao
+     * @param operacao ADD, UPDATE, DELETE ou BULK
+     * @param idRegistro registro alterado (0 no lote)
+     * @param versao versão da sincronização após a alteração
+     */
+    void publicar(Inscrito origem, int idUsuario, String entidade, String operacao,
+                  int idRegistro, long versao) {
+        if (entrega == null) {
+            return;
+        }
+        Set<Inscrito> doUsuario = porUsuario.get(idUsuario);
+        if ((doUsuario == null || doUsuario.isEmpty()) && todos.isEmpty()) {
+            return;
+        }
+        publicadas.increment();
+        String notificacao = Protocol.NOTIFY + Protocol.SEPARATOR + entidade + Protocol.SEPARATOR +
+                operacao + Protocol.SEPARATOR + idRegistro + Protocol.SEPARATOR +
+                versao + Protocol.SEPARATOR + idUsuario;
+        try {
+            entrega.execute(() -> entregar(origem, idUsuario, notificacao));
+        } catch (RejectedExecutionException e) {
+            descartadas.increment();
+        }
+    }
+
+    private void entregar(Inscrito origem, int idUsuario, String notificacao) {
+        Set<Inscrito> doUsuario = porUsuario.get(idUsuario);
+        if (doUsuario != null) {
+            for (Inscrito inscrito : doUsuario) {
+                // Admin inscrito em "todos" recebe pelo laço seguinte
+                if (inscrito != origem && !todos.contains(inscrito)) {
+                    enviar(inscrito, notificacao);
+                }
+            }
+        }
+        for (Inscrito inscrito : todos) {
+            if (inscrito != origem) {
+                enviar(inscrito, notificacao);
+            }
+        }
+    }
+
+    private void enviar(Inscrito inscrito, String notificacao) {
+        boolean enviada;
+        try {
+            enviada = inscrito.enviarNotificacao(notificacao);
+        } catch (RuntimeException e) {
+            enviada = false;
+        }
+        if (enviada) {
+            entregues.increment();
+        } else {
+            descartadas.increment();
+        }
+    }
+
+    // ========== MÉTRICAS ==========
+
+    /** Conexões inscritas (cada uma conta uma vez) */
+    public int getInscritos() {
+        int total = 0;
+        for (Set<Inscrito> inscritos : porUsuario.values()) {
+            total += inscritos.size();
+        }
+        return total;
+    }
+
+    public long getPublishedCount() {
+        return publicadas.sum();
+    }
+
+    public long getDeliveredCount() {
+        return entregues.sum();
+    }
+
+    /** Fila cheia ou conexão sem condição de receber */
+    public long getDroppedCount() {
+        return descartadas.sum();
+    }
+
+    public int getQueuedCount() {
+        return entrega != null ? entrega.getQueue().size() : 0;
+    }
+
+    /**
+     * Resumo das métricas das notificações (log no encerramento do servidor)
+     */
+    public String getStatistics() {
+        return String.format(Locale.US,
+                "inscritos=%d (todos=%d), publicadas=%d, entregues=%d, descartadas=%d, fila=%d/%d",
+                getInscritos(), todos.size(), getPublishedCount(), getDeliveredCount(),
+                getDroppedCount(), getQueuedCount(), capacidadeFila);
+    }
+}
@@ -9,6 +9,10 @@ public class Protocol {
     public static final String CMD_LOGIN = "LOGIN";
     public static final String CMD_REGISTER = "REGISTER";
     public static final String CMD_LOGOUT = "LOGOUT";
+    // Retomada de sessão em nova conexão (ver SessionStore); LOGIN e REGISTER
+    // devolvem o token como último campo: OK|id;nome;email;tipo;token
+    // RESUME|token|tipoCliente → OK|id;nome;email;tipo;token
+    public static final String CMD_RESUME = "RESUME";
     public static final String CMD_GET_DASHBOARD = "GET_DASHBOARD";
     
     // Comandos de Conta
@@ -32,6 +36,40 @@ public class Protocol {
     public static final String CMD_UPDATE_MOVIMENTACAO = "UPDATE_MOVIMENTACAO";
     public static final String CMD_DELETE_MOVIMENTACAO = "DELETE_MOVIMENTACAO";
     
+    // Comandos de Movimentação paginados (keyset): ...|limite|cursor
+    // Resposta: OK|proximoCursor|mov;mov;... (proximoCursor vazio na última página)
+    public static final String CMD_LIST_MOVIMENTACOES_PAGE = "LIST_MOVIMENTACOES_PAGE";
+    public static final String CMD_LIST_MOVIMENTACOES_PERIODO_PAGE = "LIST_MOVIMENTACOES_PERIODO_PAGE";
+    public static final String CMD_LIST_MOVIMENTACOES_CONTA_PAGE = "LIST_MOVIMENTACOES_CONTA_PAGE";
+    public static final int MAX_PAGE_SIZE = 500;
+    
+    // Sincronização incremental por versão (contador por usuário)
+    // INCREMENTAL_SYNC|versao → OK|versaoAtual|entidade,entidade,... (entidades alteradas)
+    // LIST_CHANGES_SINCE|entidade|versao → OK|versaoAtual|reg;reg;...|idExcluido,idExcluido,...
+    public static final String CMD_INCREMENTAL_SYNC = "INCREMENTAL_SYNC";
+    public static final String CMD_LIST_CHANGES_SINCE = "LIST_CHANGES_SINCE";
+    
+    // Envio em lote (sincronização de registros criados offline), em uma única transação
+    // BULK_UPLOAD|entidade|item;item;... → OK|id;id;... (IDs do servidor na ordem dos itens)
+    // Cada item tem os campos do ADD_* correspondente separados por ',' e codificados
+    // com URL encoding (UTF-8), para que descrições possam conter | ; ,
+    //   categoria: nome,tipo
+    //   conta: nome,tipo,saldoInicial
+    //   movimentacao: valor,data(yyyy-MM-dd),descricao,tipo,idConta,idCategoria
+    public static final String CMD_BULK_UPLOAD = "BULK_UPLOAD";
+    public static final int MAX_BULK_ITEMS = 1000;
+    
+    // Formato da conexão, enviado sem ID de requisição antes de qualquer outro comando
+    // SET_FORMAT|binary → OK|binary e a conexão passa a usar frames (ver BinaryProtocol)
+    // SET_FORMAT|text → OK|text (nada muda)
+    public static final String CMD_SET_FORMAT = "SET_FORMAT";
+    
+    // Compressão das respostas grandes, negociada por conexão (ver ResponseCompressor)
+    // SET_COMPRESSION|deflate[|limiarBytes] → OK|deflate|limiarBytes
+    // SET_COMPRESSION|none → OK|none
+    // Respostas de texto acima do limiar: COMPRESSED|tamanho|tamanhoOriginal + bytes deflate
+    public static final String CMD_SET_COMPRESSION = "SET_COMPRESSION";
+    
     // Comandos de Perfil e Usuário
     public static final String CMD_GET_PERFIL = "GET_PERFIL";
     public static final String CMD_UPDATE_PERFIL = "UPDATE_PERFIL";
@@ -49,6 +87,15 @@ public class Protocol {
     public static final String CMD_ADMIN_LIST_ALL_CONTAS = "ADMIN_LIST_ALL_CONTAS";
     public static final String CMD_ADMIN_LIST_ALL_CATEGORIAS = "ADMIN_LIST_ALL_CATEGORIAS";
     public static final String CMD_ADMIN_LIST_ALL_MOVIMENTACOES = "ADMIN_LIST_ALL_MOVIMENTACOES";
+    
+    // Página da tabela de movimentações do admin, filtrada e ordenada no servidor
+    // ADMIN_LIST_MOVIMENTACOES_PAGE|idUsuario|busca|ordem|deslocamento|limite → OK|total|mov;mov;...
+    //   idUsuario 0 = todos; busca com URL encoding (UTF-8), vazia = sem filtro;
+    //   ordem coluna_asc|coluna_desc (id, usuario, valor, data, descricao, tipo, conta, categoria)
+    //   total só é contado com deslocamento 0 (-1 nas demais páginas)
+    //   mov: id,usuario,valor,data,descricao,tipo,conta,categoria,idConta,idCategoria
+    //   (usuario, descricao, conta e categoria com URL encoding)
+    public static final String CMD_ADMIN_LIST_MOVIMENTACOES_PAGE = "ADMIN_LIST_MOVIMENTACOES_PAGE";
     public static final String CMD_ADMIN_DELETE_CONTA = "ADMIN_DELETE_CONTA";
     public static final String CMD_ADMIN_DELETE_CATEGORIA = "ADMIN_DELETE_CATEGORIA";
     public static final String CMD_ADMIN_DELETE_MOVIMENTACAO = "ADMIN_DELETE_MOVIMENTACAO";
@@ -56,6 +103,22 @@ public class Protocol {
     public static final String CMD_ADMIN_UPDATE_CATEGORIA = "ADMIN_UPDATE_CATEGORIA";
     public static final String CMD_ADMIN_UPDATE_MOVIMENTACAO = "ADMIN_UPDATE_MOVIMENTACAO";
     
+    // Métricas do servidor (apenas admin; ver ServerMetrics.formatarStats)
+    // STATS → OK|tempo_ativo_s=..,requisicoes=..,erros=..,medidor=valor,...;
+    //          COMANDO,requisicoes,erros,media_ms,p50_ms,p95_ms,p99_ms,max_ms,tamanho_medio,banco_medio_ms;...
+    public static final String CMD_STATS = "STATS";
+    
+    // Notificações de alterações (ver NotificationHub), depois do login
+    // SUBSCRIBE[|usuario] → OK|usuario: alterações do próprio usuário feitas em outras conexões
+    // SUBSCRIBE|todos → OK|todos: alterações de todos os usuários (apenas admin)
+    // SUBSCRIBE|off → OK|off
+    // Enviadas a qualquer momento com o ID reservado 0 (no binário, frame com ID 0):
+    // #0|NOTIFY|entidade|operacao|id|versao|idUsuario
+    // entidade: conta, categoria ou movimentacao; operacao: ADD, UPDATE, DELETE ou BULK (id 0)
+    public static final String CMD_SUBSCRIBE = "SUBSCRIBE";
+    public static final String NOTIFY = "NOTIFY";
+    public static final String NOTIFY_REQUEST_ID = "0";
+    
     // Status de resposta
     public static final String STATUS_OK = "OK";
     public static final String STATUS_ERROR = "ERROR";
@@ -63,11 +126,20 @@ public class Protocol {
     public static final String STATUS_USER_EXISTS = "USER_EXISTS";
     public static final String STATUS_INVALID_DATA = "INVALID_DATA";
     public static final String STATUS_ACCESS_DENIED = "ACCESS_DENIED";
+    public static final String STATUS_COMPRESSED = "COMPRESSED";
     
     // Separadores
     public static final String SEPARATOR = "|";
     public static final String FIELD_SEPARATOR = ";";
     
+    // Pipelining: a linha pode começar com um ID de requisição escolhido pelo cliente
+    // #id|COMANDO|param|... → #id|STATUS|dados
+    // Requisições com ID podem ficar várias em voo na mesma conexão e são respondidas
+    // fora de ordem; linhas sem ID continuam sendo atendidas uma por vez, em ordem
+    public static final String REQUEST_ID_PREFIX = "#";
+    public static final int MAX_REQUEST_ID_LENGTH = 32;
+    public static final int MAX_IN_FLIGHT = 64;
+    
     /**
      * Cria mensagem de resposta de sucesso
      */
@@ -119,4 +191,33 @@ public class Protocol {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Extrai o ID de requisição de uma linha "#id|COMANDO|..."
+     * @return ID (sem o prefixo) ou null se a linha não tiver ID válido
+     */
+    public static String extractRequestId(String line) {
+        if (line == null || !line.startsWith(REQUEST_ID_PREFIX)) {
+            return null;
+        }
+        int fim = line.indexOf(SEPARATOR);
+        if (fim <= REQUEST_ID_PREFIX.length() || fim > REQUEST_ID_PREFIX.length() + MAX_REQUEST_ID_LENGTH) {
+            return null;
+        }
+        return line.substring(REQUEST_ID_PREFIX.length(), fim);
+    }
+    
+    /**
+     * Remove o ID de requisição da linha, deixando apenas "COMANDO|..."
+     */
+    public static String stripRequestId(String line, String requestId) {
+        return line.substring(REQUEST_ID_PREFIX.length() + requestId.length() + SEPARATOR.length());
+    }
+    
+    /**
+     * Prefixo "#id|" que identifica a resposta de uma requisição com ID
+     */
+    public static String responsePrefix(String requestId) {
+        return REQUEST_ID_PREFIX + requestId + SEPARATOR;
+    }
+}
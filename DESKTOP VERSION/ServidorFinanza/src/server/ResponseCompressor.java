@@ -0,0 +1,289 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compressão por mensagem negociada por conexão (SET_COMPRESSION)
+ *
+ * Desativada até o cliente enviar "SET_COMPRESSION|deflate[|limiar]". A partir
+ * daí, respostas acima do limiar (em bytes) saem comprimidas com deflate (zlib):
+ *
+ * - Texto: linha "[#id|]COMPRESSED|tamanhoComprimido|tamanhoOriginal" seguida
+ *   de tamanhoComprimido bytes, sem '\n' no final; descomprimidos, os bytes
+ *   são a resposta "STATUS|dados" em UTF-8
+ * - Binário: corpo CORPO_COMPRIMIDO (ver BinaryProtocol.comprimirResposta)
+ *
+ * Cada mensagem é um stream deflate completo e independente, então respostas
+ * com ID podem chegar em qualquer ordem. O Deflater é um só por conexão,
+ * reaproveitado entre mensagens (reset), e usado por uma resposta de cada vez.
+ *
+ * A conexão pode ser encerrada com requisições em voo ainda respondendo:
+ * encerrar() só marca o compressor, e o Deflater é liberado por quem estiver
+ * com ele (ou na hora, se estiver livre). Depois disso as respostas saem sem
+ * compressão.
+ */
+final class ResponseCompressor {
+
+    /** Algoritmos aceitos em SET_COMPRESSION */
+    static final String ALGORITMO_DEFLATE = "deflate";
+    static final String ALGORITMO_NENHUM = "none";
+
+    /** Limiar padrão e mínimo (bytes) para comprimir uma resposta */
+    static final int LIMIAR_PADRAO = 4096;
+    static final int LIMIAR_MINIMO = 256;
+
+    /** Nível baixo: quase toda a redução do texto do protocolo com pouca CPU do servidor */
+    private static final int NIVEL = Deflater.BEST_SPEED;
+
+    private final Deflater deflater = new Deflater(NIVEL);
+    private final ReentrantLock emUso = new ReentrantLock();
+
+    /** Conexão encerrada: o Deflater não deve mais ser usado */
+    private volatile boolean encerrado;
+
+    /** Deflater já liberado com end() (guardado por emUso) */
+    private boolean liberado;
+
+    /** Limiar em bytes, ou -1 com a compressão desativada */
+    private volatile int limiar = -1;
+
+    boolean isAtiva() {
+        return limiar >= 0;
+    }
+
+    int getLimiar() {
+        return limiar;
+    }
+
+    /**
+     * Ativa a compressão para respostas acima do limiar (ajustado ao mínimo)
+     * @return limiar efetivo
+     */
+    int ativar(int limiarBytes) {
+        limiar = Math.max(LIMIAR_MINIMO, limiarBytes);
+        return limiar;
+    }
+
+    void desativar() {
+        limiar = -1;
+    }
+
+    /**
+     * Comprime um trecho de bytes como um stream deflate completo
+     * @return bytes comprimidos, ou null se a conexão já foi encerrada
+     */
+    byte[] comprimir(byte[] dados, int off, int len) {
+        emUso.lock();
+        try {
+            if (encerrado) {
+                return null;
+            }
+            deflater.reset();
+            deflater.setInput(dados, off, len);
+            deflater.finish();
+            byte[] saida = new byte[Math.max(64, len / 4)];
+            int tamanho = 0;
+            while (!deflater.finished()) {
+                if (tamanho == saida.length) {
+                    saida = Arrays.copyOf(saida, saida.length * 2);
+                }
+                tamanho += deflater.deflate(saida, tamanho, saida.length - tamanho);
+            }
+            return Arrays.copyOf(saida, tamanho);
+        } finally {
+            liberar();
+        }
+    }
+
+    /**
+     * Libera a memória nativa do Deflater (conexão encerrada)
+     *
+     * Não espera: se uma resposta ainda estiver comprimindo, ela termina
+     * normalmente e libera o Deflater ao devolvê-lo (ver liberar()).
+     */
+    void encerrar() {
+        encerrado = true;
+        if (emUso.tryLock()) {
+            try {
+                terminarDeflater();
+            } finally {
+                emUso.unlock();
+            }
+        }
+    }
+
+    /**
+     * Devolve o Deflater; se a conexão foi encerrada enquanto ele estava em
+     * uso, libera-o aqui
+     *
+     * A verificação depois do unlock cobre o encerrar() que falhou no
+     * tryLock enquanto a trava ainda era desta thread.
+     */
+    private void liberar() {
+        try {
+            if (encerrado) {
+                terminarDeflater();
+            }
+        } finally {
+            emUso.unlock();
+        }
+        if (encerrado && emUso.tryLock()) {
+            try {
+                terminarDeflater();
+            } finally {
+                emUso.unlock();
+            }
+        }
+    }
+
+    /** end() uma única vez (com emUso) */
+    private void terminarDeflater() {
+        if (!liberado) {
+            liberado = true;
+            deflater.end();
+        }
+    }
+
+    /**
+     * Nova resposta de texto a ser escrita via Writer
+     */
+    Resposta novaResposta() {
+        return new Resposta();
+    }
+
+    /**
+     * Writer que acumula uma resposta de texto e passa a comprimi-la ao
+     * ultrapassar o limiar
+     *
+     * Até o limiar os caracteres ficam em memória; dali em diante seguem
+     * direto para o Deflater da conexão, então as listagens em streaming
+     * ocupam só o tamanho comprimido. finalizar() deve sempre ser chamado
+     * (libera o Deflater).
+     */
+    final class Resposta extends Writer {
+        private StringBuilder texto = new StringBuilder();
+        private ByteArrayOutputStream comprimidos;
+        private Writer compressao;
+        private byte[] bytes;
+        private long tamanhoOriginal;
+        private boolean finalizada;
+
+        /** Conexão encerrada antes de comprimir: a resposta segue em texto */
+        private boolean semCompressao;
+
+        private Resposta() {
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (compressao != null) {
+                compressao.write(cbuf, off, len);
+                return;
+            }
+            texto.append(cbuf, off, len);
+            verificarLimiar();
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (compressao != null) {
+                compressao.write(str, off, len);
+                return;
+            }
+            texto.append(str, off, off + len);
+            verificarLimiar();
+        }
+
+        private void verificarLimiar() throws IOException {
+            // Cada caractere ocupa ao menos um byte em UTF-8: passar do limiar
+            // em caracteres garante passar em bytes
+            int atual = limiar;
+            if (semCompressao || atual < 0 || texto.length() <= atual) {
+                return;
+            }
+            emUso.lock();
+            // Até compressao ser atribuída, finalizar() não devolve a trava:
+            // qualquer falha aqui precisa devolvê-la
+            boolean iniciada = false;
+            try {
+                if (encerrado) {
+                    semCompressao = true;
+                    return;
+                }
+                deflater.reset();
+                comprimidos = new ByteArrayOutputStream(Math.max(256, texto.length() / 4));
+                compressao = new OutputStreamWriter(
+                        new DeflaterOutputStream(comprimidos, deflater, 8192), StandardCharsets.UTF_8);
+                compressao.append(texto);
+                texto = null;
+                iniciada = true;
+            } finally {
+                if (!iniciada) {
+                    comprimidos = null;
+                    compressao = null;
+                    liberar();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            // A resposta só é entregue em finalizar()
+        }
+
+        @Override
+        public void close() throws IOException {
+            finalizar();
+        }
+
+        /**
+         * Termina a resposta (e a compressão, se iniciada) e libera o Deflater
+         */
+        void finalizar() throws IOException {
+            if (finalizada) {
+                return;
+            }
+            finalizada = true;
+            if (compressao == null) {
+                return;
+            }
+            try {
+                compressao.close();
+                tamanhoOriginal = deflater.getBytesRead();
+                bytes = comprimidos.toByteArray();
+            } finally {
+                comprimidos = null;
+                compressao = null;
+                liberar();
+            }
+        }
+
+        boolean isComprimida() {
+            return bytes != null;
+        }
+
+        /** Resposta de texto (quando não comprimida) */
+        String getTexto() {
+            return texto != null ? texto.toString() : "";
+        }
+
+        /** Bytes comprimidos (quando comprimida) */
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        /** Linha que antecede os bytes comprimidos: COMPRESSED|tamanho|tamanhoOriginal */
+        String getCabecalho() {
+            return Protocol.STATUS_COMPRESSED + Protocol.SEPARATOR + bytes.length
+                    + Protocol.SEPARATOR + tamanhoOriginal;
+        }
+    }
+}
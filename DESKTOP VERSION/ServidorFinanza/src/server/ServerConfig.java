@@ -0,0 +1,154 @@
+package server;
+
+import util.Dialeto;
+
+/**
+ * Configuração de inicialização do servidor Finanza
+ *
+ * Os valores padrão podem ser sobrescritos por propriedades de sistema
+ * (-Dfinanza.server.*) e pelos argumentos de linha de comando do MainServidor:
+ *
+ *   --test              modo de teste (sem banco de dados)
+ *   --mode=pool|virtual modo de execução das conexões
+ *   --workers=N         threads do pool / conexões simultâneas (virtual)
+ *   --queue=N           conexões aguardando worker livre (pool)
+ *   --backlog=N         fila de aceite do ServerSocket
+ *   --frontend=blocking|nio  front end de rede (thread por conexão ou selector NIO)
+ *   --nio-workers=N     threads que executam comandos no front end NIO
+ *   --pipeline-workers=N threads que executam requisições com ID (front end bloqueante)
+ *   --reconcile-minutes=N intervalo da conferência dos saldos das contas (0 desativa)
+ *   --db=mysql|h2       banco de dados (MySQL externo ou H2 embutido em arquivo)
+ *   --log-level=debug|info|warn|error  nível mínimo do log (-Dfinanza.log.level)
+ *   --log-file=caminho  grava o log em arquivo com rotação, em vez do console (-Dfinanza.log.file)
+ */
+public class ServerConfig {
+    private boolean testMode = false;
+    private ConnectionExecutor.Mode executionMode =
+            ConnectionExecutor.Mode.fromString(System.getProperty("finanza.server.mode", "pool"));
+    private int maxWorkers = Integer.getInteger("finanza.server.workers", 200);
+    private int queueCapacity = Integer.getInteger("finanza.server.queue", 500);
+    private int acceptBacklog = Integer.getInteger("finanza.server.backlog", 128);
+    private boolean nioFrontEnd = "nio".equalsIgnoreCase(System.getProperty("finanza.server.frontend", "blocking"));
+    private int nioWorkers = Integer.getInteger("finanza.server.nioWorkers",
+            Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+    private int pipelineWorkers = Integer.getInteger("finanza.server.pipelineWorkers",
+            Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+    private int maxLineBytes = Integer.getInteger("finanza.server.maxLineBytes", 16 * 1024 * 1024);
+    private long reconcileMinutes = Long.getLong("finanza.server.reconcileMinutes", 60L);
+    private Dialeto dialeto = Dialeto.fromString(System.getProperty("finanza.db.backend", "mysql"));
+    private ServerLog.Nivel logLevel = ServerLog.Nivel.fromString(System.getProperty("finanza.log.level", "info"));
+    private String logFile = System.getProperty("finanza.log.file");
+
+    /**
+     * Monta configuração a partir dos argumentos de linha de comando
+     * @param args argumentos recebidos pelo main
+     * @return configuração resultante
+     * @throws IllegalArgumentException se algum argumento for inválido
+     */
+    public static ServerConfig fromArgs(String[] args) {
+        ServerConfig config = new ServerConfig();
+        for (String arg : args) {
+            if ("--test".equals(arg)) {
+                config.setTestMode(true);
+            } else if (arg.startsWith("--mode=")) {
+                config.setExecutionMode(ConnectionExecutor.Mode.fromString(valor(arg)));
+            } else if (arg.startsWith("--workers=")) {
+                config.setMaxWorkers(Integer.parseInt(valor(arg)));
+            } else if (arg.startsWith("--queue=")) {
+                config.setQueueCapacity(Integer.parseInt(valor(arg)));
+            } else if (arg.startsWith("--backlog=")) {
+                config.setAcceptBacklog(Integer.parseInt(valor(arg)));
+            } else if (arg.startsWith("--frontend=")) {
+                config.setNioFrontEnd(parseFrontEnd(valor(arg)));
+            } else if (arg.startsWith("--nio-workers=")) {
+                config.setNioWorkers(Integer.parseInt(valor(arg)));
+            } else if (arg.startsWith("--pipeline-workers=")) {
+                config.setPipelineWorkers(Integer.parseInt(valor(arg)));
+            } else if (arg.startsWith("--reconcile-minutes=")) {
+                config.setReconcileMinutes(Long.parseLong(valor(arg)));
+            } else if (arg.startsWith("--db=")) {
+                config.setDialeto(Dialeto.fromString(valor(arg)));
+            } else if (arg.startsWith("--log-level=")) {
+                config.setLogLevel(ServerLog.Nivel.fromString(valor(arg)));
+            } else if (arg.startsWith("--log-file=")) {
+                config.setLogFile(valor(arg));
+            } else {
+                throw new IllegalArgumentException("Argumento desconhecido: " + arg);
+            }
+        }
+        return config;
+    }
+
+    private static String valor(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static boolean parseFrontEnd(String frontEnd) {
+        if ("nio".equalsIgnoreCase(frontEnd)) {
+            return true;
+        }
+        if ("blocking".equalsIgnoreCase(frontEnd)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Front end inválido: " + frontEnd);
+    }
+
+    // Getters and Setters
+    public boolean isTestMode() { return testMode; }
+    public void setTestMode(boolean testMode) { this.testMode = testMode; }
+
+    public ConnectionExecutor.Mode getExecutionMode() { return executionMode; }
+    public void setExecutionMode(ConnectionExecutor.Mode executionMode) { this.executionMode = executionMode; }
+
+    public int getMaxWorkers() { return maxWorkers; }
+    public void setMaxWorkers(int maxWorkers) { this.maxWorkers = maxWorkers; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public int getAcceptBacklog() { return acceptBacklog; }
+    public void setAcceptBacklog(int acceptBacklog) { this.acceptBacklog = acceptBacklog; }
+
+    public boolean isNioFrontEnd() { return nioFrontEnd; }
+    public void setNioFrontEnd(boolean nioFrontEnd) { this.nioFrontEnd = nioFrontEnd; }
+
+    public int getNioWorkers() { return nioWorkers; }
+    public void setNioWorkers(int nioWorkers) { this.nioWorkers = nioWorkers; }
+
+    public int getPipelineWorkers() { return pipelineWorkers; }
+    public void setPipelineWorkers(int pipelineWorkers) { this.pipelineWorkers = pipelineWorkers; }
+
+    public int getMaxLineBytes() { return maxLineBytes; }
+    public void setMaxLineBytes(int maxLineBytes) { this.maxLineBytes = maxLineBytes; }
+
+    public long getReconcileMinutes() { return reconcileMinutes; }
+    public void setReconcileMinutes(long reconcileMinutes) { this.reconcileMinutes = reconcileMinutes; }
+
+    public Dialeto getDialeto() { return dialeto; }
+    public void setDialeto(Dialeto dialeto) { this.dialeto = dialeto; }
+
+    public ServerLog.Nivel getLogLevel() { return logLevel; }
+    public void setLogLevel(ServerLog.Nivel logLevel) { this.logLevel = logLevel; }
+
+    /** Arquivo de log, ou null para o console */
+    public String getLogFile() { return logFile; }
+    public void setLogFile(String logFile) { this.logFile = logFile; }
+
+    @Override
+    public String toString() {
+        return "ServerConfig{" +
+                "testMode=" + testMode +
+                ", executionMode=" + executionMode.getValor() +
+                ", maxWorkers=" + maxWorkers +
+                ", queueCapacity=" + queueCapacity +
+                ", acceptBacklog=" + acceptBacklog +
+                ", frontEnd=" + (nioFrontEnd ? "nio" : "blocking") +
+                ", nioWorkers=" + nioWorkers +
+                ", pipelineWorkers=" + pipelineWorkers +
+                ", reconcileMinutes=" + reconcileMinutes +
+                ", db=" + dialeto.getValor() +
+                ", logLevel=" + logLevel.getValor() +
+                ", logFile=" + (logFile != null ? logFile : "console") +
+                '}';
+    }
+}
@@ -0,0 +1,423 @@
+package server;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log assíncrono do servidor
+ *
+ * As threads que atendem requisições só montam um registro pequeno e o
+ * colocam numa fila limitada (ArrayBlockingQueue, um buffer circular); uma
+ * thread daemon grava em lote no console ou em arquivo. Assim a escrita no
+ * System.out, disputada entre todas as conexões, sai do caminho da resposta.
+ *
+ * Controles (propriedades de sistema; nível e arquivo também pelo MainServidor):
+ * - finanza.log.level: debug, info (padrão), warn ou error
+ * - finanza.log.file: arquivo de log (padrão: console, erros em System.err)
+ * - finanza.log.maxBytes / finanza.log.files: rotação do arquivo
+ *   (padrão 10 MB e 5 arquivos: finanza.log, finanza.log.1, ...)
+ * - finanza.log.sample: fração das requisições com sucesso registradas por
+ *   comando, ex. "LIST_MOVIMENTACOES=0.01,GET_DASHBOARD=0.1,*=1"; respostas
+ *   com status diferente de OK são sempre registradas
+ * - finanza.log.maxPayload: caracteres de comando e resposta mantidos em
+ *   cada registro (padrão 512; o restante vira "… (+N caracteres)")
+ * - finanza.log.buffer: capacidade da fila (padrão 8192 registros)
+ *
+ * Com a fila cheia o registro é descartado e contado, em vez de segurar a
+ * requisição; o total descartado aparece no próprio log e no STATS.
+ */
+public final class ServerLog {
+
+    /**
+     * Nível mínimo dos registros gravados
+     */
+    public enum Nivel {
+        DEBUG("debug"),
+        INFO("info"),
+        AVISO("warn"),
+        ERRO("error");
+
+        private final String valor;
+
+        Nivel(String valor) {
+            this.valor = valor;
+        }
+
+        public String getValor() {
+            return valor;
+        }
+
+        public static Nivel fromString(String nivel) {
+            for (Nivel n : values()) {
+                if (n.valor.equalsIgnoreCase(nivel) || n.name().equalsIgnoreCase(nivel)) {
+                    return n;
+                }
+            }
+            throw new IllegalArgumentException("Nível de log inválido: " + nivel);
+        }
+    }
+
+    private static final DateTimeFormatter FORMATO_HORA =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final ServerLog INSTANCE = new ServerLog();
+
+    private final ArrayBlockingQueue<Registro> fila =
+            new ArrayBlockingQueue<>(Math.max(16, Integer.getInteger("finanza.log.buffer", 8192)));
+    private final LongAdder descartados = new LongAdder();
+    private final int maxPayload = Math.max(16, Integer.getInteger("finanza.log.maxPayload", 512));
+    private final long maxBytesArquivo = Long.getLong("finanza.log.maxBytes", 10L * 1024 * 1024);
+    private final int arquivosMantidos = Math.max(1, Integer.getInteger("finanza.log.files", 5));
+
+    /** Fração registrada por comando; "*" vale para os demais */
+    private final Map<String, Double> amostragem;
+    private final double amostragemPadrao;
+
+    private volatile Nivel nivel = Nivel.fromString(System.getProperty("finanza.log.level", "info"));
+
+    /** Arquivo de destino (null = console); trocado pela thread de escrita */
+    private volatile Path arquivoSolicitado;
+
+    /** Registros aceitos na fila e ainda não gravados (lido por descarregar()) */
+    private final AtomicLong naoGravados = new AtomicLong();
+
+    private ServerLog() {
+        Map<String, Double> mapa = parseAmostragem(System.getProperty("finanza.log.sample", ""));
+        Double padrao = mapa.remove("*");
+        amostragemPadrao = padrao != null ? padrao : 1.0;
+        amostragem = Collections.unmodifiableMap(mapa);
+
+        String arquivo = System.getProperty("finanza.log.file");
+        if (arquivo != null && !arquivo.isEmpty()) {
+            arquivoSolicitado = Paths.get(arquivo);
+        }
+
+        Thread escritor = new Thread(new Escritor(), "finanza-log");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    private static Map<String, Double> parseAmostragem(String especificacao) {
+        Map<String, Double> mapa = new HashMap<>();
+        for (String item : especificacao.split(",")) {
+            int igual = item.indexOf('=');
+            if (igual <= 0) {
+                continue;
+            }
+            try {
+                double fracao = Double.parseDouble(item.substring(igual + 1).trim());
+                mapa.put(item.substring(0, igual).trim(), Math.max(0.0, Math.min(1.0, fracao)));
+            } catch (NumberFormatException e) {
+                System.err.println("⚠ finanza.log.sample: fração inválida em '" + item + "'");
+            }
+        }
+        return mapa;
+    }
+
+    // ========== CONFIGURAÇÃO ==========
+
+    /**
+     * Aplica nível e arquivo escolhidos na linha de comando
+     * @param novoNivel nível mínimo (null mantém o atual)
+     * @param arquivo arquivo de log (null mantém o destino atual)
+     */
+    public static void configurar(Nivel novoNivel, String arquivo) {
+        if (novoNivel != null) {
+            INSTANCE.nivel = novoNivel;
+        }
+        if (arquivo != null && !arquivo.isEmpty()) {
+            INSTANCE.arquivoSolicitado = Paths.get(arquivo);
+        }
+    }
+
+    public static boolean isAtivo(Nivel n) {
+        return n.ordinal() >= INSTANCE.nivel.ordinal();
+    }
+
+    /** Registros perdidos com a fila cheia desde o início */
+    public static long getDescartados() {
+        return INSTANCE.descartados.sum();
+    }
+
+    /** Registros aguardando a thread de escrita */
+    public static int getPendentes() {
+        return INSTANCE.fila.size();
+    }
+
+    /**
+     * Espera a fila esvaziar (encerramento do servidor)
+     * @param timeoutMillis tempo máximo de espera
+     */
+    public static void descarregar(long timeoutMillis) {
+        long limite = System.currentTimeMillis() + timeoutMillis;
+        while (INSTANCE.naoGravados.get() > 0 && System.currentTimeMillis() < limite) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // ========== REGISTRO ==========
+
+    public static void debug(String mensagem) {
+        INSTANCE.registrar(Nivel.DEBUG, mensagem, null);
+    }
+
+    public static void info(String mensagem) {
+        INSTANCE.registrar(Nivel.INFO, mensagem, null);
+    }
+
+    public static void aviso(String mensagem) {
+        INSTANCE.registrar(Nivel.AVISO, mensagem, null);
+    }
+
+    public static void erro(String mensagem) {
+        INSTANCE.registrar(Nivel.ERRO, mensagem, null);
+    }
+
+    /** Erro com stack trace (formatado na thread de escrita) */
+    public static void erro(String mensagem, Throwable causa) {
+        INSTANCE.registrar(Nivel.ERRO, mensagem, causa);
+    }
+
+    /**
+     * Registra uma requisição atendida (nível INFO, sujeito à amostragem)
+     * @param tipo tipo do comando, usado na amostragem
+     * @param comando comando recebido; toString() só é chamado se o registro for gravado
+     * @param resposta resposta enviada ("STATUS|dados")
+     */
+    public static void requisicao(String tipo, Object comando, String resposta) {
+        boolean sucesso = resposta.startsWith(Protocol.STATUS_OK + Protocol.SEPARATOR)
+                || resposta.equals(Protocol.STATUS_OK);
+        requisicao(tipo, comando, resposta, sucesso);
+    }
+
+    /**
+     * Registra uma requisição atendida com um resumo da resposta
+     * (listagens em streaming, corpos binários)
+     */
+    public static void requisicao(String tipo, Object comando, String resumoResposta, boolean sucesso) {
+        ServerLog log = INSTANCE;
+        if (!isAtivo(Nivel.INFO) || (sucesso && !log.amostrar(tipo))) {
+            return;
+        }
+        log.registrar(Nivel.INFO, "➤ " + log.truncar(String.valueOf(comando))
+                + " ← " + log.truncar(resumoResposta), null);
+    }
+
+    private boolean amostrar(String tipo) {
+        Double fracao = amostragem.get(tipo);
+        double f = fracao != null ? fracao : amostragemPadrao;
+        return f >= 1.0 || (f > 0.0 && ThreadLocalRandom.current().nextDouble() < f);
+    }
+
+    private String truncar(String texto) {
+        if (texto.length() <= maxPayload) {
+            return texto;
+        }
+        return texto.substring(0, maxPayload) + "… (+" + (texto.length() - maxPayload) + " caracteres)";
+    }
+
+    private void registrar(Nivel n, String mensagem, Throwable causa) {
+        if (n.ordinal() < nivel.ordinal()) {
+            return;
+        }
+        Registro registro = new Registro(System.currentTimeMillis(), n,
+                Thread.currentThread().getName(), mensagem, causa);
+        naoGravados.incrementAndGet();
+        if (!fila.offer(registro)) {
+            naoGravados.decrementAndGet();
+            descartados.increment();
+        }
+    }
+
+    /**
+     * Entrada da fila: formatação (hora, stack trace) fica para a thread de escrita
+     */
+    private static final class Registro {
+        final long momento;
+        final Nivel nivel;
+        final String thread;
+        final String mensagem;
+        final Throwable causa;
+
+        Registro(long momento, Nivel nivel, String thread, String mensagem, Throwable causa) {
+            this.momento = momento;
+            this.nivel = nivel;
+            this.thread = thread;
+            this.mensagem = mensagem;
+            this.causa = causa;
+        }
+
+        String formatar() {
+            StringBuilder sb = new StringBuilder(mensagem.length() + 64);
+            sb.append(FORMATO_HORA.format(Instant.ofEpochMilli(momento))).append(' ')
+              .append(String.format("%-5s", nivel.getValor().toUpperCase())).append(" [")
+              .append(thread).append("] ").append(mensagem);
+            if (causa != null) {
+                StringWriter pilha = new StringWriter();
+                causa.printStackTrace(new PrintWriter(pilha));
+                sb.append(System.lineSeparator()).append(pilha.toString().trim());
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Thread de escrita: esvazia a fila em lotes e grava no destino atual
+     */
+    private final class Escritor implements Runnable {
+        private final List<Registro> lote = new ArrayList<>(256);
+        private Path arquivoAtual;
+        private Writer saidaArquivo;
+        private long bytesArquivo;
+        private long descartadosAvisados;
+
+        @Override
+        public void run() {
+            while (true) {
+                int retirados = 0;
+                try {
+                    Registro primeiro = fila.poll(1, TimeUnit.SECONDS);
+                    if (primeiro != null) {
+                        lote.add(primeiro);
+                        retirados = 1 + fila.drainTo(lote, 1023);
+                    }
+                    avisarDescartados();
+                    if (!lote.isEmpty()) {
+                        gravarLote();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    System.err.println("✗ Erro no log do servidor: " + e.getMessage());
+                } finally {
+                    lote.clear();
+                    naoGravados.addAndGet(-retirados);
+                }
+            }
+        }
+
+        private void gravarLote() {
+            trocarDestinoSeNecessario();
+            if (saidaArquivo == null) {
+                for (Registro r : lote) {
+                    (r.nivel.ordinal() >= Nivel.AVISO.ordinal() ? System.err : System.out).println(r.formatar());
+                }
+                return;
+            }
+            try {
+                for (Registro r : lote) {
+                    String linha = r.formatar();
+                    saidaArquivo.write(linha);
+                    saidaArquivo.write(System.lineSeparator());
+                    bytesArquivo += linha.length() + 1; // aproximado: caracteres, não bytes UTF-8
+                    if (bytesArquivo >= maxBytesArquivo) {
+                        rotacionar();
+                    }
+                }
+                saidaArquivo.flush();
+            } catch (IOException e) {
+                System.err.println("✗ Erro ao gravar log em " + arquivoAtual + ": " + e.getMessage()
+                        + " (voltando ao console)");
+                fecharArquivo();
+                arquivoSolicitado = null;
+            }
+        }
+
+        private void avisarDescartados() {
+            long total = descartados.sum();
+            if (total > descartadosAvisados) {
+                long novos = total - descartadosAvisados;
+                descartadosAvisados = total;
+                lote.add(0, new Registro(System.currentTimeMillis(), Nivel.AVISO, "finanza-log",
+                        "⚠ " + novos + " registros de log descartados (fila cheia)", null));
+            }
+        }
+
+        private void trocarDestinoSeNecessario() {
+            Path solicitado = arquivoSolicitado;
+            if (solicitado == null ? arquivoAtual == null : solicitado.equals(arquivoAtual)) {
+                return;
+            }
+            fecharArquivo();
+            if (solicitado == null) {
+                return;
+            }
+            try {
+                Path pasta = solicitado.toAbsolutePath().getParent();
+                if (pasta != null) {
+                    Files.createDirectories(pasta);
+                }
+                bytesArquivo = Files.exists(solicitado) ? Files.size(solicitado) : 0;
+                saidaArquivo = abrir(solicitado);
+                arquivoAtual = solicitado;
+            } catch (IOException e) {
+                System.err.println("✗ Não foi possível abrir o log " + solicitado + ": " + e.getMessage()
+                        + " (usando o console)");
+                arquivoSolicitado = null;
+            }
+        }
+
+        /**
+         * finanza.log → finanza.log.1 → ... → finanza.log.N (o mais antigo é apagado)
+         */
+        private void rotacionar() throws IOException {
+            saidaArquivo.close();
+            for (int i = arquivosMantidos - 2; i >= 1; i--) {
+                Path origem = Paths.get(arquivoAtual + "." + i);
+                if (Files.exists(origem)) {
+                    Files.move(origem, Paths.get(arquivoAtual + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (arquivosMantidos > 1) {
+                Files.move(arquivoAtual, Paths.get(arquivoAtual + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(arquivoAtual);
+            }
+            saidaArquivo = abrir(arquivoAtual);
+            bytesArquivo = 0;
+        }
+
+        private Writer abrir(Path arquivo) throws IOException {
+            return Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        private void fecharArquivo() {
+            if (saidaArquivo != null) {
+                try {
+                    saidaArquivo.close();
+                } catch (IOException e) {
+                    // Ignorar
+                }
+            }
+            saidaArquivo = null;
+            arquivoAtual = null;
+        }
+    }
+}
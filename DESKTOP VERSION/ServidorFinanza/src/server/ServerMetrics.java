@@ -0,0 +1,303 @@
+package server;
+
+import util.ConnectionPool;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro das métricas do servidor
+ *
+ * Por comando do protocolo (MetricaComando): requisições, erros (status
+ * diferente de OK), histograma de latência, tamanho da resposta e tempo de
+ * banco. Os comandos são os CMD_* de Protocol, lidos uma vez; nomes
+ * desconhecidos somam em DESCONHECIDO, para que um cliente não consiga
+ * criar métricas à vontade.
+ *
+ * Medidores (gauges) são valores lidos na hora da consulta, registrados
+ * pelo FinanzaServer: conexões ativas, threads dos handlers, pool do banco.
+ *
+ * Consulta pelo comando STATS (apenas admin) e por JMX: um MBean por
+ * comando (finanza:type=Comando,name=...) e os medidores em
+ * finanza:type=Servidor. O JMX pode ser desligado com
+ * -Dfinanza.metrics.jmx=false.
+ *
+ * Instância única por processo, como o pool de conexões do DatabaseUtil.
+ */
+public final class ServerMetrics {
+
+    /** Comando fora do protocolo */
+    public static final String COMANDO_DESCONHECIDO = "DESCONHECIDO";
+
+    private static final String DOMINIO_JMX = "finanza";
+
+    private static final ServerMetrics INSTANCE = new ServerMetrics();
+
+    private final long inicioMillis = System.currentTimeMillis();
+
+    /** Fixo após a construção: leitura sem trava */
+    private final Map<String, MetricaComando> comandos;
+
+    /** Medidores na ordem de registro */
+    private final Map<String, LongSupplier> medidores = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private boolean jmxRegistrado;
+
+    private ServerMetrics() {
+        Map<String, MetricaComando> mapa = new HashMap<>();
+        for (String comando : comandosDoProtocolo()) {
+            mapa.put(comando, new MetricaComando(comando));
+        }
+        mapa.put(COMANDO_DESCONHECIDO, new MetricaComando(COMANDO_DESCONHECIDO));
+        comandos = Collections.unmodifiableMap(mapa);
+    }
+
+    public static ServerMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /** Valores das constantes CMD_* de Protocol */
+    private static List<String> comandosDoProtocolo() {
+        List<String> nomes = new ArrayList<>();
+        for (Field campo : Protocol.class.getFields()) {
+            if (campo.getName().startsWith("CMD_") && campo.getType() == String.class
+                    && Modifier.isStatic(campo.getModifiers())) {
+                try {
+                    nomes.add((String) campo.get(null));
+                } catch (IllegalAccessException e) {
+                    // Campos públicos: não acontece
+                }
+            }
+        }
+        return nomes;
+    }
+
+    /**
+     * Começa a medir uma requisição na thread atual
+     * @param comando tipo do comando (primeira parte da linha)
+     */
+    public Medicao iniciar(String comando) {
+        MetricaComando metrica = comandos.get(comando);
+        return new Medicao(metrica != null ? metrica : comandos.get(COMANDO_DESCONHECIDO));
+    }
+
+    /**
+     * Medição de uma requisição em andamento
+     *
+     * O tempo de banco é a diferença do tempo com conexão emprestada da
+     * thread (ConnectionPool) entre o início e o fim; por isso a medição
+     * deve terminar na mesma thread em que começou.
+     */
+    public static final class Medicao {
+        private final MetricaComando metrica;
+        private final long inicioNanos;
+        private final long bancoInicioNanos;
+
+        private Medicao(MetricaComando metrica) {
+            this.metrica = metrica;
+            this.bancoInicioNanos = ConnectionPool.getTempoBancoThreadNanos();
+            this.inicioNanos = System.nanoTime();
+        }
+
+        /**
+         * Termina a medição de uma resposta de texto ("STATUS|dados")
+         */
+        public void finalizar(String resposta) {
+            boolean sucesso = resposta.startsWith(Protocol.STATUS_OK + Protocol.SEPARATOR)
+                    || resposta.equals(Protocol.STATUS_OK);
+            finalizar(sucesso, resposta.length());
+        }
+
+        /**
+         * Termina a medição
+         * @param sucesso resposta com status OK
+         * @param tamanho tamanho da resposta (caracteres ou bytes)
+         */
+        public void finalizar(boolean sucesso, long tamanho) {
+            long latencia = System.nanoTime() - inicioNanos;
+            metrica.registrar(latencia, sucesso, tamanho,
+                    ConnectionPool.getTempoBancoThreadNanos() - bancoInicioNanos);
+        }
+    }
+
+    /**
+     * Registra (ou substitui) um medidor lido a cada consulta
+     * @param nome nome em minúsculas com '_' (aparece no STATS e no JMX)
+     */
+    public void registrarMedidor(String nome, LongSupplier leitura) {
+        medidores.put(nome, leitura);
+    }
+
+    /** Segundos desde o início do processo */
+    public long getTempoAtivoSegundos() {
+        return (System.currentTimeMillis() - inicioMillis) / 1000;
+    }
+
+    public long getTotalRequisicoes() {
+        long total = 0;
+        for (MetricaComando metrica : comandos.values()) {
+            total += metrica.getRequisicoes();
+        }
+        return total;
+    }
+
+    public long getTotalErros() {
+        long total = 0;
+        for (MetricaComando metrica : comandos.values()) {
+            total += metrica.getErros();
+        }
+        return total;
+    }
+
+    /**
+     * Medidores com os totais, na ordem de exibição
+     */
+    public Map<String, Long> lerMedidores() {
+        Map<String, Long> valores = new LinkedHashMap<>();
+        valores.put("tempo_ativo_s", getTempoAtivoSegundos());
+        valores.put("requisicoes", getTotalRequisicoes());
+        valores.put("erros", getTotalErros());
+        synchronized (medidores) {
+            for (Map.Entry<String, LongSupplier> medidor : medidores.entrySet()) {
+                try {
+                    valores.put(medidor.getKey(), medidor.getValue().getAsLong());
+                } catch (RuntimeException e) {
+                    valores.put(medidor.getKey(), -1L);
+                }
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Comandos já usados, do mais requisitado para o menos
+     */
+    public List<MetricaComando> comandosUsados() {
+        List<MetricaComando> usados = new ArrayList<>();
+        for (MetricaComando metrica : comandos.values()) {
+            if (metrica.getRequisicoes() > 0) {
+                usados.add(metrica);
+            }
+        }
+        usados.sort((a, b) -> Long.compare(b.getRequisicoes(), a.getRequisicoes()));
+        return usados;
+    }
+
+    /**
+     * Dados da resposta de STATS (ver Protocol.CMD_STATS):
+     * medidor=valor,medidor=valor,...;comando,requisicoes,erros,media_ms,
+     * p50_ms,p95_ms,p99_ms,max_ms,tamanho_medio,banco_medio_ms;...
+     */
+    public String formatarStats() {
+        StringBuilder sb = new StringBuilder();
+        boolean primeiro = true;
+        for (Map.Entry<String, Long> medidor : lerMedidores().entrySet()) {
+            if (!primeiro) {
+                sb.append(',');
+            }
+            sb.append(medidor.getKey()).append('=').append(medidor.getValue());
+            primeiro = false;
+        }
+        for (MetricaComando m : comandosUsados()) {
+            sb.append(Protocol.FIELD_SEPARATOR).append(m.getComando()).append(',')
+              .append(m.getRequisicoes()).append(',')
+              .append(m.getErros()).append(',')
+              .append(String.format(Locale.US, "%.3f,%.3f,%.3f,%.3f,%.3f,%.0f,%.3f",
+                      m.getLatenciaMediaMs(), m.getLatenciaP50Ms(), m.getLatenciaP95Ms(),
+                      m.getLatenciaP99Ms(), m.getLatenciaMaximaMs(), m.getTamanhoMedioResposta(),
+                      m.getTempoBancoMedioMs()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Registra os MBeans no MBeanServer da plataforma (uma vez por processo)
+     */
+    public synchronized void registrarJmx() {
+        if (jmxRegistrado || !Boolean.parseBoolean(System.getProperty("finanza.metrics.jmx", "true"))) {
+            return;
+        }
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            servidor.registerMBean(new MedidoresJmx(), new ObjectName(DOMINIO_JMX + ":type=Servidor"));
+            for (MetricaComando metrica : comandos.values()) {
+                servidor.registerMBean(metrica,
+                        new ObjectName(DOMINIO_JMX + ":type=Comando,name=" + ObjectName.quote(metrica.getComando())));
+            }
+            jmxRegistrado = true;
+            System.out.println("✓ Métricas disponíveis via JMX (domínio " + DOMINIO_JMX + ")");
+        } catch (JMException e) {
+            System.err.println("⚠ Não foi possível registrar as métricas no JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Medidores como atributos JMX (o conjunto só é conhecido em execução)
+     */
+    private final class MedidoresJmx implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String nome) throws AttributeNotFoundException {
+            Long valor = lerMedidores().get(nome);
+            if (valor == null) {
+                throw new AttributeNotFoundException(nome);
+            }
+            return valor;
+        }
+
+        @Override
+        public void setAttribute(Attribute atributo) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Medidores são somente leitura: " + atributo.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] nomes) {
+            Map<String, Long> valores = lerMedidores();
+            AttributeList lista = new AttributeList();
+            for (String nome : nomes) {
+                if (valores.containsKey(nome)) {
+                    lista.add(new Attribute(nome, valores.get(nome)));
+                }
+            }
+            return lista;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList atributos) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String operacao, Object[] parametros, String[] assinatura) {
+            throw new UnsupportedOperationException(operacao);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> atributos = new ArrayList<>();
+            for (String nome : lerMedidores().keySet()) {
+                atributos.add(new MBeanAttributeInfo(nome, Long.class.getName(), nome, true, false, false));
+            }
+            return new MBeanInfo(getClass().getName(), "Medidores do servidor Finanza",
+                    atributos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
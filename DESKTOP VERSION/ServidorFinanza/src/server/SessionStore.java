@@ -0,0 +1,329 @@
+package server;
+
+import model.Usuario;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sessões autenticadas, para retomar o login em uma nova conexão (RESUME)
+ *
+ * LOGIN e REGISTER criam uma sessão e devolvem o token ao cliente. Quando a
+ * conexão cai (comum no celular), o cliente reconecta e envia RESUME|token:
+ * o handler recebe de volta o usuário autenticado sem consultar o banco nem
+ * verificar a senha de novo, e o cliente não precisa repetir o login nem a
+ * sincronização completa.
+ *
+ * Token: "id.assinatura", ambos em Base64 URL sem padding. O id são 16 bytes
+ * aleatórios (SecureRandom) e a assinatura é o HMAC-SHA256 do id, truncado
+ * em 16 bytes, com uma chave gerada na inicialização. Tokens com assinatura
+ * inválida são recusados antes de qualquer busca; como a chave e as sessões
+ * só existem em memória, reiniciar o servidor invalida todos os tokens.
+ *
+ * As sessões ficam em um mapa limitado (a menos usada recentemente sai
+ * primeiro) e expiram após o TTL sem uso; cada RESUME renova o prazo. Como
+ * o mapa está em ordem de acesso, as expiradas ficam no início e são
+ * removidas a cada nova sessão.
+ *
+ * Instância única por processo, como o registro de métricas.
+ */
+public final class SessionStore {
+
+    /** Configuração (sobrescrevível via -Dfinanza.session.*); max 0 desativa as sessões */
+    static final int MAX_SESSOES = Integer.getInteger("finanza.session.max", 10000);
+    static final long TTL_MINUTOS = Long.getLong("finanza.session.ttlMinutos", 30L);
+
+    private static final int BYTES_ID = 16;
+    private static final int BYTES_ASSINATURA = 16;
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private static final SessionStore INSTANCE = new SessionStore(MAX_SESSOES, TTL_MINUTOS);
+
+    private final int maxSessoes;
+    private final long ttlNanos;
+    private final SecureRandom aleatorio = new SecureRandom();
+    private final SecretKeySpec chave;
+
+    /** Sessões por id do token, em ordem de acesso (LRU) */
+    private final Map<String, Sessao> sessoes;
+
+    // Métricas
+    private final LongAdder criadas = new LongAdder();
+    private final LongAdder retomadas = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+    private final LongAdder expiracoes = new LongAdder();
+    private final LongAdder encerradas = new LongAdder();
+
+    /**
+     * Sessão de um usuário autenticado
+     */
+    public static final class Sessao {
+        private final Usuario usuario;
+        private final String tipoCliente;
+        private long ultimoAcesso;
+
+        private Sessao(Usuario usuario, String tipoCliente, long ultimoAcesso) {
+            this.usuario = usuario;
+            this.tipoCliente = tipoCliente;
+            this.ultimoAcesso = ultimoAcesso;
+        }
+
+        public Usuario getUsuario() {
+            return usuario;
+        }
+
+        /** Cliente que fez o login ("admin" ou "mobile") */
+        public String getTipoCliente() {
+            return tipoCliente;
+        }
+    }
+
+    SessionStore(int maxSessoes, long ttlMinutos) {
+        this.maxSessoes = Math.max(0, maxSessoes);
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(Math.max(0, ttlMinutos));
+        byte[] segredo = new byte[32];
+        aleatorio.nextBytes(segredo);
+        this.chave = new SecretKeySpec(segredo, ALGORITMO);
+        this.sessoes = new LinkedHashMap<String, Sessao>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Sessao> maisAntiga) {
+                if (size() > SessionStore.this.maxSessoes) {
+                    despejos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static SessionStore getInstance() {
+        return INSTANCE;
+    }
+
+    /** Sessões ativadas (finanza.session.max maior que zero) */
+    public boolean isAtivo() {
+        return maxSessoes > 0;
+    }
+
+    /**
+     * Cria a sessão de um usuário recém autenticado
+     *
+     * @param usuario usuário autenticado (guardado como está, sem cópia)
+     * @param tipoCliente cliente que fez o login ("admin" ou "mobile")
+     * @return token a devolver ao cliente, ou null com as sessões desativadas
+     */
+    public String criar(Usuario usuario, String tipoCliente) {
+        if (maxSessoes == 0) {
+            return null;
+        }
+        byte[] bytesId = new byte[BYTES_ID];
+        aleatorio.nextBytes(bytesId);
+        String id = codificar(bytesId);
+        String token = id + "." + assinar(id);
+
+        long agora = System.nanoTime();
+        synchronized (sessoes) {
+            removerExpiradas(agora);
+            sessoes.put(id, new Sessao(usuario, tipoCliente, agora));
+        }
+        criadas.increment();
+        return token;
+    }
+
+    /**
+     * Retoma a sessão do token e renova o prazo de expiração
+     *
+     * @return sessão, ou null se o token for inválido, expirado ou encerrado
+     */
+    public Sessao retomar(String token) {
+        String id = idVerificado(token);
+        if (id == null) {
+            recusadas.increment();
+            return null;
+        }
+        long agora = System.nanoTime();
+        Sessao sessao;
+        synchronized (sessoes) {
+            sessao = sessoes.get(id);
+            if (sessao != null) {
+                if (agora - sessao.ultimoAcesso < ttlNanos) {
+                    sessao.ultimoAcesso = agora;
+                } else {
+                    sessoes.remove(id);
+                    expiracoes.increment();
+                    sessao = null;
+                }
+            }
+        }
+        if (sessao == null) {
+            recusadas.increment();
+            return null;
+        }
+        retomadas.increment();
+        return sessao;
+    }
+
+    /**
+     * Encerra a sessão do token (LOGOUT)
+     */
+    public void encerrar(String token) {
+        String id = idVerificado(token);
+        if (id == null) {
+            return;
+        }
+        Sessao removida;
+        synchronized (sessoes) {
+            removida = sessoes.remove(id);
+        }
+        if (removida != null) {
+            encerradas.increment();
+        }
+    }
+
+    /**
+     * Encerra todas as sessões de um usuário (senha alterada, usuário
+     * alterado ou excluído); percorre o mapa, mas só em operações raras
+     */
+    public void encerrarDoUsuario(int idUsuario) {
+        encerrarDoUsuario(idUsuario, null);
+    }
+
+    /**
+     * Encerra as sessões de um usuário, menos a do token informado
+     * (troca de senha: os outros dispositivos precisam de novo login)
+     */
+    public void encerrarDoUsuario(int idUsuario, String tokenMantido) {
+        String mantido = tokenMantido != null ? idVerificado(tokenMantido) : null;
+        int removidas = 0;
+        synchronized (sessoes) {
+            Iterator<Map.Entry<String, Sessao>> it = sessoes.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Sessao> entrada = it.next();
+                if (entrada.getValue().usuario.getId() == idUsuario && !entrada.getKey().equals(mantido)) {
+                    it.remove();
+                    removidas++;
+                }
+            }
+        }
+        encerradas.add(removidas);
+    }
+
+    /**
+     * Remove as sessões expiradas do início do mapa (as menos usadas)
+     * Deve ser chamado com a trava de sessoes.
+     */
+    private void removerExpiradas(long agora) {
+        Iterator<Sessao> it = sessoes.values().iterator();
+        while (it.hasNext()) {
+            if (agora - it.next().ultimoAcesso < ttlNanos) {
+                break;
+            }
+            it.remove();
+            expiracoes.increment();
+        }
+    }
+
+    /**
+     * Id do token se a assinatura conferir; null caso contrário
+     */
+    private String idVerificado(String token) {
+        if (token == null) {
+            return null;
+        }
+        int ponto = token.indexOf('.');
+        if (ponto <= 0 || ponto == token.length() - 1) {
+            return null;
+        }
+        String id = token.substring(0, ponto);
+        byte[] recebida;
+        try {
+            recebida = Base64.getUrlDecoder().decode(token.substring(ponto + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        byte[] esperada = Base64.getUrlDecoder().decode(assinar(id));
+        // Comparação em tempo constante
+        return MessageDigest.isEqual(esperada, recebida) ? id : null;
+    }
+
+    private String assinar(String id) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chave);
+            byte[] hmac = mac.doFinal(id.getBytes(StandardCharsets.US_ASCII));
+            return codificar(Arrays.copyOf(hmac, BYTES_ASSINATURA));
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 faz parte de toda JVM
+            throw new IllegalStateException("HMAC indisponível", e);
+        }
+    }
+
+    private static String codificar(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // ========== MÉTRICAS ==========
+
+    public int getSize() {
+        synchronized (sessoes) {
+            return sessoes.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSessoes;
+    }
+
+    public long getCreatedCount() {
+        return criadas.sum();
+    }
+
+    public long getResumedCount() {
+        return retomadas.sum();
+    }
+
+    /** RESUME com token inválido, expirado ou encerrado */
+    public long getRejectedCount() {
+        return recusadas.sum();
+    }
+
+    /** Sessões removidas por excesso (LRU) */
+    public long getEvictionCount() {
+        return despejos.sum();
+    }
+
+    /** Sessões descartadas por TTL vencido */
+    public long getExpirationCount() {
+        return expiracoes.sum();
+    }
+
+    /** Sessões encerradas por LOGOUT ou troca de senha */
+    public long getClosedCount() {
+        return encerradas.sum();
+    }
+
+    /**
+     * Resumo das métricas das sessões (log no encerramento do servidor)
+     */
+    public String getStatistics() {
+        return String.format(Locale.US,
+                "sessoes=%d/%d, criadas=%d, retomadas=%d, recusadas=%d, " +
+                "despejos=%d, expiradas=%d, encerradas=%d, ttl=%dmin",
+                getSize(), maxSessoes, getCreatedCount(), getResumedCount(), getRejectedCount(),
+                getEvictionCount(), getExpirationCount(), getClosedCount(),
+                TimeUnit.NANOSECONDS.toMinutes(ttlNanos));
+    }
+}
@@ -0,0 +1,598 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexões JDBC limitado usado pelo DatabaseUtil
+ *
+ * Mantém conexões físicas abertas com o banco para que cada comando dos
+ * clientes não pague o handshake TCP + autenticação do MySQL (ou a abertura
+ * de sessão do H2 embutido). As conexões entregues aos DAOs são proxies:
+ * chamar close() devolve a conexão ao pool em vez de fechá-la, então o
+ * padrão try-with-resources dos DAOs continua funcionando sem alterações.
+ * Cada empréstimo recebe um proxy novo, invalidado no close(): uma
+ * referência antiga guardada por quem já devolveu não alcança a conexão
+ * física emprestada depois a outra thread. O mesmo vale para o que sai do
+ * proxy: Statements, ResultSets e DatabaseMetaData também são proxies do
+ * empréstimo (getConnection() e getStatement() devolvem proxies, unwrap()
+ * não expõe o objeto físico), e os Statements que o DAO deixou abertos são
+ * fechados na devolução.
+ *
+ * Funcionalidades:
+ * - Tamanho mínimo e máximo configuráveis
+ * - Validação da conexão no empréstimo (Connection.isValid)
+ * - Remoção de conexões ociosas acima do tamanho mínimo
+ * - Detecção de vazamento com captura da pilha de quem emprestou
+ * - Métricas de tempo de espera por conexão
+ * - Tempo com conexão emprestada acumulado por thread (tempo de banco por comando)
+ */
+public class ConnectionPool {
+    /** Conexões usadas há menos que isso não são revalidadas no empréstimo */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    /** Intervalo da tarefa de manutenção (ociosas e vazamentos) */
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+    /** Nanossegundos com conexão emprestada (da espera até o close), por thread */
+    private static final ThreadLocal<long[]> TEMPO_THREAD = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int validationTimeoutSeconds;
+
+    /** Conexões livres; a mais recentemente devolvida fica no início (LIFO) */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    /** Conexões atualmente emprestadas aos DAOs */
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+
+    /** Limita o número de conexões emprestadas ao tamanho máximo */
+    private final Semaphore permits;
+
+    /** Total de conexões físicas abertas (livres + emprestadas) */
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Métricas
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+
+    /**
+     * Cria o pool e abre as conexões mínimas
+     * @param url URL JDBC do banco
+     * @param user usuário do banco
+     * @param password senha do banco
+     * @param minSize número mínimo de conexões mantidas abertas
+     * @param maxSize número máximo de conexões simultâneas
+     * @param maxWaitMillis tempo máximo de espera por uma conexão livre
+     * @param idleTimeoutMillis tempo após o qual conexões ociosas acima do mínimo são fechadas
+     * @param leakThresholdMillis tempo emprestada após o qual a conexão é reportada como vazamento (0 desativa)
+     * @param validationTimeoutSeconds timeout de Connection.isValid no empréstimo
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long maxWaitMillis,
+                          long idleTimeoutMillis, long leakThresholdMillis,
+                          int validationTimeoutSeconds) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamanho do pool inválido: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "finanza-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+    }
+
+    /**
+     * Empresta uma conexão do pool
+     *
+     * Bloqueia até maxWaitMillis se todas as conexões estiverem em uso.
+     * A conexão retornada deve ser fechada (close) para voltar ao pool.
+     *
+     * @return Connection proxy ligada a uma conexão física
+     * @throws SQLException se o pool estiver fechado, esgotado ou o banco indisponível
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Pool de conexões encerrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timeout aguardando conexão do pool após " + maxWaitMillis + " ms " +
+                        "(ativas=" + borrowed.size() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            registrarEspera(System.nanoTime() - inicio);
+            Connection proxy = pooled.lend(leakThresholdMillis > 0 ? new Throwable("Conexão emprestada aqui") : null);
+            pooled.inicioEmprestimoNanos = inicio;
+            borrowed.add(pooled);
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtém uma conexão livre válida ou abre uma nova
+     */
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isValid(pooled)) {
+                return pooled;
+            }
+            validationFailures.increment();
+            destroy(pooled);
+        }
+        return create();
+    }
+
+    /**
+     * Valida conexão antes do empréstimo, pulando a ida ao banco se ela foi usada há pouco
+     */
+    private boolean isValid(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyedCount.increment();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Erro ao fechar conexão do pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devolve a conexão ao pool (chamado pelo close() do proxy)
+     *
+     * @param limpa false se algum Statement do empréstimo não pôde ser
+     *              fechado; a conexão é descartada em vez de reutilizada
+     */
+    private void giveBack(PooledConnection pooled, boolean limpa) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+        try {
+            boolean reutilizavel = limpa && !closed && resetState(pooled.physical);
+            if (reutilizavel) {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Desfaz transações pendentes deixadas pelo DAO antes de reutilizar a conexão
+     */
+    private boolean resetState(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tarefa periódica: fecha ociosas antigas, repõe o mínimo e reporta vazamentos
+     */
+    private void housekeep() {
+        try {
+            long agora = System.currentTimeMillis();
+
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && totalConnections.get() > minSize) {
+                PooledConnection pooled = it.next();
+                if (agora - pooled.lastReturnedAt > idleTimeoutMillis && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+
+            fillToMinimum();
+
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && agora - pooled.borrowedAt > leakThresholdMillis) {
+                        pooled.leakReported = true;
+                        leakCount.increment();
+                        System.err.println("⚠ Possível vazamento de conexão: emprestada há " +
+                                (agora - pooled.borrowedAt) + " ms pela thread " + pooled.borrowerThread);
+                        if (pooled.borrowStack != null) {
+                            pooled.borrowStack.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Erro na manutenção do pool de conexões: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre conexões até atingir o tamanho mínimo
+     */
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                PooledConnection pooled = create();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Erro ao abrir conexão mínima do pool: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Fecha todas as conexões livres e impede novos empréstimos
+     *
+     * Conexões ainda emprestadas são fechadas quando devolvidas.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // ========== MÉTRICAS ==========
+
+    public int getActiveCount() { return borrowed.size(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getTotalCount() { return totalConnections.get(); }
+    public int getWaitingCount() { return permits.getQueueLength(); }
+    public long getBorrowCount() { return borrowCount.sum(); }
+    public long getTimeoutCount() { return timeoutCount.sum(); }
+    public long getCreatedCount() { return createdCount.sum(); }
+    public long getDestroyedCount() { return destroyedCount.sum(); }
+    public long getValidationFailureCount() { return validationFailures.sum(); }
+    public long getLeakCount() { return leakCount.sum(); }
+
+    /** Tempo médio de espera por conexão em milissegundos */
+    public double getAverageWaitMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0.0 : totalWaitNanos.sum() / (count * 1_000_000.0);
+    }
+
+    /** Maior tempo de espera por conexão observado em milissegundos */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Tempo total que a thread atual passou com conexões do pool, contando a
+     * espera pelo empréstimo, em nanossegundos
+     *
+     * Só cresce: a diferença entre duas leituras na mesma thread é o tempo de
+     * banco do trecho entre elas (ServerMetrics mede assim cada comando).
+     */
+    public static long getTempoBancoThreadNanos() {
+        return TEMPO_THREAD.get()[0];
+    }
+
+    /**
+     * Resumo das métricas do pool para log
+     */
+    public String getStatistics() {
+        return String.format(java.util.Locale.US,
+                "ativas=%d, livres=%d, total=%d/%d, aguardando=%d, emprestimos=%d, " +
+                "espera_media=%.3fms, espera_max=%.3fms, timeouts=%d, criadas=%d, " +
+                "descartadas=%d, invalidas=%d, vazamentos=%d",
+                getActiveCount(), getIdleCount(), getTotalCount(), maxSize, getWaitingCount(),
+                getBorrowCount(), getAverageWaitMillis(), getMaxWaitMillis(), getTimeoutCount(),
+                getCreatedCount(), getDestroyedCount(), getValidationFailureCount(), getLeakCount());
+    }
+
+    /**
+     * Conexão física gerenciada pelo pool
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long lastReturnedAt;
+        volatile long borrowedAt;
+        volatile long inicioEmprestimoNanos;
+        volatile String borrowerThread;
+        volatile Throwable borrowStack;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Registra o empréstimo e cria o proxy dele
+         */
+        Connection lend(Throwable stack) {
+            borrowedAt = System.currentTimeMillis();
+            borrowerThread = Thread.currentThread().getName();
+            borrowStack = stack;
+            leakReported = false;
+            return new Emprestimo(this).proxy;
+        }
+    }
+
+    /**
+     * Proxy de um único empréstimo entregue aos DAOs
+     *
+     * Depois do close() (o primeiro devolve a conexão ao pool) o proxy fica
+     * inválido para sempre, mesmo que a conexão física volte a ser emprestada,
+     * assim como os objetos JDBC criados por ele (ver Derivado).
+     */
+    private final class Emprestimo implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Connection physical;
+        private final Connection proxy;
+        private final AtomicBoolean ativo = new AtomicBoolean(true);
+
+        /** Statements criados neste empréstimo e ainda abertos (guardado por si mesmo) */
+        private final List<Statement> abertos = new ArrayList<>();
+
+        Emprestimo(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.physical = pooled.physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (ativo.compareAndSet(true, false)) {
+                        pooled.borrowStack = null;
+                        TEMPO_THREAD.get()[0] += System.nanoTime() - pooled.inicioEmprestimoNanos;
+                        giveBack(pooled, fecharAbertos());
+                    }
+                    return null;
+                case "isClosed":
+                    return !ativo.get() || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                case "unwrap":
+                case "isWrapperFor":
+                    return desembrulhar(proxy, method, (Class<?>) args[0]);
+                default:
+                    verificarAtivo();
+                    return derivar(invocar(physical, method, args), method, physical, proxy, null, null);
+            }
+        }
+
+        void verificarAtivo() throws SQLException {
+            if (!ativo.get()) {
+                throw new SQLException("Conexão já devolvida ao pool");
+            }
+        }
+
+        /**
+         * Resultado de uma chamada feita por um proxy do empréstimo: a conexão
+         * física e o objeto pai voltam como seus proxies, e Statements,
+         * ResultSets e DatabaseMetaData novos ganham um proxy Derivado
+         *
+         * @param fisico objeto que executou a chamada
+         * @param proxyFisico proxy desse objeto
+         * @param pai objeto físico que criou o chamador (null na conexão)
+         * @param proxyPai proxy do pai
+         */
+        Object derivar(Object resultado, Method method, Object fisico, Object proxyFisico,
+                       Object pai, Object proxyPai) {
+            if (resultado == null) {
+                return null;
+            }
+            if (resultado == physical) {
+                return proxy;
+            }
+            if (resultado == pai) {
+                return proxyPai;
+            }
+            Class<?> tipo = method.getReturnType();
+            if (tipo == Statement.class || tipo == PreparedStatement.class || tipo == CallableStatement.class) {
+                if (fisico == physical) {
+                    synchronized (abertos) {
+                        abertos.add((Statement) resultado);
+                    }
+                }
+            } else if (tipo != ResultSet.class && tipo != DatabaseMetaData.class) {
+                return resultado;
+            }
+            return Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo },
+                    new Derivado(this, resultado, fisico, proxyFisico));
+        }
+
+        /** Statement fechado pelo DAO: não precisa mais ser fechado na devolução */
+        void esquecer(Object fisico) {
+            synchronized (abertos) {
+                abertos.remove(fisico);
+            }
+        }
+
+        /**
+         * Fecha os Statements (e com eles os ResultSets) que o DAO não fechou
+         * @return false se algum não pôde ser fechado
+         */
+        private boolean fecharAbertos() {
+            List<Statement> pendentes;
+            synchronized (abertos) {
+                if (abertos.isEmpty()) {
+                    return true;
+                }
+                pendentes = new ArrayList<>(abertos);
+                abertos.clear();
+            }
+            boolean limpa = true;
+            for (Statement statement : pendentes) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    limpa = false;
+                }
+            }
+            return limpa;
+        }
+    }
+
+    /**
+     * Proxy de um Statement, ResultSet ou DatabaseMetaData criado durante um
+     * empréstimo; deixa de funcionar quando o empréstimo é devolvido
+     */
+    private static final class Derivado implements InvocationHandler {
+        private final Emprestimo emprestimo;
+        private final Object fisico;
+        private final Object pai;
+        private final Object proxyPai;
+
+        Derivado(Emprestimo emprestimo, Object fisico, Object pai, Object proxyPai) {
+            this.emprestimo = emprestimo;
+            this.fisico = fisico;
+            this.pai = pai;
+            this.proxyPai = proxyPai;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    emprestimo.esquecer(fisico);
+                    return invocar(fisico, method, args);
+                case "isClosed":
+                    return !emprestimo.ativo.get() || (Boolean) invocar(fisico, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return fisico.toString();
+                case "unwrap":
+                case "isWrapperFor":
+                    return desembrulhar(proxy, method, (Class<?>) args[0]);
+                default:
+                    emprestimo.verificarAtivo();
+                    return emprestimo.derivar(invocar(fisico, method, args), method, fisico, proxy, pai, proxyPai);
+            }
+        }
+    }
+
+    /**
+     * unwrap/isWrapperFor dos proxies: só o próprio proxy é exposto, nunca o
+     * objeto físico (que continuaria válido depois da devolução)
+     */
+    private static Object desembrulhar(Object proxy, Method method, Class<?> iface) throws SQLException {
+        if ("isWrapperFor".equals(method.getName())) {
+            return iface.isInstance(proxy);
+        }
+        if (iface.isInstance(proxy)) {
+            return proxy;
+        }
+        throw new SQLException("Objeto do pool não pode ser convertido para " + iface.getName());
+    }
+
+    private static Object invocar(Object alvo, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,33 +1,137 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 
 /**
  * Classe utilitária para gerenciar conexões com o banco de dados
  */
 public class DatabaseUtil {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/finanza_db";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "";
+    // Banco de dados (sobrescrevível via -Dfinanza.db.*); backend mysql ou h2 (embutido)
+    private static final String DB_BACKEND = System.getProperty("finanza.db.backend", "mysql");
+    private static final String DB_PATH = System.getProperty("finanza.db.path", "./data/finanza");
+    private static final String DB_URL = System.getProperty("finanza.db.url");
+    private static final String DB_USER = System.getProperty("finanza.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("finanza.db.password", "");
     
-    static {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.err.println("Driver MySQL não encontrado: " + e.getMessage());
+    // Configuração do pool de conexões (sobrescrevível via -Dfinanza.db.pool.*)
+    private static final int POOL_MIN_SIZE = Integer.getInteger("finanza.db.pool.min", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("finanza.db.pool.max", 20);
+    private static final long POOL_MAX_WAIT_MS = Long.getLong("finanza.db.pool.maxWaitMs", 5_000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("finanza.db.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("finanza.db.pool.leakThresholdMs", 60_000L);
+    private static final int POOL_VALIDATION_TIMEOUT_S = Integer.getInteger("finanza.db.pool.validationTimeoutS", 2);
+    
+    /** Pool de conexões compartilhado por todos os DAOs (criado sob demanda) */
+    private static volatile ConnectionPool pool;
+    
+    /** Banco em uso; só pode mudar antes de o pool ser criado */
+    private static volatile Dialeto dialeto = Dialeto.fromString(DB_BACKEND);
+    
+    /**
+     * Escolhe o banco de dados (--db=mysql|h2 do MainServidor)
+     * 
+     * @param novo banco a usar
+     * @throws IllegalStateException se o pool já tiver sido criado
+     */
+    public static void setDialeto(Dialeto novo) {
+        synchronized (DatabaseUtil.class) {
+            if (pool != null && novo != dialeto) {
+                throw new IllegalStateException("Banco de dados já em uso: " + dialeto.getValor());
+            }
+            dialeto = novo;
         }
     }
     
     /**
-     * Obtém uma nova conexão com o banco de dados
+     * Banco de dados em uso (diferenças de SQL entre MySQL e H2)
+     */
+    public static Dialeto getDialeto() {
+        return dialeto;
+    }
+    
+    /**
+     * Obtém uma conexão do pool de conexões
+     * 
+     * A conexão deve ser fechada após o uso (try-with-resources);
+     * o close() a devolve ao pool em vez de encerrar a conexão física.
+     * 
      * @return Connection objeto de conexão
      * @throws SQLException se houver erro na conexão
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        return getPool().getConnection();
+    }
+    
+    /**
+     * Obtém o pool de conexões, criando-o na primeira chamada
+     * @return pool de conexões compartilhado
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool atual = pool;
+        if (atual == null) {
+            synchronized (DatabaseUtil.class) {
+                atual = pool;
+                if (atual == null) {
+                    carregarDriver();
+                    String url = DB_URL != null ? DB_URL : dialeto.urlPadrao(DB_PATH);
+                    atual = new ConnectionPool(url, DB_USER, DB_PASSWORD,
+                            POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_MAX_WAIT_MS,
+                            POOL_IDLE_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS, POOL_VALIDATION_TIMEOUT_S);
+                    pool = atual;
+                }
+            }
+        }
+        return atual;
+    }
+    
+    private static void carregarDriver() {
+        try {
+            Class.forName(dialeto.getDriver());
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver " + dialeto.getValor() + " não encontrado: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Encerra o pool de conexões, fechando as conexões físicas livres
+     */
+    public static void shutdown() {
+        synchronized (DatabaseUtil.class) {
+            if (pool != null) {
+                System.out.println("Pool de conexões: " + pool.getStatistics());
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+    
+    /**
+     * Prepara uma consulta para leitura em streaming
+     * 
+     * O ResultSet é forward-only e somente leitura; com o MySQL Connector/J,
+     * o fetch size Integer.MIN_VALUE faz o driver entregar as linhas uma a uma
+     * em vez de carregar o resultado inteiro na memória (no H2, em blocos; ver
+     * Dialeto). A conexão fica ocupada até o ResultSet ser fechado.
+     * 
+     * Nas listagens do admin isso inclui o tempo de escrita no socket: um
+     * cliente lento segura a conexão do pool enquanto a resposta sai. No
+     * NioFrontEnd a espera pelo cliente é limitada (finanza.nio.writeTimeoutMs);
+     * no front end bloqueante não há prazo de escrita, então finanza.db.pool.max
+     * deve sobrar para os admins conectados ao mesmo tempo.
+     * 
+     * @param connection conexão obtida do pool
+     * @param sql consulta a preparar
+     * @return PreparedStatement configurado para streaming
+     * @throws SQLException se houver erro ao preparar a consulta
+     */
+    public static PreparedStatement prepareStreamingStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(dialeto.getFetchSizeStreaming());
+        return stmt;
     }
     
     /**
@@ -59,86 +163,20 @@ public class DatabaseUtil {
     
     /**
      * Inicializa as tabelas do banco de dados se não existirem
+     * 
+     * Aplica as migrações pendentes (SchemaMigrator); com o banco já na
+     * versão atual é só uma consulta a schema_version.
      */
     public static void initializeDatabase() {
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            
-            // Tabela de usuários
-            stmt.execute("CREATE TABLE IF NOT EXISTS usuario (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "nome VARCHAR(100) NOT NULL, " +
-                    "email VARCHAR(150) UNIQUE NOT NULL, " +
-                    "senha_hash VARCHAR(255) NOT NULL, " +
-                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
-                    ")");
-            
-            // Tabela de contas
-            stmt.execute("CREATE TABLE IF NOT EXISTS conta (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "nome VARCHAR(100) NOT NULL, " +
-                    "tipo ENUM('corrente', 'poupanca', 'cartao', 'investimento', 'dinheiro') NOT NULL, " +
-                    "saldo_inicial DECIMAL(10,2) DEFAULT 0.00, " +
-                    "id_usuario INT NOT NULL, " +
-                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
-                    ")");
-            
-            // Tabela de categorias
-            stmt.execute("CREATE TABLE IF NOT EXISTS categoria (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "nome VARCHAR(100) NOT NULL, " +
-                    "tipo ENUM('receita', 'despesa') NOT NULL, " +
-                    "id_usuario INT NOT NULL, " +
-                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
-                    ")");
-            
-            // Tabela de movimentações
-            stmt.execute("CREATE TABLE IF NOT EXISTS movimentacao (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "valor DECIMAL(10,2) NOT NULL, " +
-                    "data DATE NOT NULL, " +
-                    "descricao TEXT, " +
-                    "tipo ENUM('receita', 'despesa') NOT NULL, " +
-                    "id_conta INT NOT NULL, " +
-                    "id_categoria INT NOT NULL, " +
-                    "id_usuario INT NOT NULL, " +
-                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                    "FOREIGN KEY (id_conta) REFERENCES conta(id) ON DELETE CASCADE, " +
-                    "FOREIGN KEY (id_categoria) REFERENCES categoria(id) ON DELETE CASCADE, " +
-                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
-                    ")");
-            
-            // Criar índices
-            try {
-                stmt.execute("CREATE INDEX idx_movimentacao_data ON movimentacao(data)");
-            } catch (SQLException e) {
-                // Índice já existe, ignorar
+        try (Connection conn = getConnection()) {
+            int aplicadas = SchemaMigrator.migrar(conn);
+            if (aplicadas > 0) {
+                System.out.println("Esquema do banco migrado para a versão " + SchemaMigrator.versaoMaisRecente() +
+                                   " (" + aplicadas + " migração(ões) aplicada(s))");
+            } else {
+                System.out.println("Esquema do banco atualizado (versão " + SchemaMigrator.versaoMaisRecente() + ")");
             }
             
-            try {
-                stmt.execute("CREATE INDEX idx_movimentacao_usuario ON movimentacao(id_usuario)");
-            } catch (SQLException e) {
-                // Índice já existe, ignorar
-            }
-            
-            try {
-                stmt.execute("CREATE INDEX idx_conta_usuario ON conta(id_usuario)");
-            } catch (SQLException e) {
-                // Índice já existe, ignorar
-            }
-            
-            try {
-                stmt.execute("CREATE INDEX idx_categoria_usuario ON categoria(id_usuario)");
-            } catch (SQLException e) {
-                // Índice já existe, ignorar
-            }
-            
-            System.out.println("Tabelas do banco de dados verificadas/criadas com sucesso");
-            
         } catch (SQLException e) {
             System.err.println("Erro ao inicializar banco de dados: " + e.getMessage());
             e.printStackTrace();
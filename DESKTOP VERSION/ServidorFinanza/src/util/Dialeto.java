@@ -0,0 +1,118 @@
+package util;
+
+/**
+ * Banco de dados usado pelo servidor e as diferenças de SQL entre eles
+ *
+ * - MYSQL: servidor MySQL externo (padrão, produção)
+ * - H2: banco embutido no próprio processo, gravado em arquivo local. Roda em
+ *   modo de compatibilidade com o MySQL, então as consultas dos DAOs (FOR
+ *   UPDATE, ON DUPLICATE KEY UPDATE, ENUM, LIMIT) funcionam sem alteração;
+ *   só o que o modo não cobre passa por este enum.
+ *
+ * O banco embutido dispensa a instalação do MySQL em instalações pequenas
+ * (cada consulta é uma chamada de método, sem rede) e permite rodar testes
+ * de carga e integração em qualquer máquina.
+ */
+public enum Dialeto {
+    MYSQL("mysql", "com.mysql.cj.jdbc.Driver"),
+    H2("h2", "org.h2.Driver");
+
+    /** Timeout de espera por trava de linha no H2 (o padrão dele é 1s) */
+    private static final int H2_LOCK_TIMEOUT_MS = 10_000;
+
+    /** Linhas buscadas por vez nas leituras em streaming do H2 */
+    private static final int H2_FETCH_SIZE = 500;
+
+    private final String valor;
+    private final String driver;
+
+    Dialeto(String valor, String driver) {
+        this.valor = valor;
+        this.driver = driver;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    /**
+     * Classe do driver JDBC
+     */
+    public String getDriver() {
+        return driver;
+    }
+
+    public static Dialeto fromString(String banco) {
+        for (Dialeto d : Dialeto.values()) {
+            if (d.getValor().equalsIgnoreCase(banco)) {
+                return d;
+            }
+        }
+        throw new IllegalArgumentException("Banco de dados inválido: " + banco);
+    }
+
+    /**
+     * URL JDBC padrão
+     *
+     * @param caminho arquivo do banco embutido, sem extensão (ignorado no MySQL)
+     */
+    public String urlPadrao(String caminho) {
+        switch (this) {
+            case H2:
+                // MODE=MySQL + DATABASE_TO_LOWER: mesmos tipos, sintaxe e nomes em minúsculas
+                // (DatabaseMetaData do SchemaMigrator procura tabelas e índices pelo nome)
+                return "jdbc:h2:file:" + caminho +
+                       ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE" +
+                       ";LOCK_TIMEOUT=" + H2_LOCK_TIMEOUT_MS;
+            case MYSQL:
+            default:
+                // rewriteBatchedStatements: executeBatch() de INSERTs vira um único INSERT multi-linha (BULK_UPLOAD)
+                return "jdbc:mysql://localhost:3306/finanza_db?rewriteBatchedStatements=true";
+        }
+    }
+
+    /**
+     * Banco no próprio processo (sem servidor externo)
+     */
+    public boolean isEmbutido() {
+        return this != MYSQL;
+    }
+
+    /**
+     * Fetch size das leituras em streaming
+     *
+     * Integer.MIN_VALUE é o sinal do Connector/J para entregar as linhas uma a
+     * uma; o H2 rejeita valores negativos e lê em blocos.
+     */
+    public int getFetchSizeStreaming() {
+        return this == MYSQL ? Integer.MIN_VALUE : H2_FETCH_SIZE;
+    }
+
+    /**
+     * Tipo das colunas de texto livre (descrição)
+     *
+     * No H2, TEXT vira CLOB, que não pode ser comparado com = (busca de
+     * duplicatas); VARCHAR sem tamanho aceita o mesmo conteúdo.
+     */
+    public String getTipoTexto() {
+        return this == MYSQL ? "TEXT" : "VARCHAR";
+    }
+
+    /**
+     * Comando para remover um índice
+     */
+    public String removerIndice(String tabela, String indice) {
+        // No H2 o nome do índice é único no esquema
+        return this == MYSQL ? "DROP INDEX " + indice + " ON " + tabela : "DROP INDEX " + indice;
+    }
+
+    /**
+     * Suporte a travas nomeadas (GET_LOCK/RELEASE_LOCK)
+     *
+     * O arquivo do banco embutido só é aberto por um processo, então não há
+     * outro servidor migrando ao mesmo tempo.
+     */
+    public boolean suportaTravaNomeada() {
+        return this == MYSQL;
+    }
+}
@@ -0,0 +1,331 @@
+package util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Hash de senhas com PBKDF2-HMAC-SHA256 em um executor próprio
+ *
+ * Um KDF lento é caro de propósito; rodando na thread do ClientHandler,
+ * uma rajada de LOGIN ocuparia todos os núcleos e atrasaria os demais
+ * comandos. Aqui o cálculo roda em um pool fixo (metade dos núcleos por
+ * padrão) com fila limitada: com a fila cheia, ou se a espera passar do
+ * timeout, a operação falha na hora com SobrecargaException e o cliente
+ * recebe "servidor ocupado", em vez de enfileirar sem limite.
+ *
+ * O número de iterações é calibrado na inicialização para que um hash leve
+ * cerca de finanza.hash.alvoMs nesta máquina (nunca menos que
+ * MIN_ITERACOES) e vai gravado no próprio hash:
+ *
+ *   pbkdf2-sha256$iteracoes$sal$hash   (sal e hash em Base64 sem padding)
+ *
+ * Hashes antigos (SHA-256 puro em Base64) continuam sendo aceitos;
+ * precisaRehash() indica que o hash deve ser regravado no formato atual,
+ * o que os repositórios fazem no login bem-sucedido (rehashAsync).
+ *
+ * Configuração (-Dfinanza.hash.*): threads, fila, alvoMs, iteracoes
+ * (fixa o valor e desliga a calibração) e timeoutMs.
+ *
+ * Instância única por processo, como o pool de conexões do DatabaseUtil.
+ */
+public final class PasswordHasher {
+
+    /** Falha rápida: executor de hash saturado */
+    public static final class SobrecargaException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SobrecargaException(String mensagem) {
+            super(mensagem);
+        }
+    }
+
+    static final String PREFIXO = "pbkdf2-sha256$";
+    static final int MIN_ITERACOES = 10_000;
+    private static final int MAX_ITERACOES = 5_000_000;
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int BYTES_SAL = 16;
+    private static final int BITS_HASH = 256;
+
+    private static final int THREADS = Integer.getInteger("finanza.hash.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int FILA = Integer.getInteger("finanza.hash.fila", 64);
+    private static final long ALVO_MS = Long.getLong("finanza.hash.alvoMs", 100L);
+    private static final int ITERACOES_FIXAS = Integer.getInteger("finanza.hash.iteracoes", 0);
+    private static final long TIMEOUT_MS = Long.getLong("finanza.hash.timeoutMs", 5000L);
+
+    private static PasswordHasher instance;
+
+    private final int iteracoes;
+    private final long calibracaoMs;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom aleatorio = new SecureRandom();
+
+    // Métricas
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder verificacoes = new LongAdder();
+    private final LongAdder legados = new LongAdder();
+    private final LongAdder rehashes = new LongAdder();
+    private final LongAdder rejeitadas = new LongAdder();
+    private final LongAdder somaNanos = new LongAdder();
+
+    private PasswordHasher(int iteracoes, long calibracaoMs) {
+        this.iteracoes = iteracoes;
+        this.calibracaoMs = calibracaoMs;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                Math.max(1, THREADS), Math.max(1, THREADS),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, FILA)),
+                r -> {
+                    Thread t = new Thread(r, "finanza-hash-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Instância do processo; a primeira chamada calibra as iterações
+     * (o FinanzaServer chama na inicialização, antes das conexões)
+     */
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            long inicio = System.nanoTime();
+            int n = ITERACOES_FIXAS > 0 ? ITERACOES_FIXAS : calibrar(ALVO_MS);
+            instance = new PasswordHasher(n, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        }
+        return instance;
+    }
+
+    /**
+     * Iterações para um hash levar cerca de alvoMs nesta máquina
+     */
+    private static int calibrar(long alvoMs) {
+        byte[] sal = new byte[BYTES_SAL];
+        char[] senha = "calibracao".toCharArray();
+        long alvoNanos = TimeUnit.MILLISECONDS.toNanos(alvoMs);
+        // Primeiras rodadas aquecem o JIT (a estimativa sai pessimista);
+        // a segunda medida já é do tamanho do alvo e corrige a primeira
+        int n = MIN_ITERACOES;
+        for (int rodada = 0; rodada < 3; rodada++) {
+            long melhor = Long.MAX_VALUE;
+            for (int i = 0; i < 3; i++) {
+                long inicio = System.nanoTime();
+                pbkdf2(senha, sal, n);
+                melhor = Math.min(melhor, System.nanoTime() - inicio);
+            }
+            long estimado = (long) ((double) n * alvoNanos / Math.max(1, melhor));
+            n = (int) Math.max(MIN_ITERACOES, Math.min(MAX_ITERACOES, (estimado / 1000) * 1000));
+        }
+        return n;
+    }
+
+    /**
+     * Gera o hash de uma senha no executor de hash
+     * @throws SobrecargaException se o executor estiver saturado
+     */
+    public String hash(String senha) {
+        return executar(() -> gerarHash(senha));
+    }
+
+    /**
+     * Verifica a senha contra o hash guardado (formato atual ou legado)
+     * @throws SobrecargaException se o executor estiver saturado
+     */
+    public boolean verificar(String senha, String hashGuardado) {
+        if (senha == null || hashGuardado == null) {
+            return false;
+        }
+        if (!hashGuardado.startsWith(PREFIXO)) {
+            // SHA-256 puro: barato, não precisa do executor
+            legados.increment();
+            return MessageDigest.isEqual(
+                    hashLegado(senha).getBytes(StandardCharsets.US_ASCII),
+                    hashGuardado.getBytes(StandardCharsets.US_ASCII));
+        }
+        return executar(() -> conferir(senha, hashGuardado));
+    }
+
+    /**
+     * Hash em formato antigo ou com menos iterações que as atuais
+     */
+    public boolean precisaRehash(String hashGuardado) {
+        if (hashGuardado == null || !hashGuardado.startsWith(PREFIXO)) {
+            return true;
+        }
+        String[] partes = hashGuardado.split("\\$");
+        try {
+            // Folga de 25%: a calibração varia um pouco a cada inicialização
+            return partes.length != 4 || Integer.parseInt(partes[1]) < iteracoes - iteracoes / 4;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Gera o novo hash em segundo plano e entrega ao gravador (na thread de
+     * hash); com o executor saturado não faz nada: tenta no próximo login
+     */
+    public void rehashAsync(String senha, Consumer<String> gravador) {
+        try {
+            executor.execute(() -> {
+                long inicio = System.nanoTime();
+                String novo = gerarHash(senha);
+                somaNanos.add(System.nanoTime() - inicio);
+                gravador.accept(novo);
+                rehashes.increment();
+            });
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+        }
+    }
+
+    private interface Calculo<T> {
+        T calcular();
+    }
+
+    private <T> T executar(Calculo<T> calculo) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(() -> {
+                long inicio = System.nanoTime();
+                try {
+                    return calculo.calcular();
+                } finally {
+                    somaNanos.add(System.nanoTime() - inicio);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+            throw new SobrecargaException("Fila de hash de senhas cheia");
+        }
+        try {
+            return futuro.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            rejeitadas.increment();
+            throw new SobrecargaException("Tempo esgotado aguardando o hash da senha");
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SobrecargaException("Interrompido aguardando o hash da senha");
+        } catch (ExecutionException | CancellationException e) {
+            throw new IllegalStateException("Erro ao calcular hash da senha", e);
+        }
+    }
+
+    private String gerarHash(String senha) {
+        byte[] sal = new byte[BYTES_SAL];
+        aleatorio.nextBytes(sal);
+        byte[] hash = pbkdf2(senha.toCharArray(), sal, iteracoes);
+        hashes.increment();
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIXO + iteracoes + "$" + base64.encodeToString(sal) + "$" + base64.encodeToString(hash);
+    }
+
+    private boolean conferir(String senha, String hashGuardado) {
+        verificacoes.increment();
+        String[] partes = hashGuardado.split("\\$");
+        if (partes.length != 4) {
+            return false;
+        }
+        try {
+            int n = Integer.parseInt(partes[1]);
+            byte[] sal = Base64.getDecoder().decode(partes[2]);
+            byte[] esperado = Base64.getDecoder().decode(partes[3]);
+            return MessageDigest.isEqual(esperado, pbkdf2(senha.toCharArray(), sal, n));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(char[] senha, byte[] sal, int iteracoes) {
+        PBEKeySpec spec = new PBEKeySpec(senha, sal, iteracoes, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // PBKDF2WithHmacSHA256 faz parte de toda JVM
+            throw new IllegalStateException("PBKDF2 indisponível", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Formato antigo: SHA-256 da senha em Base64
+     */
+    static String hashLegado(String senha) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(senha.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // ========== MÉTRICAS ==========
+
+    public int getIteracoes() {
+        return iteracoes;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /** Hashes sendo calculados agora */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /** Pedidos aguardando uma thread de hash */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /** Pedidos recusados por fila cheia ou timeout */
+    public long getRejectedCount() {
+        return rejeitadas.sum();
+    }
+
+    /** Senhas regravadas no formato atual após o login */
+    public long getRehashCount() {
+        return rehashes.sum();
+    }
+
+    /** Tempo médio de um hash/verificação PBKDF2 */
+    public double getTempoMedioMs() {
+        long n = hashes.sum() + verificacoes.sum();
+        return n == 0 ? 0 : somaNanos.sum() / (n * 1_000_000.0);
+    }
+
+    /**
+     * Resumo da configuração e das métricas (log do servidor)
+     */
+    public String getStatistics() {
+        return String.format(Locale.US,
+                "iteracoes=%d (calibrado em %dms), threads=%d, fila=%d/%d, hashes=%d, verificacoes=%d, " +
+                "legados=%d, rehash=%d, rejeitadas=%d, medio=%.1fms",
+                iteracoes, calibracaoMs, getThreads(), getQueuedCount(), Math.max(1, FILA),
+                hashes.sum(), verificacoes.sum(), legados.sum(), getRehashCount(), getRejectedCount(),
+                getTempoMedioMs());
+    }
+}
@@ -0,0 +1,380 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Migrações versionadas do esquema do banco de dados
+ *
+ * A tabela schema_version guarda as migrações já aplicadas. Na inicialização
+ * uma única consulta (MAX(versao)) basta quando o banco já está atualizado;
+ * caso contrário as migrações pendentes rodam em ordem, sob uma trava nomeada
+ * do MySQL (dois servidores subindo juntos não migram ao mesmo tempo). O
+ * mesmo DDL serve para o H2 embutido (modo MySQL); as poucas diferenças vêm
+ * do Dialeto.
+ *
+ * DDL no MySQL não é transacional: cada migração é gravada em schema_version
+ * logo após terminar, e todos os passos verificam se a coluna ou o índice já
+ * existe. Assim uma migração interrompida pode rodar de novo, e bancos criados
+ * antes deste controle (sem schema_version) são trazidos à versão atual sem
+ * erro. Novas alterações de esquema entram como uma nova migração no fim da
+ * lista; migrações já publicadas não devem ser editadas.
+ */
+public final class SchemaMigrator {
+
+    /** Nome da trava (GET_LOCK) usada durante a migração */
+    private static final String TRAVA = "finanza_schema_migration";
+    private static final int TRAVA_TIMEOUT_S = 60;
+
+    /**
+     * Passo de uma migração
+     */
+    @FunctionalInterface
+    private interface Passo {
+        void executar(Connection conn, Dialeto dialeto) throws SQLException;
+    }
+
+    /**
+     * Migração numerada
+     */
+    private static final class Migracao {
+        final int versao;
+        final String descricao;
+        final Passo passo;
+
+        Migracao(int versao, String descricao, Passo passo) {
+            this.versao = versao;
+            this.descricao = descricao;
+            this.passo = passo;
+        }
+    }
+
+    /** Migrações em ordem de versão */
+    private static final List<Migracao> MIGRACOES = Arrays.asList(
+        new Migracao(1, "Tabelas base", SchemaMigrator::tabelasBase),
+        new Migracao(2, "Versões da sincronização incremental", SchemaMigrator::versoesSync),
+        new Migracao(3, "Saldo atual das contas", SchemaMigrator::saldoAtual),
+        new Migracao(4, "Índices compostos dos caminhos de acesso", SchemaMigrator::indicesCompostos),
+        new Migracao(5, "Tipo de usuário", SchemaMigrator::tipoUsuario),
+        new Migracao(6, "Índice da listagem paginada do admin", SchemaMigrator::indiceListagemAdmin)
+    );
+
+    private SchemaMigrator() {}
+
+    /**
+     * Versão do esquema esperada por este servidor
+     */
+    public static int versaoMaisRecente() {
+        return MIGRACOES.get(MIGRACOES.size() - 1).versao;
+    }
+
+    /**
+     * Aplica as migrações pendentes
+     *
+     * @param conn conexão em auto-commit
+     * @return número de migrações aplicadas (0 se o banco já estava atualizado)
+     * @throws SQLException se uma migração falhar (as anteriores ficam gravadas)
+     */
+    public static int migrar(Connection conn) throws SQLException {
+        if (versaoAtual(conn) >= versaoMaisRecente()) {
+            return 0;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "versao INT PRIMARY KEY, " +
+                    "descricao VARCHAR(200) NOT NULL, " +
+                    "aplicada_em TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+        }
+
+        Dialeto dialeto = DatabaseUtil.getDialeto();
+        if (dialeto.suportaTravaNomeada()) {
+            travar(conn);
+        }
+        try {
+            // Outro servidor pode ter migrado enquanto esperávamos a trava
+            int atual = versaoAtual(conn);
+            int aplicadas = 0;
+            for (Migracao migracao : MIGRACOES) {
+                if (migracao.versao <= atual) {
+                    continue;
+                }
+                long inicio = System.nanoTime();
+                migracao.passo.executar(conn, dialeto);
+                registrar(conn, migracao);
+                aplicadas++;
+                System.out.println("✓ Migração " + migracao.versao + " aplicada: " + migracao.descricao +
+                        " (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + "ms)");
+            }
+            return aplicadas;
+        } finally {
+            if (dialeto.suportaTravaNomeada()) {
+                destravar(conn);
+            }
+        }
+    }
+
+    /**
+     * Última migração aplicada
+     *
+     * @return versão atual, ou 0 se schema_version ainda não existir
+     */
+    public static int versaoAtual(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(versao) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            // Tabela ainda não existe
+            return 0;
+        }
+    }
+
+    private static void registrar(Connection conn, Migracao migracao) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_version (versao, descricao) VALUES (?, ?)")) {
+            stmt.setInt(1, migracao.versao);
+            stmt.setString(2, migracao.descricao);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void travar(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, TRAVA);
+            stmt.setInt(2, TRAVA_TIMEOUT_S);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Tempo esgotado aguardando a migração de outro servidor");
+                }
+            }
+        }
+    }
+
+    private static void destravar(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, TRAVA);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            // A trava é liberada de qualquer forma quando a conexão fecha
+        }
+    }
+
+    // ========== MIGRAÇÕES ==========
+
+    /**
+     * 1: tabelas do sistema
+     */
+    private static void tabelasBase(Connection conn, Dialeto dialeto) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Tabela de usuários
+            stmt.execute("CREATE TABLE IF NOT EXISTS usuario (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "nome VARCHAR(100) NOT NULL, " +
+                    "email VARCHAR(150) UNIQUE NOT NULL, " +
+                    "senha_hash VARCHAR(255) NOT NULL, " +
+                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                    ")");
+
+            // Tabela de contas
+            stmt.execute("CREATE TABLE IF NOT EXISTS conta (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "nome VARCHAR(100) NOT NULL, " +
+                    "tipo ENUM('corrente', 'poupanca', 'cartao', 'investimento', 'dinheiro') NOT NULL, " +
+                    "saldo_inicial DECIMAL(10,2) DEFAULT 0.00, " +
+                    "id_usuario INT NOT NULL, " +
+                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
+                    ")");
+
+            // Tabela de categorias
+            stmt.execute("CREATE TABLE IF NOT EXISTS categoria (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "nome VARCHAR(100) NOT NULL, " +
+                    "tipo ENUM('receita', 'despesa') NOT NULL, " +
+                    "id_usuario INT NOT NULL, " +
+                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
+                    ")");
+
+            // Tabela de movimentações
+            stmt.execute("CREATE TABLE IF NOT EXISTS movimentacao (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "valor DECIMAL(10,2) NOT NULL, " +
+                    "data DATE NOT NULL, " +
+                    "descricao " + dialeto.getTipoTexto() + ", " +
+                    "tipo ENUM('receita', 'despesa') NOT NULL, " +
+                    "id_conta INT NOT NULL, " +
+                    "id_categoria INT NOT NULL, " +
+                    "id_usuario INT NOT NULL, " +
+                    "data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                    "data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                    "FOREIGN KEY (id_conta) REFERENCES conta(id) ON DELETE CASCADE, " +
+                    "FOREIGN KEY (id_categoria) REFERENCES categoria(id) ON DELETE CASCADE, " +
+                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
+                    ")");
+        }
+    }
+
+    /**
+     * 2: contador de versão por usuário, versão por linha e exclusões
+     * registradas (sincronização incremental)
+     *
+     * Registros existentes ficam na versão 1: um cliente que pede desde 0 recebe tudo.
+     */
+    private static void versoesSync(Connection conn, Dialeto dialeto) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS exclusao_sync (" +
+                    "entidade VARCHAR(20) NOT NULL, " +
+                    "id_registro INT NOT NULL, " +
+                    "id_usuario INT NOT NULL, " +
+                    "versao BIGINT NOT NULL, " +
+                    "PRIMARY KEY (entidade, id_registro), " +
+                    "FOREIGN KEY (id_usuario) REFERENCES usuario(id) ON DELETE CASCADE" +
+                    ")");
+        }
+
+        adicionarColuna(conn, "usuario", "versao_sync", "BIGINT NOT NULL DEFAULT 1");
+        adicionarColuna(conn, "conta", "versao", "BIGINT NOT NULL DEFAULT 1");
+        adicionarColuna(conn, "categoria", "versao", "BIGINT NOT NULL DEFAULT 1");
+        adicionarColuna(conn, "movimentacao", "versao", "BIGINT NOT NULL DEFAULT 1");
+
+        // "Alterações desde a versão X" de cada usuário
+        criarIndice(conn, "conta", "idx_conta_usuario_versao", "id_usuario, versao");
+        criarIndice(conn, "categoria", "idx_categoria_usuario_versao", "id_usuario, versao");
+        criarIndice(conn, "movimentacao", "idx_movimentacao_usuario_versao", "id_usuario, versao");
+        criarIndice(conn, "exclusao_sync", "idx_exclusao_sync_usuario_versao", "id_usuario, entidade, versao");
+    }
+
+    /**
+     * 3: saldo atual mantido a cada movimentação, preenchido uma vez com a
+     * soma completa; depois só recebe as diferenças
+     */
+    private static void saldoAtual(Connection conn, Dialeto dialeto) throws SQLException {
+        if (!adicionarColuna(conn, "conta", "saldo_atual", "DECIMAL(15,2) NOT NULL DEFAULT 0.00 AFTER saldo_inicial")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE conta c SET c.saldo_atual = c.saldo_inicial + " +
+                    "(SELECT COALESCE(SUM(CASE WHEN m.tipo = 'receita' THEN m.valor " +
+                    "WHEN m.tipo = 'despesa' THEN -m.valor ELSE 0 END), 0) " +
+                    "FROM movimentacao m WHERE m.id_conta = c.id)");
+        }
+    }
+
+    /**
+     * 4: índices compostos nos caminhos de acesso reais dos DAOs
+     *
+     * O InnoDB acrescenta a chave primária (id) ao fim de cada índice, então
+     * (id_usuario, data) já ordena por data e id. Os índices de uma coluna
+     * só (data, id_usuario) ficam redundantes e são removidos depois que os
+     * compostos existem (um índice de FK só pode sair se outro o substituir).
+     */
+    private static void indicesCompostos(Connection conn, Dialeto dialeto) throws SQLException {
+        // Listagens e paginação por usuário: WHERE id_usuario [AND data ...] ORDER BY data DESC, id DESC
+        criarIndice(conn, "movimentacao", "idx_movimentacao_usuario_data_id", "id_usuario, data, id");
+        // Listagem e paginação por conta; soma da reconciliação de saldos (id_conta)
+        criarIndice(conn, "movimentacao", "idx_movimentacao_conta_data_id", "id_conta, data, id");
+        // Listagem por categoria e verificação de uso (estaEmUso)
+        criarIndice(conn, "movimentacao", "idx_movimentacao_categoria_data_id", "id_categoria, data, id");
+        // Duplicata em inserir(): igualdade em conta, data e valor; descrição conferida na linha
+        criarIndice(conn, "movimentacao", "idx_movimentacao_duplicata", "id_conta, data, valor");
+        // Totais de receitas/despesas do período: cobre o SUM(valor) sem ler a linha
+        criarIndice(conn, "movimentacao", "idx_movimentacao_usuario_tipo_data", "id_usuario, tipo, data, valor");
+        // Contas por usuário ORDER BY nome e busca por nome
+        criarIndice(conn, "conta", "idx_conta_usuario_nome", "id_usuario, nome");
+        // Categorias por usuário ORDER BY tipo, nome e busca por nome e tipo
+        criarIndice(conn, "categoria", "idx_categoria_usuario_tipo_nome", "id_usuario, tipo, nome");
+
+        removerIndice(conn, dialeto, "movimentacao", "idx_movimentacao_data");
+        removerIndice(conn, dialeto, "movimentacao", "idx_movimentacao_usuario");
+        removerIndice(conn, dialeto, "conta", "idx_conta_usuario");
+        removerIndice(conn, dialeto, "categoria", "idx_categoria_usuario");
+    }
+
+    /**
+     * 5: coluna tipo_usuario (admin/usuario), antes só criada pelo script
+     * banco/migration_add_tipo_usuario.sql; bancos novos (inclusive o H2
+     * embutido) não conseguiam registrar usuários sem ela
+     *
+     * Como no script, o primeiro usuário de um banco existente vira admin.
+     */
+    private static void tipoUsuario(Connection conn, Dialeto dialeto) throws SQLException {
+        if (!adicionarColuna(conn, "usuario", "tipo_usuario",
+                "ENUM('admin', 'usuario') NOT NULL DEFAULT 'usuario' AFTER senha_hash")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE usuario SET tipo_usuario = 'admin' WHERE id = 1");
+        }
+    }
+
+    /**
+     * 6: a tabela de movimentações do painel admin pede páginas de todos os
+     * usuários em ORDER BY data DESC, id DESC; sem um índice que comece pela
+     * data, cada página ordenaria a tabela inteira
+     */
+    private static void indiceListagemAdmin(Connection conn, Dialeto dialeto) throws SQLException {
+        criarIndice(conn, "movimentacao", "idx_movimentacao_data_id", "data, id");
+    }
+
+    // ========== PASSOS IDEMPOTENTES ==========
+
+    /**
+     * Adiciona a coluna se ainda não existir
+     * @return true se a coluna foi criada agora
+     */
+    private static boolean adicionarColuna(Connection conn, String tabela, String coluna, String definicao)
+            throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, tabela, coluna)) {
+            if (rs.next()) {
+                return false;
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + tabela + " ADD COLUMN " + coluna + " " + definicao);
+        }
+        return true;
+    }
+
+    private static void criarIndice(Connection conn, String tabela, String indice, String colunas)
+            throws SQLException {
+        if (indiceExiste(conn, tabela, indice)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + indice + " ON " + tabela + "(" + colunas + ")");
+        }
+    }
+
+    private static void removerIndice(Connection conn, Dialeto dialeto, String tabela, String indice)
+            throws SQLException {
+        if (!indiceExiste(conn, tabela, indice)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialeto.removerIndice(tabela, indice));
+        }
+    }
+
+    private static boolean indiceExiste(Connection conn, String tabela, String indice) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, tabela, false, true)) {
+            while (rs.next()) {
+                if (indice.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -1,39 +1,39 @@
 package util;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.util.Base64;
-
 /**
  * Classe utilitária para operações de segurança e criptografia
  */
 public class SecurityUtil {
     
     /**
-     * Gera hash SHA-256 de uma senha
+     * Gera hash de uma senha (PBKDF2, no executor de hash de senhas)
      * @param senha senha original
-     * @return hash da senha
+     * @return hash da senha no formato pbkdf2-sha256$iteracoes$sal$hash
+     * @throws PasswordHasher.SobrecargaException se o executor estiver saturado
      */
     public static String hashSenha(String senha) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(senha.getBytes("UTF-8"));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao gerar hash da senha", e);
-        }
+        return PasswordHasher.getInstance().hash(senha);
     }
     
     /**
-     * Verifica se uma senha corresponde ao hash
+     * Verifica se uma senha corresponde ao hash (formato atual ou SHA-256 antigo)
      * @param senha senha a verificar
      * @param hash hash armazenado
      * @return true se a senha estiver correta
+     * @throws PasswordHasher.SobrecargaException se o executor estiver saturado
      */
     public static boolean verificarSenha(String senha, String hash) {
-        String senhaHash = hashSenha(senha);
-        return senhaHash.equals(hash);
+        return PasswordHasher.getInstance().verificar(senha, hash);
+    }
+    
+    /**
+     * Indica se o hash guardado deve ser regravado no formato atual
+     * (SHA-256 antigo ou menos iterações que as calibradas)
+     * @param hash hash armazenado
+     * @return true se o hash estiver desatualizado
+     */
+    public static boolean precisaRehash(String hash) {
+        return PasswordHasher.getInstance().precisaRehash(hash);
     }
     
     /**
@@ -218,6 +218,55 @@ public class AuthManager {
         });
     }
 
+    /**
+     * Reconecta ao servidor retomando a sessão do último login
+     * 
+     * Para o usuário que já está logado localmente (app reaberto, conexão
+     * perdida): envia RESUME com o token guardado em vez de LOGIN e não
+     * dispara a sincronização completa, pois os dados locais continuam
+     * válidos. Se a sessão tiver expirado, faz o login completo com as
+     * credenciais locais (e aí sim sincroniza).
+     * 
+     * @param callback Callback para resultado da operação
+     */
+    public void retomarSessao(AuthCallback callback) {
+        Usuario usuarioLocal = getLoggedUser();
+        if (usuarioLocal == null) {
+            callback.onError("Nenhum usuário logado");
+            return;
+        }
+        if (!serverClient.temSessao()) {
+            login(usuarioLocal.email, usuarioLocal.senha, callback);
+            return;
+        }
+
+        serverClient.conectar(new ServerClient.ServerCallback<String>() {
+            @Override
+            public void onSuccess(String connectionResult) {
+                serverClient.retomarSessao(new ServerClient.ServerCallback<String>() {
+                    @Override
+                    public void onSuccess(String result) {
+                        Log.d(TAG, "Sessão retomada no servidor: " + usuarioLocal.email);
+                        callback.onSuccess(usuarioLocal);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Log.d(TAG, "Sessão não retomada (" + error + "), refazendo login");
+                        login(usuarioLocal.email, usuarioLocal.senha, callback);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                // Servidor indisponível: segue offline com a sessão local
+                Log.d(TAG, "Falha na conexão com servidor: " + error);
+                callback.onSuccess(usuarioLocal);
+            }
+        });
+    }
+
     /**
      * Registra um novo usuário no sistema
      * 
@@ -433,10 +482,8 @@ public class AuthManager {
      * Faz logout
      */
     public void logout() {
-        // Desconecta do servidor se conectado
-        if (serverClient.isConnected()) {
-            serverClient.disconnect();
-        }
+        // Encerra a sessão no servidor (LOGOUT) e desconecta
+        serverClient.encerrarSessao();
 
         // Limpa sessão local
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
@@ -46,6 +46,32 @@ public class Protocol {
     /** Separador para compatibilidade com código existente */
     public static final String SEPARATOR = "|";
     
+    /**
+     * Prefixo do ID de requisição (pipelining)
+     * Formato: #id|COMANDO|... → resposta #id|STATUS|dados
+     * Com ID, várias requisições ficam em voo na mesma conexão e o servidor
+     * responde na ordem em que terminar; sem ID, uma por vez e em ordem.
+     */
+    public static final String REQUEST_ID_PREFIX = "#";
+    
+    /** Requisições com ID em voo por conexão antes de o servidor parar de ler */
+    public static final int MAX_IN_FLIGHT = 64;
+    
+    /**
+     * Negociação do formato da conexão, enviada sem ID logo após conectar
+     * Formato: SET_FORMAT|binary → OK|binary e a conexão passa a usar frames
+     * binários com campos tipados (ver BinaryCodec)
+     */
+    public static final String CMD_SET_FORMAT = "SET_FORMAT";
+    
+    /**
+     * Compressão das respostas grandes, negociada por conexão
+     * Formato: SET_COMPRESSION|deflate|limiarBytes → OK|deflate|limiarBytes
+     * Respostas acima do limiar chegam como COMPRESSED|tamanho|tamanhoOriginal
+     * seguido dos bytes deflate (ver ResponseDecompressor)
+     */
+    public static final String CMD_SET_COMPRESSION = "SET_COMPRESSION";
+    
     // ================== CÓDIGOS DE STATUS ==================
     
     /** Operação executada com sucesso */
@@ -72,6 +98,9 @@ public class Protocol {
     /** Registro duplicado detectado */
     public static final String STATUS_DUPLICATE = "DUPLICATE";
     
+    /** Cabeçalho de resposta comprimida (após SET_COMPRESSION) */
+    public static final String STATUS_COMPRESSED = "COMPRESSED";
+    
     // ================== COMANDOS DE AUTENTICAÇÃO ==================
     
     /** Comando para realizar login */
@@ -83,6 +112,28 @@ public class Protocol {
     /** Comando para realizar logout */
     public static final String CMD_LOGOUT = "LOGOUT";
     
+    /**
+     * Comando para retomar a sessão em uma nova conexão, sem refazer o login
+     * RESUME|token|mobile → OK|id;nome;email;tipo;token
+     * O token é o último campo da resposta do LOGIN/REGISTER
+     */
+    public static final String CMD_RESUME = "RESUME";
+    
+    /**
+     * Comando para receber as alterações feitas pelas outras sessões do usuário
+     * SUBSCRIBE → OK|usuario; SUBSCRIBE|off → OK|off
+     * Depois dele o servidor envia, sem requisição, linhas com o ID reservado:
+     * #0|NOTIFY|entidade|operacao|id|versao|idUsuario
+     * (operacao ADD, UPDATE, DELETE ou BULK; no BULK o id é 0)
+     */
+    public static final String CMD_SUBSCRIBE = "SUBSCRIBE";
+    
+    /** Status das notificações enviadas após SUBSCRIBE */
+    public static final String NOTIFY = "NOTIFY";
+    
+    /** ID de requisição reservado às notificações (nunca usado pelo cliente) */
+    public static final String NOTIFY_REQUEST_ID = "0";
+    
     /** Comando para obter dados do dashboard */
     public static final String CMD_GET_DASHBOARD = "GET_DASHBOARD";
     
@@ -151,23 +202,49 @@ public class Protocol {
     /** Comando para excluir movimentação */
     public static final String CMD_DELETE_MOVIMENTACAO = "DELETE_MOVIMENTACAO";
     
+    /** Comando para listar movimentações paginadas por cursor (keyset) */
+    public static final String CMD_LIST_MOVIMENTACOES_PAGE = "LIST_MOVIMENTACOES_PAGE";
+    
+    /** Comando para listar movimentações de um período paginadas por cursor */
+    public static final String CMD_LIST_MOVIMENTACOES_PERIODO_PAGE = "LIST_MOVIMENTACOES_PERIODO_PAGE";
+    
+    /** Comando para listar movimentações de uma conta paginadas por cursor */
+    public static final String CMD_LIST_MOVIMENTACOES_CONTA_PAGE = "LIST_MOVIMENTACOES_CONTA_PAGE";
+    
+    /** Tamanho máximo de página aceito pelo servidor */
+    public static final int MAX_PAGE_SIZE = 500;
+    
     // ================== COMANDOS DE SINCRONIZAÇÃO AVANÇADA ==================
     
     /** Comando para verificar status de sincronização do servidor */
     public static final String CMD_SYNC_STATUS = "SYNC_STATUS";
     
-    /** Comando para executar sincronização incremental (apenas alterações) */
+    /**
+     * Comando para verificar quais entidades mudaram desde uma versão
+     * Resposta: OK|versaoAtual|categoria,conta,movimentacao (apenas as alteradas)
+     */
     public static final String CMD_INCREMENTAL_SYNC = "INCREMENTAL_SYNC";
     
-    /** Comando para listar mudanças no servidor desde um timestamp específico */
+    /**
+     * Comando para listar mudanças de uma entidade desde uma versão de sincronização
+     * Resposta: OK|versaoAtual|registro;registro;...|idExcluido,idExcluido,...
+     */
     public static final String CMD_LIST_CHANGES_SINCE = "LIST_CHANGES_SINCE";
     
     /** Comando para resolver conflito de sincronização */
     public static final String CMD_RESOLVE_CONFLICT = "RESOLVE_CONFLICT";
     
-    /** Comando para enviar múltiplos registros de uma vez (otimização) */
+    /**
+     * Comando para enviar múltiplos registros de uma vez (otimização)
+     * Formato: BULK_UPLOAD|entidade|item;item;... (campos do ADD_* correspondente,
+     * separados por ',' e codificados com URL encoding)
+     * Resposta: OK|id;id;... (ID do servidor de cada item, na mesma ordem)
+     */
     public static final String CMD_BULK_UPLOAD = "BULK_UPLOAD";
     
+    /** Número máximo de itens aceito pelo servidor em um BULK_UPLOAD */
+    public static final int MAX_BULK_ITEMS = 1000;
+    
     /** Comando para verificar integridade dos dados sincronizados */
     public static final String CMD_VERIFY_INTEGRITY = "VERIFY_INTEGRITY";
     
@@ -364,11 +441,49 @@ public class Protocol {
                           String.valueOf(lastModified), String.valueOf(isDeleted));
     }
     
+    /**
+     * Monta comando de página de movimentações: LIST_MOVIMENTACOES_PAGE|limite|cursor
+     * 
+     * @param limite Número de movimentações por página (1 a MAX_PAGE_SIZE)
+     * @param cursor Cursor devolvido pela página anterior, ou null para a primeira
+     * @return Comando formatado
+     */
+    public static String buildListMovimentacoesPageCommand(int limite, String cursor) {
+        return buildCommand(CMD_LIST_MOVIMENTACOES_PAGE, String.valueOf(limite), cursor);
+    }
+    
+    /**
+     * Monta comando de página de movimentações por período (datas yyyy-MM-dd)
+     */
+    public static String buildListMovimentacoesPeriodoPageCommand(String dataInicio, String dataFim,
+                                                                 int limite, String cursor) {
+        return buildCommand(CMD_LIST_MOVIMENTACOES_PERIODO_PAGE, dataInicio, dataFim,
+                String.valueOf(limite), cursor);
+    }
+    
+    /**
+     * Monta comando de página de movimentações de uma conta
+     */
+    public static String buildListMovimentacoesContaPageCommand(int contaId, int limite, String cursor) {
+        return buildCommand(CMD_LIST_MOVIMENTACOES_CONTA_PAGE, String.valueOf(contaId),
+                String.valueOf(limite), cursor);
+    }
+    
     /**
      * Build incremental sync command
+     * 
+     * @param entityType categoria, conta ou movimentacao
+     * @param sinceVersion versaoAtual recebida na última sincronização (0 = tudo)
+     */
+    public static String buildIncrementalSyncCommand(String entityType, long sinceVersion) {
+        return buildCommand(CMD_LIST_CHANGES_SINCE, entityType, String.valueOf(sinceVersion));
+    }
+    
+    /**
+     * Monta comando que verifica quais entidades mudaram desde uma versão
      */
-    public static String buildIncrementalSyncCommand(String entityType, long sinceTimestamp) {
-        return buildCommand(CMD_LIST_CHANGES_SINCE, entityType, String.valueOf(sinceTimestamp));
+    public static String buildIncrementalSyncStatusCommand(long sinceVersion) {
+        return buildCommand(CMD_INCREMENTAL_SYNC, String.valueOf(sinceVersion));
     }
     
     /**
@@ -380,9 +495,32 @@ public class Protocol {
     
     /**
      * Build bulk upload command for efficient batch operations
+     * 
+     * Cada item é a lista de campos do ADD_* da entidade, por exemplo para
+     * movimentacao: valor, data (yyyy-MM-dd), descricao, tipo, contaId, categoriaId.
+     * Os campos são codificados para que descrições possam conter | ; ,
+     * 
+     * @param entityType categoria, conta ou movimentacao
+     * @param itens Campos de cada item (no máximo MAX_BULK_ITEMS itens)
      */
-    public static String buildBulkUploadCommand(String entityType, String dataJson) {
-        return buildCommand(CMD_BULK_UPLOAD, entityType, dataJson);
+    public static String buildBulkUploadCommand(String entityType, java.util.List<String[]> itens) {
+        StringBuilder dados = new StringBuilder();
+        for (String[] campos : itens) {
+            if (dados.length() > 0) {
+                dados.append(FIELD_SEPARATOR);
+            }
+            for (int i = 0; i < campos.length; i++) {
+                if (i > 0) {
+                    dados.append(DATA_SEPARATOR);
+                }
+                try {
+                    dados.append(java.net.URLEncoder.encode(campos[i] != null ? campos[i] : "", "UTF-8"));
+                } catch (java.io.UnsupportedEncodingException e) {
+                    throw new IllegalStateException("UTF-8 não suportado", e);
+                }
+            }
+        }
+        return buildCommand(CMD_BULK_UPLOAD, entityType, dados.toString());
     }
     
     /**
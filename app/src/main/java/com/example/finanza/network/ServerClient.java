@@ -3,14 +3,29 @@ package com.example.finanza.network;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ServerClient - Cliente de Comunicação com Servidor Desktop via Sockets TCP/IP
@@ -21,7 +36,7 @@ import java.net.SocketTimeoutException;
  * Arquitetura de Comunicação:
  * - Protocolo: TCP/IP via Sockets
  * - Formato: Comandos de texto delimitados por pipes (|)
- * - Modo: Assíncrono usando AsyncTask
+ * - Modo: Assíncrono, com pipelining (várias requisições em voo por conexão)
  * - Conexão: Persistente durante sessão do usuário
  * 
  * Funcionalidades principais:
@@ -52,7 +67,8 @@ import java.net.SocketTimeoutException;
  * 
  * Thread-safety:
  * - Singleton sincronizado
- * - Operações de rede executadas em background (AsyncTask)
+ * - Conexão executada em background (AsyncTask); comandos escritos por uma
+ *   thread de escrita e respostas lidas por uma thread leitora dedicada
  * - Callbacks executados na thread principal (UI thread)
  * 
  * @author Finanza Team
@@ -76,6 +92,9 @@ public class ServerClient {
     /** Chave para armazenar a porta do servidor nas SharedPreferences */
     private static final String PREF_PORT = "server_port";
     
+    /** Chave do token da sessão no servidor (usado no RESUME após reconectar) */
+    private static final String PREF_SESSION_TOKEN = "session_token";
+    
     /** Contexto da aplicação Android para acessar recursos do sistema */
     private Context context;
     
@@ -85,17 +104,44 @@ public class ServerClient {
     /** Porta TCP onde o servidor desktop está escutando */
     private int serverPort;
     
+    /** Token da sessão no servidor (null se não houver login com o servidor atual) */
+    private volatile String tokenSessao;
+    
     /** Socket TCP para comunicação com o servidor */
     private Socket socket;
     
-    /** Stream de entrada para ler respostas do servidor */
-    private BufferedReader input;
+    /** Stream de entrada para ler respostas do servidor (linhas ou frames binários) */
+    private InputStream input;
+    
+    /** Stream de saída em bytes (frames do formato binário) */
+    private OutputStream saidaBytes;
     
-    /** Stream de saída para enviar comandos ao servidor */
+    /** Stream de saída para enviar comandos de texto ao servidor */
     private PrintWriter output;
     
+    /** Conexão no formato binário (alterado pela thread leitora ao receber OK|binary) */
+    private volatile boolean binario = false;
+    
+    /** Resposta (sem ID) aguardada da negociação SET_FORMAT */
+    private volatile CompletableFuture<String> negociacao;
+    
     /** Flag que indica se há conexão ativa com o servidor */
-    private boolean connected = false;
+    private volatile boolean connected = false;
+    
+    /** Gerador dos IDs de requisição (#id|COMANDO|...) */
+    private final AtomicLong proximoIdRequisicao = new AtomicLong();
+    
+    /** Requisições enviadas aguardando resposta, por ID */
+    private final Map<String, CompletableFuture<String>> requisicoesPendentes = new ConcurrentHashMap<>();
+    
+    /** Thread única de escrita no socket (rede fora da UI thread, uma linha por vez) */
+    private final ExecutorService escritor = Executors.newSingleThreadExecutor();
+    
+    /** Entrega dos callbacks na thread principal */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    /** Recebe as notificações de alterações (após inscreverNotificacoes) */
+    private volatile OuvinteNotificacoes ouvinteNotificacoes;
     
     /** Instância única da classe (padrão Singleton) */
     private static ServerClient instance;
@@ -174,6 +220,7 @@ public class ServerClient {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         serverHost = prefs.getString(PREF_HOST, "192.168.1.100");
         serverPort = prefs.getInt(PREF_PORT, 8080);
+        tokenSessao = prefs.getString(PREF_SESSION_TOKEN, null);
     }
     
     /**
@@ -196,11 +243,15 @@ public class ServerClient {
         this.serverHost = host;
         this.serverPort = port;
         
+        // Token de sessão só vale no servidor que o emitiu
+        this.tokenSessao = null;
+        
         // Persiste configurações para uso futuro
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         prefs.edit()
              .putString(PREF_HOST, host)
              .putInt(PREF_PORT, port)
+             .remove(PREF_SESSION_TOKEN)
              .apply();
              
         Log.d(TAG, "Servidor configurado: " + host + ":" + port);
@@ -252,14 +303,21 @@ public class ServerClient {
                     socket.connect(new java.net.InetSocketAddress(host, port), CONNECTION_TIMEOUT);
                     
                     // Cria stream de entrada para ler respostas do servidor
-                    input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                    // (bytes: as linhas são decodificadas pelo leitor e, no formato
+                    // binário, o mesmo stream passa a ser lido em frames)
+                    input = new BufferedInputStream(socket.getInputStream());
                     
                     // Cria stream de saída para enviar comandos (auto-flush ativado)
-                    output = new PrintWriter(socket.getOutputStream(), true);
+                    saidaBytes = new BufferedOutputStream(socket.getOutputStream());
+                    output = new PrintWriter(new OutputStreamWriter(saidaBytes, StandardCharsets.UTF_8), true);
                     
-                    // Marca como conectado
+                    // Marca como conectado (nova conexão começa no formato texto)
+                    binario = false;
                     connected = true;
                     
+                    // Thread leitora: entrega cada resposta à requisição do mesmo ID
+                    iniciarLeitor(socket, input);
+                    
                     return "Conectado ao servidor: " + host + ":" + port;
                     
                 } catch (SocketTimeoutException e) {
@@ -318,11 +376,12 @@ public class ServerClient {
      * (login, listar contas, adicionar movimentação, etc) utilizam este método.
      * 
      * Processo de comunicação:
-     * 1. Valida se há conexão ativa
-     * 2. Valida estado do socket  
-     * 3. Envia comando via PrintWriter
-     * 4. Aguarda resposta via BufferedReader  
-     * 5. Processa resposta e notifica via callback
+     * 1. Envia o comando com um ID de requisição via enviarComandoAsync()
+     * 2. A thread leitora recebe a resposta com o mesmo ID
+     * 3. Notifica o callback na thread principal
+     * 
+     * Vários comandos podem estar em voo ao mesmo tempo na mesma conexão;
+     * cada callback recebe a resposta do seu comando, em qualquer ordem.
      * 
      * Formato do comando:
      * - Comandos são strings no formato: "COMANDO|param1|param2|..."
@@ -334,97 +393,296 @@ public class ServerClient {
      * - Exemplo sucesso: "OK|1|João Silva|joao@email.com|usuario"
      * - Exemplo erro: "ERROR|Credenciais inválidas"
      * 
-     * Validações realizadas:
-     * - Verifica flag 'connected' antes de enviar
-     * - Verifica se socket não foi fechado ou desconectado
-     * - Detecta perda de conexão quando resposta é null
-     * 
-     * Logs gerados:
-     * - Log DEBUG do comando enviado
-     * - Log DEBUG da resposta recebida
-     * - Log ERROR em caso de falha de I/O
-     * 
      * @param comando String com o comando formatado (use Protocol.buildCommand())
      * @param callback Interface para receber resposta ou erro
      * @see Protocol#buildCommand(String, String...)
+     * @see #enviarComandoAsync(String)
      */
     public void enviarComando(String comando, ServerCallback<String> callback) {
-        new AsyncTask<String, Void, String>() {
-            /** Mensagem de erro caso ocorra falha no envio */
-            private String errorMessage = null;
+        enviarComandoAsync(comando).whenComplete((resposta, erro) -> mainHandler.post(() -> {
+            if (erro == null) {
+                callback.onSuccess(resposta);
+            } else {
+                Throwable causa = erro instanceof CompletionException && erro.getCause() != null
+                        ? erro.getCause() : erro;
+                callback.onError(causa.getMessage() != null ? causa.getMessage() : "Erro desconhecido");
+            }
+        }));
+    }
+    
+    /**
+     * Envia comando ao servidor sem bloquear, com ID de requisição
+     * 
+     * O comando sai como "#id|COMANDO|..." pela thread de escrita e o future
+     * é completado pela thread leitora quando chegar "#id|STATUS|dados".
+     * Pode ser chamado de qualquer thread.
+     * 
+     * @param comando String com o comando formatado
+     * @return future com a resposta "STATUS|dados"; falha com IOException
+     *         se não houver conexão ou se ela cair antes da resposta
+     */
+    public CompletableFuture<String> enviarComandoAsync(String comando) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        
+        // Validação: verifica se está conectado
+        if (!connected) {
+            future.completeExceptionally(new IOException("Não conectado ao servidor"));
+            return future;
+        }
+        
+        if (binario) {
+            String[] partes = comando.split("\\" + Protocol.SEPARATOR);
+            return enviarRequisicaoAsync(partes[0], Arrays.copyOfRange(partes, 1, partes.length));
+        }
+        
+        String id = Long.toString(proximoIdRequisicao.incrementAndGet());
+        requisicoesPendentes.put(id, future);
+        escritor.execute(() -> {
+            PrintWriter saida = output;
+            if (!connected || saida == null) {
+                falharRequisicao(id, new IOException("Conexão inválida"));
+                return;
+            }
+            saida.println(Protocol.REQUEST_ID_PREFIX + id + Protocol.SEPARATOR + comando);
+            if (saida.checkError()) {
+                connected = false;
+                falharRequisicao(id, new IOException("Erro na comunicação: falha ao enviar comando"));
+                return;
+            }
+            Log.d(TAG, "Comando enviado: #" + id + " " + comando);
+        });
+        return future;
+    }
+    
+    /**
+     * Envia comando com os argumentos já separados
+     * 
+     * No formato binário cada argumento vai como string própria, então
+     * descrições podem conter | ; , sem ambiguidade; no texto os argumentos
+     * são unidos com '|'.
+     * 
+     * @param comando nome do comando (ex: Protocol.CMD_ADD_MOVIMENTACAO)
+     * @param args argumentos do comando
+     * @return future com a resposta "STATUS|dados"
+     */
+    public CompletableFuture<String> enviarRequisicaoAsync(String comando, String... args) {
+        if (!binario) {
+            return enviarComandoAsync(Protocol.buildCommand(comando, args));
+        }
+        
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (!connected) {
+            future.completeExceptionally(new IOException("Não conectado ao servidor"));
+            return future;
+        }
+        
+        long id = proximoIdRequisicao.incrementAndGet();
+        requisicoesPendentes.put(Long.toString(id), future);
+        byte[] frame = BinaryCodec.codificarRequisicao(id, comando, args);
+        escritor.execute(() -> {
+            try {
+                BinaryCodec.enviar(saidaBytes, frame);
+                Log.d(TAG, "Comando enviado (binário): #" + id + " " + comando);
+            } catch (IOException e) {
+                connected = false;
+                falharRequisicao(Long.toString(id), new IOException("Erro na comunicação: " + e.getMessage()));
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Passa a conexão atual para o formato binário (SET_FORMAT|binary)
+     * 
+     * Deve ser chamado logo após conectar, sem comandos em voo. Se o servidor
+     * não suportar o formato, a conexão continua em texto e o callback recebe
+     * false.
+     * 
+     * @param callback recebe true se a conexão ficou no formato binário
+     */
+    public void ativarFormatoBinario(ServerCallback<Boolean> callback) {
+        if (!connected) {
+            callback.onError("Não conectado ao servidor");
+            return;
+        }
+        if (binario) {
+            callback.onSuccess(true);
+            return;
+        }
+        
+        CompletableFuture<String> resposta = new CompletableFuture<>();
+        negociacao = resposta;
+        escritor.execute(() -> output.println(Protocol.CMD_SET_FORMAT + Protocol.SEPARATOR + BinaryCodec.FORMATO_BINARIO));
+        resposta.whenComplete((linha, erro) -> {
+            negociacao = null;
+            mainHandler.post(() -> {
+                if (erro == null) {
+                    Log.d(TAG, "Negociação de formato: " + linha);
+                    callback.onSuccess(binario);
+                } else {
+                    callback.onError("Erro na negociação de formato: " + erro.getMessage());
+                }
+            });
+        });
+    }
+    
+    /**
+     * Indica se a conexão atual está no formato binário
+     */
+    public boolean isFormatoBinario() {
+        return binario;
+    }
+    
+    /**
+     * Pede ao servidor que comprima as respostas grandes desta conexão
+     * 
+     * Reduz bastante as listagens em redes móveis. Pode ser chamado a
+     * qualquer momento, em texto ou binário; vale até reconectar.
+     * 
+     * @param limiarBytes tamanho mínimo de resposta a comprimir
+     * @param callback recebe true se o servidor aceitou
+     */
+    public void ativarCompressao(int limiarBytes, ServerCallback<Boolean> callback) {
+        String comando = Protocol.CMD_SET_COMPRESSION + Protocol.SEPARATOR
+                + ResponseDecompressor.ALGORITMO_DEFLATE + Protocol.SEPARATOR + limiarBytes;
+        enviarComando(comando, new ServerCallback<String>() {
+            @Override
+            public void onSuccess(String resposta) {
+                callback.onSuccess(resposta.startsWith(Protocol.STATUS_OK + Protocol.SEPARATOR
+                        + ResponseDecompressor.ALGORITMO_DEFLATE));
+            }
             
-            /**
-             * Executa envio do comando em background thread
-             * 
-             * @param commands Array com o comando a ser enviado (índice 0)
-             * @return Resposta do servidor ou null em caso de erro
-             */
             @Override
-            protected String doInBackground(String... commands) {
-                String command = commands[0];
-                
-                // Validação 1: Verifica se está conectado
-                if (!connected) {
-                    errorMessage = "Não conectado ao servidor";
-                    return null;
-                }
-                
-                // Validação 2: Verifica estado do socket
-                if (socket == null || socket.isClosed() || !socket.isConnected()) {
-                    errorMessage = "Conexão inválida";
-                    connected = false; // Atualiza flag de conexão
-                    return null;
-                }
-                
-                try {
-                    // Envia comando ao servidor
-                    output.println(command);
-                    output.flush(); // Garante envio imediato do comando
-                    
-                    // Aguarda resposta do servidor (BLOQUEANTE)
-                    String response = input.readLine();
-                    
-                    // Verifica se conexão foi perdida
-                    if (response == null) {
-                        errorMessage = "Conexão perdida com o servidor";
-                        connected = false;
-                        return null;
+            public void onError(String erro) {
+                callback.onError(erro);
+            }
+        });
+    }
+    
+    /**
+     * Inicia a thread que lê as respostas da conexão e completa as requisições
+     * 
+     * Cada conexão tem seu próprio leitor; ao perder a conexão, todas as
+     * requisições pendentes falham com "Conexão perdida com o servidor".
+     */
+    private void iniciarLeitor(Socket socketLeitura, InputStream entrada) {
+        Thread leitor = new Thread(() -> {
+            // Inflater desta conexão, reaproveitado entre as respostas comprimidas
+            ResponseDecompressor descompressor = new ResponseDecompressor();
+            try {
+                while (true) {
+                    if (binario) {
+                        byte[] frame = BinaryCodec.lerFrame(entrada);
+                        if (frame == null) {
+                            break;
+                        }
+                        BinaryCodec.Resposta resposta = BinaryCodec.decodificarResposta(frame, descompressor);
+                        Log.d(TAG, "Resposta recebida (binário): #" + resposta.idRequisicao);
+                        completarRequisicao(Long.toString(resposta.idRequisicao), resposta.texto);
+                        continue;
                     }
                     
-                    // Logs de debug para acompanhamento
-                    Log.d(TAG, "Comando enviado: " + command);
-                    Log.d(TAG, "Resposta recebida: " + response);
-                    
-                    return response;
-                    
-                } catch (IOException e) {
-                    // Erro de comunicação: conexão caiu, servidor fechou, timeout, etc
-                    errorMessage = "Erro na comunicação: " + e.getMessage();
-                    connected = false;
-                    Log.e(TAG, "Erro IO ao enviar comando: " + e.getMessage());
-                    return null;
-                } catch (Exception e) {
-                    // Outros erros não previstos
-                    errorMessage = "Erro inesperado: " + e.getMessage();
-                    Log.e(TAG, "Erro inesperado ao enviar comando: " + e.getMessage());
-                    return null;
+                    String linha = lerLinha(entrada);
+                    if (linha == null) {
+                        break;
+                    }
+                    Log.d(TAG, "Resposta recebida: " + linha);
+                    int fimId = linha.indexOf(Protocol.SEPARATOR);
+                    if (!linha.startsWith(Protocol.REQUEST_ID_PREFIX) || fimId < 0) {
+                        CompletableFuture<String> aguardando = negociacao;
+                        if (aguardando != null) {
+                            // Resposta do SET_FORMAT: a partir daqui o servidor envia frames
+                            binario = (Protocol.STATUS_OK + Protocol.SEPARATOR + BinaryCodec.FORMATO_BINARIO).equals(linha);
+                            aguardando.complete(linha);
+                        } else {
+                            Log.w(TAG, "Resposta sem ID de requisição ignorada");
+                        }
+                        continue;
+                    }
+                    String resposta = linha.substring(fimId + 1);
+                    if (ResponseDecompressor.isComprimida(resposta)) {
+                        // Os bytes comprimidos seguem a linha do cabeçalho
+                        resposta = descompressor.lerResposta(resposta, entrada);
+                    }
+                    completarRequisicao(linha.substring(Protocol.REQUEST_ID_PREFIX.length(), fimId), resposta);
                 }
+            } catch (IOException e) {
+                Log.e(TAG, "Erro IO ao ler respostas: " + e.getMessage());
+            } finally {
+                descompressor.encerrar();
             }
-            
-            /**
-             * Executa na UI thread após conclusão do envio
-             * 
-             * @param result Resposta do servidor ou null
-             */
-            @Override
-            protected void onPostExecute(String result) {
-                if (result != null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onError(errorMessage != null ? errorMessage : "Erro desconhecido");
-                }
+            // Só marca desconectado se ainda for a conexão atual (não uma reconexão)
+            if (socket == socketLeitura) {
+                connected = false;
+            }
+            falharPendentes(new IOException("Conexão perdida com o servidor"));
+        }, "finanza-server-reader");
+        leitor.setDaemon(true);
+        leitor.start();
+    }
+    
+    /**
+     * Lê uma linha de texto (UTF-8) byte a byte, sem consumir os frames
+     * binários que podem vir depois da negociação
+     */
+    private static String lerLinha(InputStream entrada) throws IOException {
+        ByteArrayOutputStream linha = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = entrada.read()) != '\n') {
+            if (b < 0) {
+                return linha.size() > 0 ? new String(linha.toByteArray(), StandardCharsets.UTF_8) : null;
             }
-        }.execute(comando);
+            linha.write(b);
+        }
+        byte[] bytes = linha.toByteArray();
+        int tamanho = bytes.length;
+        if (tamanho > 0 && bytes[tamanho - 1] == '\r') {
+            tamanho--;
+        }
+        return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+    }
+    
+    private void completarRequisicao(String id, String resposta) {
+        if (Protocol.NOTIFY_REQUEST_ID.equals(id)) {
+            entregarNotificacao(resposta);
+            return;
+        }
+        CompletableFuture<String> future = requisicoesPendentes.remove(id);
+        if (future != null) {
+            future.complete(resposta);
+        }
+    }
+    
+    /**
+     * Repassa uma notificação NOTIFY|entidade|operacao|id|versao|idUsuario
+     * ao ouvinte, na própria thread de leitura
+     */
+    private void entregarNotificacao(String resposta) {
+        OuvinteNotificacoes ouvinte = ouvinteNotificacoes;
+        String[] partes = Protocol.parseCommand(resposta);
+        if (ouvinte == null || partes.length < 5 || !Protocol.NOTIFY.equals(partes[0])) {
+            return;
+        }
+        try {
+            ouvinte.onAlteracao(partes[1], partes[2], Integer.parseInt(partes[3]), Long.parseLong(partes[4]));
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Notificação inválida ignorada: " + resposta);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Erro no ouvinte de notificações: " + e.getMessage());
+        }
+    }
+    
+    private void falharRequisicao(String id, IOException causa) {
+        CompletableFuture<String> future = requisicoesPendentes.remove(id);
+        if (future != null) {
+            future.completeExceptionally(causa);
+        }
+    }
+    
+    private void falharPendentes(IOException causa) {
+        for (String id : requisicoesPendentes.keySet()) {
+            falharRequisicao(id, causa);
+        }
     }
     
     /**
@@ -445,8 +703,9 @@ public class ServerClient {
      * "LOGIN|email@exemplo.com|senha_criptografada|mobile"
      * 
      * Formato da resposta bem-sucedida:
-     * "OK|id_usuario|nome_usuario|email_usuario|tipo_usuario"
-     * Exemplo: "OK|1|João Silva|joao@email.com|usuario"
+     * "OK|id_usuario;nome_usuario;email_usuario;tipo_usuario;token_sessao"
+     * Exemplo: "OK|1;João Silva;joao@email.com;usuario;Xo3...Q.k9F...w"
+     * O token é guardado para retomarSessao() após uma queda de conexão.
      * 
      * Formato da resposta de erro:
      * "ERROR|mensagem_erro"
@@ -481,6 +740,7 @@ public class ServerClient {
                 // Verifica se login foi bem-sucedido
                 if (partes.length > 0 && Protocol.STATUS_OK.equals(partes[0])) {
                     Log.d(TAG, "Login bem-sucedido, mantendo conexão para sincronização");
+                    guardarTokenSessao(partes);
                     callback.onSuccess(result); // Retorna resposta completa para parsing posterior
                 } else if (partes.length > 1) {
                     // Login falhou - retorna mensagem de erro do servidor
@@ -499,6 +759,165 @@ public class ServerClient {
         });
     }
     
+    /**
+     * Retoma a sessão do último login em uma nova conexão
+     * 
+     * Depois de uma queda de conexão (troca de rede, app em segundo plano),
+     * envia "RESUME|token|mobile" em vez de LOGIN: o servidor devolve o
+     * usuário da sessão sem consultar o banco nem verificar a senha, e os
+     * dados locais continuam válidos, sem precisar de sincronização completa.
+     * 
+     * Se o token tiver expirado ou o servidor tiver reiniciado, o token é
+     * descartado e o callback recebe erro: é preciso fazer login().
+     * 
+     * A conexão deve estar estabelecida antes de chamar este método.
+     * 
+     * @param callback Interface para receber resultado (resposta completa do servidor)
+     * @see Protocol#CMD_RESUME
+     * @see #autenticar(String, String, ServerCallback)
+     */
+    public void retomarSessao(ServerCallback<String> callback) {
+        String token = tokenSessao;
+        if (token == null) {
+            callback.onError("Nenhuma sessão para retomar");
+            return;
+        }
+        
+        enviarComando(Protocol.buildCommand(Protocol.CMD_RESUME, token, "mobile"), new ServerCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                String[] partes = Protocol.parseCommand(result);
+                if (partes.length > 0 && Protocol.STATUS_OK.equals(partes[0])) {
+                    Log.d(TAG, "Sessão retomada sem novo login");
+                    callback.onSuccess(result);
+                } else {
+                    // Sessão expirada ou inválida: só um novo login resolve
+                    limparTokenSessao();
+                    callback.onError(partes.length > 1 ? partes[1] : "Sessão expirada");
+                }
+            }
+            
+            @Override
+            public void onError(String error) {
+                // Erro de rede: o token continua válido para a próxima tentativa
+                callback.onError(error);
+            }
+        });
+    }
+    
+    /**
+     * Autentica a conexão atual: retoma a sessão se houver token e,
+     * se ela tiver expirado, faz login completo com as credenciais
+     * 
+     * @param email Email do usuário (usado só se o RESUME falhar)
+     * @param senha Senha do usuário (usada só se o RESUME falhar)
+     * @param callback Interface para receber resultado (resposta completa do servidor)
+     */
+    public void autenticar(String email, String senha, ServerCallback<String> callback) {
+        if (tokenSessao == null) {
+            login(email, senha, callback);
+            return;
+        }
+        retomarSessao(new ServerCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                callback.onSuccess(result);
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.d(TAG, "RESUME falhou (" + error + "), fazendo login completo");
+                login(email, senha, callback);
+            }
+        });
+    }
+    
+    /**
+     * Ouvinte das alterações feitas pelas outras sessões do usuário
+     * 
+     * Chamado na thread de leitura da conexão: deve apenas registrar ou
+     * agendar o trabalho, sem bloquear (as respostas esperam por ele).
+     */
+    public interface OuvinteNotificacoes {
+        /**
+         * @param entidade conta, categoria ou movimentacao
+         * @param operacao ADD, UPDATE, DELETE ou BULK
+         * @param id registro alterado (0 no BULK)
+         * @param versao versão da sincronização após a alteração
+         */
+        void onAlteracao(String entidade, String operacao, int id, long versao);
+    }
+    
+    /**
+     * Define quem recebe as notificações (null para deixar de receber)
+     */
+    public void setOuvinteNotificacoes(OuvinteNotificacoes ouvinte) {
+        this.ouvinteNotificacoes = ouvinte;
+    }
+    
+    /**
+     * Inscreve a conexão atual nas alterações feitas pelas outras sessões do
+     * usuário (outro celular, o admin no desktop)
+     * 
+     * A inscrição vale para a conexão: após reconectar e autenticar é preciso
+     * inscrever de novo. As notificações podem ser perdidas (fila cheia no
+     * servidor); a sincronização periódica continua cobrindo o intervalo.
+     * 
+     * @param callback Interface para receber resultado (resposta completa do servidor)
+     * @see Protocol#CMD_SUBSCRIBE
+     */
+    public void inscreverNotificacoes(ServerCallback<String> callback) {
+        enviarComando(Protocol.CMD_SUBSCRIBE, callback);
+    }
+    
+    /**
+     * Indica se há token de sessão para retomar após reconectar
+     */
+    public boolean temSessao() {
+        return tokenSessao != null;
+    }
+    
+    /**
+     * Encerra a sessão no servidor (logout) e desconecta
+     * 
+     * Envia LOGOUT para o servidor invalidar o token e só então fecha a
+     * conexão. O token local é descartado mesmo sem conexão.
+     */
+    public void encerrarSessao() {
+        limparTokenSessao();
+        if (!isConnected()) {
+            return;
+        }
+        enviarComandoAsync(Protocol.CMD_LOGOUT).whenComplete((resposta, erro) -> disconnect());
+    }
+    
+    /**
+     * Guarda o token do último campo da resposta "OK|id;nome;email;tipo;token"
+     * (servidores sem sessões não enviam o token)
+     */
+    private void guardarTokenSessao(String[] partes) {
+        if (partes.length < 2) {
+            return;
+        }
+        String[] dados = Protocol.parseFields(partes[1]);
+        if (dados.length < 5 || dados[4].isEmpty()) {
+            return;
+        }
+        tokenSessao = dados[4];
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+               .edit()
+               .putString(PREF_SESSION_TOKEN, tokenSessao)
+               .apply();
+    }
+    
+    private void limparTokenSessao() {
+        tokenSessao = null;
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+               .edit()
+               .remove(PREF_SESSION_TOKEN)
+               .apply();
+    }
+    
     /**
      * Registra novo usuário no servidor desktop
      * 
@@ -557,6 +976,7 @@ public class ServerClient {
                 
                 // Verifica se registro foi bem-sucedido
                 if (partes.length > 0 && Protocol.STATUS_OK.equals(partes[0])) {
+                    guardarTokenSessao(partes);
                     callback.onSuccess("Usuário registrado com sucesso");
                 } else if (partes.length > 1) {
                     // Registro falhou - retorna mensagem de erro (ex: email já existe)
@@ -586,7 +1006,7 @@ public class ServerClient {
      * - Houve erro irrecuperável na conexão
      * 
      * Recursos liberados:
-     * - BufferedReader (input stream)
+     * - InputStream (entrada, linhas e frames)
      * - PrintWriter (output stream)
      * - Socket TCP
      * 
@@ -602,15 +1022,15 @@ public class ServerClient {
             // Marca como desconectado primeiro para evitar envio durante fechamento
             connected = false;
             
+            // Fecha socket TCP primeiro: desbloqueia o readLine() da thread leitora
+            if (socket != null) socket.close();
+            
             // Fecha stream de entrada
             if (input != null) input.close();
             
             // Fecha stream de saída
             if (output != null) output.close();
             
-            // Fecha socket TCP
-            if (socket != null) socket.close();
-            
             Log.d(TAG, "Desconectado do servidor");
         } catch (IOException e) {
             // Log de erro, mas não propaga exceção
@@ -746,6 +1166,205 @@ public class ServerClient {
         enviarComando(comando, callback);
     }
     
+    /**
+     * Página de movimentações devolvida pelos comandos *_PAGE
+     * 
+     * Resposta do servidor: "OK|proximoCursor|mov1;mov2;..." onde cada
+     * movimentação tem o mesmo formato de LIST_MOVIMENTACOES e
+     * proximoCursor é vazio na última página.
+     */
+    public static class PaginaMovimentacoes {
+        /** Registros no formato "id,valorInt,valorDec,data,desc,tipo,contaId,catId" */
+        public final String[] registros;
+        
+        /** Cursor opaco para a próxima página, ou null se esta for a última */
+        public final String proximoCursor;
+        
+        PaginaMovimentacoes(String[] registros, String proximoCursor) {
+            this.registros = registros;
+            this.proximoCursor = proximoCursor;
+        }
+        
+        public boolean temProximaPagina() {
+            return proximoCursor != null;
+        }
+        
+        /**
+         * Interpreta a resposta completa de um comando paginado
+         * 
+         * @param resposta Resposta recebida do servidor
+         * @return Página interpretada, ou null se o status não for OK
+         */
+        public static PaginaMovimentacoes fromResponse(String resposta) {
+            if (resposta == null) {
+                return null;
+            }
+            String[] partes = resposta.split("\\" + Protocol.SEPARATOR, 3);
+            if (partes.length < 1 || !Protocol.STATUS_OK.equals(partes[0])) {
+                return null;
+            }
+            String cursor = partes.length >= 2 && !partes[1].trim().isEmpty() ? partes[1].trim() : null;
+            String[] registros = Protocol.parseFields(partes.length >= 3 ? partes[2] : "");
+            return new PaginaMovimentacoes(registros, cursor);
+        }
+    }
+    
+    /**
+     * Lista uma página das movimentações do usuário (mais recentes primeiro)
+     * 
+     * Permite que a tela carregue só a primeira página e busque as demais
+     * sob demanda, em vez de receber todo o histórico em uma única linha.
+     * 
+     * @param limite Número de movimentações por página (1 a Protocol.MAX_PAGE_SIZE)
+     * @param cursor Cursor da página anterior (PaginaMovimentacoes.proximoCursor) ou null
+     * @param callback Interface para receber a página
+     * @see Protocol#CMD_LIST_MOVIMENTACOES_PAGE
+     */
+    public void listarMovimentacoesPagina(int limite, String cursor, ServerCallback<PaginaMovimentacoes> callback) {
+        enviarComandoPaginado(Protocol.buildListMovimentacoesPageCommand(limite, cursor), callback);
+    }
+    
+    /**
+     * Lista uma página das movimentações de um período (datas yyyy-MM-dd)
+     * 
+     * @see Protocol#CMD_LIST_MOVIMENTACOES_PERIODO_PAGE
+     */
+    public void listarMovimentacoesPeriodoPagina(String dataInicio, String dataFim, int limite, String cursor,
+                                                 ServerCallback<PaginaMovimentacoes> callback) {
+        enviarComandoPaginado(Protocol.buildListMovimentacoesPeriodoPageCommand(dataInicio, dataFim, limite, cursor),
+                callback);
+    }
+    
+    /**
+     * Lista uma página das movimentações de uma conta
+     * 
+     * @see Protocol#CMD_LIST_MOVIMENTACOES_CONTA_PAGE
+     */
+    public void listarMovimentacoesContaPagina(int contaId, int limite, String cursor,
+                                               ServerCallback<PaginaMovimentacoes> callback) {
+        enviarComandoPaginado(Protocol.buildListMovimentacoesContaPageCommand(contaId, limite, cursor), callback);
+    }
+    
+    private void enviarComandoPaginado(String comando, ServerCallback<PaginaMovimentacoes> callback) {
+        enviarComando(comando, new ServerCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                PaginaMovimentacoes pagina = PaginaMovimentacoes.fromResponse(result);
+                if (pagina != null) {
+                    callback.onSuccess(pagina);
+                } else {
+                    String[] partes = Protocol.parseCommand(result);
+                    callback.onError(partes.length >= 2 ? partes[1] : "Resposta inválida do servidor");
+                }
+            }
+            
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+    
+    /**
+     * Alterações de uma entidade recebidas por LIST_CHANGES_SINCE
+     */
+    public static class AlteracoesServidor {
+        /** Versão a enviar na próxima sincronização incremental */
+        public final long versaoAtual;
+        
+        /** Registros criados ou alterados, no mesmo formato das listagens completas */
+        public final String[] registros;
+        
+        /** IDs dos registros excluídos no servidor */
+        public final int[] idsExcluidos;
+        
+        AlteracoesServidor(long versaoAtual, String[] registros, int[] idsExcluidos) {
+            this.versaoAtual = versaoAtual;
+            this.registros = registros;
+            this.idsExcluidos = idsExcluidos;
+        }
+        
+        /**
+         * Interpreta a resposta completa de LIST_CHANGES_SINCE
+         * 
+         * @param resposta Resposta recebida do servidor
+         * @return Alterações interpretadas, ou null se o status não for OK
+         */
+        public static AlteracoesServidor fromResponse(String resposta) {
+            if (resposta == null) {
+                return null;
+            }
+            String[] partes = resposta.split("\\" + Protocol.SEPARATOR, 4);
+            if (partes.length < 2 || !Protocol.STATUS_OK.equals(partes[0])) {
+                return null;
+            }
+            long versao;
+            try {
+                versao = Long.parseLong(partes[1].trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            String[] registros = Protocol.parseFields(partes.length >= 3 ? partes[2] : "");
+            
+            String excluidosStr = partes.length >= 4 ? partes[3].trim() : "";
+            String[] excluidosPartes = excluidosStr.isEmpty() ? new String[0] : excluidosStr.split(",");
+            int[] excluidos = new int[excluidosPartes.length];
+            for (int i = 0; i < excluidosPartes.length; i++) {
+                excluidos[i] = Integer.parseInt(excluidosPartes[i].trim());
+            }
+            return new AlteracoesServidor(versao, registros, excluidos);
+        }
+    }
+    
+    /**
+     * Lista o que mudou em uma entidade desde a última sincronização
+     * 
+     * Em vez de baixar todo o histórico, o cliente envia a versaoAtual recebida
+     * na sincronização anterior e recebe só os registros alterados e os IDs
+     * excluídos desde então (versão 0 devolve tudo).
+     * 
+     * @param entidade categoria, conta ou movimentacao
+     * @param desdeVersao versaoAtual da última sincronização, ou 0
+     * @param callback Interface para receber as alterações
+     * @see Protocol#CMD_LIST_CHANGES_SINCE
+     */
+    public void listarAlteracoesDesde(String entidade, long desdeVersao, ServerCallback<AlteracoesServidor> callback) {
+        enviarComando(Protocol.buildIncrementalSyncCommand(entidade, desdeVersao), new ServerCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                AlteracoesServidor alteracoes = null;
+                try {
+                    alteracoes = AlteracoesServidor.fromResponse(result);
+                } catch (NumberFormatException e) {
+                    Log.e(TAG, "IDs excluídos inválidos na resposta: " + result, e);
+                }
+                if (alteracoes != null) {
+                    callback.onSuccess(alteracoes);
+                } else {
+                    String[] partes = Protocol.parseCommand(result);
+                    callback.onError(partes.length >= 2 ? partes[1] : "Resposta inválida do servidor");
+                }
+            }
+            
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+    
+    /**
+     * Verifica quais entidades mudaram no servidor desde uma versão
+     * 
+     * Resposta esperada: "OK|versaoAtual|categoria,conta,movimentacao"
+     * (lista vazia quando nada mudou).
+     * 
+     * @see Protocol#CMD_INCREMENTAL_SYNC
+     */
+    public void verificarAlteracoes(long desdeVersao, ServerCallback<String> callback) {
+        enviarComando(Protocol.buildIncrementalSyncStatusCommand(desdeVersao), callback);
+    }
+    
     /**
      * Obtém dados do perfil do usuário autenticado
      * 
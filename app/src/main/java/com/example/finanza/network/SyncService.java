@@ -10,7 +10,10 @@ import com.example.finanza.model.Lancamento;
 import com.example.finanza.model.Usuario;
 import com.example.finanza.util.DataIntegrityValidator;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -28,6 +31,9 @@ public class SyncService {
     private ServerClient serverClient;
     private ExecutorService executor;
 
+    /** Entidades com atualização agendada por notificação (coalesce rajadas) */
+    private final Set<String> entidadesPendentes = ConcurrentHashMap.newKeySet();
+
     // Callbacks para sincronização
     public interface SyncCallback {
         void onSyncStarted();
@@ -81,6 +87,7 @@ public class SyncService {
                     }
                     return;
                 }
+                ativarNotificacoes(usuarioId);
 
                 boolean success = true;
                 StringBuilder message = new StringBuilder();
@@ -146,8 +153,8 @@ public class SyncService {
             final Object lock = new Object();
             final boolean[] authSuccess = {false};
 
-            // Attempt login on the server
-            serverClient.login(usuario.email, usuario.senha, new ServerClient.ServerCallback<String>() {
+            // Retoma a sessão do último login (RESUME) ou, se expirada, faz login completo
+            serverClient.autenticar(usuario.email, usuario.senha, new ServerClient.ServerCallback<String>() {
                 @Override
                 public void onSuccess(String result) {
                     Log.d(TAG, "Autenticação no servidor bem-sucedida");
@@ -381,65 +388,79 @@ public class SyncService {
 
     /**
      * Sincroniza apenas lançamentos pendentes (syncStatus = 2)
+     * 
+     * Envia os pendentes em lotes (BULK_UPLOAD), uma ida ao servidor para até
+     * Protocol.MAX_BULK_ITEMS lançamentos, em vez de um ADD_MOVIMENTACAO por
+     * lançamento. O servidor grava o lote em uma transação e devolve os IDs
+     * na ordem enviada (lançamentos já existentes recebem o ID existente).
      */
     private boolean sincronizarLancamentosPendentes(int usuarioId) {
         try {
             List<Lancamento> lancamentos = database.lancamentoDao().listarPorUsuario(usuarioId);
-            int lancamentosProcessados = 0;
-
+            List<Lancamento> pendentes = new ArrayList<>();
             for (Lancamento lancamento : lancamentos) {
                 // ✅ NOVA LÓGICA: Pular se já sincronizado
-                if (lancamento.syncStatus == 1) {
-                    continue;
+                if (lancamento.syncStatus != 1) {
+                    pendentes.add(lancamento);
                 }
+            }
 
-                final Lancamento lancamentoFinal = lancamento;
-                String comando = Protocol.buildCommand(
-                        Protocol.CMD_ADD_MOVIMENTACAO,
-                        String.valueOf(lancamento.valor),
-                        new java.sql.Date(lancamento.data).toString(),
-                        lancamento.descricao,
-                        lancamento.tipo,
-                        String.valueOf(lancamento.contaId),
-                        String.valueOf(lancamento.categoriaId)
-                );
-                Log.d(TAG, "Sincronizando lançamento pendente: " + lancamento.descricao);
-                lancamentosProcessados++;
+            if (pendentes.isEmpty() || !serverClient.isConnected()) {
+                Log.d(TAG, "Total de lançamentos pendentes: " + pendentes.size());
+                return true;
+            }
 
-                if (serverClient.isConnected()) {
-                    serverClient.enviarComando(comando, new ServerClient.ServerCallback<String>() {
-                        @Override
-                        public void onSuccess(String result) {
-                            Log.d(TAG, "Lançamento sincronizado: " + lancamentoFinal.descricao);
-                            try {
-                                String[] partes = Protocol.parseCommand(result);
-                                if (partes.length >= 2 && Protocol.STATUS_OK.equals(partes[0])) {
-                                    int serverId = Integer.parseInt(partes[1]);
-                                    lancamentoFinal.serverId = serverId;
-                                    lancamentoFinal.markAsSynced();
-                                    database.lancamentoDao().atualizar(lancamentoFinal);
-                                    Log.d(TAG, "Server ID " + serverId + " salvo para lançamento: " + lancamentoFinal.descricao);
-                                }
-                            } catch (Exception e) {
-                                Log.w(TAG, "Erro ao processar resposta do servidor: " + e.getMessage());
+            for (int inicio = 0; inicio < pendentes.size(); inicio += Protocol.MAX_BULK_ITEMS) {
+                final List<Lancamento> lote = pendentes.subList(inicio,
+                        Math.min(inicio + Protocol.MAX_BULK_ITEMS, pendentes.size()));
+
+                List<String[]> itens = new ArrayList<>(lote.size());
+                for (Lancamento lancamento : lote) {
+                    itens.add(new String[] {
+                            String.valueOf(lancamento.valor),
+                            new java.sql.Date(lancamento.data).toString(),
+                            lancamento.descricao,
+                            lancamento.tipo,
+                            String.valueOf(lancamento.contaId),
+                            String.valueOf(lancamento.categoriaId)
+                    });
+                }
+                String comando = Protocol.buildBulkUploadCommand("movimentacao", itens);
+                Log.d(TAG, "Sincronizando lote de " + lote.size() + " lançamentos pendentes");
+
+                serverClient.enviarComando(comando, new ServerClient.ServerCallback<String>() {
+                    @Override
+                    public void onSuccess(String result) {
+                        try {
+                            String[] partes = result.split("\\" + Protocol.SEPARATOR, 2);
+                            if (partes.length < 2 || !Protocol.STATUS_OK.equals(partes[0])) {
+                                Log.e(TAG, "Erro ao sincronizar lote de lançamentos: " + result);
+                                return;
                             }
-                        }
-                        @Override
-                        public void onError(String error) {
-                            if (error.toLowerCase().contains("já existe") || error.toLowerCase().contains("duplicate")) {
-                                Log.d(TAG, "Lançamento já existe no servidor: " + lancamentoFinal.descricao);
-                                // ✅ NOVO: Marca como sincronizado mesmo se duplicado
-                                lancamentoFinal.markAsSynced();
-                                database.lancamentoDao().atualizar(lancamentoFinal);
-                            } else {
-                                Log.e(TAG, "Erro ao sincronizar lançamento " + lancamentoFinal.descricao + ": " + error);
+                            String[] ids = Protocol.parseFields(partes[1]);
+                            if (ids.length != lote.size()) {
+                                Log.e(TAG, "Resposta do lote com " + ids.length + " IDs para " + lote.size() + " lançamentos");
+                                return;
                             }
+                            for (int i = 0; i < ids.length; i++) {
+                                Lancamento lancamento = lote.get(i);
+                                lancamento.serverId = Integer.parseInt(ids[i].trim());
+                                lancamento.markAsSynced();
+                                database.lancamentoDao().atualizar(lancamento);
+                            }
+                            Log.d(TAG, "Lote de " + ids.length + " lançamentos sincronizado");
+                        } catch (Exception e) {
+                            Log.w(TAG, "Erro ao processar resposta do servidor: " + e.getMessage());
                         }
-                    });
-                }
+                    }
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Erro ao sincronizar lote de lançamentos: " + error);
+                    }
+                });
             }
 
-            Log.d(TAG, "Total de lançamentos pendentes sincronizados: " + lancamentosProcessados);
+            Log.d(TAG, "Total de lançamentos pendentes enviados: " + pendentes.size());
             return true;
         } catch (Exception e) {
             Log.e(TAG, "Erro ao sincronizar lançamentos pendentes: " + e.getMessage(), e);
@@ -1001,11 +1022,71 @@ public class SyncService {
         });
     }
 
+    /**
+     * Inscreve a conexão nas alterações feitas em outras sessões do usuário
+     * (outro aparelho, o admin no desktop) e atualiza só a entidade alterada,
+     * sem esperar a próxima sincronização completa
+     *
+     * Chamado a cada sincronização já autenticada: a inscrição vale por
+     * conexão e se perde ao reconectar.
+     */
+    private void ativarNotificacoes(int usuarioId) {
+        serverClient.setOuvinteNotificacoes((entidade, operacao, id, versao) -> {
+            Log.d(TAG, "Alteração no servidor: " + entidade + " " + operacao + " #" + id + " v" + versao);
+            agendarAtualizacao(entidade, usuarioId);
+            // Excluir conta ou categoria remove também as movimentações dela
+            if ("DELETE".equals(operacao) && !"movimentacao".equals(entidade)) {
+                agendarAtualizacao("movimentacao", usuarioId);
+            }
+        });
+        serverClient.inscreverNotificacoes(new ServerClient.ServerCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                Log.d(TAG, "Notificações de alterações: " + result);
+            }
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Falha ao inscrever notificações: " + error);
+            }
+        });
+    }
+
+    /**
+     * Agenda o download de uma entidade no executor de sincronização
+     *
+     * Chamado na thread de leitura do ServerClient, por isso só agenda. Uma
+     * rajada de notificações (importação em lote, várias edições seguidas)
+     * vira um único download enquanto o anterior ainda não começou.
+     */
+    private void agendarAtualizacao(String entidade, int usuarioId) {
+        if (!entidadesPendentes.add(entidade)) {
+            return;
+        }
+        ensureExecutorAvailable();
+        executor.execute(() -> {
+            entidadesPendentes.remove(entidade);
+            switch (entidade) {
+                case "conta":
+                    buscarContasDoServidor(usuarioId);
+                    break;
+                case "categoria":
+                    buscarCategoriasDoServidor(usuarioId);
+                    break;
+                case "movimentacao":
+                    buscarMovimentacoesDoServidor(usuarioId);
+                    break;
+                default:
+                    Log.w(TAG, "Notificação de entidade desconhecida: " + entidade);
+            }
+        });
+    }
+
     public boolean isOnline() {
         return serverClient.isConnected();
     }
 
     public void shutdown() {
+        serverClient.setOuvinteNotificacoes(null);
         if (executor != null && !executor.isShutdown()) {
             executor.shutdown();
         }
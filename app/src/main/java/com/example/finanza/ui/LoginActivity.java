@@ -2,6 +2,7 @@ package com.example.finanza.ui;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
@@ -44,6 +45,8 @@ import com.google.android.material.textfield.TextInputEditText;
  */
 public class LoginActivity extends AppCompatActivity {
 
+    private static final String TAG = "LoginActivity";
+
     // Gerenciador de autenticação (Singleton)
     private AuthManager authManager;
     
@@ -81,6 +84,19 @@ public class LoginActivity extends AppCompatActivity {
 
         // Verificar se já existe uma sessão ativa
         if (authManager.isLoggedIn()) {
+            // Reconecta em segundo plano retomando a sessão do servidor (sem novo login)
+            authManager.retomarSessao(new AuthManager.AuthCallback() {
+                @Override
+                public void onSuccess(Usuario usuario) {
+                    Log.d(TAG, "Sessão com o servidor restabelecida");
+                }
+
+                @Override
+                public void onError(String error) {
+                    Log.d(TAG, "Sessão com o servidor não restabelecida: " + error);
+                }
+            });
+
             // Usuário já autenticado, redirecionar para tela principal
             Intent intent = new Intent(this, MainActivity.class);
             intent.putExtra("usuarioId", authManager.getLoggedUserId());